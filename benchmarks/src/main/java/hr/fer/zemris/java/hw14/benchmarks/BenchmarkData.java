@@ -0,0 +1,117 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.VotesDelta;
+
+/**
+ * Razred koji sadrži pomoćne metode za stvaranje podataka nad kojima se
+ * izvode mjerenja koja ne koriste bazu podataka. Podaci se stvaraju uz
+ * nepromjenjivo sjeme generatora slučajnih brojeva, pa je svako pokretanje
+ * mjerenja ponovljivo. Ovom razredu ne mogu se stvarati primjerci.
+ *
+ * @author Davor Češljaš
+ */
+public class BenchmarkData {
+
+	/** Konstanta koja predstavlja sjeme generatora slučajnih brojeva */
+	private static final long SEED = 42;
+
+	/** Konstanta koja predstavlja najveći broj glasova jednog odgovora */
+	private static final int MAX_VOTES = 10_000;
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Metoda koja stvara anketu sa identifikatorom <b>pollID</b>
+	 *
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return stvorena anketa
+	 */
+	public static Poll poll(long pollID) {
+		return new Poll(pollID, "Anketa " + pollID, "Mjerenje");
+	}
+
+	/**
+	 * Metoda koja stvara {@link List} od <b>count</b> odgovora ankete sa
+	 * identifikatorom <b>pollID</b>. Svaki odgovor dobiva slučajan broj
+	 * glasova.
+	 *
+	 * @param pollID
+	 *            identifikator ankete
+	 * @param count
+	 *            broj odgovora
+	 * @return {@link List} stvorenih odgovora
+	 */
+	public static List<PollOption> pollOptions(long pollID, int count) {
+		Random random = new Random(SEED);
+		List<PollOption> pollOptions = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			pollOptions.add(new PollOption(i, "Odgovor " + i, "https://www.example.com/" + i, pollID,
+					random.nextInt(MAX_VOTES)));
+		}
+		return pollOptions;
+	}
+
+	/**
+	 * Metoda koja stvara primjerak sučelja {@link DAO} koji poslužuje samo
+	 * predanu anketu i njezine odgovore iz memorije. Glasanje nije podržano.
+	 *
+	 * @param poll
+	 *            anketa koju {@link DAO} poslužuje
+	 * @param pollOptions
+	 *            odgovori ankete
+	 * @return primjerak sučelja {@link DAO}
+	 */
+	public static DAO inMemoryDAO(Poll poll, List<PollOption> pollOptions) {
+		return new DAO() {
+
+			@Override
+			public List<PollOption> getPollOptions(long pollID) {
+				return pollID == poll.getId() ? new ArrayList<>(pollOptions) : new ArrayList<>();
+			}
+
+			@Override
+			public void forEachPollOption(long pollID, Consumer<PollOption> action) {
+				if (pollID == poll.getId()) {
+					pollOptions.forEach(action);
+				}
+			}
+
+			@Override
+			public boolean updateVotesCount(long id, long pollID) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public int updateVotesCounts(Collection<VotesDelta> deltas) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public List<Poll> getPolls() {
+				List<Poll> polls = new ArrayList<>();
+				polls.add(poll);
+				return polls;
+			}
+
+			@Override
+			public Poll getPoll(long pollID) {
+				return pollID == poll.getId() ? poll : null;
+			}
+		};
+	}
+}
@@ -0,0 +1,64 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Razred koji pokreće mjerenja. Prima iste argumente naredbenog retka kao i
+ * {@link org.openjdk.jmh.Main}, no ukoliko nije zadan niti jedan profiler
+ * (zastavicom "-prof"), uz svako mjerenje uključuje se {@link GCProfiler},
+ * pa se uz propusnost ispisuje i brzina zauzimanja memorije (npr.
+ * "gc.alloc.rate.norm", odnosno broj zauzetih okteta po operaciji).
+ *
+ * @author Davor Češljaš
+ */
+public class BenchmarkRunner {
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private BenchmarkRunner() {
+	}
+
+	/**
+	 * Metoda od koje započinje izvođenje programa.
+	 *
+	 * @param args
+	 *            argumenti naredbenog retka jednaki argumentima
+	 *            {@link org.openjdk.jmh.Main}
+	 * @throws RunnerException
+	 *             ukoliko izvođenje mjerenja ne uspije
+	 * @throws IOException
+	 *             ukoliko ispis popisa mjerenja ne uspije
+	 */
+	public static void main(String[] args) throws RunnerException, IOException {
+		CommandLineOptions commandLine;
+		try {
+			commandLine = new CommandLineOptions(args);
+		} catch (CommandLineOptionException e) {
+			System.err.println("Neispravni argumenti: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (commandLine.getProfilers().isEmpty()) {
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+}
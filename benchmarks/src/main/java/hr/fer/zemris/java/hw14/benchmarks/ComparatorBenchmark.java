@@ -0,0 +1,67 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.app.util.ServletUtil;
+
+/**
+ * Mjerenje koje mjeri sortiranje odgovora ankete komparatorom
+ * {@link ServletUtil#POLL_OPTIONS_COMPARATOR} na jednak način kao i prilikom
+ * prikaza rezultata glasanja. Svaka operacija sortira novu kopiju nasumično
+ * poredanih odgovora, pa je trošak kopiranja uključen u rezultat.
+ *
+ * @author Davor Češljaš
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComparatorBenchmark {
+
+	/** Članska varijabla koja predstavlja broj odgovora ankete */
+	@Param({ "5", "1000", "10000", "100000" })
+	public int optionCount;
+
+	/** Članska varijabla koja predstavlja nasumično poredane odgovore */
+	private List<PollOption> pollOptions;
+
+	/**
+	 * Metoda koja stvara i nasumično poreda odgovore ankete.
+	 */
+	@Setup
+	public void setUp() {
+		pollOptions = BenchmarkData.pollOptions(1, optionCount);
+		Collections.shuffle(pollOptions, new Random(optionCount));
+	}
+
+	/**
+	 * Mjeri silazno sortiranje odgovora po broju glasova.
+	 *
+	 * @return sortirani odgovori
+	 */
+	@Benchmark
+	public List<PollOption> sortByVotes() {
+		List<PollOption> sorted = new ArrayList<>(pollOptions);
+		sorted.sort(ServletUtil.POLL_OPTIONS_COMPARATOR.reversed());
+		return sorted;
+	}
+}
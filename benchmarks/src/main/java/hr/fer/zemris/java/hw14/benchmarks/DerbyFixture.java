@@ -0,0 +1,239 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.beans.PropertyVetoException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.apache.derby.drda.NetworkServerControl;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.mchange.v2.c3p0.DataSources;
+
+import hr.fer.zemris.java.hw14.db.util.SQLUtil;
+
+/**
+ * Razred koji modelira bazu podataka nad kojom se izvode mjerenja. Baza se
+ * stvara unutar memorije korištenjem ugrađenog (engl. embedded) Derby
+ * upravljačkog programa, pa za izvođenje mjerenja nije potreban poslužitelj
+ * baze podataka niti pristup mreži. Tablice se stvaraju istim metodama kao i
+ * unutar aplikacije (migracijama {@link SQLUtil#MIGRATIONS}), a veze se
+ * dohvaćaju preko bazena veza {@link ComboPooledDataSource}.
+ * <p>
+ * U mrežnom načinu rada ista baza podataka poslužuje se Derby mrežnim
+ * poslužiteljem ({@link NetworkServerControl}) pokrenutim unutar istog
+ * procesa na lokalnoj adresi, a bazen veza koristi mrežni upravljački
+ * program, pa svaki upit prolazi kroz mrežni protokol kao i u aplikaciji.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class DerbyFixture implements AutoCloseable {
+
+	/** Konstanta koja predstavlja naziv ugrađenog upravljačkog programa */
+	private static final String EMBEDDED_DRIVER = "org.apache.derby.jdbc.EmbeddedDriver";
+
+	/** Konstanta koja predstavlja naziv mrežnog upravljačkog programa */
+	private static final String CLIENT_DRIVER = "org.apache.derby.jdbc.ClientDriver";
+
+	/** Članska varijabla koja predstavlja naziv baze podataka */
+	private final String name;
+
+	/** Članska varijabla koja predstavlja bazen veza */
+	private final ComboPooledDataSource dataSource;
+
+	/**
+	 * Članska varijabla koja predstavlja mrežni poslužitelj ili
+	 * <code>null</code> ukoliko se koristi ugrađeni upravljački program
+	 */
+	private final NetworkServerControl server;
+
+	/**
+	 * Konstruktor koji stvara novu praznu bazu podataka unutar memorije te
+	 * bazen veza prema njoj koji koristi ugrađeni upravljački program.
+	 *
+	 * @param name
+	 *            naziv baze podataka
+	 * @param maxStatementsPerConnection
+	 *            broj pripremljenih naredbi koje bazen veza čuva po vezi (0
+	 *            isključuje priručnu memoriju pripremljenih naredbi)
+	 * @throws SQLException
+	 *             ukoliko bazu podataka nije moguće stvoriti
+	 * @throws IOException
+	 *             ukoliko tablice nije moguće stvoriti
+	 */
+	public DerbyFixture(String name, int maxStatementsPerConnection) throws SQLException, IOException {
+		this(name, maxStatementsPerConnection, false);
+	}
+
+	/**
+	 * Konstruktor koji stvara novu praznu bazu podataka unutar memorije te
+	 * bazen veza prema njoj.
+	 *
+	 * @param name
+	 *            naziv baze podataka
+	 * @param maxStatementsPerConnection
+	 *            broj pripremljenih naredbi koje bazen veza čuva po vezi (0
+	 *            isključuje priručnu memoriju pripremljenih naredbi)
+	 * @param client
+	 *            <code>true</code> ukoliko se bazi podataka pristupa preko
+	 *            mrežnog poslužitelja, <code>false</code> inače
+	 * @throws SQLException
+	 *             ukoliko bazu podataka nije moguće stvoriti
+	 * @throws IOException
+	 *             ukoliko tablice nije moguće stvoriti ili mrežni poslužitelj
+	 *             nije moguće pokrenuti
+	 */
+	public DerbyFixture(String name, int maxStatementsPerConnection, boolean client)
+			throws SQLException, IOException {
+		this.name = name;
+
+		try {
+			Class.forName(EMBEDDED_DRIVER);
+		} catch (ClassNotFoundException e) {
+			throw new SQLException("Ne mogu učitati driver: " + EMBEDDED_DRIVER, e);
+		}
+		DriverManager.getConnection("jdbc:derby:memory:" + name + ";create=true").close();
+
+		int port = client ? freePort() : 0;
+		server = client ? startServer(port) : null;
+		String driverClass = client ? CLIENT_DRIVER : EMBEDDED_DRIVER;
+
+		dataSource = new ComboPooledDataSource();
+		try {
+			dataSource.setDriverClass(driverClass);
+		} catch (PropertyVetoException e) {
+			throw new SQLException("Ne mogu učitati driver: " + driverClass, e);
+		}
+		dataSource.setJdbcUrl(
+				client ? "jdbc:derby://localhost:" + port + "/memory:" + name : "jdbc:derby:memory:" + name);
+		dataSource.setMaxStatementsPerConnection(maxStatementsPerConnection);
+
+		try (Connection con = dataSource.getConnection()) {
+			SQLUtil.migrateSchema(con);
+		}
+	}
+
+	/**
+	 * Metoda koja dohvaća bazen veza prema bazi podataka
+	 *
+	 * @return bazen veza prema bazi podataka
+	 */
+	public ComboPooledDataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * Metoda koja u bazu podataka unosi novu anketu sa <b>optionCount</b>
+	 * odgovora. Svaki odgovor dobiva nasumičan broj glasova.
+	 *
+	 * @param optionCount
+	 *            broj odgovora ankete
+	 * @return identifikator unesene ankete
+	 * @throws SQLException
+	 *             ukoliko unos ne uspije
+	 */
+	public long insertPoll(int optionCount) throws SQLException {
+		try (Connection con = dataSource.getConnection()) {
+			long pollID;
+			try (PreparedStatement pst = con.prepareStatement("INSERT INTO Polls (title, message) VALUES (?, ?)",
+					Statement.RETURN_GENERATED_KEYS)) {
+				pst.setString(1, "Anketa sa " + optionCount + " odgovora");
+				pst.setString(2, "Mjerenje");
+				pst.executeUpdate();
+
+				try (ResultSet rset = pst.getGeneratedKeys()) {
+					rset.next();
+					pollID = rset.getLong(1);
+				}
+			}
+
+			con.setAutoCommit(false);
+			try (PreparedStatement pst = con.prepareStatement(
+					"INSERT INTO PollOptions (optionTitle, optionLink, pollID, votesCount) VALUES (?, ?, ?, ?)")) {
+				for (int i = 0; i < optionCount; i++) {
+					pst.setString(1, "Odgovor " + i);
+					pst.setString(2, "https://www.example.com/" + i);
+					pst.setLong(3, pollID);
+					pst.setLong(4, (i * 7919L) % 1000);
+					pst.addBatch();
+
+					if (i % 1000 == 999) {
+						pst.executeBatch();
+					}
+				}
+				pst.executeBatch();
+			}
+			con.commit();
+			con.setAutoCommit(true);
+
+			return pollID;
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja pokreće mrežni poslužitelj na lokalnoj adresi i
+	 * čeka dok ne počne prihvaćati veze.
+	 *
+	 * @param port
+	 *            vrata na kojima poslužitelj prihvaća veze
+	 * @return pokrenuti mrežni poslužitelj
+	 * @throws IOException
+	 *             ukoliko poslužitelj nije moguće pokrenuti
+	 */
+	private static NetworkServerControl startServer(int port) throws IOException {
+		try {
+			NetworkServerControl server = new NetworkServerControl(InetAddress.getLoopbackAddress(), port);
+			server.start(null);
+			for (int attempt = 0;; attempt++) {
+				try {
+					server.ping();
+					return server;
+				} catch (Exception e) {
+					if (attempt == 50) {
+						throw e;
+					}
+					Thread.sleep(100);
+				}
+			}
+		} catch (Exception e) {
+			throw new IOException("Ne mogu pokrenuti mrežni poslužitelj na vratima " + port, e);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja pronalazi slobodna vrata na lokalnoj adresi.
+	 *
+	 * @return slobodna vrata
+	 * @throws IOException
+	 *             ukoliko vrata nije moguće pronaći
+	 */
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			return socket.getLocalPort();
+		}
+	}
+
+	@Override
+	public void close() throws SQLException {
+		DataSources.destroy(dataSource);
+		if (server != null) {
+			try {
+				server.shutdown();
+			} catch (Exception e) {
+				throw new SQLException("Ne mogu zaustaviti mrežni poslužitelj", e);
+			}
+		}
+		try {
+			DriverManager.getConnection("jdbc:derby:memory:" + name + ";drop=true");
+		} catch (SQLException expected) {
+			// Derby uvijek baca iznimku prilikom uspješnog brisanja baze
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.sql.SQLConnectionProvider;
+import hr.fer.zemris.java.hw14.dao.sql.SQLDAO;
+
+/**
+ * Mjerenje koje uspoređuje trajanje upita razreda {@link SQLDAO} preko
+ * mrežnog ("client") i ugrađenog ("embedded") Derby upravljačkog programa.
+ * Obje inačice koriste istu bazu podataka unutar memorije, pa razlika
+ * odgovara cijeni mrežnog protokola. Mrežni poslužitelj izvodi se u istom
+ * procesu i prihvaća veze na lokalnoj adresi, pa je izmjerena razlika donja
+ * granica razlike na stvarnoj mreži.
+ *
+ * @see DerbyFixture
+ *
+ * @author Davor Češljaš
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DerbyModeBenchmark {
+
+	/** Konstanta koja predstavlja broj redaka koji se dohvaćaju odjednom */
+	private static final int FETCH_SIZE = 500;
+
+	/** Članska varijabla koja predstavlja način pristupa bazi podataka */
+	@Param({ "embedded", "client" })
+	public String mode;
+
+	/** Članska varijabla koja predstavlja broj odgovora ankete */
+	@Param({ "5", "1000" })
+	public int optionCount;
+
+	/** Članska varijabla koja predstavlja bazu podataka */
+	private DerbyFixture fixture;
+
+	/** Članska varijabla koja predstavlja identifikator ankete */
+	private long pollID;
+
+	/** Članska varijabla koja predstavlja identifikator prvog odgovora */
+	private long optionID;
+
+	/** Članska varijabla koja predstavlja primjerak razreda koji se mjeri */
+	private final SQLDAO dao = new SQLDAO(FETCH_SIZE);
+
+	/**
+	 * Metoda koja stvara bazu podataka sa jednom anketom.
+	 *
+	 * @throws SQLException
+	 *             ukoliko bazu podataka nije moguće stvoriti
+	 * @throws IOException
+	 *             ukoliko tablice nije moguće stvoriti ili mrežni poslužitelj
+	 *             nije moguće pokrenuti
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException, IOException {
+		fixture = new DerbyFixture("derbyMode" + mode + optionCount, 16, "client".equals(mode));
+		pollID = fixture.insertPoll(optionCount);
+
+		try (Connection con = fixture.getDataSource().getConnection()) {
+			SQLConnectionProvider.setConnection(con);
+			optionID = dao.getPollOptions(pollID).get(0).getId();
+		} finally {
+			SQLConnectionProvider.setConnection(null);
+		}
+	}
+
+	/**
+	 * Metoda koja uništava bazu podataka.
+	 *
+	 * @throws SQLException
+	 *             ukoliko bazu podataka nije moguće uništiti
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		fixture.close();
+	}
+
+	/**
+	 * Pomoćni razred koji svakoj dretvi dodjeljuje jednu vezu prema bazi
+	 * podataka za cijelu iteraciju.
+	 */
+	@State(Scope.Thread)
+	public static class BoundConnection {
+
+		/** Članska varijabla koja predstavlja vezu dretve */
+		private Connection connection;
+
+		/**
+		 * Metoda koja dohvaća vezu i postavlja je trenutnoj dretvi.
+		 *
+		 * @param benchmark
+		 *            mjerenje iz kojeg se dohvaća bazen veza
+		 * @throws SQLException
+		 *             ukoliko vezu nije moguće dohvatiti
+		 */
+		@Setup(Level.Iteration)
+		public void bind(DerbyModeBenchmark benchmark) throws SQLException {
+			connection = benchmark.fixture.getDataSource().getConnection();
+			SQLConnectionProvider.setConnection(connection);
+		}
+
+		/**
+		 * Metoda koja vezu vraća u bazen veza.
+		 *
+		 * @throws SQLException
+		 *             ukoliko vezu nije moguće zatvoriti
+		 */
+		@TearDown(Level.Iteration)
+		public void release() throws SQLException {
+			SQLConnectionProvider.setConnection(null);
+			connection.close();
+		}
+	}
+
+	/**
+	 * Mjeri dohvat jedne ankete.
+	 *
+	 * @param connection
+	 *            veza dretve
+	 * @return dohvaćena anketa
+	 */
+	@Benchmark
+	public Poll getPoll(BoundConnection connection) {
+		return dao.getPoll(pollID);
+	}
+
+	/**
+	 * Mjeri dohvat svih odgovora ankete u {@link List}.
+	 *
+	 * @param connection
+	 *            veza dretve
+	 * @return dohvaćeni odgovori
+	 */
+	@Benchmark
+	public List<PollOption> getPollOptions(BoundConnection connection) {
+		return dao.getPollOptions(pollID);
+	}
+
+	/**
+	 * Mjeri glasanje za jedan odgovor.
+	 *
+	 * @param connection
+	 *            veza dretve
+	 * @return <code>true</code> ukoliko je broj glasova izmijenjen
+	 */
+	@Benchmark
+	public boolean updateVotesCount(BoundConnection connection) {
+		return dao.updateVotesCount(optionID, pollID);
+	}
+}
@@ -0,0 +1,101 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.memory.MemoryDAO;
+
+/**
+ * Mjerenje koje mjeri iste metode kao i {@link SQLDAOBenchmark}, ali nad
+ * spremištem u memoriji {@link MemoryDAO}. Rezultati služe kao osnovica,
+ * odnosno gornja granica propusnosti sloja za perzistenciju bez baze
+ * podataka. Glasanje se izvodi na više dretvi istovremeno kako bi se izmjerio
+ * utjecaj istovremenih izmjena istog brojača glasova.
+ *
+ * @see MemoryDAO
+ *
+ * @author Davor Češljaš
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoryDAOBenchmark {
+
+	/** Članska varijabla koja predstavlja broj odgovora ankete */
+	@Param({ "5", "1000", "10000", "100000" })
+	public int optionCount;
+
+	/** Članska varijabla koja predstavlja primjerak razreda koji se mjeri */
+	private MemoryDAO dao;
+
+	/** Članska varijabla koja predstavlja identifikator ankete */
+	private long pollID;
+
+	/** Članska varijabla koja predstavlja identifikator prvog odgovora */
+	private long optionID;
+
+	/**
+	 * Metoda koja stvara spremište sa jednom anketom.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		dao = new MemoryDAO();
+		pollID = dao.addPoll("Anketa sa " + optionCount + " odgovora", "Mjerenje");
+		for (int i = 0; i < optionCount; i++) {
+			long id = dao.addPollOption("Odgovor " + i, "https://www.example.com/" + i, pollID, (i * 7919L) % 1000);
+			if (i == 0) {
+				optionID = id;
+			}
+		}
+	}
+
+	/**
+	 * Mjeri dohvat jedne ankete.
+	 *
+	 * @return dohvaćena anketa
+	 */
+	@Benchmark
+	public Poll getPoll() {
+		return dao.getPoll(pollID);
+	}
+
+	/**
+	 * Mjeri dohvat svih odgovora ankete u {@link List}.
+	 *
+	 * @return dohvaćeni odgovori
+	 */
+	@Benchmark
+	public List<PollOption> getPollOptions() {
+		return dao.getPollOptions(pollID);
+	}
+
+	/**
+	 * Mjeri istovremeno glasanje za isti odgovor na četiri dretve.
+	 *
+	 * @return <code>true</code> ukoliko je broj glasova izmijenjen
+	 */
+	@Benchmark
+	@Threads(4)
+	public boolean updateVotesCount() {
+		return dao.updateVotesCount(optionID, pollID);
+	}
+}
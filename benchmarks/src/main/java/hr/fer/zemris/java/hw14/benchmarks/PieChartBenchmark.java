@@ -0,0 +1,93 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jfree.data.general.DefaultPieDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.app.util.SVGUtil;
+import hr.fer.zemris.java.hw14.app.util.ServletUtil;
+
+/**
+ * Mjerenje koje mjeri stvaranje slike kružnog dijagrama metodom
+ * {@link ServletUtil#createPieChart(String, org.jfree.data.general.PieDataset)}
+ * u ovisnosti o broju odgovora ankete. Najveći zadani broj odgovora manji je
+ * nego kod ostalih mjerenja, budući da iscrtavanje legende sa desecima tisuća
+ * odgovora traje više sekundi po slici. Veći broj odgovora moguće je zadati
+ * zastavicom "-p optionCount=...". Radi usporedbe mjeri se i stvaranje istog
+ * dijagrama u SVG formatu metodom
+ * {@link SVGUtil#createPieChart(String, List, int, int)} te u JSON obliku
+ * metodom {@link ServletUtil#createPieChartJSON(String, List)}.
+ *
+ * @author Davor Češljaš
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PieChartBenchmark {
+
+	/** Članska varijabla koja predstavlja broj odgovora ankete */
+	@Param({ "5", "100", "1000" })
+	public int optionCount;
+
+	/** Članska varijabla koja predstavlja podatke iz kojih se crta dijagram */
+	private DefaultPieDataset dataset;
+
+	/** Članska varijabla koja predstavlja odgovore ankete */
+	private List<PollOption> pollOptions;
+
+	/**
+	 * Metoda koja stvara podatke iz kojih se crta dijagram.
+	 */
+	@Setup
+	public void setUp() {
+		dataset = new DefaultPieDataset();
+		pollOptions = BenchmarkData.pollOptions(1, optionCount);
+		pollOptions.forEach(pollOption -> dataset.setValue(pollOption.getOptionTitle(), pollOption.getVotesCount()));
+	}
+
+	/**
+	 * Mjeri stvaranje slike kružnog dijagrama.
+	 *
+	 * @return slika kružnog dijagrama
+	 */
+	@Benchmark
+	public byte[] createPieChart() {
+		return ServletUtil.createPieChart("Rezultati glasanja", dataset);
+	}
+
+	/**
+	 * Mjeri stvaranje kružnog dijagrama u SVG formatu.
+	 *
+	 * @return kružni dijagram u SVG formatu
+	 */
+	@Benchmark
+	public String createPieChartSVG() {
+		return SVGUtil.createPieChart("Rezultati glasanja", pollOptions, 400, 400);
+	}
+
+	/**
+	 * Mjeri zapisivanje odgovora kao JSON objekta.
+	 *
+	 * @return odgovori zapisani kao JSON objekt
+	 */
+	@Benchmark
+	public String createPieChartJSON() {
+		return ServletUtil.createPieChartJSON("Rezultati glasanja", pollOptions);
+	}
+}
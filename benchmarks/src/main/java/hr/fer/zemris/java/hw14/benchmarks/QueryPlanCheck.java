@@ -0,0 +1,186 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import hr.fer.zemris.java.hw14.db.util.SQLUtil;
+
+/**
+ * Razred koji provjerava planove izvođenja upita nad tablicom 'PollOptions'.
+ * Program stvara bazu podataka ({@link DerbyFixture}) sa
+ * <b>polls</b> x <b>optionsPerPoll</b> odgovora (pretpostavljeno 1000 x 1000,
+ * odnosno milijun redaka), uključuje Derby statistike izvođenja te izvodi
+ * dohvat odgovora jedne ankete i izmjenu broja glasova jednog odgovora, istim
+ * naredbama kao i {@link hr.fer.zemris.java.hw14.dao.sql.SQLDAO}.
+ * <p>
+ * Za svaki upit ispisuje se plan izvođenja. Program završava sa statusom 1
+ * ukoliko neki od upita čita cijelu tablicu ("Table Scan") ili ukoliko dohvat
+ * odgovora ne koristi indeks {@value SQLUtil#POLL_OPTIONS_VOTES_INDEX}.
+ * Pokreće se naredbom:
+ * </p>
+ *
+ * <pre>
+ * java -cp benchmarks.jar hr.fer.zemris.java.hw14.benchmarks.QueryPlanCheck [polls] [optionsPerPoll]
+ * </pre>
+ *
+ * @author Davor Češljaš
+ */
+public class QueryPlanCheck {
+
+	/** Konstanta koja predstavlja pretpostavljeni broj anketa */
+	private static final int DEFAULT_POLLS = 1000;
+
+	/** Konstanta koja predstavlja pretpostavljeni broj odgovora po anketi */
+	private static final int DEFAULT_OPTIONS_PER_POLL = 1000;
+
+	/** Konstanta koja predstavlja oznaku čitanja cijele tablice u planu */
+	private static final String TABLE_SCAN = "Table Scan ResultSet";
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private QueryPlanCheck() {
+	}
+
+	/**
+	 * Metoda od koje započinje izvođenje programa.
+	 *
+	 * @param args
+	 *            broj anketa i broj odgovora po anketi (neobavezno)
+	 * @throws SQLException
+	 *             ukoliko rad sa bazom podataka ne uspije
+	 * @throws IOException
+	 *             ukoliko tablice nije moguće stvoriti
+	 */
+	public static void main(String[] args) throws SQLException, IOException {
+		int polls = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_POLLS;
+		int optionsPerPoll = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPTIONS_PER_POLL;
+
+		boolean passed;
+		try (DerbyFixture fixture = new DerbyFixture("queryPlans", 0)) {
+			long start = System.nanoTime();
+			long pollID = 0;
+			for (int i = 0; i < polls; i++) {
+				pollID = fixture.insertPoll(optionsPerPoll);
+			}
+			System.out.printf("Uneseno %d redaka u %d ms%n", (long) polls * optionsPerPoll,
+					(System.nanoTime() - start) / 1_000_000);
+
+			try (Connection con = fixture.getDataSource().getConnection()) {
+				try (Statement st = con.createStatement()) {
+					st.execute("CALL SYSCS_UTIL.SYSCS_UPDATE_STATISTICS('APP', 'POLLOPTIONS', NULL)");
+					st.execute("CALL SYSCS_UTIL.SYSCS_EMPTY_STATEMENT_CACHE()");
+					st.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+				}
+
+				String plan = selectPlan(con, pollID);
+				passed = check("Dohvat odgovora ankete", plan,
+						plan.toUpperCase().contains(SQLUtil.POLL_OPTIONS_VOTES_INDEX.toUpperCase()));
+
+				plan = updatePlan(con, pollID);
+				passed &= check("Izmjena broja glasova", plan, true);
+			}
+		}
+
+		System.out.println(passed ? "Svi upiti koriste indekse." : "Neki od upita ne koriste indekse!");
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja izvodi dohvat odgovora ankete <b>pollID</b> te
+	 * dohvaća njegov plan izvođenja.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return plan izvođenja
+	 * @throws SQLException
+	 *             ukoliko izvođenje ne uspije
+	 */
+	private static String selectPlan(Connection con, long pollID) throws SQLException {
+		try (PreparedStatement pst = con.prepareStatement("select id, optionTitle, optionLink, pollID, votesCount"
+				+ " from PollOptions where pollID=? order by votesCount desc, id")) {
+			pst.setLong(1, pollID);
+			try (ResultSet rset = pst.executeQuery()) {
+				while (rset.next()) {
+				}
+			}
+		}
+		return runtimeStatistics(con);
+	}
+
+	/**
+	 * Pomoćna metoda koja izvodi izmjenu broja glasova jednog odgovora ankete
+	 * <b>pollID</b> te dohvaća njen plan izvođenja.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return plan izvođenja
+	 * @throws SQLException
+	 *             ukoliko izvođenje ne uspije
+	 */
+	private static String updatePlan(Connection con, long pollID) throws SQLException {
+		long id;
+		try (PreparedStatement pst = con.prepareStatement("select min(id) from PollOptions where pollID=?")) {
+			pst.setLong(1, pollID);
+			try (ResultSet rset = pst.executeQuery()) {
+				rset.next();
+				id = rset.getLong(1);
+			}
+		}
+
+		try (PreparedStatement pst = con
+				.prepareStatement("update PollOptions set votesCount=votesCount + 1 where id=? and pollID=?")) {
+			pst.setLong(1, id);
+			pst.setLong(2, pollID);
+			pst.executeUpdate();
+		}
+		return runtimeStatistics(con);
+	}
+
+	/**
+	 * Pomoćna metoda koja dohvaća statistike izvođenja zadnje naredbe
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @return statistike izvođenja zadnje naredbe
+	 * @throws SQLException
+	 *             ukoliko dohvat ne uspije
+	 */
+	private static String runtimeStatistics(Connection con) throws SQLException {
+		try (Statement st = con.createStatement();
+				ResultSet rset = st.executeQuery("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()")) {
+			return rset.next() ? rset.getString(1) : "";
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja ispisuje plan izvođenja <b>plan</b> te provjerava
+	 * da on ne čita cijelu tablicu.
+	 *
+	 * @param name
+	 *            naziv upita
+	 * @param plan
+	 *            plan izvođenja
+	 * @param expected
+	 *            dodatni uvjet koji plan mora zadovoljiti
+	 * @return <code>true</code> ukoliko plan ne čita cijelu tablicu i
+	 *         zadovoljava dodatni uvjet, <code>false</code> inače
+	 */
+	private static boolean check(String name, String plan, boolean expected) {
+		boolean passed = expected && !plan.contains(TABLE_SCAN);
+		System.out.println("=== " + name + ": " + (passed ? "OK" : "NEUSPJEH") + " ===");
+		System.out.println(plan);
+		return passed;
+	}
+}
@@ -0,0 +1,183 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.sql.SQLConnectionProvider;
+import hr.fer.zemris.java.hw14.dao.sql.SQLDAO;
+
+/**
+ * Mjerenje koje uspoređuje trajanje metoda razreda {@link SQLDAO} sa i bez
+ * priručne memorije pripremljenih naredbi bazena veza c3p0. Parametar
+ * {@link #maxStatementsPerConnection} sa vrijednošću 0 odgovara ponašanju u
+ * kojem se svaka naredba ponovno priprema (parsira i planira) prilikom
+ * svakog poziva, dok pozitivna vrijednost omogućava ponovno korištenje već
+ * pripremljenih naredbi. Svaka dretva koristi jednu vezu tijekom cijele
+ * iteracije, pa razlika u rezultatima potječe isključivo od pripreme
+ * naredbi.
+ *
+ * @author Davor Češljaš
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementReuseBenchmark {
+
+	/**
+	 * Članska varijabla koja predstavlja broj pripremljenih naredbi koje
+	 * bazen veza čuva po vezi
+	 */
+	@Param({ "0", "16" })
+	public int maxStatementsPerConnection;
+
+	/** Članska varijabla koja predstavlja bazu podataka */
+	private DerbyFixture fixture;
+
+	/** Članska varijabla koja predstavlja identifikator ankete */
+	private long pollID;
+
+	/** Članska varijabla koja predstavlja identifikator jednog odgovora */
+	private long optionID;
+
+	/** Članska varijabla koja predstavlja primjerak razreda koji se mjeri */
+	private final SQLDAO dao = new SQLDAO();
+
+	/**
+	 * Metoda koja stvara bazu podataka sa jednom anketom od 20 odgovora.
+	 *
+	 * @throws SQLException
+	 *             ukoliko bazu podataka nije moguće stvoriti
+	 * @throws IOException
+	 *             ukoliko tablice nije moguće stvoriti
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException, IOException {
+		fixture = new DerbyFixture("statementReuse" + maxStatementsPerConnection, maxStatementsPerConnection);
+		pollID = fixture.insertPoll(20);
+
+		try (Connection con = fixture.getDataSource().getConnection()) {
+			SQLConnectionProvider.setConnection(con);
+			optionID = dao.getPollOptions(pollID).get(0).getId();
+		} finally {
+			SQLConnectionProvider.setConnection(null);
+		}
+	}
+
+	/**
+	 * Metoda koja uništava bazu podataka.
+	 *
+	 * @throws SQLException
+	 *             ukoliko bazu podataka nije moguće uništiti
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		fixture.close();
+	}
+
+	/**
+	 * Pomoćni razred koji svakoj dretvi dodjeljuje jednu vezu prema bazi
+	 * podataka za cijelu iteraciju.
+	 */
+	@State(Scope.Thread)
+	public static class BoundConnection {
+
+		/** Članska varijabla koja predstavlja vezu dretve */
+		private Connection connection;
+
+		/**
+		 * Metoda koja dohvaća vezu i postavlja je trenutnoj dretvi.
+		 *
+		 * @param benchmark
+		 *            mjerenje iz kojeg se dohvaća bazen veza
+		 * @throws SQLException
+		 *             ukoliko vezu nije moguće dohvatiti
+		 */
+		@Setup(Level.Iteration)
+		public void bind(StatementReuseBenchmark benchmark) throws SQLException {
+			connection = benchmark.fixture.getDataSource().getConnection();
+			SQLConnectionProvider.setConnection(connection);
+		}
+
+		/**
+		 * Metoda koja vezu vraća u bazen veza.
+		 *
+		 * @throws SQLException
+		 *             ukoliko vezu nije moguće zatvoriti
+		 */
+		@TearDown(Level.Iteration)
+		public void release() throws SQLException {
+			SQLConnectionProvider.setConnection(null);
+			connection.close();
+		}
+	}
+
+	/**
+	 * Mjeri dohvat jedne ankete.
+	 *
+	 * @param connection
+	 *            veza dretve
+	 * @return dohvaćena anketa
+	 */
+	@Benchmark
+	public Poll getPoll(BoundConnection connection) {
+		return dao.getPoll(pollID);
+	}
+
+	/**
+	 * Mjeri dohvat svih anketa.
+	 *
+	 * @param connection
+	 *            veza dretve
+	 * @return dohvaćene ankete
+	 */
+	@Benchmark
+	public List<Poll> getPolls(BoundConnection connection) {
+		return dao.getPolls();
+	}
+
+	/**
+	 * Mjeri dohvat svih odgovora ankete.
+	 *
+	 * @param connection
+	 *            veza dretve
+	 * @return dohvaćeni odgovori
+	 */
+	@Benchmark
+	public List<PollOption> getPollOptions(BoundConnection connection) {
+		return dao.getPollOptions(pollID);
+	}
+
+	/**
+	 * Mjeri povećanje broja glasova jednog odgovora.
+	 *
+	 * @param connection
+	 *            veza dretve
+	 * @return <code>true</code> ukoliko je glas zabilježen
+	 */
+	@Benchmark
+	public boolean updateVotesCount(BoundConnection connection) {
+		return dao.updateVotesCount(optionID, pollID);
+	}
+}
@@ -0,0 +1,116 @@
+package hr.fer.zemris.java.hw14.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.app.util.XLSUtil;
+import hr.fer.zemris.java.hw14.dao.DAO;
+
+/**
+ * Mjerenje koje mjeri stvaranje .xls datoteke metodom
+ * {@link XLSUtil#writeVotingXLS(DAO, Poll, OutputStream)} te .xlsx datoteke
+ * metodom {@link XLSUtil#writeVotingXLSX(DAO, Poll, OutputStream, int)} u
+ * ovisnosti o broju odgovora ankete. Format .xls podržava najviše 65536
+ * redaka, pa se za najveći broj odgovora mjeri samo .xlsx datoteka.
+ *
+ * @author Davor Češljaš
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XLSBenchmark {
+
+	/** Konstanta koja predstavlja najveći broj redaka .xls datoteke */
+	private static final int MAX_XLS_ROWS = 65535;
+
+	/** Članska varijabla koja predstavlja broj odgovora ankete */
+	@Param({ "5", "1000", "10000", "100000" })
+	public int optionCount;
+
+	/** Članska varijabla koja predstavlja anketu */
+	private Poll poll;
+
+	/** Članska varijabla koja predstavlja izvor odgovora za datoteke */
+	private DAO dao;
+
+	/**
+	 * Metoda koja stvara anketu i njezine odgovore.
+	 */
+	@Setup
+	public void setUp() {
+		poll = BenchmarkData.poll(1);
+		List<PollOption> pollOptions = BenchmarkData.pollOptions(1, optionCount);
+		dao = BenchmarkData.inMemoryDAO(poll, pollOptions);
+	}
+
+	/**
+	 * Mjeri stvaranje .xls datoteke.
+	 *
+	 * @return broj zapisanih okteta
+	 * @throws IOException
+	 *             ukoliko stvaranje datoteke ne uspije
+	 */
+	@Benchmark
+	public long writeVotingXLS() throws IOException {
+		if (optionCount > MAX_XLS_ROWS) {
+			return 0;
+		}
+		CountingOutputStream os = new CountingOutputStream();
+		XLSUtil.writeVotingXLS(dao, poll, os);
+		return os.count;
+	}
+
+	/**
+	 * Mjeri stvaranje .xlsx datoteke uz ograničen broj redaka u memoriji.
+	 *
+	 * @return broj zapisanih okteta
+	 * @throws IOException
+	 *             ukoliko stvaranje datoteke ne uspije
+	 */
+	@Benchmark
+	public long writeVotingXLSX() throws IOException {
+		CountingOutputStream os = new CountingOutputStream();
+		XLSUtil.writeVotingXLSX(dao, poll, os, SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+		return os.count;
+	}
+
+	/**
+	 * Pomoćni razred koji modelira izlazni tok koji samo broji zapisane
+	 * oktete, kako se u mjerenje ne bi uključilo povećavanje spremnika.
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		/** Članska varijabla koja predstavlja broj zapisanih okteta */
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
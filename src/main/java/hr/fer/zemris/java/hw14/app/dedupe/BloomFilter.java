@@ -0,0 +1,163 @@
+package hr.fer.zemris.java.hw14.app.dedupe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Razred koji modelira Bloomov filtar fiksne veličine. Filtar pamti sažetke
+ * (64-bitne brojeve) tako da za svaki postavi <b>hashFunctions</b> bitova, a
+ * sažetak se smatra već viđenim ukoliko su svi njegovi bitovi postavljeni.
+ * Filtar nikada ne zaboravlja viđeni sažetak, ali uz vjerojatnost lažno
+ * pozitivnog odgovora može neviđeni sažetak proglasiti viđenim.
+ * <p>
+ * Bitovi se pamte u primjerku razreda {@link AtomicLongArray} i postavljaju
+ * se bez zaključavanja, pa je filtar moguće koristiti iz više dretvi.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+class BloomFilter {
+
+	/** Konstanta koja predstavlja kvadrat prirodnog logaritma broja 2 */
+	private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+	/** Članska varijabla koja predstavlja bitove filtra */
+	private final AtomicLongArray bits;
+
+	/** Članska varijabla koja predstavlja broj bitova filtra */
+	private final long bitCount;
+
+	/** Članska varijabla koja predstavlja broj bitova po sažetku */
+	private final int hashFunctions;
+
+	/** Članska varijabla koja predstavlja broj dodanih sažetaka */
+	private final AtomicLong insertions = new AtomicLong();
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param bitCount
+	 *            broj bitova filtra
+	 * @param hashFunctions
+	 *            broj bitova koji se postavljaju po sažetku
+	 */
+	public BloomFilter(long bitCount, int hashFunctions) {
+		int words = (int) Math.max(1, (bitCount + 63) / 64);
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = words * 64L;
+		this.hashFunctions = Math.max(1, hashFunctions);
+	}
+
+	/**
+	 * Metoda koja dodaje sažetak <b>hash</b> u filtar.
+	 *
+	 * @param hash
+	 *            sažetak koji se dodaje
+	 * @return <code>true</code> ukoliko je barem jedan bit sažetka bio
+	 *         nepostavljen, odnosno ukoliko sažetak sigurno nije bio viđen,
+	 *         <code>false</code> inače
+	 */
+	public boolean put(long hash) {
+		long h2 = mix(hash) | 1;
+		boolean changed = false;
+		for (int i = 0; i < hashFunctions; i++) {
+			long index = Math.floorMod(hash + i * h2, bitCount);
+			int word = (int) (index >>> 6);
+			long mask = 1L << index;
+			long old = bits.get(word);
+			while ((old & mask) == 0) {
+				if (bits.compareAndSet(word, old, old | mask)) {
+					changed = true;
+					break;
+				}
+				old = bits.get(word);
+			}
+		}
+
+		if (changed) {
+			insertions.incrementAndGet();
+		}
+		return changed;
+	}
+
+	/**
+	 * Metoda koja provjerava je li sažetak <b>hash</b> možda dodan u filtar.
+	 *
+	 * @param hash
+	 *            sažetak koji se provjerava
+	 * @return <code>true</code> ukoliko su svi bitovi sažetka postavljeni,
+	 *         <code>false</code> inače
+	 */
+	public boolean mightContain(long hash) {
+		long h2 = mix(hash) | 1;
+		for (int i = 0; i < hashFunctions; i++) {
+			long index = Math.floorMod(hash + i * h2, bitCount);
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj dodanih sažetaka
+	 *
+	 * @return broj dodanih sažetaka
+	 */
+	public long getInsertions() {
+		return insertions.get();
+	}
+
+	/**
+	 * Metoda koja dohvaća veličinu filtra u oktetima
+	 *
+	 * @return veličina filtra u oktetima
+	 */
+	public long getSizeInBytes() {
+		return bitCount / 8;
+	}
+
+	/**
+	 * Metoda koja izračunava koliko se sažetaka može dodati u filtar od
+	 * <b>bitCount</b> bitova, a da vjerojatnost lažno pozitivnog odgovora ne
+	 * premaši <b>falsePositiveRate</b>.
+	 *
+	 * @param bitCount
+	 *            broj bitova filtra
+	 * @param falsePositiveRate
+	 *            najveća vjerojatnost lažno pozitivnog odgovora
+	 * @return najveći broj sažetaka
+	 */
+	public static long capacity(long bitCount, double falsePositiveRate) {
+		return Math.max(1, (long) (bitCount * LN2_SQUARED / -Math.log(falsePositiveRate)));
+	}
+
+	/**
+	 * Metoda koja izračunava optimalan broj bitova po sažetku za zadanu
+	 * vjerojatnost lažno pozitivnog odgovora <b>falsePositiveRate</b>.
+	 *
+	 * @param falsePositiveRate
+	 *            vjerojatnost lažno pozitivnog odgovora
+	 * @return broj bitova po sažetku
+	 */
+	public static int hashFunctions(double falsePositiveRate) {
+		return Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+	}
+
+	/**
+	 * Pomoćna metoda koja miješa bitove sažetka (završni korak algoritma
+	 * MurmurHash3), a koristi se za dobivanje drugog sažetka iz prvog.
+	 *
+	 * @param hash
+	 *            sažetak
+	 * @return izmiješani sažetak
+	 */
+	static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
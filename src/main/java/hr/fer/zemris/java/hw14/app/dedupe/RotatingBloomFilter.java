@@ -0,0 +1,195 @@
+package hr.fer.zemris.java.hw14.app.dedupe;
+
+/**
+ * Razred koji modelira Bloomov filtar koji s vremenom zaboravlja dodane
+ * sažetke. Filtar se sastoji od dvije generacije ({@link BloomFilter}):
+ * sažeci se dodaju u trenutnu, a provjeravaju u obje generacije. Kada se
+ * trenutna generacija popuni (broj sažetaka dosegne kapacitet za zadanu
+ * vjerojatnost lažno pozitivnog odgovora) ili kada istekne <b>windowMillis</b>
+ * milisekundi od njenog stvaranja, ona postaje prethodna generacija, a
+ * najstarija generacija se odbacuje.
+ * <p>
+ * Time je zauzeće memorije fiksno (dvije generacije od po pola zadane
+ * veličine), vjerojatnost lažno pozitivnog odgovora ograničena, a svaki
+ * sažetak pamti se barem jedno vrijeme <b>windowMillis</b> ili dok se ne
+ * doda kapacitet novih sažetaka.
+ * </p>
+ * <p>
+ * Kako poplava novih sažetaka ne bi brzim zamjenama generacija izbrisala
+ * ranije dodane sažetke, popunjena generacija zamjenjuje se tek kada je
+ * stara barem <b>minRotationMillis</b> milisekundi. Do tada se sažeci i dalje
+ * dodaju u popunjenu generaciju, pa raste vjerojatnost lažno pozitivnog
+ * odgovora, ali se svaki sažetak pamti barem jedno vrijeme
+ * <b>minRotationMillis</b>.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class RotatingBloomFilter {
+
+	/**
+	 * Članska varijabla koja predstavlja broj bitova jedne generacije filtra
+	 */
+	private final long bitCount;
+
+	/**
+	 * Članska varijabla koja predstavlja broj bitova koji se postavljaju po
+	 * sažetku
+	 */
+	private final int hashFunctions;
+
+	/**
+	 * Članska varijabla koja predstavlja najveći broj sažetaka jedne
+	 * generacije
+	 */
+	private final long capacity;
+
+	/**
+	 * Članska varijabla koja predstavlja najdulje trajanje jedne generacije u
+	 * milisekundama
+	 */
+	private final long windowMillis;
+
+	/**
+	 * Članska varijabla koja predstavlja najkraće trajanje popunjene
+	 * generacije u milisekundama
+	 */
+	private final long minRotationMillis;
+
+	/** Članska varijabla koja predstavlja trenutnu generaciju filtra */
+	private volatile BloomFilter current;
+
+	/** Članska varijabla koja predstavlja prethodnu generaciju filtra */
+	private volatile BloomFilter previous;
+
+	/**
+	 * Članska varijabla koja predstavlja trenutak stvaranja trenutne
+	 * generacije u milisekundama
+	 */
+	private volatile long createdAt;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param maxBytes
+	 *            najveća ukupna veličina obje generacije u oktetima
+	 * @param falsePositiveRate
+	 *            najveća vjerojatnost lažno pozitivnog odgovora jedne
+	 *            generacije
+	 * @param windowMillis
+	 *            najdulje trajanje jedne generacije u milisekundama
+	 * @param minRotationMillis
+	 *            najkraće trajanje popunjene generacije u milisekundama
+	 * @throws IllegalArgumentException
+	 *             ukoliko neki od parametara nije ispravan
+	 */
+	public RotatingBloomFilter(long maxBytes, double falsePositiveRate, long windowMillis, long minRotationMillis) {
+		if (maxBytes < 16 || !(falsePositiveRate > 0 && falsePositiveRate < 1) || windowMillis <= 0
+				|| minRotationMillis < 0 || minRotationMillis > windowMillis) {
+			throw new IllegalArgumentException("Neispravni parametri filtra: maxBytes=" + maxBytes
+					+ ", falsePositiveRate=" + falsePositiveRate + ", windowMillis=" + windowMillis
+					+ ", minRotationMillis=" + minRotationMillis);
+		}
+
+		this.bitCount = maxBytes / 2 * 8;
+		this.hashFunctions = BloomFilter.hashFunctions(falsePositiveRate);
+		this.capacity = BloomFilter.capacity(bitCount, falsePositiveRate);
+		this.windowMillis = windowMillis;
+		this.minRotationMillis = minRotationMillis;
+		this.current = new BloomFilter(bitCount, hashFunctions);
+		this.previous = new BloomFilter(bitCount, hashFunctions);
+		this.createdAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Metoda koja dodaje sažetak <b>hash</b> u filtar, ukoliko on već nije
+	 * viđen.
+	 *
+	 * @param hash
+	 *            sažetak koji se dodaje
+	 * @return <code>true</code> ukoliko sažetak sigurno nije viđen unutar
+	 *         pamćenih generacija, <code>false</code> ukoliko je možda viđen
+	 */
+	public boolean add(long hash) {
+		rotateIfNeeded();
+		BloomFilter filter = current;
+		if (previous.mightContain(hash) || !filter.put(hash)) {
+			return false;
+		}
+
+		if (filter.getInsertions() >= capacity && System.currentTimeMillis() - createdAt >= minRotationMillis) {
+			rotate(filter);
+		}
+		return true;
+	}
+
+	/**
+	 * Metoda koja provjerava je li sažetak <b>hash</b> možda viđen unutar
+	 * pamćenih generacija, bez dodavanja sažetka u filtar.
+	 *
+	 * @param hash
+	 *            sažetak koji se provjerava
+	 * @return <code>true</code> ukoliko je sažetak možda viđen,
+	 *         <code>false</code> ukoliko sigurno nije viđen
+	 */
+	public boolean mightContain(long hash) {
+		rotateIfNeeded();
+		return current.mightContain(hash) || previous.mightContain(hash);
+	}
+
+	/**
+	 * Metoda koja dohvaća najveći broj sažetaka jedne generacije
+	 *
+	 * @return najveći broj sažetaka jedne generacije
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj sažetaka dodanih u trenutnu generaciju
+	 *
+	 * @return broj sažetaka dodanih u trenutnu generaciju
+	 */
+	public long getInsertions() {
+		return current.getInsertions();
+	}
+
+	/**
+	 * Metoda koja dohvaća ukupnu veličinu obje generacije u oktetima
+	 *
+	 * @return ukupna veličina obje generacije u oktetima
+	 */
+	public long getSizeInBytes() {
+		return current.getSizeInBytes() + previous.getSizeInBytes();
+	}
+
+	/**
+	 * Pomoćna metoda koja zamjenjuje generacije ukoliko je trenutnoj
+	 * generaciji isteklo vrijeme.
+	 */
+	private void rotateIfNeeded() {
+		BloomFilter filter = current;
+		if (System.currentTimeMillis() - createdAt >= windowMillis) {
+			rotate(filter);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja generaciju <b>expected</b> proglašava prethodnom i
+	 * stvara novu trenutnu generaciju. Ukoliko je druga dretva već zamijenila
+	 * generaciju <b>expected</b>, metoda ništa ne radi.
+	 *
+	 * @param expected
+	 *            generacija koja se zamjenjuje
+	 */
+	private synchronized void rotate(BloomFilter expected) {
+		if (current != expected) {
+			return;
+		}
+
+		previous = expected;
+		current = new BloomFilter(bitCount, hashFunctions);
+		createdAt = System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,227 @@
+package hr.fer.zemris.java.hw14.app.dedupe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji se koristi za odbijanje ponovljenih glasova istog klijenta u
+ * istoj anketi, bez ikakvog pristupa bazi podataka. Klijent se prepoznaje po
+ * otisku koji se sastoji od njegove adrese te, ukoliko je zadan naziv
+ * kolačića ({@link Cookie}), i od vrijednosti tog kolačića. Otisak se
+ * zajedno sa identifikatorom ankete pamti u primjerku razreda
+ * {@link RotatingBloomFilter} zadane veličine i vjerojatnosti lažno pozitivnog
+ * odgovora.
+ * <p>
+ * Bez kolačića svi klijenti iza iste adrese (NAT, posrednički poslužitelj)
+ * dijele jedan glas po anketi. Kolačić ih razlikuje, ali ga klijent može
+ * proizvoljno mijenjati, pa klijent koji mijenja kolačić može glasati više
+ * puta. Klijent bez kolačića prepoznaje se samo po adresi.
+ * </p>
+ * <p>
+ * Glas se najprije metodom {@link #reserve(HttpServletRequest, long)}
+ * atomično rezervira: od istovremenih glasova istog klijenta u istoj anketi
+ * rezervaciju dobiva samo jedan, a ostali se odbijaju kao ponovljeni.
+ * Rezervacija se nakon uspješnog bilježenja glasa potvrđuje
+ * ({@link Reservation#commit()}), čime se glas pamti u filtru, a nakon
+ * neuspjelog bilježenja otpušta ({@link Reservation#release()}), pa se
+ * glasovi koje baza odbije ne pamte. Uz vjerojatnost lažno pozitivnog
+ * odgovora prvi glas klijenta može biti proglašen ponovljenim. Broj odbijenih
+ * glasova broji se brojačem "vote.duplicates" unutar {@link MetricsRegistry}.
+ * </p>
+ *
+ * @see RotatingBloomFilter
+ *
+ * @author Davor Češljaš
+ */
+public class VoteDeduplicator {
+
+	/** Konstanta koja predstavlja brojač odbijenih glasova */
+	private static final LongAdder DUPLICATES = MetricsRegistry.counter("vote.duplicates");
+
+	/** Konstanta koja predstavlja početnu vrijednost sažetka FNV-1a */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	/** Konstanta koja predstavlja prosti broj sažetka FNV-1a */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** Članska varijabla koja predstavlja filtar viđenih glasova */
+	private final RotatingBloomFilter filter;
+
+	/**
+	 * Članska varijabla koja predstavlja otiske glasova koji su rezervirani,
+	 * ali još nisu potvrđeni niti otpušteni
+	 */
+	private final Map<Long, Boolean> reserved = new ConcurrentHashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja naziv kolačića čija je vrijednost
+	 * dio otiska klijenta ili <code>null</code> ukoliko se klijent prepoznaje
+	 * samo po adresi
+	 */
+	private final String clientCookie;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param maxBytes
+	 *            najveća veličina filtra u oktetima
+	 * @param falsePositiveRate
+	 *            najveća vjerojatnost lažno pozitivnog odgovora
+	 * @param windowMillis
+	 *            najmanje vrijeme u milisekundama kroz koje se glas pamti,
+	 *            ukoliko se filtar ranije ne popuni
+	 * @param minRotationMillis
+	 *            najmanje vrijeme u milisekundama kroz koje se glas pamti i
+	 *            kada se filtar popuni
+	 * @param clientCookie
+	 *            naziv kolačića čija je vrijednost dio otiska klijenta ili
+	 *            <code>null</code> ukoliko se klijent prepoznaje samo po
+	 *            adresi
+	 */
+	public VoteDeduplicator(long maxBytes, double falsePositiveRate, long windowMillis, long minRotationMillis,
+			String clientCookie) {
+		this.filter = new RotatingBloomFilter(maxBytes, falsePositiveRate, windowMillis, minRotationMillis);
+		this.clientCookie = clientCookie;
+	}
+
+	/**
+	 * Metoda koja rezervira glas klijenta koji je poslao zahtjev
+	 * <b>request</b> u anketi <b>pollID</b>. Rezervacija uspijeva samo ukoliko
+	 * klijent nije već glasao i ukoliko njegov glas u istoj anketi trenutno
+	 * nije rezerviran. Dobivenu rezervaciju pozivatelj mora potvrditi ili
+	 * otpustiti.
+	 *
+	 * @param request
+	 *            klijentov zahtjev
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return rezervacija glasa ili <code>null</code> ukoliko je glas
+	 *         ponovljen
+	 */
+	public Reservation reserve(HttpServletRequest request, long pollID) {
+		long hash = fingerprint(request, pollID);
+		if (reserved.putIfAbsent(hash, Boolean.TRUE) == null) {
+			if (!filter.mightContain(hash)) {
+				return new Reservation(hash);
+			}
+			reserved.remove(hash);
+		}
+
+		DUPLICATES.increment();
+		return null;
+	}
+
+	/**
+	 * Metoda koja dohvaća filtar viđenih glasova
+	 *
+	 * @return filtar viđenih glasova
+	 */
+	public RotatingBloomFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Razred koji predstavlja rezervirani glas jednog klijenta u jednoj
+	 * anketi. Dok rezervacija postoji, ostali glasovi istog klijenta u istoj
+	 * anketi odbijaju se kao ponovljeni.
+	 *
+	 * @author Davor Češljaš
+	 */
+	public class Reservation {
+
+		/** Članska varijabla koja predstavlja otisak rezerviranog glasa */
+		private final long hash;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param hash
+		 *            otisak rezerviranog glasa
+		 */
+		private Reservation(long hash) {
+			this.hash = hash;
+		}
+
+		/**
+		 * Metoda koja potvrđuje rezervaciju nakon što je glas uspješno
+		 * zabilježen. Glas se pamti u filtru prije uklanjanja rezervacije, pa
+		 * kasniji glasovi istog klijenta ostaju odbijeni.
+		 */
+		public void commit() {
+			filter.add(hash);
+			reserved.remove(hash);
+		}
+
+		/**
+		 * Metoda koja otpušta rezervaciju nakon što glas nije zabilježen, pa
+		 * klijent može ponovno glasati.
+		 */
+		public void release() {
+			reserved.remove(hash);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja izračunava otisak klijenta koji je poslao zahtjev
+	 * <b>request</b> u anketi <b>pollID</b>.
+	 *
+	 * @param request
+	 *            klijentov zahtjev
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return otisak klijenta
+	 */
+	private long fingerprint(HttpServletRequest request, long pollID) {
+		long hash = FNV_OFFSET;
+		hash = (hash ^ pollID) * FNV_PRIME;
+		hash = update(hash, request.getRemoteAddr());
+		hash = update(hash, cookieValue(request));
+		return BloomFilter.mix(hash);
+	}
+
+	/**
+	 * Pomoćna metoda koja dohvaća vrijednost kolačića koji je dio otiska
+	 * klijenta.
+	 *
+	 * @param request
+	 *            klijentov zahtjev
+	 * @return vrijednost kolačića ili <code>null</code> ukoliko naziv
+	 *         kolačića nije zadan ili ga klijent nije poslao
+	 */
+	private String cookieValue(HttpServletRequest request) {
+		Cookie[] cookies = clientCookie == null ? null : request.getCookies();
+		if (cookies != null) {
+			for (Cookie cookie : cookies) {
+				if (clientCookie.equals(cookie.getName())) {
+					return cookie.getValue();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Pomoćna metoda koja sažetak <b>hash</b> nadopunjuje znakovima niza
+	 * <b>value</b>.
+	 *
+	 * @param hash
+	 *            dosadašnji sažetak
+	 * @param value
+	 *            niz znakova ili <code>null</code>
+	 * @return nadopunjeni sažetak
+	 */
+	private static long update(long hash, String value) {
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+			}
+		}
+		return (hash ^ 0xff) * FNV_PRIME;
+	}
+}
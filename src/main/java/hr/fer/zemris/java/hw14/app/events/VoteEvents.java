@@ -0,0 +1,65 @@
+package hr.fer.zemris.java.hw14.app.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Razred koji se koristi kao središnje mjesto za objavu glasova unutar ove
+ * aplikacije. Ovom razredu ne mogu se stvarati primjerci. Promatrači se
+ * prijavljuju metodom {@link #addListener(VoteListener)}, a svaki uspješno
+ * zabilježen glas objavljuje se metodom {@link #fireVote(long, long)}.
+ * Promatrači se pamte u listi koja se kopira prilikom svake izmjene, budući da
+ * se promatrači prijavljuju rijetko, a glasovi objavljuju često.
+ *
+ * @see VoteListener
+ *
+ * @author Davor Češljaš
+ */
+public class VoteEvents {
+
+	/** Konstanta koja predstavlja sve prijavljene promatrače */
+	private static final List<VoteListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private VoteEvents() {
+	}
+
+	/**
+	 * Metoda koja prijavljuje promatrača glasova
+	 *
+	 * @param listener
+	 *            promatrač koji se prijavljuje
+	 */
+	public static void addListener(VoteListener listener) {
+		LISTENERS.add(listener);
+	}
+
+	/**
+	 * Metoda koja odjavljuje promatrača glasova
+	 *
+	 * @param listener
+	 *            promatrač koji se odjavljuje
+	 */
+	public static void removeListener(VoteListener listener) {
+		LISTENERS.remove(listener);
+	}
+
+	/**
+	 * Metoda koja sve prijavljene promatrače obavještava o glasu za odgovor sa
+	 * identifikatorom <b>optionID</b> anketnog pitanja sa identifikatorom
+	 * <b>pollID</b>
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param optionID
+	 *            identifikator odgovora na anketno pitanje
+	 */
+	public static void fireVote(long pollID, long optionID) {
+		for (VoteListener listener : LISTENERS) {
+			listener.voted(pollID, optionID);
+		}
+	}
+}
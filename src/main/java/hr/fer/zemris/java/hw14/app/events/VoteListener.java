@@ -0,0 +1,27 @@
+package hr.fer.zemris.java.hw14.app.events;
+
+/**
+ * Sučelje koje modelira promatrača glasova. Primjerci razreda koji
+ * implementiraju ovo sučelje prijavljuju se unutar {@link VoteEvents} te se
+ * obavještavaju o svakom uspješno zabilježenom glasu.
+ *
+ * @see VoteEvents
+ *
+ * @author Davor Češljaš
+ */
+@FunctionalInterface
+public interface VoteListener {
+
+	/**
+	 * Metoda koja se poziva nakon što je zabilježen glas za odgovor sa
+	 * identifikatorom <b>optionID</b> anketnog pitanja sa identifikatorom
+	 * <b>pollID</b>. Metoda se poziva iz dretve koja obrađuje glas, pa mora
+	 * završiti brzo.
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param optionID
+	 *            identifikator odgovora na anketno pitanje
+	 */
+	void voted(long pollID, long optionID);
+}
@@ -0,0 +1,336 @@
+package hr.fer.zemris.java.hw14.app.live;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.app.events.VoteEvents;
+import hr.fer.zemris.java.hw14.app.events.VoteListener;
+import hr.fer.zemris.java.hw14.app.live.PollBroadcaster.Subscriber;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.sql.SQLConnectionProvider;
+
+/**
+ * Razred koji upravlja praćenjem rezultata anketnih pitanja uživo
+ * (engl. Server-Sent Events). Za svako anketno pitanje koje ima barem jednog
+ * pretplatnika postoji točno jedan {@link PollBroadcaster}, koji se stvara
+ * prilikom prve pretplate i uklanja nakon odjave zadnjeg pretplatnika, pa se
+ * početni broj glasova dohvaća jednom po anketnom pitanju, a ne jednom po
+ * pretplatniku.
+ * <p>
+ * Primjerak ovog razreda prijavljuje se kao promatrač glasova unutar
+ * {@link VoteEvents}, a jedna pozadinska dretva svakih <b>intervalMillis</b>
+ * milisekundi svim pretplatnicima šalje nakupljene izmjene. Tako je broj
+ * poruka koje pretplatnik prima ograničen neovisno o broju glasova. Slanje
+ * nikada ne blokira, pa spor pretplatnik ne usporava ostale.
+ * </p>
+ * <p>
+ * Početni broj glasova dohvaća se izvan zaključavanja mape razašiljanja, a
+ * druga pozadinska dretva svakih {@value #RELOAD_SECONDS} sekundi ponovno
+ * dohvaća broj glasova svih praćenih anketnih pitanja te tako ispravlja
+ * eventualna odstupanja. Budući da ta dretva ne obrađuje zahtjev, za vrijeme
+ * svakog dohvata sama postavlja izvor veza preko
+ * {@link SQLConnectionProvider}, a neuspjeli dohvati se bilježe.
+ * </p>
+ *
+ * @see PollBroadcaster
+ *
+ * @author Davor Češljaš
+ */
+public class LiveResults implements VoteListener, Closeable {
+
+	/**
+	 * Konstanta koja predstavlja najdulje vrijeme bez slanja (u sekundama)
+	 * nakon kojeg se pretplatnicima šalje komentar kako bi se otkrile
+	 * prekinute veze
+	 */
+	private static final long HEARTBEAT_SECONDS = 15;
+
+	/**
+	 * Konstanta koja predstavlja vrijeme (u milisekundama) nakon kojeg se
+	 * klijent ponovno spaja ukoliko se veza prekine
+	 */
+	private static final long RETRY_MILLIS = 3000;
+
+	/**
+	 * Konstanta koja predstavlja vrijeme (u sekundama) između dva ponovna
+	 * dohvata broja glasova
+	 */
+	private static final long RELOAD_SECONDS = 30;
+
+	/** Konstanta koja predstavlja zapisnik ovog razreda */
+	private static final Logger LOG = Logger.getLogger(LiveResults.class.getName());
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi identifikatori
+	 * anketnih pitanja, a vrijednosti njihova razašiljanja
+	 */
+	private final Map<Long, PollBroadcaster> broadcasters = new ConcurrentHashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja dretvu koja periodički šalje
+	 * nakupljene izmjene
+	 */
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Članska varijabla koja predstavlja dretvu koja periodički ponovno
+	 * dohvaća broj glasova
+	 */
+	private final ScheduledExecutorService reloader;
+
+	/**
+	 * Članska varijabla koja predstavlja funkciju koja dohvaća izvor veza
+	 * prema bazi podataka koji se koristi prilikom ponovnog dohvata
+	 */
+	private final Supplier<DataSource> dataSource;
+
+	/**
+	 * Konstruktor koji pokreće periodičko slanje izmjena te primjerak ovog
+	 * razreda prijavljuje kao promatrača glasova. Izvor veza dohvaća se preko
+	 * <b>dataSource</b> prilikom svakog ponovnog dohvata, jer bazen veza može
+	 * nastati tek nakon stvaranja primjerka ovog razreda.
+	 *
+	 * @param intervalMillis
+	 *            vrijeme između dva slanja izmjena u milisekundama
+	 * @param dataSource
+	 *            funkcija koja dohvaća izvor veza prema bazi podataka ili
+	 *            <code>null</code> ukoliko spremište podataka nije baza
+	 *            podataka
+	 */
+	public LiveResults(long intervalMillis, Supplier<DataSource> dataSource) {
+		this.dataSource = dataSource;
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "live-results");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(this::flushAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "live-results-reload");
+			thread.setDaemon(true);
+			return thread;
+		});
+		reloader.scheduleWithFixedDelay(this::reloadAll, RELOAD_SECONDS, RELOAD_SECONDS, TimeUnit.SECONDS);
+		VoteEvents.addListener(this);
+	}
+
+	/**
+	 * Metoda koja asinkroni zahtjev predstavljen sa <b>asyncContext</b>
+	 * pretplaćuje na rezultate anketnog pitanja sa identifikatorom
+	 * <b>pollID</b> te mu šalje trenutne rezultate. Ukoliko anketno pitanje
+	 * nema niti jednog pretplatnika, razašiljanje se stvara i odmah počinje
+	 * bilježiti glasove, a početni broj glasova zatim se preko
+	 * <b>loader</b>a dohvaća izvan zaključavanja. Pretplatnici koji se
+	 * prijave tijekom dohvata trenutne rezultate dobivaju nakon njega.
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param asyncContext
+	 *            kontekst asinkronog zahtjeva
+	 * @param loader
+	 *            funkcija koja dohvaća odgovore anketnog pitanja
+	 * @throws RuntimeException
+	 *             ukoliko dohvat odgovora ne uspije, nakon čega je asinkroni
+	 *             zahtjev završen
+	 */
+	public void subscribe(long pollID, AsyncContext asyncContext, Supplier<List<PollOption>> loader) {
+		Subscriber subscriber = new Subscriber(asyncContext);
+		asyncContext.addListener(new UnsubscribeListener(pollID, subscriber));
+		try {
+			subscriber.start();
+		} catch (IOException e) {
+			subscriber.complete();
+			return;
+		}
+
+		boolean[] created = { false };
+		PollBroadcaster broadcaster = broadcasters.compute(pollID, (id, current) -> {
+			PollBroadcaster result = current;
+			if (result == null) {
+				result = new PollBroadcaster(loader);
+				created[0] = true;
+			}
+			result.add(subscriber);
+			return result;
+		});
+
+		if (created[0]) {
+			try {
+				broadcaster.reload();
+			} catch (RuntimeException e) {
+				broadcasters.remove(pollID, broadcaster);
+				broadcaster.failed(e);
+				subscriber.complete();
+				throw e;
+			}
+		}
+		broadcaster.sendSnapshotWhenLoaded(subscriber, RETRY_MILLIS);
+	}
+
+	/**
+	 * Metoda koja dohvaća broj anketnih pitanja koja imaju barem jednog
+	 * pretplatnika
+	 *
+	 * @return broj anketnih pitanja koja imaju barem jednog pretplatnika
+	 */
+	public int getPollCount() {
+		return broadcasters.size();
+	}
+
+	/**
+	 * Metoda koja dohvaća ukupan broj pretplatnika
+	 *
+	 * @return ukupan broj pretplatnika
+	 */
+	public int getSubscriberCount() {
+		int count = 0;
+		for (PollBroadcaster broadcaster : broadcasters.values()) {
+			count += broadcaster.getSubscriberCount();
+		}
+		return count;
+	}
+
+	@Override
+	public void voted(long pollID, long optionID) {
+		PollBroadcaster broadcaster = broadcasters.get(pollID);
+		if (broadcaster != null) {
+			broadcaster.voted(optionID);
+		}
+	}
+
+	/**
+	 * {@inheritDoc} Zaustavlja periodičko slanje izmjena, odjavljuje promatrača
+	 * glasova te završava sve pretplate.
+	 */
+	@Override
+	public void close() throws IOException {
+		VoteEvents.removeListener(this);
+		scheduler.shutdownNow();
+		reloader.shutdownNow();
+		for (PollBroadcaster broadcaster : broadcasters.values()) {
+			broadcaster.completeAll();
+		}
+		broadcasters.clear();
+	}
+
+	/**
+	 * Pomoćna metoda koja svim pretplatnicima šalje nakupljene izmjene.
+	 * Pogreška prilikom slanja jednog anketnog pitanja ne sprječava slanje
+	 * ostalih, niti zaustavlja periodičko slanje.
+	 */
+	private void flushAll() {
+		long heartbeatNanos = TimeUnit.SECONDS.toNanos(HEARTBEAT_SECONDS);
+		for (PollBroadcaster broadcaster : broadcasters.values()) {
+			try {
+				broadcaster.flush(heartbeatNanos);
+			} catch (RuntimeException ignorable) {
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja ponovno dohvaća broj glasova svih praćenih anketnih
+	 * pitanja. Za vrijeme svakog dohvata trenutnoj dretvi postavlja se izvor
+	 * veza. Neuspjeh dohvata jednog anketnog pitanja bilježi se, ali ne
+	 * sprječava dohvat ostalih, niti zaustavlja periodički dohvat.
+	 */
+	private void reloadAll() {
+		DataSource ds = dataSource == null ? null : dataSource.get();
+		for (Map.Entry<Long, PollBroadcaster> entry : broadcasters.entrySet()) {
+			PollBroadcaster broadcaster = entry.getValue();
+			if (!broadcaster.isLoaded()) {
+				continue;
+			}
+			SQLConnectionProvider.setDataSource(ds);
+			try {
+				broadcaster.reload();
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Nije moguće ponovno dohvatiti glasove ankete " + entry.getKey(), e);
+			} finally {
+				try {
+					SQLConnectionProvider.releaseConnection();
+				} catch (DAOException e) {
+					LOG.log(Level.WARNING, "Nije moguće zatvoriti vezu prema bazi podataka", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja uklanja pretplatnika te razašiljanje anketnog
+	 * pitanja koje nakon toga nema niti jednog pretplatnika
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param subscriber
+	 *            pretplatnik koji se uklanja
+	 */
+	private void unsubscribe(long pollID, Subscriber subscriber) {
+		broadcasters.computeIfPresent(pollID, (id, broadcaster) -> broadcaster.remove(subscriber) ? null : broadcaster);
+	}
+
+	/**
+	 * Pomoćni razred koji implementira sučelje {@link AsyncListener}, a koji
+	 * pretplatnika uklanja nakon završetka asinkronog zahtjeva, bez obzira na
+	 * to je li zahtjev završen, prekinut ili je isteklo njegovo vrijeme.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private class UnsubscribeListener implements AsyncListener {
+
+		/** Članska varijabla koja predstavlja identifikator anketnog pitanja */
+		private final long pollID;
+
+		/** Članska varijabla koja predstavlja pretplatnika */
+		private final Subscriber subscriber;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param pollID
+		 *            identifikator anketnog pitanja
+		 * @param subscriber
+		 *            pretplatnik
+		 */
+		public UnsubscribeListener(long pollID, Subscriber subscriber) {
+			this.pollID = pollID;
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			unsubscribe(pollID, subscriber);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			unsubscribe(pollID, subscriber);
+			subscriber.complete();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			unsubscribe(pollID, subscriber);
+			subscriber.complete();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+		}
+	}
+}
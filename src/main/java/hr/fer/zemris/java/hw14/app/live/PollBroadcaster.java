@@ -0,0 +1,484 @@
+package hr.fer.zemris.java.hw14.app.live;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+
+/**
+ * Razred koji modelira zajedničko razašiljanje (engl. fan-out) rezultata
+ * jednog anketnog pitanja svim njegovim pretplatnicima. Primjerak ovog razreda
+ * broj glasova svakog odgovora čuva u memoriji, a nakon svakog glasa samo
+ * povećava broj glasova i odgovor označava izmijenjenim. Metodom
+ * {@link #flush(long)} svim se pretplatnicima šalje jedan događaj sa
+ * ukupnim brojem glasova svih odgovora izmijenjenih od prethodnog slanja, pa
+ * se više glasova za isti odgovor spaja u jednu izmjenu, a glasovi ne
+ * uzrokuju nikakav pristup bazi podataka.
+ * <p>
+ * Početni broj glasova dohvaća se metodom {@link #reload()} izvan bilo kakvog
+ * zaključavanja, a primjerak ovog razreda glasove bilježi već od samog
+ * stvaranja. Broj glasova svakog odgovora čuva se kao zbroj glasova
+ * zabilježenih od stvaranja i osnovice koju postavlja dohvat, pri čemu se
+ * od dohvaćenog broja oduzimaju glasovi zabilježeni prije dohvata, pa se
+ * glas koji stigne tijekom dohvata ne gubi. Glas koji je dohvat već vidio, a
+ * koji je zabilježen tijekom dohvata, može biti ubrojen dva puta, zbog čega
+ * se dohvat periodički ponavlja.
+ * </p>
+ *
+ * @see LiveResults
+ *
+ * @author Davor Češljaš
+ */
+class PollBroadcaster {
+
+	/** Konstanta koja predstavlja komentar kojim se provjerava veza sa klijentom */
+	private static final String HEARTBEAT = ":\n\n";
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi identifikatori
+	 * odgovora, a vrijednosti brojevi glasova
+	 */
+	private final Map<Long, Counter> counts = new ConcurrentHashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja identifikatore odgovora izmijenjenih
+	 * od prethodnog slanja
+	 */
+	private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+	/** Članska varijabla koja predstavlja sve pretplatnike */
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	/** Članska varijabla koja predstavlja funkciju koja dohvaća odgovore */
+	private final Supplier<List<PollOption>> loader;
+
+	/**
+	 * Članska varijabla koja predstavlja budućnost koja se završava nakon
+	 * prvog dohvata odgovora
+	 */
+	private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+	/**
+	 * Članska varijabla koja predstavlja trenutak (dobiven pozivom
+	 * {@link System#nanoTime()}) prethodnog slanja
+	 */
+	private long lastSent = System.nanoTime();
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda. Početni broj
+	 * glasova potrebno je dohvatiti metodom {@link #reload()}.
+	 *
+	 * @param loader
+	 *            funkcija koja dohvaća odgovore anketnog pitanja
+	 */
+	public PollBroadcaster(Supplier<List<PollOption>> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Metoda koja bilježi glas za odgovor sa identifikatorom <b>optionID</b>
+	 *
+	 * @param optionID
+	 *            identifikator odgovora
+	 */
+	public void voted(long optionID) {
+		counts.computeIfAbsent(optionID, id -> new Counter()).votes.incrementAndGet();
+		dirty.add(optionID);
+	}
+
+	/**
+	 * Metoda koja dohvaća odgovore anketnog pitanja te prema njima postavlja
+	 * broj glasova svakog odgovora. Odgovori čiji se broj glasova promijenio
+	 * označavaju se izmijenjenima. Nakon prvog uspješnog dohvata pretplatnici
+	 * koji čekaju dobivaju snimku. Istovremeno se izvodi najviše jedan dohvat.
+	 *
+	 * @throws RuntimeException
+	 *             ukoliko dohvat odgovora ne uspije
+	 */
+	public synchronized void reload() {
+		Map<Long, Long> marks = new HashMap<>();
+		for (Map.Entry<Long, Counter> entry : counts.entrySet()) {
+			marks.put(entry.getKey(), entry.getValue().votes.get());
+		}
+
+		boolean loaded = ready.isDone();
+		for (PollOption pollOption : loader.get()) {
+			Counter counter = counts.computeIfAbsent(pollOption.getId(), id -> new Counter());
+			long base = pollOption.getVotesCount() - marks.getOrDefault(pollOption.getId(), 0L);
+			if (counter.base != base) {
+				counter.base = base;
+				if (loaded) {
+					dirty.add(pollOption.getId());
+				}
+			}
+		}
+		ready.complete(null);
+	}
+
+	/**
+	 * Metoda koja dojavljuje da prvi dohvat odgovora nije uspio, nakon čega se
+	 * završavaju sve pretplate koje čekaju snimku
+	 *
+	 * @param cause
+	 *            razlog neuspjeha
+	 */
+	public void failed(Throwable cause) {
+		ready.completeExceptionally(cause);
+	}
+
+	/**
+	 * Metoda koja provjerava je li prvi dohvat odgovora uspješno završen
+	 *
+	 * @return <code>true</code> ukoliko je prvi dohvat uspješno završen,
+	 *         <code>false</code> inače
+	 */
+	public boolean isLoaded() {
+		return ready.isDone() && !ready.isCompletedExceptionally();
+	}
+
+	/**
+	 * Metoda koja dodaje pretplatnika. Pretplatnik ne prima izmjene dok mu se
+	 * ne pošalje snimka metodom
+	 * {@link #sendSnapshotWhenLoaded(Subscriber, long)}.
+	 *
+	 * @param subscriber
+	 *            pretplatnik koji se dodaje
+	 */
+	public void add(Subscriber subscriber) {
+		subscribers.add(subscriber);
+	}
+
+	/**
+	 * Metoda koja uklanja pretplatnika
+	 *
+	 * @param subscriber
+	 *            pretplatnik koji se uklanja
+	 * @return <code>true</code> ukoliko nakon uklanjanja nije ostao niti jedan
+	 *         pretplatnik, <code>false</code> inače
+	 */
+	public boolean remove(Subscriber subscriber) {
+		subscribers.remove(subscriber);
+		return subscribers.isEmpty();
+	}
+
+	/**
+	 * Metoda koja dohvaća broj pretplatnika
+	 *
+	 * @return broj pretplatnika
+	 */
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	/**
+	 * Metoda koja pretplatniku, odmah ili nakon završetka prvog dohvata
+	 * odgovora, šalje ukupan broj glasova svih odgovora te vrijeme (u
+	 * milisekundama) nakon kojeg se klijent ponovno spaja ukoliko se veza
+	 * prekine. Ukoliko dohvat ili slanje ne uspiju, pretplata se završava.
+	 *
+	 * @param subscriber
+	 *            pretplatnik
+	 * @param retryMillis
+	 *            vrijeme nakon kojeg se klijent ponovno spaja
+	 */
+	public void sendSnapshotWhenLoaded(Subscriber subscriber, long retryMillis) {
+		ready.whenComplete((result, cause) -> {
+			if (cause != null || !subscriber.prime(
+					() -> "retry: " + retryMillis + "\n" + event("snapshot", counts.keySet().iterator(), false))) {
+				subscriber.complete();
+			}
+		});
+	}
+
+	/**
+	 * Metoda koja svim pretplatnicima šalje ukupan broj glasova odgovora
+	 * izmijenjenih od prethodnog slanja. Ukoliko izmjena nema, a od prethodnog
+	 * slanja prošlo je barem <b>heartbeatNanos</b> nanosekundi, šalje se
+	 * komentar kojim se otkrivaju prekinute veze. Slanje nikada ne blokira, a
+	 * pretplatnici kojima slanje ne uspije ili koji ne stižu primati poruke se
+	 * odjavljuju.
+	 *
+	 * @param heartbeatNanos
+	 *            najdulje vrijeme bez slanja u nanosekundama
+	 */
+	public void flush(long heartbeatNanos) {
+		if (!isLoaded()) {
+			return;
+		}
+
+		String message;
+		long now = System.nanoTime();
+		if (!dirty.isEmpty()) {
+			message = event("votes", dirty.iterator(), true);
+		} else if (now - lastSent >= heartbeatNanos) {
+			message = HEARTBEAT;
+		} else {
+			return;
+		}
+
+		lastSent = now;
+		for (Subscriber subscriber : subscribers) {
+			if (!subscriber.send(message)) {
+				subscriber.complete();
+			}
+		}
+	}
+
+	/**
+	 * Metoda koja završava sve pretplate.
+	 */
+	public void completeAll() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.complete();
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara događaj sa imenom <b>name</b> čiji su podaci
+	 * JSON objekt sa ukupnim brojem glasova odgovora čije identifikatore
+	 * vraća predani iterator.
+	 *
+	 * @param name
+	 *            ime događaja
+	 * @param ids
+	 *            iterator po identifikatorima odgovora
+	 * @param drain
+	 *            zastavica koja određuje uklanja li se svaki identifikator
+	 *            nakon čitanja
+	 * @return događaj zapisan u "text/event-stream" formatu
+	 */
+	private String event(String name, Iterator<Long> ids, boolean drain) {
+		StringBuilder sb = new StringBuilder("event: ").append(name).append("\ndata: {");
+		boolean first = true;
+		while (ids.hasNext()) {
+			Long id = ids.next();
+			if (drain) {
+				ids.remove();
+			}
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append('"').append(id).append("\":").append(counts.get(id).get());
+		}
+		return sb.append("}\n\n").toString();
+	}
+
+	/**
+	 * Pomoćni razred koji modelira broj glasova jednog odgovora kao zbroj
+	 * osnovice koju postavlja dohvat i glasova zabilježenih od stvaranja.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private static class Counter {
+
+		/** Članska varijabla koja predstavlja glasove zabilježene od stvaranja */
+		private final AtomicLong votes = new AtomicLong();
+
+		/** Članska varijabla koja predstavlja osnovicu koju postavlja dohvat */
+		private volatile long base;
+
+		/**
+		 * Metoda koja dohvaća ukupan broj glasova
+		 *
+		 * @return ukupan broj glasova
+		 */
+		public long get() {
+			return base + votes.get();
+		}
+	}
+
+	/**
+	 * Razred koji modelira jednog pretplatnika, odnosno jedan asinkroni
+	 * zahtjev. Poruke se zapisuju neblokirajućim izlaznim tokom (sučelje
+	 * {@link WriteListener}), a one koje klijent još ne može primiti čekaju u
+	 * ograničenom redu. Pretplatnik čiji se red napuni ne stiže primati
+	 * poruke, pa slanje prema njemu ne uspijeva. Metode su sinkronizirane,
+	 * budući da snimku šalje dretva koja dohvaća odgovore, izmjene dretva koja
+	 * razašilje rezultate, a ostatak reda dretva poslužitelja.
+	 *
+	 * @author Davor Češljaš
+	 */
+	static class Subscriber implements WriteListener {
+
+		/** Konstanta koja predstavlja najveći broj poruka koje čekaju u redu */
+		private static final int MAX_QUEUED = 16;
+
+		/** Članska varijabla koja predstavlja kontekst asinkronog zahtjeva */
+		private final AsyncContext asyncContext;
+
+		/** Članska varijabla koja predstavlja poruke koje čekaju slanje */
+		private final Deque<byte[]> queue = new ArrayDeque<>();
+
+		/** Članska varijabla koja predstavlja izlazni tok odgovora */
+		private ServletOutputStream out;
+
+		/**
+		 * Članska varijabla koja predstavlja zastavicu koja određuje je li
+		 * zapisano nešto što još nije poslano klijentu
+		 */
+		private boolean needsFlush;
+
+		/**
+		 * Članska varijabla koja predstavlja zastavicu koja određuje je li
+		 * pretplatniku poslana snimka
+		 */
+		private boolean primed;
+
+		/**
+		 * Članska varijabla koja predstavlja zastavicu koja određuje je li
+		 * slanje prema pretplatniku trajno neuspjelo
+		 */
+		private boolean failed;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param asyncContext
+		 *            kontekst asinkronog zahtjeva
+		 */
+		public Subscriber(AsyncContext asyncContext) {
+			this.asyncContext = asyncContext;
+		}
+
+		/**
+		 * Metoda koja izlazni tok odgovora prebacuje u neblokirajući način
+		 * rada. Poziva se jednom, iz dretve koja obrađuje zahtjev.
+		 *
+		 * @throws IOException
+		 *             ukoliko dohvat izlaznog toka ne uspije
+		 */
+		public void start() throws IOException {
+			ServletOutputStream out = asyncContext.getResponse().getOutputStream();
+			synchronized (this) {
+				this.out = out;
+			}
+			out.setWriteListener(this);
+		}
+
+		/**
+		 * Metoda koja pretplatniku šalje snimku koju stvara <b>snapshot</b>,
+		 * nakon čega pretplatnik počinje primati izmjene. Snimka se stvara
+		 * tek nakon zaključavanja pretplatnika, pa uključuje i sve izmjene
+		 * koje je pretplatnik do tada propustio.
+		 *
+		 * @param snapshot
+		 *            funkcija koja stvara snimku
+		 * @return <code>true</code> ukoliko slanje nije neuspjelo,
+		 *         <code>false</code> inače
+		 */
+		public synchronized boolean prime(Supplier<String> snapshot) {
+			primed = true;
+			return enqueue(snapshot.get());
+		}
+
+		/**
+		 * Metoda koja pretplatniku šalje poruku <b>message</b>. Poruka se
+		 * zanemaruje ukoliko pretplatnik još nije primio snimku.
+		 *
+		 * @param message
+		 *            poruka koja se šalje
+		 * @return <code>true</code> ukoliko slanje nije neuspjelo,
+		 *         <code>false</code> inače
+		 */
+		public synchronized boolean send(String message) {
+			return primed ? enqueue(message) : !failed;
+		}
+
+		@Override
+		public void onWritePossible() throws IOException {
+			boolean ok;
+			synchronized (this) {
+				drain();
+				ok = !failed;
+			}
+			if (!ok) {
+				complete();
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			synchronized (this) {
+				failed = true;
+				queue.clear();
+			}
+			complete();
+		}
+
+		/**
+		 * Metoda koja završava asinkroni zahtjev ukoliko on već nije završen.
+		 */
+		public void complete() {
+			try {
+				asyncContext.complete();
+			} catch (IllegalStateException ignorable) {
+			}
+		}
+
+		/**
+		 * Pomoćna metoda koja poruku dodaje u red te zapisuje koliko je
+		 * moguće poruka iz reda. Ukoliko je red pun, slanje trajno ne uspijeva.
+		 *
+		 * @param message
+		 *            poruka koja se šalje
+		 * @return <code>true</code> ukoliko slanje nije neuspjelo,
+		 *         <code>false</code> inače
+		 */
+		private boolean enqueue(String message) {
+			if (failed) {
+				return false;
+			}
+			if (queue.size() >= MAX_QUEUED) {
+				failed = true;
+				queue.clear();
+				return false;
+			}
+
+			queue.add(message.getBytes(StandardCharsets.UTF_8));
+			drain();
+			return !failed;
+		}
+
+		/**
+		 * Pomoćna metoda koja zapisuje poruke iz reda dok god izlazni tok to
+		 * dopušta bez blokiranja. Ukoliko izlazni tok nije spreman,
+		 * poslužitelj kasnije poziva {@link #onWritePossible()}.
+		 */
+		private void drain() {
+			if (out == null || failed) {
+				return;
+			}
+
+			try {
+				while (!queue.isEmpty() && out.isReady()) {
+					out.write(queue.poll());
+					needsFlush = true;
+				}
+				if (needsFlush && out.isReady()) {
+					out.flush();
+					needsFlush = false;
+				}
+			} catch (IOException | IllegalStateException e) {
+				failed = true;
+				queue.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package hr.fer.zemris.java.hw14.app.ranking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.app.util.ServletUtil;
+
+/**
+ * Razred koji modelira poredak odgovora jednog anketnog pitanja. Odgovori se
+ * čuvaju u {@link TreeSet}u poredani silazno po broju glasova, a zatim
+ * uzlazno po identifikatoru, pa se nakon svakog glasa poredak ažurira u
+ * vremenu O(log n), umjesto ponovnog dohvata i sortiranja svih odgovora.
+ * <p>
+ * Čitatelji dobivaju nepromjenjivi {@link Snapshot} poretka. Snimka se
+ * stvara tek prilikom prvog čitanja nakon izmjene, a do sljedeće izmjene svi
+ * čitatelji dijele istu snimku. Odgovori unutar poretka se nikada ne
+ * mijenjaju, nego se prilikom glasa zamjenjuju novim primjercima, pa ih
+ * snimke mogu sigurno dijeliti.
+ * </p>
+ *
+ * @see PollRankings
+ *
+ * @author Davor Češljaš
+ */
+public class PollRanking {
+
+	/**
+	 * Konstanta koja predstavlja poredak odgovora: silazno po broju glasova,
+	 * a zatim uzlazno po identifikatoru
+	 */
+	public static final Comparator<PollOption> RANKING_ORDER = ServletUtil.POLL_OPTIONS_COMPARATOR.reversed()
+			.thenComparingLong(PollOption::getId);
+
+	/** Članska varijabla koja predstavlja poredane odgovore */
+	private final TreeSet<PollOption> ranking = new TreeSet<>(RANKING_ORDER);
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi identifikatori
+	 * odgovora, a vrijednosti trenutni primjerci odgovora unutar poretka
+	 */
+	private final Map<Long, PollOption> byID = new HashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja trenutak (dobiven pozivom
+	 * {@link System#nanoTime()}) u kojem je poredak učitan
+	 */
+	private final long loadedAt;
+
+	/**
+	 * Članska varijabla koja predstavlja zadnju snimku poretka ili
+	 * <code>null</code> ukoliko je poredak izmijenjen nakon zadnje snimke
+	 */
+	private Snapshot snapshot;
+
+	/**
+	 * Konstruktor koji stvara poredak predanih odgovora.
+	 *
+	 * @param pollOptions
+	 *            odgovori anketnog pitanja
+	 */
+	public PollRanking(List<PollOption> pollOptions) {
+		for (PollOption pollOption : pollOptions) {
+			PollOption copy = copy(pollOption, pollOption.getVotesCount());
+			byID.put(copy.getId(), copy);
+			ranking.add(copy);
+		}
+		this.loadedAt = System.nanoTime();
+	}
+
+	/**
+	 * Metoda koja broj glasova odgovora sa identifikatorom <b>optionID</b>
+	 * povećava za 1 te ažurira poredak.
+	 *
+	 * @param optionID
+	 *            identifikator odgovora
+	 * @return <code>true</code> ukoliko odgovor postoji u poretku,
+	 *         <code>false</code> inače
+	 */
+	public synchronized boolean increment(long optionID) {
+		PollOption current = byID.get(optionID);
+		if (current == null) {
+			return false;
+		}
+
+		ranking.remove(current);
+		PollOption updated = copy(current, current.getVotesCount() + 1);
+		ranking.add(updated);
+		byID.put(optionID, updated);
+		snapshot = null;
+
+		return true;
+	}
+
+	/**
+	 * Metoda koja dohvaća snimku trenutnog poretka
+	 *
+	 * @return snimka trenutnog poretka
+	 */
+	public synchronized Snapshot getSnapshot() {
+		if (snapshot == null) {
+			List<PollOption> pollOptions = Collections.unmodifiableList(new ArrayList<>(ranking));
+
+			List<PollOption> winners = new ArrayList<>();
+			for (PollOption pollOption : pollOptions) {
+				if (pollOption.getVotesCount() != pollOptions.get(0).getVotesCount()) {
+					break;
+				}
+				winners.add(pollOption);
+			}
+
+			snapshot = new Snapshot(pollOptions, Collections.unmodifiableList(winners));
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Metoda koja dohvaća trenutak (dobiven pozivom {@link System#nanoTime()})
+	 * u kojem je poredak učitan
+	 *
+	 * @return trenutak u kojem je poredak učitan
+	 */
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara kopiju odgovora sa <b>votesCount</b> glasova
+	 *
+	 * @param pollOption
+	 *            odgovor koji se kopira
+	 * @param votesCount
+	 *            broj glasova kopije
+	 * @return kopija odgovora
+	 */
+	private static PollOption copy(PollOption pollOption, long votesCount) {
+		return new PollOption(pollOption.getId(), pollOption.getOptionTitle(), pollOption.getOptionLink(),
+				pollOption.getPollID(), votesCount);
+	}
+
+	/**
+	 * Razred koji modelira nepromjenjivu snimku poretka. Snimka sadrži sve
+	 * odgovore poredane silazno po broju glasova te odgovore sa najvećim
+	 * brojem glasova.
+	 *
+	 * @author Davor Češljaš
+	 */
+	public static class Snapshot {
+
+		/** Članska varijabla koja predstavlja poredane odgovore */
+		private final List<PollOption> pollOptions;
+
+		/**
+		 * Članska varijabla koja predstavlja odgovore sa najvećim brojem
+		 * glasova
+		 */
+		private final List<PollOption> winners;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param pollOptions
+		 *            poredani odgovori
+		 * @param winners
+		 *            odgovori sa najvećim brojem glasova
+		 */
+		private Snapshot(List<PollOption> pollOptions, List<PollOption> winners) {
+			this.pollOptions = pollOptions;
+			this.winners = winners;
+		}
+
+		/**
+		 * Metoda koja dohvaća nepromjenjivu {@link List}u odgovora poredanih
+		 * silazno po broju glasova
+		 *
+		 * @return poredani odgovori
+		 */
+		public List<PollOption> getPollOptions() {
+			return pollOptions;
+		}
+
+		/**
+		 * Metoda koja dohvaća nepromjenjivu {@link List}u odgovora sa najvećim
+		 * brojem glasova
+		 *
+		 * @return odgovori sa najvećim brojem glasova
+		 */
+		public List<PollOption> getWinners() {
+			return winners;
+		}
+	}
+}
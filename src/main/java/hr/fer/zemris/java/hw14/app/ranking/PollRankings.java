@@ -0,0 +1,185 @@
+package hr.fer.zemris.java.hw14.app.ranking;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import hr.fer.zemris.java.hw14.app.events.VoteEvents;
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+
+/**
+ * Razred koji čuva poretke ({@link PollRanking}) odgovora svih anketnih
+ * pitanja čiji su rezultati bili traženi. Ovom razredu ne mogu se stvarati
+ * primjerci. Poredak anketnog pitanja učitava se preko
+ * {@link DAOProvider#getDao()} prilikom prvog dohvata, a nakon toga se
+ * ažurira glasovima objavljenim preko {@link VoteEvents}.
+ * <p>
+ * Budući da glasovi zabilježeni mimo ove aplikacije (ili glasovi objavljeni
+ * tijekom samog učitavanja) ne prolaze kroz {@link VoteEvents}, svaki se
+ * poredak nakon {@link #setTtlMillis(long)} milisekundi ponovno učitava, pa je
+ * moguće odstupanje od baze podataka vremenski ograničeno. Ukoliko glas
+ * stigne za odgovor koji ne postoji u poretku (npr. nakon grupnog uvoza),
+ * poredak se odbacuje i ponovno učitava prilikom sljedećeg dohvata.
+ * </p>
+ * <p>
+ * Istovremeno se učitava najviše jedan poredak po anketnom pitanju: ostale
+ * dretve čekaju i dijele njegov rezultat. Učitani poredak zamjenjuje samo
+ * onaj poredak koji je bio zastario na početku učitavanja, pa se poredak
+ * odbačen tijekom učitavanja ne vraća u mapu.
+ * </p>
+ *
+ * @see PollRanking
+ * @see VoteEvents
+ *
+ * @author Davor Češljaš
+ */
+public class PollRankings {
+
+	/**
+	 * Konstanta koja predstavlja pretpostavljeni broj milisekundi nakon kojeg
+	 * se poredak ponovno učitava
+	 */
+	public static final long DEFAULT_TTL_MILLIS = 60_000;
+
+	/**
+	 * Konstanta koja predstavlja mapu čiji su ključevi identifikatori anketnih
+	 * pitanja, a vrijednosti njihovi poretci
+	 */
+	private static final Map<Long, PollRanking> RANKINGS = new ConcurrentHashMap<>();
+
+	/**
+	 * Konstanta koja predstavlja mapu čiji su ključevi identifikatori anketnih
+	 * pitanja, a vrijednosti učitavanja njihovih poredaka koja su u tijeku
+	 */
+	private static final Map<Long, CompletableFuture<PollRanking>> LOADS = new ConcurrentHashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja broj nanosekundi nakon kojeg se
+	 * poredak ponovno učitava
+	 */
+	private static volatile long ttlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_TTL_MILLIS);
+
+	static {
+		VoteEvents.addListener(PollRankings::voted);
+	}
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private PollRankings() {
+	}
+
+	/**
+	 * Metoda koja postavlja broj milisekundi nakon kojeg se poredak ponovno
+	 * učitava
+	 *
+	 * @param ttlMillis
+	 *            broj milisekundi nakon kojeg se poredak ponovno učitava
+	 */
+	public static void setTtlMillis(long ttlMillis) {
+		ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+	}
+
+	/**
+	 * Metoda koja dohvaća poredak odgovora anketnog pitanja sa
+	 * identifikatorom <b>pollID</b>. Ukoliko poredak ne postoji ili je
+	 * zastario, on se učitava metodom {@link DAO#getPollOptions(long)}, osim
+	 * ukoliko ga već učitava neka druga dretva, kada se čeka njen rezultat.
+	 * Pozivatelj mora provjeriti postoji li anketno pitanje, kako se ne bi
+	 * stvarali poretci za nepostojeća anketna pitanja.
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @return poredak odgovora anketnog pitanja
+	 */
+	public static PollRanking get(long pollID) {
+		PollRanking ranking = RANKINGS.get(pollID);
+		if (ranking != null && System.nanoTime() - ranking.getLoadedAt() < ttlNanos) {
+			return ranking;
+		}
+
+		CompletableFuture<PollRanking> load = new CompletableFuture<>();
+		CompletableFuture<PollRanking> running = LOADS.putIfAbsent(pollID, load);
+		if (running != null) {
+			return await(running);
+		}
+
+		try {
+			PollRanking loaded = new PollRanking(DAOProvider.getDao().getPollOptions(pollID));
+			if (ranking == null) {
+				RANKINGS.putIfAbsent(pollID, loaded);
+			} else {
+				RANKINGS.replace(pollID, ranking, loaded);
+			}
+			load.complete(loaded);
+			return loaded;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			LOADS.remove(pollID, load);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja čeka da druga dretva učita poredak. Ukoliko
+	 * učitavanje nije uspjelo, baca se iznimka kojom je ono završilo.
+	 *
+	 * @param load
+	 *            učitavanje poretka koje je u tijeku
+	 * @return učitani poredak
+	 */
+	private static PollRanking await(CompletableFuture<PollRanking> load) {
+		try {
+			return load.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Metoda koja odbacuje poredak anketnog pitanja sa identifikatorom
+	 * <b>pollID</b>
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 */
+	public static void invalidate(long pollID) {
+		RANKINGS.remove(pollID);
+	}
+
+	/**
+	 * Metoda koja odbacuje sve poretke.
+	 */
+	public static void invalidateAll() {
+		RANKINGS.clear();
+	}
+
+	/**
+	 * Pomoćna metoda koja ažurira poredak nakon glasa. Ukoliko poredak
+	 * anketnog pitanja nije učitan, glas se zanemaruje, budući da će ga
+	 * sadržavati poredak kada se učita.
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param optionID
+	 *            identifikator odgovora
+	 */
+	private static void voted(long pollID, long optionID) {
+		PollRanking ranking = RANKINGS.get(pollID);
+		if (ranking != null && !ranking.increment(optionID)) {
+			RANKINGS.remove(pollID, ranking);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package hr.fer.zemris.java.hw14.app.servlets;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import hr.fer.zemris.java.hw14.app.util.AsyncExecutor;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji implementira sučelje {@link ServletContextListener}. Primjerci
+ * ovog razreda prilikom pokretanja poslužitelja stvaraju {@link AsyncExecutor}
+ * na kojem se asinkrono obrađuju zahtjevi te ga pohranjuju kao atribut
+ * konteksta sa imenom {@value #EXECUTOR_ATTRIBUTE}. Broj dretvi, najveći broj
+ * zadataka koji čekaju te korištenje virtualnih dretvi određuju se parametrima
+ * konteksta. Prilikom gašenja poslužitelja izvršitelj se zatvara.
+ *
+ * @see AsyncExecutor
+ *
+ * @author Davor Češljaš
+ */
+@WebListener
+public class AsyncExecutorListener implements ServletContextListener {
+
+	/**
+	 * Konstanta koja predstavlja ime atributa konteksta pod kojim je pohranjen
+	 * izvršitelj
+	 */
+	public static final String EXECUTOR_ATTRIBUTE = "hr.fer.zemris.asyncExecutor";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * broj dretvi
+	 */
+	public static final String THREADS_PARAM = "async.threads";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * najveći broj zadataka koji čekaju na izvođenje
+	 */
+	public static final String MAX_QUEUED_PARAM = "async.maxQueued";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * koriste li se virtualne dretve
+	 */
+	public static final String VIRTUAL_THREADS_PARAM = "async.virtualThreads";
+
+	/**
+	 * Konstanta koja predstavlja broj dretvi ukoliko on nije zadan parametrom
+	 * konteksta
+	 */
+	private static final int DEFAULT_THREADS = 16;
+
+	/**
+	 * Konstanta koja predstavlja najveći broj zadataka koji čekaju na
+	 * izvođenje ukoliko on nije zadan parametrom konteksta
+	 */
+	private static final int DEFAULT_MAX_QUEUED = 200;
+
+	/** Konstanta koja predstavlja ime mjerača broja prihvaćenih zadataka */
+	private static final String IN_FLIGHT_GAUGE = "async.inFlight";
+
+	@Override
+	public void contextInitialized(ServletContextEvent sce) {
+		ServletContext context = sce.getServletContext();
+		String threads = context.getInitParameter(THREADS_PARAM);
+		String maxQueued = context.getInitParameter(MAX_QUEUED_PARAM);
+		String virtual = context.getInitParameter(VIRTUAL_THREADS_PARAM);
+
+		AsyncExecutor executor = new AsyncExecutor(threads == null ? DEFAULT_THREADS : Integer.parseInt(threads),
+				maxQueued == null ? DEFAULT_MAX_QUEUED : Integer.parseInt(maxQueued),
+				virtual == null || Boolean.parseBoolean(virtual));
+		context.setAttribute(EXECUTOR_ATTRIBUTE, executor);
+		MetricsRegistry.registerGauge(IN_FLIGHT_GAUGE, executor::getInFlight);
+
+		context.log("Asinkrona obrada zahtjeva koristi " + (executor.isVirtual() ? "virtualne" : "obične")
+				+ " dretve.");
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent sce) {
+		MetricsRegistry.removeGauge(IN_FLIGHT_GAUGE);
+		AsyncExecutor executor = (AsyncExecutor) sce.getServletContext().getAttribute(EXECUTOR_ATTRIBUTE);
+		if (executor != null) {
+			executor.close();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package hr.fer.zemris.java.hw14.app.servlets;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.app.ranking.PollRankings;
+import hr.fer.zemris.java.hw14.app.util.ServletUtil;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.db.bulk.BulkImportTool;
+import hr.fer.zemris.java.hw14.db.bulk.BulkImporter;
+import hr.fer.zemris.java.hw14.db.bulk.DelimitedFormat;
+import hr.fer.zemris.java.hw14.db.bulk.ImportReport;
+import hr.fer.zemris.java.hw14.db.seed.SeedUtil;
+
+/**
+ * Razred koji nasljeđuje razred {@link HttpServlet}. Primjerci ovog razreda
+ * pozivom metode {@link #doPost(HttpServletRequest, HttpServletResponse)}
+ * uvoze odgovore na anketno pitanje iz tijela zahtjeva preko
+ * {@link BulkImporter}. Uz zahtjev je potrebno predati parametar "pollID", a
+ * opcionalno i parametar "format" ("tsv" ili "csv"). Tijelo zahtjeva čita se
+ * redak po redak, pa veličina datoteke nije ograničena memorijom poslužitelja.
+ * Primjer korištenja:
+ *
+ * <pre>
+ * curl -H "X-Admin-Token: ..." --data-binary @odgovori.csv \
+ *      "http://localhost:8080/aplikacija/admin/import?pollID=1&amp;format=csv"
+ * </pre>
+ *
+ * Tijekom uvoza klijentu se najviše jednom u sekundi šalje redak sa
+ * napretkom, a na kraju izvještaj o uvozu. Postojanje anketnog pitanja
+ * provjerava se preko iste veze kojom se uvozi, budući da ovaj servlet nije
+ * obuhvaćen filtrom {@link ConnectionSetterFilter}. Ukoliko anketno pitanje
+ * ne postoji klijentu se šalje statusni kod 400, a ukoliko uvoz ne uspije prije nego što
+ * je klijentu poslan ikakav napredak, statusni kod 500. Neuspjeh nakon
+ * poslanog napretka moguće je dojaviti samo u tijelu odgovora. Servlet je dostupan samo ukoliko
+ * je parametar konteksta {@value #TOKEN_PARAM} postavljen, a zahtjev sadrži
+ * zaglavlje {@value #TOKEN_HEADER} sa istom vrijednošću. Nakon uvoza
+ * priručna memorija anketa i odgovora se prazni.
+ *
+ * @see HttpServlet
+ * @see BulkImporter
+ *
+ * @author Davor Češljaš
+ */
+@WebServlet(name = "bulk-import", urlPatterns = { "/admin/import" })
+public class BulkImportServlet extends HttpServlet {
+
+	/**
+	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta u kojem se nalazi
+	 * tajni ključ za pristup ovom servletu
+	 */
+	public static final String TOKEN_PARAM = "admin.token";
+
+	/**
+	 * Konstanta koja predstavlja naziv zaglavlja zahtjeva u kojem klijent
+	 * šalje tajni ključ
+	 */
+	private static final String TOKEN_HEADER = "X-Admin-Token";
+
+	/**
+	 * Konstanta koja predstavlja najmanji razmak između dva ispisa napretka u
+	 * nanosekundama
+	 */
+	private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		if (!isAuthorized(request)) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+
+		Integer pollID = ServletUtil.checkAndGetValue(request, "pollID");
+		DelimitedFormat format;
+		try {
+			String formatName = request.getParameter("format");
+			format = formatName == null ? DelimitedFormat.TSV : DelimitedFormat.forName(formatName);
+		} catch (IllegalArgumentException e) {
+			format = null;
+		}
+		if (pollID == null || format == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+			return;
+		}
+
+		DataSource ds = (DataSource) getServletContext().getAttribute("hr.fer.zemris.dbpool");
+		if (ds == null) {
+			response.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, "Aplikacija ne koristi bazu podataka");
+			return;
+		}
+		response.setContentType("text/plain");
+		response.setCharacterEncoding("UTF-8");
+		long[] lastPrint = { System.nanoTime() };
+
+		try (Connection con = ds.getConnection()) {
+			BulkImporter importer = new BulkImporter(con, SeedUtil.DEFAULT_BATCH_SIZE,
+					BulkImportTool.DEFAULT_MAX_DISTINCT);
+			if (!importer.pollExists(pollID)) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+						"Anketno pitanje sa identifikatorom " + pollID + " ne postoji");
+				return;
+			}
+
+			PrintWriter writer = response.getWriter();
+			ImportReport report = importer.importPollOptions(request.getInputStream(), format, pollID, progress -> {
+				long now = System.nanoTime();
+				if (now - lastPrint[0] >= PROGRESS_INTERVAL_NANOS) {
+					writer.println(progress);
+					writer.flush();
+					lastPrint[0] = now;
+				}
+			});
+			writer.println(report);
+		} catch (SQLException | IOException e) {
+			if (response.isCommitted()) {
+				response.getWriter().println("Uvoz nije uspio: " + e.getMessage());
+			} else {
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Uvoz nije uspio: " + e.getMessage());
+			}
+		} finally {
+			DAOProvider.invalidateCache();
+			PollRankings.invalidate(pollID);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja provjerava sadrži li zahtjev ispravan tajni ključ.
+	 * Ključevi se uspoređuju u stalnom vremenu.
+	 *
+	 * @param request
+	 *            klijentov zahtjev
+	 * @return <code>true</code> ukoliko je tajni ključ postavljen i zahtjev
+	 *         sadrži isti ključ, <code>false</code> inače
+	 */
+	private boolean isAuthorized(HttpServletRequest request) {
+		String expected = getServletContext().getInitParameter(TOKEN_PARAM);
+		String actual = request.getHeader(TOKEN_HEADER);
+		if (expected == null || expected.isEmpty() || actual == null) {
+			return false;
+		}
+
+		return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+				actual.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -1,8 +1,6 @@
 package hr.fer.zemris.java.hw14.app.servlets;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -13,22 +11,26 @@ import javax.servlet.ServletResponse;
 import javax.servlet.annotation.WebFilter;
 import javax.sql.DataSource;
 
+import hr.fer.zemris.java.hw14.dao.DAOException;
 import hr.fer.zemris.java.hw14.dao.sql.SQLConnectionProvider;
 
 /**
  * Razred koji implementira sučelje {@link Filter}. Primjerci ovog razreda
  * koriste se kako bi presreli zahtjev korisnika za određeni resurs na
- * postlužitelju te, prije no što odgovor proslijede resursu uspostave konekciju
- * sa bazom podataka za ovu dretvu preko {@link SQLConnectionProvider}. U
- * trenutku kada resurs krene vraćati odgovor, primjerci ovog razreda presreću i
- * odgovor te zatvaraju konekciju preko istog razreda.
+ * postlužitelju te, prije no što odgovor proslijede resursu, za ovu dretvu
+ * preko {@link SQLConnectionProvider} postave bazen veza iz kojeg se veza sa
+ * bazom podataka dohvaća tek kada je resurs zatraži. Tako zahtjevi koji ne
+ * pristupaju bazi podataka (npr. zbog priručne memorije) ne zauzimaju vezu iz
+ * bazena veza. U trenutku kada resurs krene vraćati odgovor, primjerci ovog
+ * razreda presreću i odgovor te zatvaraju konekciju preko istog razreda, ali
+ * samo ukoliko je ona zaista i dohvaćena.
  * 
  * @see Filter
  * @see SQLConnectionProvider
  * 
  * @author Davor Češljaš
  */
-@WebFilter(filterName = "f1", urlPatterns = { "/servleti/*" })
+@WebFilter(filterName = "f1", urlPatterns = { "/servleti/*" }, asyncSupported = true)
 public class ConnectionSetterFilter implements Filter {
 
 	@Override
@@ -45,14 +47,16 @@ public class ConnectionSetterFilter implements Filter {
 
 		DataSource ds = (DataSource) request.getServletContext().getAttribute("hr.fer.zemris.dbpool");
 
-		try (Connection con = ds.getConnection()) {
-			SQLConnectionProvider.setConnection(con);
+		SQLConnectionProvider.setDataSource(ds);
+		try {
 			// prepušta stvar obradi (servletu ili nekom statičkom resursu)
 			chain.doFilter(request, response);
-		} catch (SQLException e) {
-			throw new IOException("Baza podataka nije dostupna.", e);
 		} finally {
-			SQLConnectionProvider.setConnection(null);
+			try {
+				SQLConnectionProvider.releaseConnection();
+			} catch (DAOException e) {
+				throw new IOException("Baza podataka nije dostupna.", e);
+			}
 		}
 	}
 
@@ -2,11 +2,24 @@ package hr.fer.zemris.java.hw14.app.servlets;
 
 import java.beans.PropertyVetoException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.CallableStatement;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
@@ -16,18 +29,46 @@ import javax.servlet.annotation.WebListener;
 import com.mchange.v2.c3p0.ComboPooledDataSource;
 import com.mchange.v2.c3p0.DataSources;
 
+import hr.fer.zemris.java.hw14.app.startup.StartupState;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.db.seed.SeedReport;
+import hr.fer.zemris.java.hw14.db.seed.SeedUtil;
 import hr.fer.zemris.java.hw14.db.util.SQLUtil;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
 
 /**
  * Razred koji implementira sučelje {@link ServletContextListener}. Primjerci
  * ovog razreda prilikom pokretanja poslužitelja uspostavljaju vezu s bazom
- * podataka kreirajući {@link ComboPooledDataSource}. Potom po potrebi
- * inicijaliziraju bazu podataka ukoliko je ona prazna ili ukoliko potrebne
- * tablice ne postoje u bazi podataka. Ukoliko i jedna od ovih akcija završi s
- * iznimkom, ovaj razred zaustavlja rad psolužitelja pozivom
- * {@link System#exit(int)}. Ukoliko je sve korektno inicijalizirano, ovaj
- * razred čeka na kraj rada serevera te prilikom gašenja otpušta sve zauzete
- * resurse.
+ * podataka kreirajući {@link ComboPooledDataSource}. Potom jednom, prije
+ * obrade ijednog zahtjeva, primjenjuju migracije sheme baze podataka
+ * ({@link SQLUtil#initializeDatabase(Connection, int)}) te pune tek stvorene
+ * tablice. Ukoliko i jedna od ovih akcija završi s iznimkom, ovaj razred
+ * zaustavlja rad psolužitelja pozivom {@link System#exit(int)}. Ukoliko je
+ * sve korektno inicijalizirano, ovaj razred čeka na kraj rada serevera te
+ * prilikom gašenja otpušta sve zauzete resurse. Postavke bazena veza
+ * (veličina, priručna memorija pripremljenih naredbi, vremena čekanja...)
+ * čitaju se iz iste konfiguracijske datoteke, a stanje bazena veza
+ * objavljuje se unutar {@link MetricsRegistry}.
+ * <p>
+ * Ukoliko je parametar konteksta {@value #BACKGROUND_STARTUP_PARAM}
+ * postavljen na <code>true</code>, baza podataka se inicijalizira na zasebnoj
+ * dretvi, pa poslužitelj odmah prihvaća zahtjeve. Do završetka
+ * inicijalizacije {@link ReadinessFilter} zahtjeve koji koriste bazu podataka
+ * odbija statusom 503, a {@link ReadinessServlet} javlja stanje pokretanja.
+ * Neuspjela inicijalizacija se tada bilježi unutar {@link StartupState}
+ * umjesto da se poslužitelj zaustavi. U oba načina bazen veza se zagrijava
+ * do najmanje veličine istovremeno sa migracijama sheme, a trajanje svake
+ * faze pokretanja objavljuje se unutar {@link MetricsRegistry}.
+ * </p>
+ * <p>
+ * Na jednom računalu baza podataka se može izvoditi i unutar procesa
+ * poslužitelja (postavka "mode=embedded"), a tada se prilikom gašenja
+ * zaustavlja samo ta baza podataka, dok ugrađeni Derby sustav i ostale baze
+ * podataka unutar istog JVM-a nastavljaju s radom. Ukoliko odabrana izvedba sloja za
+ * perzistenciju ({@link DAOProvider#getBackend(Properties)}) ne treba bazu
+ * podataka, bazen veza se ne stvara niti se primjenjuju migracije sheme.
+ * </p>
  * 
  * @see ServletContextListener
  * @see ComboPooledDataSource
@@ -43,64 +84,436 @@ public class DatabaseInitializationListener implements ServletContextListener {
 	 */
 	private static final String PROPERTIES_PATH = "/WEB-INF/dbsettings.properties";
 
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje broj redaka koji
+	 * se prilikom punjenja baze podataka šalju odjednom
+	 */
+	private static final String SEED_BATCH_SIZE = "seed.batchSize";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje način rada baze
+	 * podataka: {@value #CLIENT_MODE} ili {@value #EMBEDDED_MODE}
+	 */
+	private static final String MODE = "mode";
+
+	/**
+	 * Konstanta koja predstavlja način rada u kojem se spaja na zasebni Derby
+	 * mrežni poslužitelj
+	 */
+	private static final String CLIENT_MODE = "client";
+
+	/**
+	 * Konstanta koja predstavlja način rada u kojem se baza podataka izvodi
+	 * unutar procesa poslužitelja aplikacije
+	 */
+	private static final String EMBEDDED_MODE = "embedded";
+
+	/** Konstanta koja predstavlja naziv mrežnog upravljačkog programa */
+	private static final String CLIENT_DRIVER = "org.apache.derby.jdbc.ClientDriver";
+
+	/** Konstanta koja predstavlja naziv ugrađenog upravljačkog programa */
+	private static final String EMBEDDED_DRIVER = "org.apache.derby.jdbc.EmbeddedDriver";
+
+	/**
+	 * Konstanta koja predstavlja prefiks postavki koje se u ugrađenom načinu
+	 * rada postavljaju kao svojstva baze podataka (npr.
+	 * "derby.storage.pageSize")
+	 */
+	private static final String DERBY_PROPERTY_PREFIX = "derby.";
+
+	/**
+	 * Konstanta koja predstavlja stanje kojim Derby dojavljuje uspješno
+	 * zaustavljanje jedne baze podataka
+	 */
+	private static final String DATABASE_SHUTDOWN_STATE = "08006";
+
+	/**
+	 * Konstanta koja predstavlja imena svih mjerača stanja bazena veza koje
+	 * ovaj razred registrira unutar {@link MetricsRegistry}
+	 */
+	private static final String[] POOL_GAUGES = { "pool.busy", "pool.idle", "pool.total",
+			"pool.threadsAwaitingCheckout", "pool.failedCheckouts", "pool.helperTasksPending", "pool.maxPoolSize",
+			"pool.statementCache.statements", "pool.statementCache.checkedOut",
+			"pool.statementCache.connections" };
+
+	/**
+	 * Konstanta koja predstavlja ime parametra konteksta koji određuje
+	 * inicijalizira li se baza podataka u pozadini
+	 */
+	private static final String BACKGROUND_STARTUP_PARAM = "db.backgroundStartup";
+
+	/**
+	 * Konstanta koja predstavlja najveći broj dretvi koje istovremeno
+	 * uspostavljaju veze prilikom zagrijavanja bazena veza
+	 */
+	private static final int MAX_PREWARM_THREADS = 8;
+
+	/**
+	 * Konstanta koja predstavlja najveći broj sekundi koliko se prilikom
+	 * gašenja čeka na završetak pozadinske inicijalizacije
+	 */
+	private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+	/**
+	 * Konstanta koja predstavlja izvršitelja na kojem se bazen veza zagrijava
+	 * istovremeno sa migracijama sheme
+	 */
+	private static final Executor PREWARM_EXECUTOR = r -> {
+		Thread thread = new Thread(r, "db-prewarm-main");
+		thread.setDaemon(true);
+		thread.start();
+	};
+
+	/**
+	 * Članska varijabla koja predstavlja bazen veza stvoren prilikom
+	 * pokretanja ili <code>null</code> ukoliko još nije stvoren
+	 */
+	private volatile ComboPooledDataSource cpds;
+
+	/**
+	 * Članska varijabla koja predstavlja dretvu koja inicijalizira bazu
+	 * podataka u pozadini ili <code>null</code> ukoliko se baza podataka
+	 * inicijalizira odmah
+	 */
+	private Thread startupThread;
+
+	/**
+	 * Članska varijabla koja predstavlja ime baze podataka koja se izvodi
+	 * unutar procesa poslužitelja ili <code>null</code> ukoliko se baza
+	 * podataka ne izvodi unutar procesa poslužitelja
+	 */
+	private volatile String embeddedName;
+
 	@Override
 	public void contextInitialized(ServletContextEvent sce) {
-		ComboPooledDataSource cpds = null;
-		try {
-			cpds = loadDBConnectionPool(sce.getServletContext());
-		} catch (IOException e) {
-			System.exit(1);
-		}
+		ServletContext sc = sce.getServletContext();
+		StartupState state = new StartupState();
+		sc.setAttribute(StartupState.ATTRIBUTE, state);
 
-		try (Connection con = cpds.getConnection()) {
-			SQLUtil.initializeDatabase(con);
-		} catch (SQLException | IOException e) {
-			System.exit(1);
+		if (!Boolean.parseBoolean(sc.getInitParameter(BACKGROUND_STARTUP_PARAM))) {
+			try {
+				initialize(sc, state);
+			} catch (IOException | RuntimeException e) {
+				state.markFailed(e);
+				sc.log("Nije moguće inicijalizirati bazu podataka", e);
+				System.exit(1);
+			}
+			return;
 		}
 
-		sce.getServletContext().setAttribute("hr.fer.zemris.dbpool", cpds);
+		startupThread = new Thread(() -> {
+			try {
+				initialize(sc, state);
+			} catch (IOException | RuntimeException e) {
+				state.markFailed(e);
+				sc.log("Nije moguće inicijalizirati bazu podataka", e);
+			}
+		}, "db-startup");
+		startupThread.setDaemon(true);
+		startupThread.start();
 	}
 
 	@Override
 	public void contextDestroyed(ServletContextEvent sce) {
-		ComboPooledDataSource cpds = (ComboPooledDataSource) sce.getServletContext()
-				.getAttribute("hr.fer.zemris.dbpool");
+		ServletContext sc = sce.getServletContext();
+		if (startupThread != null) {
+			startupThread.interrupt();
+			try {
+				startupThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_WAIT_SECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		StartupState state = (StartupState) sc.getAttribute(StartupState.ATTRIBUTE);
+		if (state != null) {
+			state.removeGauges();
+		}
+
+		if (state != null && state.isReady()) {
+			try {
+				DAOProvider.shutdown();
+			} catch (DAOException e) {
+				sc.log("Nije moguće zapisati sve glasove prilikom gašenja", e);
+			}
+		}
+
+		ComboPooledDataSource cpds = this.cpds;
 		if (cpds == null) {
 			return;
 		}
 
+		for (String gauge : POOL_GAUGES) {
+			MetricsRegistry.removeGauge(gauge);
+		}
+
 		try {
 			DataSources.destroy(cpds);
 		} catch (SQLException igonrable) {
 		}
+
+		String embeddedName = this.embeddedName;
+		if (embeddedName != null) {
+			shutdownEmbedded(sc, embeddedName);
+		}
 	}
 
 	/**
-	 * Pomoćna metoda koja stvara primjerak razreda
-	 * {@link ComboPooledDataSource}. Kako bi stvorila primjerak ovog razreda
-	 * metoda mora pročitati sadržaj konfiguracijske datoteke predsatvljene sa
-	 * {@link #PROPERTIES_PATH}.
+	 * Pomoćna metoda koja zaustavlja ugrađenu bazu podataka sa imenom
+	 * <b>name</b>. Time se sve izmjene zapisuju na disk, pa se baza podataka
+	 * prilikom sljedećeg pokretanja ne mora oporavljati iz dnevnika
+	 * transakcija. Ostale baze podataka unutar istog JVM-a se ne zaustavljaju.
+	 *
+	 * @param sc
+	 *            kontekst aplikacije u koji se zapisuje neuspjelo zaustavljanje
+	 * @param name
+	 *            ime baze podataka
+	 */
+	private void shutdownEmbedded(ServletContext sc, String name) {
+		try {
+			DriverManager.getConnection("jdbc:derby:" + name + ";shutdown=true").close();
+		} catch (SQLException e) {
+			// Derby uvijek baca iznimku sa stanjem 08006 prilikom uspješnog
+			// zaustavljanja baze podataka
+			if (!DATABASE_SHUTDOWN_STATE.equals(e.getSQLState())) {
+				sc.log("Nije moguće zaustaviti ugrađenu bazu podataka", e);
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja inicijalizira bazu podataka kroz faze čija se
+	 * trajanja bilježe unutar <b>state</b>: čitanje postavki ("properties"),
+	 * stvaranje bazena veza ("pool"), zagrijavanje bazena veza ("prewarm"),
+	 * migracije sheme i punjenje tablica ("schema") te stvaranje
+	 * {@link DAOProvider} lanca ("dao"). Zagrijavanje bazena veza izvodi se
+	 * istovremeno sa migracijama sheme. Na kraju se aplikacija proglašava
+	 * spremnom.
+	 *
+	 * @param sc
+	 *            kontekst aplikacije
+	 * @param state
+	 *            stanje pokretanja aplikacije
+	 * @throws IOException
+	 *             ukoliko postavke nije moguće pročitati, vezu sa bazom
+	 *             podataka nije moguće uspostaviti ili shemu nije moguće
+	 *             migrirati
+	 */
+	private void initialize(ServletContext sc, StartupState state) throws IOException {
+		Properties properties = state.phase("properties", () -> loadProperties(sc));
+		if (!DAOProvider.getBackend(properties).requiresDataSource()) {
+			state.phase("dao", () -> {
+				DAOProvider.initialize(properties, null);
+				return null;
+			});
+			state.markReady();
+			sc.log("Aplikacija je spremna bez baze podataka: " + state.getPhaseMillis());
+			return;
+		}
+
+		ComboPooledDataSource cpds = state.phase("pool", () -> loadDBConnectionPool(properties));
+		this.cpds = cpds;
+
+		CompletableFuture<Void> prewarm = CompletableFuture
+				.runAsync(() -> state.phase("prewarm", () -> prewarmPool(cpds)), PREWARM_EXECUTOR);
+
+		state.phase("schema", () -> initializeSchema(sc, cpds, properties));
+
+		try {
+			prewarm.join();
+		} catch (CompletionException e) {
+			sc.log("Nije moguće zagrijati bazen veza", e.getCause());
+		}
+
+		state.phase("dao", () -> {
+			DAOProvider.initialize(properties, cpds);
+			registerPoolGauges(cpds);
+			sc.setAttribute("hr.fer.zemris.dbpool", cpds);
+			return null;
+		});
+
+		state.markReady();
+		sc.log("Aplikacija je spremna: " + state.getPhaseMillis());
+	}
+
+	/**
+	 * Pomoćna metoda koja primjenjuje migracije sheme baze podataka te puni
+	 * tek stvorene tablice ({@link SQLUtil#initializeDatabase(Connection, int)}).
+	 * U ugrađenom načinu rada prije migracija se postavljaju svojstva baze
+	 * podataka, kako bi se primijenila i na tablice koje migracije stvaraju.
+	 *
+	 * @param sc
+	 *            kontekst aplikacije u koji se zapisuju izvještaji o punjenju
+	 * @param cpds
+	 *            bazen veza sa bazom podataka
+	 * @param properties
+	 *            postavke pročitane iz konfiguracijske datoteke
+	 * @return <code>null</code>
+	 * @throws IOException
+	 *             ukoliko shemu nije moguće migrirati ili vezu sa bazom
+	 *             podataka nije moguće uspostaviti
+	 */
+	private Void initializeSchema(ServletContext sc, ComboPooledDataSource cpds, Properties properties)
+			throws IOException {
+		try (Connection con = cpds.getConnection()) {
+			if (embeddedName != null) {
+				setDatabaseProperties(con, properties);
+			}
+			int batchSize = Integer.parseInt(
+					properties.getProperty(SEED_BATCH_SIZE, String.valueOf(SeedUtil.DEFAULT_BATCH_SIZE)));
+			for (SeedReport report : SQLUtil.initializeDatabase(con, batchSize)) {
+				sc.log(report.toString());
+			}
+			sc.log("Inačica sheme baze podataka: " + SQLUtil.getSchemaVersion(con));
+		} catch (SQLException e) {
+			throw new IOException("Ne mogu uspostaviti vezu sa bazom podataka", e);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Pomoćna metoda koja sve postavke sa prefiksom
+	 * {@value #DERBY_PROPERTY_PREFIX} postavlja kao svojstva baze podataka
+	 * (procedurom SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY). Svojstva se pamte
+	 * unutar same baze podataka i ne utječu na ostale baze podataka niti
+	 * aplikacije unutar istog JVM-a. Svojstva koja Derby čita samo na razini
+	 * sustava (npr. "derby.storage.pageCacheSize") potrebno je zadati u
+	 * datoteci "derby.properties" unutar direktorija "derby.system.home" ili
+	 * prilikom pokretanja JVM-a.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param properties
+	 *            postavke pročitane iz konfiguracijske datoteke
+	 * @throws SQLException
+	 *             ukoliko postavljanje svojstva ne uspije
+	 */
+	private static void setDatabaseProperties(Connection con, Properties properties) throws SQLException {
+		try (CallableStatement cst = con.prepareCall("CALL SYSCS_UTIL.SYSCS_SET_DATABASE_PROPERTY(?, ?)")) {
+			for (String key : properties.stringPropertyNames()) {
+				if (key.startsWith(DERBY_PROPERTY_PREFIX)) {
+					cst.setString(1, key);
+					cst.setString(2, properties.getProperty(key).trim());
+					cst.execute();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja bazen veza zagrijava do njegove najmanje veličine
+	 * ("pool.minPoolSize"). Veze se uspostavljaju istovremeno na zasebnim
+	 * dretvama i drže se zauzetima dok sve ne budu uspostavljene, kako bi ih
+	 * bazen morao stvoriti, a ne ponovno iskoristiti već vraćenu vezu. Time
+	 * prvi zahtjevi ne čekaju na uspostavu veze.
+	 *
+	 * @param cpds
+	 *            bazen veza koji se zagrijava
+	 * @return <code>null</code>
+	 */
+	private Void prewarmPool(ComboPooledDataSource cpds) {
+		int connections = cpds.getMinPoolSize();
+		if (connections <= 0) {
+			return null;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(connections, MAX_PREWARM_THREADS), r -> {
+			Thread thread = new Thread(r, "db-prewarm");
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<Connection> opened = Collections.synchronizedList(new ArrayList<>());
+		try {
+			List<CompletableFuture<Void>> futures = new ArrayList<>(connections);
+			for (int i = 0; i < connections; i++) {
+				futures.add(CompletableFuture.runAsync(() -> {
+					try {
+						opened.add(cpds.getConnection());
+					} catch (SQLException e) {
+						throw new CompletionException(e);
+					}
+				}, executor));
+			}
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		} finally {
+			executor.shutdown();
+			synchronized (opened) {
+				for (Connection con : opened) {
+					try {
+						con.close();
+					} catch (SQLException ignorable) {
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Pomoćna metoda koja čita sadržaj konfiguracijske datoteke predstavljene
+	 * sa {@link #PROPERTIES_PATH}.
 	 *
 	 * @param sc
 	 *            primjerak razreda koji implementira sučelje
 	 *            {@link ServletContext}, a koji se koristi za određivanje
 	 *            apsolutnih putanja do konfiguracijske datoteke
-	 * @return primjerak razreda {@link ComboPooledDataSource} koji modelira
-	 *         bazen konekcija sa bazom podataka
+	 * @return pročitane postavke modelirane razredom {@link Properties}
 	 * @throws IOException
 	 *             Ukoliko datoteku sa putanjom {@link #PROPERTIES_PATH} nije
 	 *             moguće otvoriti za čitanje
 	 */
-	private ComboPooledDataSource loadDBConnectionPool(ServletContext sc) throws IOException {
+	private Properties loadProperties(ServletContext sc) throws IOException {
 		Properties properties = new Properties();
-		properties.load(Files.newInputStream(Paths.get(sc.getRealPath(PROPERTIES_PATH))));
-		// jdbc:derby://localhost:1527/baza1DB
-		String connectionURL = String.format("jdbc:derby://%s:%s/%s", properties.getProperty("host"),
-				properties.getProperty("port"), properties.getProperty("name"));
+		try (InputStream is = Files.newInputStream(Paths.get(sc.getRealPath(PROPERTIES_PATH)))) {
+			properties.load(is);
+		}
+
+		return properties;
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara primjerak razreda
+	 * {@link ComboPooledDataSource}. Kako bi stvorila primjerak ovog razreda
+	 * metoda koristi postavke pročitane iz konfiguracijske datoteke
+	 * predstavljene sa {@link #PROPERTIES_PATH}. Postavka {@value #MODE}
+	 * određuje spaja li se bazen na Derby mrežni poslužitelj
+	 * ({@value #CLIENT_MODE}, pretpostavljeno) ili se baza podataka izvodi
+	 * unutar procesa poslužitelja ({@value #EMBEDDED_MODE}), čime se izbjegava
+	 * mrežni promet prilikom svakog upita. U ugrađenom načinu rada postavka
+	 * "name" može biti i apsolutna putanja do baze podataka, a postavke sa
+	 * prefiksom {@value #DERBY_PROPERTY_PREFIX} postavljaju se kao svojstva
+	 * same baze podataka, a ne kao svojstva sustava.
+	 *
+	 * @param properties
+	 *            postavke pročitane iz konfiguracijske datoteke
+	 * @return primjerak razreda {@link ComboPooledDataSource} koji modelira
+	 *         bazen konekcija sa bazom podataka
+	 * @throws IOException
+	 *             Ukoliko nije moguće učitati driver za bazu podataka ili
+	 *             ukoliko način rada nije podržan
+	 */
+	private ComboPooledDataSource loadDBConnectionPool(Properties properties) throws IOException {
+		String mode = properties.getProperty(MODE, CLIENT_MODE).trim();
+		String driverClass;
+		String connectionURL;
+		if (CLIENT_MODE.equals(mode)) {
+			// jdbc:derby://localhost:1527/baza1DB
+			driverClass = CLIENT_DRIVER;
+			connectionURL = String.format("jdbc:derby://%s:%s/%s", properties.getProperty("host"),
+					properties.getProperty("port"), properties.getProperty("name"));
+		} else if (EMBEDDED_MODE.equals(mode)) {
+			// jdbc:derby:baza1DB;create=true
+			embeddedName = properties.getProperty("name");
+			driverClass = EMBEDDED_DRIVER;
+			connectionURL = String.format("jdbc:derby:%s;create=true", embeddedName);
+		} else {
+			throw new IOException("Nepodržani način rada baze podataka: " + mode);
+		}
 
 		ComboPooledDataSource cpds = new ComboPooledDataSource();
 
-		String driverClass = "org.apache.derby.jdbc.ClientDriver";
 		try {
 			cpds.setDriverClass(driverClass);
 		} catch (PropertyVetoException e) {
@@ -109,8 +522,126 @@ public class DatabaseInitializationListener implements ServletContextListener {
 		cpds.setJdbcUrl(connectionURL);
 		cpds.setUser(properties.getProperty("user"));
 		cpds.setPassword(properties.getProperty("password"));
+		configurePool(cpds, properties);
 
 		return cpds;
 	}
 
+	/**
+	 * Pomoćna metoda koja postavke bazena veza čita iz predanih postavki i
+	 * postavlja ih predanom primjerku razreda {@link ComboPooledDataSource}.
+	 * Sve postavke imaju prefiks "pool." i nazvane su jednako kao pripadna
+	 * svojstva razreda {@link ComboPooledDataSource} (npr.
+	 * "pool.maxPoolSize"). Postavke koje nisu navedene zadržavaju
+	 * pretpostavljenu vrijednost.
+	 *
+	 * @param cpds
+	 *            primjerak razreda {@link ComboPooledDataSource} koji se
+	 *            podešava
+	 * @param properties
+	 *            postavke pročitane iz konfiguracijske datoteke
+	 */
+	private void configurePool(ComboPooledDataSource cpds, Properties properties) {
+		setIfPresent(properties, "pool.minPoolSize", cpds::setMinPoolSize);
+		setIfPresent(properties, "pool.maxPoolSize", cpds::setMaxPoolSize);
+		setIfPresent(properties, "pool.initialPoolSize", cpds::setInitialPoolSize);
+		setIfPresent(properties, "pool.acquireIncrement", cpds::setAcquireIncrement);
+		setIfPresent(properties, "pool.checkoutTimeout", cpds::setCheckoutTimeout);
+		setIfPresent(properties, "pool.maxStatements", cpds::setMaxStatements);
+		setIfPresent(properties, "pool.maxStatementsPerConnection", cpds::setMaxStatementsPerConnection);
+		setIfPresent(properties, "pool.maxIdleTime", cpds::setMaxIdleTime);
+		setIfPresent(properties, "pool.idleConnectionTestPeriod", cpds::setIdleConnectionTestPeriod);
+		setIfPresent(properties, "pool.numHelperThreads", cpds::setNumHelperThreads);
+
+		String testOnCheckin = properties.getProperty("pool.testConnectionOnCheckin");
+		if (testOnCheckin != null) {
+			cpds.setTestConnectionOnCheckin(Boolean.parseBoolean(testOnCheckin.trim()));
+		}
+		String testQuery = properties.getProperty("pool.preferredTestQuery");
+		if (testQuery != null) {
+			cpds.setPreferredTestQuery(testQuery.trim());
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja cjelobrojnu vrijednost postavke <b>key</b> predaje
+	 * akciji <b>setter</b>, ali samo ukoliko je postavka navedena.
+	 *
+	 * @param properties
+	 *            postavke pročitane iz konfiguracijske datoteke
+	 * @param key
+	 *            ključ postavke
+	 * @param setter
+	 *            akcija kojoj se predaje vrijednost postavke
+	 */
+	private void setIfPresent(Properties properties, String key, IntConsumer setter) {
+		String value = properties.getProperty(key);
+		if (value != null) {
+			setter.accept(Integer.parseInt(value.trim()));
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja unutar {@link MetricsRegistry} registrira mjerače
+	 * stanja predanog bazena veza: broj zauzetih, slobodnih i ukupnih veza,
+	 * broj dretvi koje čekaju na vezu, broj neuspjelih dohvata veze te broj
+	 * poslova koji čekaju na pomoćne dretve bazena. Uz to se mjeri i stanje
+	 * priručne memorije pripremljenih naredbi (ukupan broj spremljenih
+	 * naredbi, broj naredbi koje se trenutno koriste te broj veza koje imaju
+	 * spremljene naredbe). Ukoliko neku od vrijednosti nije moguće dohvatiti,
+	 * mjerač vraća -1.
+	 *
+	 * @param cpds
+	 *            bazen veza čije se stanje mjeri
+	 */
+	private void registerPoolGauges(ComboPooledDataSource cpds) {
+		registerPoolGauge("pool.busy", cpds::getNumBusyConnectionsDefaultUser);
+		registerPoolGauge("pool.idle", cpds::getNumIdleConnectionsDefaultUser);
+		registerPoolGauge("pool.total", cpds::getNumConnectionsDefaultUser);
+		registerPoolGauge("pool.threadsAwaitingCheckout", cpds::getNumThreadsAwaitingCheckoutDefaultUser);
+		registerPoolGauge("pool.failedCheckouts", cpds::getNumFailedCheckoutsDefaultUser);
+		registerPoolGauge("pool.helperTasksPending", cpds::getThreadPoolNumTasksPending);
+		registerPoolGauge("pool.maxPoolSize", cpds::getMaxPoolSize);
+		registerPoolGauge("pool.statementCache.statements", cpds::getStatementCacheNumStatementsAllUsers);
+		registerPoolGauge("pool.statementCache.checkedOut",
+				cpds::getStatementCacheNumCheckedOutStatementsAllUsers);
+		registerPoolGauge("pool.statementCache.connections",
+				cpds::getStatementCacheNumConnectionsWithCachedStatementsAllUsers);
+	}
+
+	/**
+	 * Pomoćna metoda koja registrira jedan mjerač stanja bazena veza.
+	 *
+	 * @param name
+	 *            ime mjerača
+	 * @param statistic
+	 *            funkcija koja dohvaća vrijednost iz bazena veza
+	 */
+	private void registerPoolGauge(String name, PoolStatistic statistic) {
+		MetricsRegistry.registerGauge(name, () -> {
+			try {
+				return statistic.get();
+			} catch (SQLException e) {
+				return -1;
+			}
+		});
+	}
+
+	/**
+	 * Pomoćno funkcijsko sučelje koje modelira dohvat jedne vrijednosti iz
+	 * bazena veza, a koji može baciti {@link SQLException}.
+	 */
+	@FunctionalInterface
+	private interface PoolStatistic {
+
+		/**
+		 * Metoda koja dohvaća vrijednost iz bazena veza
+		 *
+		 * @return vrijednost dohvaćenu iz bazena veza
+		 * @throws SQLException
+		 *             ukoliko vrijednost nije moguće dohvatiti
+		 */
+		long get() throws SQLException;
+	}
+
 }
@@ -0,0 +1,50 @@
+package hr.fer.zemris.java.hw14.app.servlets;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji nasljeđuje razred {@link HttpServlet}. Primjerci ovog razreda
+ * pozivom metode {@link #doGet(HttpServletRequest, HttpServletResponse)}
+ * klijentu šalju sva mjerenja zabilježena unutar {@link MetricsRegistry}.
+ * Ukoliko je uz zahtjev predan parametar "format" sa vrijednošću "json",
+ * mjerenja se šalju u JSON obliku, a inače u obliku običnog teksta. Servlet
+ * se nalazi izvan putanje "/servleti/*", pa za svoj rad ne zauzima vezu prema
+ * bazi podataka.
+ *
+ * @see HttpServlet
+ * @see MetricsRegistry
+ *
+ * @author Davor Češljaš
+ */
+@WebServlet(name = "metrics", urlPatterns = { "/metrics" })
+public class MetricsServlet extends HttpServlet {
+
+	/**
+	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
+	 */
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		response.setHeader("Cache-Control", "no-store");
+		response.setCharacterEncoding("UTF-8");
+
+		if ("json".equals(request.getParameter("format"))) {
+			response.setContentType("application/json");
+			response.getWriter().write(MetricsRegistry.toJson());
+		} else {
+			response.setContentType("text/plain");
+			response.getWriter().write(MetricsRegistry.toText());
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package hr.fer.zemris.java.hw14.app.servlets;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import hr.fer.zemris.java.hw14.app.util.RateLimiter;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji implementira sučelje {@link Filter}. Primjerci ovog razreda
+ * ograničavaju broj zahtjeva jednog klijenta (prema adresi klijenta)
+ * primjerkom razreda {@link RateLimiter}. Zahtjev klijenta koji je premašio
+ * ograničenje odbija se statusom {@value #SC_TOO_MANY_REQUESTS} sa zaglavljem
+ * "Retry-After", prije nego što dođe do baze podataka.
+ * <p>
+ * Filtar se deklarira unutar datoteke "web.xml", jednom za svaku skupinu
+ * putanja sa istim ograničenjem, a ograničenje se zadaje inicijalizacijskim
+ * parametrima filtra {@value #CAPACITY_PARAM}, {@value #REFILL_PARAM} i
+ * {@value #MAX_KEYS_PARAM}. Unutar {@link MetricsRegistry} bilježi se broj
+ * odbijenih zahtjeva ("rateLimit.<i>imeFiltra</i>.rejected"), broj
+ * zapamćenih klijenata ("rateLimit.<i>imeFiltra</i>.keys") te broj zahtjeva
+ * klijenata čije su kante zbog popunjenosti zapamćene u mapi preljeva
+ * ("rateLimit.<i>imeFiltra</i>.overflow").
+ * </p>
+ *
+ * @see RateLimiter
+ *
+ * @author Davor Češljaš
+ */
+public class RateLimitFilter implements Filter {
+
+	/** Konstanta koja predstavlja statusni kod "Too Many Requests" */
+	public static final int SC_TOO_MANY_REQUESTS = 429;
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra filtra kojim se određuje
+	 * najveći broj uzastopnih zahtjeva jednog klijenta
+	 */
+	public static final String CAPACITY_PARAM = "capacity";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra filtra kojim se određuje broj
+	 * zahtjeva u sekundi koji se klijentu dozvoljava nakon što iskoristi
+	 * uzastopne zahtjeve
+	 */
+	public static final String REFILL_PARAM = "refillPerSecond";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra filtra kojim se određuje
+	 * najveći broj klijenata koji se pamte
+	 */
+	public static final String MAX_KEYS_PARAM = "maxKeys";
+
+	/**
+	 * Konstanta koja predstavlja najveći broj klijenata koji se pamte ukoliko
+	 * on nije zadan parametrom filtra
+	 */
+	private static final int DEFAULT_MAX_KEYS = 100_000;
+
+	/** Članska varijabla koja predstavlja ograničavanje broja zahtjeva */
+	private RateLimiter limiter;
+
+	/** Članska varijabla koja predstavlja brojač odbijenih zahtjeva */
+	private LongAdder rejected;
+
+	/** Članska varijabla koja predstavlja ime mjerača broja klijenata */
+	private String keysGauge;
+
+	/** Članska varijabla koja predstavlja ime mjerača zahtjeva preljeva */
+	private String overflowGauge;
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		String capacity = filterConfig.getInitParameter(CAPACITY_PARAM);
+		String refill = filterConfig.getInitParameter(REFILL_PARAM);
+		String maxKeys = filterConfig.getInitParameter(MAX_KEYS_PARAM);
+		if (capacity == null || refill == null) {
+			throw new ServletException("Filtar " + filterConfig.getFilterName() + " mora imati parametre "
+					+ CAPACITY_PARAM + " i " + REFILL_PARAM);
+		}
+
+		try {
+			limiter = new RateLimiter(Integer.parseInt(capacity), Double.parseDouble(refill),
+					maxKeys == null ? DEFAULT_MAX_KEYS : Integer.parseInt(maxKeys));
+		} catch (IllegalArgumentException e) {
+			throw new ServletException("Neispravni parametri filtra " + filterConfig.getFilterName(), e);
+		}
+
+		String prefix = "rateLimit." + filterConfig.getFilterName();
+		rejected = MetricsRegistry.counter(prefix + ".rejected");
+		keysGauge = prefix + ".keys";
+		MetricsRegistry.registerGauge(keysGauge, limiter::getKeyCount);
+		overflowGauge = prefix + ".overflow";
+		MetricsRegistry.registerGauge(overflowGauge, limiter::getOverflowCount);
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		long waitNanos = limiter.tryAcquire(request.getRemoteAddr());
+		if (waitNanos == 0) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		rejected.increment();
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+		long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+		httpResponse.setHeader("Retry-After", Long.toString(seconds));
+		httpResponse.sendError(SC_TOO_MANY_REQUESTS);
+	}
+
+	@Override
+	public void destroy() {
+		MetricsRegistry.removeGauge(keysGauge);
+		MetricsRegistry.removeGauge(overflowGauge);
+	}
+}
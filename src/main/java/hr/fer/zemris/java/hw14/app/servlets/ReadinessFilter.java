@@ -0,0 +1,71 @@
+package hr.fer.zemris.java.hw14.app.servlets;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import hr.fer.zemris.java.hw14.app.startup.StartupState;
+
+/**
+ * Razred koji implementira sučelje {@link Filter}. Primjerci ovog razreda
+ * propuštaju zahtjeve tek kada je aplikacija spremna za njihovu obradu
+ * ({@link StartupState#isReady()}). Dok se baza podataka inicijalizira u
+ * pozadini, ili ukoliko inicijalizacija nije uspjela, zahtjevi se odbijaju
+ * statusom 503 sa zaglavljem "Retry-After". Filtar se deklarira unutar
+ * datoteke "web.xml" kako bi se izvodio prije filtara koji dohvaćaju vezu
+ * prema bazi podataka.
+ *
+ * @see StartupState
+ * @see ReadinessServlet
+ *
+ * @author Davor Češljaš
+ */
+public class ReadinessFilter implements Filter {
+
+	/**
+	 * Konstanta koja predstavlja broj sekundi nakon kojeg klijent može ponoviti
+	 * zahtjev
+	 */
+	private static final String RETRY_AFTER_SECONDS = "2";
+
+	/** Članska varijabla koja predstavlja stanje pokretanja aplikacije */
+	private volatile StartupState state;
+
+	/**
+	 * Članska varijabla koja predstavlja zastavicu koja označava da je
+	 * aplikacija spremna, kako se stanje ne bi provjeravalo prilikom svakog
+	 * zahtjeva
+	 */
+	private volatile boolean ready;
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		state = (StartupState) filterConfig.getServletContext().getAttribute(StartupState.ATTRIBUTE);
+		ready = state == null;
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (ready || (ready = state.isReady())) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+		httpResponse.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+		httpResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+				state.getStatus() == StartupState.Status.FAILED ? "Pokretanje aplikacije nije uspjelo"
+						: "Aplikacija se pokreće");
+	}
+
+	@Override
+	public void destroy() {
+	}
+}
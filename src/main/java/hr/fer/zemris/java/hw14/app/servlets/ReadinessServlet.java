@@ -0,0 +1,47 @@
+package hr.fer.zemris.java.hw14.app.servlets;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import hr.fer.zemris.java.hw14.app.startup.StartupState;
+
+/**
+ * Razred koji nasljeđuje razred {@link HttpServlet}. Primjerci ovog razreda
+ * pozivom metode {@link #doGet(HttpServletRequest, HttpServletResponse)}
+ * javljaju je li aplikacija spremna za obradu zahtjeva: statusom 200 ukoliko
+ * je spremna, a statusom 503 dok se pokreće ili ukoliko pokretanje nije
+ * uspjelo. Tijelo odgovora sadrži stanje pokretanja te trajanja pojedinih
+ * faza pokretanja ({@link StartupState}). Servlet se nalazi izvan putanje
+ * "/servleti/*", pa za svoj rad ne zauzima vezu prema bazi podataka.
+ *
+ * @see StartupState
+ *
+ * @author Davor Češljaš
+ */
+@WebServlet(name = "readiness", urlPatterns = { "/ready" })
+public class ReadinessServlet extends HttpServlet {
+
+	/**
+	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
+	 */
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		StartupState state = (StartupState) getServletContext().getAttribute(StartupState.ATTRIBUTE);
+
+		response.setHeader("Cache-Control", "no-store");
+		response.setCharacterEncoding("UTF-8");
+		response.setContentType("text/plain");
+		if (state == null || !state.isReady()) {
+			response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+		response.getWriter().write(state == null ? StartupState.Status.STARTING.name() + "\n" : state.toString());
+	}
+}
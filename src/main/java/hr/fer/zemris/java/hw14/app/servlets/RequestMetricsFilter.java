@@ -0,0 +1,240 @@
+package hr.fer.zemris.java.hw14.app.servlets;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import hr.fer.zemris.java.hw14.metrics.LatencyHistogram;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji implementira sučelje {@link Filter}. Primjerci ovog razreda
+ * presreću zahtjeve prema servletima za glasanje te za svaki servlet unutar
+ * {@link MetricsRegistry} bilježe:
+ * <ul>
+ * <li>broj zahtjeva (brojač "http.<i>imeServleta</i>.requests")</li>
+ * <li>broj zahtjeva na koje je odgovoreno statusom 4xx (brojač
+ * "http.<i>imeServleta</i>.clientErrors")</li>
+ * <li>broj zahtjeva na koje je odgovoreno statusom 5xx ili čija je obrada
+ * završila iznimkom (brojač "http.<i>imeServleta</i>.errors")</li>
+ * <li>trajanje obrade zahtjeva (histogram "http.<i>imeServleta</i>")</li>
+ * </ul>
+ * Ime servleta određuje se prema putanji zahtjeva i mapiranjima servleta
+ * unutar aplikacije, dok se zahtjevi prema putanjama koje ne pripadaju niti
+ * jednom servletu bilježe pod imenom {@value #UNKNOWN_SERVLET}. Tako je broj
+ * mjerenja ograničen neovisno o putanjama koje klijenti zahtijevaju.
+ * <p>
+ * Ukoliko servlet zahtjev obrađuje asinkrono, trajanje i status bilježe se
+ * tek nakon završetka asinkrone obrade.
+ * </p>
+ *
+ * @see Filter
+ * @see MetricsRegistry
+ *
+ * @author Davor Češljaš
+ */
+@WebFilter(filterName = "requestMetrics", urlPatterns = { "/servleti/*", "/servlets/*" }, asyncSupported = true)
+public class RequestMetricsFilter implements Filter {
+
+	/**
+	 * Konstanta koja predstavlja ime pod kojim se bilježe zahtjevi koji ne
+	 * pripadaju niti jednom servletu
+	 */
+	private static final String UNKNOWN_SERVLET = "other";
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi putanje, a
+	 * vrijednosti imena servleta koji su mapirani na te putanje
+	 */
+	private final Map<String, String> servletNames = new ConcurrentHashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi imena servleta,
+	 * a vrijednosti mjerenja tih servleta
+	 */
+	private final Map<String, ServletMetrics> metrics = new ConcurrentHashMap<>();
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		for (ServletRegistration registration : filterConfig.getServletContext().getServletRegistrations()
+				.values()) {
+			for (String mapping : registration.getMappings()) {
+				servletNames.put(mapping, registration.getName());
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		ServletMetrics servletMetrics = metricsFor((HttpServletRequest) request);
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+		long start = System.nanoTime();
+		boolean failed = true;
+
+		try {
+			chain.doFilter(request, response);
+			failed = false;
+		} finally {
+			if (!failed && request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new AsyncMetricsListener(servletMetrics, httpResponse, start));
+			} else {
+				servletMetrics.record(start, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+						: httpResponse.getStatus());
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja dohvaća mjerenja servleta kojem je upućen zahtjev
+	 * <b>request</b>
+	 *
+	 * @param request
+	 *            klijentov zahtjev
+	 * @return mjerenja servleta kojem je upućen zahtjev
+	 */
+	private ServletMetrics metricsFor(HttpServletRequest request) {
+		String servletName = servletNames.getOrDefault(request.getServletPath(), UNKNOWN_SERVLET);
+
+		ServletMetrics servletMetrics = metrics.get(servletName);
+		if (servletMetrics == null) {
+			servletMetrics = metrics.computeIfAbsent(servletName, ServletMetrics::new);
+		}
+		return servletMetrics;
+	}
+
+	/**
+	 * Pomoćni razred koji objedinjuje sva mjerenja jednog servleta. Mjerenja
+	 * se dohvaćaju iz {@link MetricsRegistry} samo jednom, pa bilježenje
+	 * zahtjeva ne zahtijeva niti jedno pretraživanje mape.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private static class ServletMetrics {
+
+		/** Članska varijabla koja predstavlja broj zahtjeva */
+		private final LongAdder requests;
+
+		/** Članska varijabla koja predstavlja broj zahtjeva sa statusom 4xx */
+		private final LongAdder clientErrors;
+
+		/**
+		 * Članska varijabla koja predstavlja broj zahtjeva sa statusom 5xx
+		 */
+		private final LongAdder errors;
+
+		/** Članska varijabla koja predstavlja trajanja obrade zahtjeva */
+		private final LatencyHistogram latency;
+
+		/**
+		 * Konstruktor koji dohvaća mjerenja servleta sa imenom
+		 * <b>servletName</b>.
+		 *
+		 * @param servletName
+		 *            ime servleta
+		 */
+		public ServletMetrics(String servletName) {
+			String prefix = "http." + servletName;
+			this.requests = MetricsRegistry.counter(prefix + ".requests");
+			this.clientErrors = MetricsRegistry.counter(prefix + ".clientErrors");
+			this.errors = MetricsRegistry.counter(prefix + ".errors");
+			this.latency = MetricsRegistry.histogram(prefix);
+		}
+
+		/**
+		 * Metoda koja bilježi jedan obrađeni zahtjev.
+		 *
+		 * @param start
+		 *            trenutak početka obrade dobiven pozivom
+		 *            {@link System#nanoTime()}
+		 * @param status
+		 *            statusni kod odgovora
+		 */
+		public void record(long start, int status) {
+			latency.recordSince(start);
+			requests.increment();
+			if (status >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+				errors.increment();
+			} else if (status >= HttpServletResponse.SC_BAD_REQUEST) {
+				clientErrors.increment();
+			}
+		}
+	}
+
+	/**
+	 * Pomoćni razred koji implementira sučelje {@link AsyncListener}, a koji
+	 * bilježi zahtjev tek nakon završetka njegove asinkrone obrade.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private static class AsyncMetricsListener implements AsyncListener {
+
+		/** Članska varijabla koja predstavlja mjerenja servleta */
+		private final ServletMetrics servletMetrics;
+
+		/** Članska varijabla koja predstavlja odgovor klijentu */
+		private final HttpServletResponse response;
+
+		/** Članska varijabla koja predstavlja trenutak početka obrade */
+		private final long start;
+
+		/** Članska varijabla koja predstavlja je li obrada završila pogreškom */
+		private volatile boolean failed;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param servletMetrics
+		 *            mjerenja servleta
+		 * @param response
+		 *            odgovor klijentu
+		 * @param start
+		 *            trenutak početka obrade dobiven pozivom
+		 *            {@link System#nanoTime()}
+		 */
+		public AsyncMetricsListener(ServletMetrics servletMetrics, HttpServletResponse response, long start) {
+			this.servletMetrics = servletMetrics;
+			this.response = response;
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) throws IOException {
+			servletMetrics.record(start,
+					failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus());
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			failed = true;
+		}
+
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			failed = true;
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) throws IOException {
+			event.getAsyncContext().addListener(this);
+		}
+	}
+}
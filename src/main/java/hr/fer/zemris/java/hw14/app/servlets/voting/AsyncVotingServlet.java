@@ -0,0 +1,336 @@
+package hr.fer.zemris.java.hw14.app.servlets.voting;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import hr.fer.zemris.java.hw14.app.servlets.AsyncExecutorListener;
+import hr.fer.zemris.java.hw14.app.util.ServletUtil;
+import hr.fer.zemris.java.hw14.dao.sql.SQLConnectionProvider;
+
+/**
+ * Apstraktni razred koji nasljeđuje razred {@link HttpServlet}, a koji je
+ * zajednički svim servletima za glasanje. Metoda
+ * {@link #doGet(HttpServletRequest, HttpServletResponse)} zahtjev prebacuje u
+ * asinkroni način rada te njegovu obradu, odnosno poziv metode
+ * {@link #processGet(HttpServletRequest, HttpServletResponse)}, prepušta
+ * izvršitelju pohranjenom unutar atributa konteksta
+ * {@value AsyncExecutorListener#EXECUTOR_ATTRIBUTE}. Tako dretva poslužitelja
+ * ne čeka na bazu podataka niti na iscrtavanje. Zadatak se omata metodom
+ * {@link SQLConnectionProvider#wrap(Runnable)}, pa dretva koja ga izvodi ima
+ * isti izvor veza kao dretva poslužitelja.
+ * <p>
+ * Prosljeđivanje JSP datotekama obavlja se metodom
+ * {@link ServletUtil#forward(HttpServletRequest, HttpServletResponse, String)}
+ * koja u asinkronom načinu rada samo pamti putanju, a ovaj razred nakon obrade
+ * poziva {@link AsyncContext#dispatch(String)}. Ukoliko izvršitelj odbije
+ * zadatak, klijentu se šalje status 503 sa zaglavljem "Retry-After". Ukoliko
+ * izvršitelj ne postoji, zahtjev se obrađuje na dretvi poslužitelja.
+ * </p>
+ * <p>
+ * Obradu koja čeka na operaciju koja se izvodi na drugim dretvama moguće je
+ * odgoditi metodom
+ * {@link #defer(HttpServletRequest, CompletableFuture, Continuation)}, kako
+ * dretva izvršitelja ne bi bila zauzeta čekanjem.
+ * </p>
+ *
+ * @see AsyncExecutorListener
+ *
+ * @author Davor Češljaš
+ */
+public abstract class AsyncVotingServlet extends HttpServlet {
+
+	/**
+	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Konstanta koja predstavlja broj sekundi nakon kojeg klijent može ponoviti
+	 * odbijeni zahtjev
+	 */
+	private static final String RETRY_AFTER_SECONDS = "1";
+
+	/**
+	 * Konstanta koja predstavlja ime atributa zahtjeva u koji metoda
+	 * {@link #defer(HttpServletRequest, CompletableFuture, Continuation)} sprema
+	 * odgođenu operaciju
+	 */
+	private static final String DEFERRED_ATTRIBUTE = "hr.fer.zemris.asyncDeferred";
+
+	/**
+	 * Članska varijabla koja predstavlja izvršitelja na kojem se obrađuju
+	 * zahtjevi
+	 */
+	private transient Executor executor;
+
+	@Override
+	public void init() throws ServletException {
+		executor = (Executor) getServletContext().getAttribute(AsyncExecutorListener.EXECUTOR_ATTRIBUTE);
+	}
+
+	@Override
+	protected final void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		AsyncContext asyncContext = request.startAsync();
+		Runnable task = SQLConnectionProvider.wrap(() -> process(asyncContext));
+		if (executor == null) {
+			task.run();
+			return;
+		}
+
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			sendUnavailable(response);
+			asyncContext.complete();
+		}
+	}
+
+	/**
+	 * Metoda koja obrađuje GET zahtjev. Poziva se na dretvi izvršitelja, a
+	 * JSP datotekama prosljeđuje se isključivo metodom
+	 * {@link ServletUtil#forward(HttpServletRequest, HttpServletResponse, String)}.
+	 *
+	 * @param request
+	 *            zahtjev
+	 * @param response
+	 *            odgovor
+	 * @throws ServletException
+	 *             ukoliko obrada ne uspije
+	 * @throws IOException
+	 *             ukoliko pisanje odgovora ne uspije
+	 */
+	protected abstract void processGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException;
+
+	/**
+	 * Metoda koja završetak obrade zahtjeva odgađa do završetka
+	 * <b>future</b>a. Nakon što <b>future</b> uspješno završi, njegov se
+	 * rezultat predaje <b>continuation</b>u, koji se izvodi na izvršitelju
+	 * zahtjeva, ali bez veze sa bazom podataka. Ukoliko <b>future</b> završi
+	 * iznimkom {@link RejectedExecutionException}, klijentu se šalje status 503
+	 * sa zaglavljem "Retry-After", a ukoliko završi bilo kojom drugom iznimkom
+	 * status 500. Tako dretva izvršitelja ne čeka na dugotrajne operacije (npr.
+	 * iscrtavanje) koje se izvode na drugim dretvama. Metodu je moguće pozvati
+	 * samo iz metode {@link #processGet(HttpServletRequest, HttpServletResponse)}.
+	 *
+	 * @param <T>
+	 *            tip rezultata
+	 * @param request
+	 *            zahtjev
+	 * @param future
+	 *            operacija čiji se završetak čeka
+	 * @param continuation
+	 *            nastavak obrade zahtjeva
+	 */
+	protected <T> void defer(HttpServletRequest request, CompletableFuture<T> future,
+			Continuation<T> continuation) {
+		request.setAttribute(DEFERRED_ATTRIBUTE, new Deferred<>(future, continuation));
+	}
+
+	/**
+	 * Pomoćna metoda koja obrađuje asinkroni zahtjev te ga nakon obrade
+	 * prosljeđuje zapamćenoj putanji ili završava. Ukoliko je obrada odgođena
+	 * metodom {@link #defer(HttpServletRequest, CompletableFuture, Continuation)},
+	 * zahtjev se završava tek nakon nastavka obrade.
+	 *
+	 * @param asyncContext
+	 *            kontekst asinkronog zahtjeva
+	 */
+	private void process(AsyncContext asyncContext) {
+		HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+		HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+
+		try {
+			processGet(request, response);
+		} catch (ServletException | IOException | RuntimeException e) {
+			request.removeAttribute(DEFERRED_ATTRIBUTE);
+			fail(request, response, e);
+		}
+
+		Deferred<?> deferred = (Deferred<?>) request.getAttribute(DEFERRED_ATTRIBUTE);
+		if (deferred != null) {
+			request.removeAttribute(DEFERRED_ATTRIBUTE);
+			deferred.resumeOnCompletion(asyncContext);
+			return;
+		}
+
+		finish(asyncContext);
+	}
+
+	/**
+	 * Pomoćna metoda koja zahtjev prosljeđuje zapamćenoj putanji ili ga
+	 * završava.
+	 *
+	 * @param asyncContext
+	 *            kontekst asinkronog zahtjeva
+	 */
+	private void finish(AsyncContext asyncContext) {
+		HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+		String path = (String) request.getAttribute(ServletUtil.DISPATCH_ATTRIBUTE);
+		try {
+			if (path != null) {
+				request.removeAttribute(ServletUtil.DISPATCH_ATTRIBUTE);
+				asyncContext.dispatch(path);
+			} else {
+				asyncContext.complete();
+			}
+		} catch (IllegalStateException e) {
+			log("Zahtjev " + request.getRequestURI() + " završen je prije kraja obrade.", e);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja bilježi neuspjelu obradu zahtjeva te klijentu šalje
+	 * status 500, ukoliko odgovor već nije poslan.
+	 *
+	 * @param request
+	 *            zahtjev
+	 * @param response
+	 *            odgovor
+	 * @param cause
+	 *            razlog neuspjeha
+	 */
+	private void fail(HttpServletRequest request, HttpServletResponse response, Throwable cause) {
+		log("Obrada zahtjeva " + request.getRequestURI() + " nije uspjela.", cause);
+		request.removeAttribute(ServletUtil.DISPATCH_ATTRIBUTE);
+		if (!response.isCommitted()) {
+			try {
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			} catch (IOException ignorable) {
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja klijentu šalje status 503 sa zaglavljem
+	 * "Retry-After".
+	 *
+	 * @param response
+	 *            odgovor
+	 * @throws IOException
+	 *             ukoliko slanje odgovora ne uspije
+	 */
+	private static void sendUnavailable(HttpServletResponse response) throws IOException {
+		response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+		response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+	}
+
+	/**
+	 * Sučelje koje modelira nastavak obrade zahtjeva nakon završetka odgođene
+	 * operacije.
+	 *
+	 * @param <T>
+	 *            tip rezultata odgođene operacije
+	 *
+	 * @author Davor Češljaš
+	 */
+	@FunctionalInterface
+	protected interface Continuation<T> {
+
+		/**
+		 * Metoda koja nastavlja obradu zahtjeva rezultatom <b>value</b>
+		 *
+		 * @param value
+		 *            rezultat odgođene operacije
+		 * @throws ServletException
+		 *             ukoliko obrada ne uspije
+		 * @throws IOException
+		 *             ukoliko pisanje odgovora ne uspije
+		 */
+		void accept(T value) throws ServletException, IOException;
+	}
+
+	/**
+	 * Pomoćni razred koji modelira odgođenu operaciju zajedno sa nastavkom
+	 * obrade zahtjeva.
+	 *
+	 * @param <T>
+	 *            tip rezultata odgođene operacije
+	 *
+	 * @author Davor Češljaš
+	 */
+	private class Deferred<T> {
+
+		/** Članska varijabla koja predstavlja odgođenu operaciju */
+		private final CompletableFuture<T> future;
+
+		/** Članska varijabla koja predstavlja nastavak obrade zahtjeva */
+		private final Continuation<T> continuation;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param future
+		 *            odgođena operacija
+		 * @param continuation
+		 *            nastavak obrade zahtjeva
+		 */
+		public Deferred(CompletableFuture<T> future, Continuation<T> continuation) {
+			this.future = future;
+			this.continuation = continuation;
+		}
+
+		/**
+		 * Metoda koja nakon završetka odgođene operacije na izvršitelju
+		 * zahtjeva nastavlja i završava obradu zahtjeva. Ukoliko izvršitelj
+		 * odbije nastavak, on se izvodi na dretvi koja je završila operaciju.
+		 *
+		 * @param asyncContext
+		 *            kontekst asinkronog zahtjeva
+		 */
+		public void resumeOnCompletion(AsyncContext asyncContext) {
+			future.whenComplete((value, error) -> {
+				Runnable resume = () -> resume(asyncContext, value, error);
+				if (executor != null) {
+					try {
+						executor.execute(resume);
+						return;
+					} catch (RejectedExecutionException ignorable) {
+					}
+				}
+				resume.run();
+			});
+		}
+
+		/**
+		 * Pomoćna metoda koja nastavlja i završava obradu zahtjeva.
+		 *
+		 * @param asyncContext
+		 *            kontekst asinkronog zahtjeva
+		 * @param value
+		 *            rezultat odgođene operacije
+		 * @param error
+		 *            iznimka kojom je operacija završila ili <code>null</code>
+		 */
+		private void resume(AsyncContext asyncContext, T value, Throwable error) {
+			HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+			HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+
+			Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause()
+					: error;
+			try {
+				if (cause instanceof RejectedExecutionException) {
+					sendUnavailable(response);
+				} else if (cause != null) {
+					fail(request, response, cause);
+				} else {
+					continuation.accept(value);
+				}
+			} catch (ServletException | IOException | RuntimeException e) {
+				fail(request, response, e);
+			}
+
+			finish(asyncContext);
+		}
+	}
+}
@@ -1,84 +1,692 @@
 package hr.fer.zemris.java.hw14.app.servlets.voting;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
-import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.jfree.data.general.DefaultPieDataset;
 import org.jfree.data.general.PieDataset;
 
+import hr.fer.zemris.java.hw14.app.events.VoteEvents;
+import hr.fer.zemris.java.hw14.app.events.VoteListener;
 import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.app.util.ChartCache;
+import hr.fer.zemris.java.hw14.app.util.ChartRenderer;
+import hr.fer.zemris.java.hw14.app.util.SVGUtil;
 import hr.fer.zemris.java.hw14.app.util.ServletUtil;
+import hr.fer.zemris.java.hw14.dao.DAO;
 import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.dao.sql.SQLConnectionProvider;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
 
 /**
- * Razred koji nasljeđuje razred {@link HttpServlet}. Primjerci ovog razreda
- * pozivom metode {@link #doGet(HttpServletRequest, HttpServletResponse)} šalju
+ * Razred koji nasljeđuje razred {@link AsyncVotingServlet}. Primjerci ovog
+ * razreda pozivom metode
+ * {@link #processGet(HttpServletRequest, HttpServletResponse)} šalju
  * sliku formata "png" koja predstavlja kružni dijagram glasanja unutar jedne od
- * anketa. Za generiranje slike koristi se metoda
+ * anketa. Odgovori ankete dohvaćaju se jedan po jedan metodom
+ * {@link DAO#forEachPollOption(long, java.util.function.Consumer)}. Za
+ * generiranje slike koristi se metoda
  * {@link ServletUtil#createPieChart(String, PieDataset)}.
+ * <p>
+ * Umjesto slike formata "png" moguće je zatražiti dijagram u SVG formatu
+ * (metoda {@link SVGUtil#createPieChart(String, List, int, int)}) ili
+ * odgovore zapisane kao JSON objekt (metoda
+ * {@link ServletUtil#createPieChartJSON(String, List)}), koji se stvaraju
+ * izravno iz odgovora, bez iscrtavanja. Format se zadaje parametrom "format"
+ * (vrijednosti "png", "svg" ili "json") ili zaglavljem "Accept".
+ * </p>
+ * <p>
+ * Veličina dijagrama zadaje se parametrima "width" i "height", a zaokružuje
+ * se na najmanju od dozvoljenih veličina (parametar konteksta
+ * {@value #SIZES_PARAM}) u koju stane tražena veličina, odnosno na najveću
+ * dozvoljenu veličinu. Tako se iscrtava samo onoliko piksela koliko klijent
+ * prikazuje, a broj različitih slika jedne ankete ostaje ograničen.
+ * </p>
+ * <p>
+ * Izgenerirane slike spremaju se u priručnu memoriju modeliranu razredom
+ * {@link ChartCache}, a ključ pod kojim se slika sprema sastoji se od
+ * identifikatora ankete, formata i veličine, a uz sliku se pamti i inačica trenutnog
+ * broja glasova. Ista inačica šalje
+ * se klijentu u zaglavlju "ETag", pa se na uvjetne zahtjeve sa zaglavljem
+ * "If-None-Match" odgovara statusom 304 bez ponovnog slanja slike.
+ * </p>
+ * <p>
+ * Slike koje nisu u priručnoj memoriji iscrtavaju se na zasebnom bazenu
+ * dretvi ograničene veličine ({@link ChartRenderer}), a istovremeni zahtjevi
+ * za istom slikom spajaju se u jedno iscrtavanje. Dok se slika iscrtava,
+ * zahtjev ne zauzima niti jednu dretvu. Ukoliko je red slika koje čekaju na
+ * iscrtavanje pun, klijentu se šalje status 503 sa zaglavljem "Retry-After".
+ * </p>
+ * <p>
+ * Svaka zatražena inačica dijagrama se pamti, a nakon glasanja u anketi
+ * (događaj {@link VoteEvents}) sve zapamćene inačice te ankete se u pozadini
+ * ponovno stvaraju i spremaju u priručnu memoriju. Glasovi pristigli unutar
+ * {@value #REFRESH_DELAY_PARAM} milisekundi spajaju se u jedno osvježavanje,
+ * pa klijenti i nakon glasanja u pravilu dobivaju već iscrtanu sliku.
+ * </p>
  * 
  * @see ServletUtil
+ * @see ChartCache
+ * @see ChartRenderer
  * @see PieDataset
- * @see HttpServlet
+ * @see AsyncVotingServlet
  * 
  * @author Davor Češljaš
  */
-@WebServlet(name = "voting-graphics", urlPatterns = { "/servleti/glasanje-grafika", "/servlets/voting-graphics" })
-public class VotingGraphicsServlet extends HttpServlet {
+@WebServlet(name = "voting-graphics", urlPatterns = { "/servleti/glasanje-grafika",
+		"/servlets/voting-graphics" }, asyncSupported = true)
+public class VotingGraphicsServlet extends AsyncVotingServlet implements VoteListener {
 
 	/**
 	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * najveća ukupna veličina slika u priručnoj memoriji (u oktetima)
+	 */
+	public static final String CACHE_MAX_BYTES_PARAM = "chartCache.maxBytes";
+
+	/**
+	 * Konstanta koja predstavlja najveću ukupnu veličinu slika u priručnoj
+	 * memoriji (u oktetima) ukoliko ona nije zadana parametrom konteksta
+	 */
+	private static final long DEFAULT_CACHE_MAX_BYTES = 8 * 1024 * 1024;
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * broj dretvi za iscrtavanje slika
+	 */
+	public static final String RENDER_THREADS_PARAM = "chart.renderThreads";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * najveći broj slika koje čekaju na iscrtavanje
+	 */
+	public static final String RENDER_MAX_QUEUED_PARAM = "chart.maxQueued";
+
+	/**
+	 * Konstanta koja predstavlja broj dretvi za iscrtavanje slika ukoliko on
+	 * nije zadan parametrom konteksta
+	 */
+	private static final int DEFAULT_RENDER_THREADS = 2;
+
+	/**
+	 * Konstanta koja predstavlja najveći broj slika koje čekaju na
+	 * iscrtavanje ukoliko on nije zadan parametrom konteksta
+	 */
+	private static final int DEFAULT_RENDER_MAX_QUEUED = 16;
+
+	/**
+	 * Konstanta koja predstavlja broj sekundi nakon kojeg klijent može ponoviti
+	 * zahtjev odbijen zbog punog reda slika
+	 */
+	private static final String RETRY_AFTER_SECONDS = "2";
+
+	/** Konstanta koja predstavlja naslov dijagrama */
+	private static final String CHART_TITLE = "Rezultati ankete";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuju
+	 * dozvoljene veličine dijagrama (npr. "200x200,400x400")
+	 */
+	public static final String SIZES_PARAM = "chart.sizes";
+
+	/**
+	 * Konstanta koja predstavlja dozvoljene veličine dijagrama ukoliko one
+	 * nisu zadane parametrom konteksta
+	 */
+	private static final String DEFAULT_SIZES = "200x200,400x400,600x500";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * broj milisekundi nakon glasanja nakon kojeg se dijagrami ankete ponovno
+	 * stvaraju
+	 */
+	public static final String REFRESH_DELAY_PARAM = "chart.refreshDelayMillis";
+
+	/**
+	 * Konstanta koja predstavlja broj milisekundi nakon glasanja nakon kojeg
+	 * se dijagrami ponovno stvaraju ukoliko on nije zadan parametrom konteksta
+	 */
+	private static final long DEFAULT_REFRESH_DELAY_MILLIS = 1000;
+
+	/** Konstanta koja predstavlja brojač dijagrama stvorenih u pozadini */
+	private static final LongAdder PRERENDERED = MetricsRegistry.counter("chart.prerendered");
+
+	/** Konstanta koja predstavlja ime mjerača broja slika koje čekaju */
+	private static final String QUEUE_DEPTH_GAUGE = "chart.queueDepth";
+
+	/** Konstanta koja predstavlja ime mjerača broja slika koje se iscrtavaju */
+	private static final String ACTIVE_GAUGE = "chart.active";
+
+	/** Konstanta koja predstavlja ime mjerača pogodaka priručne memorije */
+	private static final String CACHE_HITS_GAUGE = "chart.cache.hits";
+
+	/** Konstanta koja predstavlja ime mjerača promašaja priručne memorije */
+	private static final String CACHE_MISSES_GAUGE = "chart.cache.misses";
+
+	/** Konstanta koja predstavlja ime mjerača zauzeća priručne memorije */
+	private static final String CACHE_BYTES_GAUGE = "chart.cache.bytes";
+
+	/**
+	 * Članska varijabla koja predstavlja priručnu memoriju već izgeneriranih
+	 * slika
+	 */
+	private ChartCache chartCache;
+
+	/**
+	 * Članska varijabla koja predstavlja bazen dretvi na kojem se slike
+	 * iscrtavaju
+	 */
+	private ChartRenderer chartRenderer;
+
+	/**
+	 * Članska varijabla koja predstavlja dozvoljene veličine dijagrama
+	 * poredane uzlazno po površini
+	 */
+	private List<ChartSize> sizes;
+
+	/**
+	 * Članska varijabla koja predstavlja broj milisekundi nakon glasanja nakon
+	 * kojeg se dijagrami ankete ponovno stvaraju
+	 */
+	private long refreshDelayMillis;
+
+	/**
+	 * Članska varijabla koja predstavlja dretvu na kojoj se dijagrami ponovno
+	 * stvaraju nakon glasanja
+	 */
+	private ScheduledThreadPoolExecutor refresher;
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi identifikatori
+	 * anketa, a vrijednosti zatražene inačice dijagrama tih anketa (po ključu
+	 * u priručnoj memoriji)
+	 */
+	private final Map<Long, Map<String, Variant>> variants = new ConcurrentHashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja skup identifikatora anketa čiji
+	 * dijagrami čekaju na ponovno stvaranje
+	 */
+	private final Set<Long> pendingRefresh = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		String maxBytes = getServletContext().getInitParameter(CACHE_MAX_BYTES_PARAM);
+		chartCache = new ChartCache(maxBytes == null ? DEFAULT_CACHE_MAX_BYTES : Long.parseLong(maxBytes));
+		MetricsRegistry.registerGauge(CACHE_HITS_GAUGE, chartCache::getHits);
+		MetricsRegistry.registerGauge(CACHE_MISSES_GAUGE, chartCache::getMisses);
+		MetricsRegistry.registerGauge(CACHE_BYTES_GAUGE, chartCache::getCurrentBytes);
+
+		String threads = getServletContext().getInitParameter(RENDER_THREADS_PARAM);
+		String maxQueued = getServletContext().getInitParameter(RENDER_MAX_QUEUED_PARAM);
+		chartRenderer = new ChartRenderer(threads == null ? DEFAULT_RENDER_THREADS : Integer.parseInt(threads),
+				maxQueued == null ? DEFAULT_RENDER_MAX_QUEUED : Integer.parseInt(maxQueued));
+		MetricsRegistry.registerGauge(QUEUE_DEPTH_GAUGE, chartRenderer::getQueueDepth);
+		MetricsRegistry.registerGauge(ACTIVE_GAUGE, chartRenderer::getActiveCount);
+
+		String sizesParam = getServletContext().getInitParameter(SIZES_PARAM);
+		sizes = ChartSize.parseAll(sizesParam == null ? DEFAULT_SIZES : sizesParam);
+		if (sizes.isEmpty()) {
+			throw new ServletException("Parametar konteksta " + SIZES_PARAM + " ne sadrži niti jednu veličinu");
+		}
+
+		String refreshDelay = getServletContext().getInitParameter(REFRESH_DELAY_PARAM);
+		refreshDelayMillis = refreshDelay == null ? DEFAULT_REFRESH_DELAY_MILLIS : Long.parseLong(refreshDelay);
+		refresher = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "chart-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		refresher.setRemoveOnCancelPolicy(true);
+		VoteEvents.addListener(this);
+	}
+
 	@Override
-	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+	protected void processGet(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
 		Integer pollID = ServletUtil.checkAndGetValue(request, "pollID");
 		if (pollID == null) {
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+			return;
 		}
 
-		PieDataset dataset = loadDataSet(pollID);
-		if (dataset == null) {
+		ChartFormat format = ChartFormat.negotiate(request);
+		if (format == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+			return;
+		}
+
+		ChartSize size = clamp(ServletUtil.checkAndGetValue(request, "width"),
+				ServletUtil.checkAndGetValue(request, "height"));
+		Variant variant = new Variant(pollID, format, size);
+
+		List<PollOption> pollOptions = new ArrayList<>();
+		long dataVersion = loadPollOptions(pollID, pollOptions);
+		if (pollOptions.isEmpty()) {
 			ServletUtil.sendVotingError(request, response, "Nažalost, nemamo dovoljno podataka za generirati sliku");
 			return;
 		}
 
-		response.setContentType("image/png");
-		response.getOutputStream().write(ServletUtil.createPieChart("Rezultati ankete", dataset));
+		String eTag = String.format("\"%d-%x-%s\"", pollID, dataVersion, variant.suffix);
+		response.setHeader("ETag", eTag);
+		response.setHeader("Cache-Control", "no-cache");
+		response.setHeader("Vary", "Accept");
+		if (ServletUtil.matchesETag(request, eTag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+
+		variants.computeIfAbsent((long) pollID, id -> new ConcurrentHashMap<>()).putIfAbsent(variant.key, variant);
+		byte[] image = chartCache.get(variant.key, dataVersion);
+		if (image != null) {
+			writeImage(response, format, image);
+			return;
+		}
+
+		if (format != ChartFormat.PNG) {
+			image = createText(variant, pollOptions);
+			chartCache.put(variant.key, dataVersion, image);
+			writeImage(response, format, image);
+			return;
+		}
+
+		CompletableFuture<byte[]> rendered;
+		try {
+			rendered = render(variant, dataVersion, pollOptions);
+		} catch (RejectedExecutionException e) {
+			response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+			return;
+		}
+
+		defer(request, rendered, created -> {
+			if (created == null) {
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+				return;
+			}
+			writeImage(response, format, created);
+		});
 	}
 
 	/**
-	 * Pomoćna metoda koja se koristi za učitavanje podataka iz kojih se
-	 * generira slika koja predstavlja kružni dijagram.
+	 * {@inheritDoc} Ukoliko je za anketu <b>pollID</b> već zatražen neki
+	 * dijagram, zakazuje se njegovo ponovno stvaranje. Zadatak se izvodi nad
+	 * izvorom veza trenutne dretve.
+	 */
+	@Override
+	public void voted(long pollID, long optionID) {
+		if (!variants.containsKey(pollID) || !pendingRefresh.add(pollID)) {
+			return;
+		}
+
+		try {
+			refresher.schedule(SQLConnectionProvider.wrap(() -> refresh(pollID)), refreshDelayMillis,
+					TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			pendingRefresh.remove(pollID);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		VoteEvents.removeListener(this);
+		refresher.shutdownNow();
+		MetricsRegistry.removeGauge(QUEUE_DEPTH_GAUGE);
+		MetricsRegistry.removeGauge(ACTIVE_GAUGE);
+		MetricsRegistry.removeGauge(CACHE_HITS_GAUGE);
+		MetricsRegistry.removeGauge(CACHE_MISSES_GAUGE);
+		MetricsRegistry.removeGauge(CACHE_BYTES_GAUGE);
+		chartRenderer.close();
+	}
+
+	/**
+	 * Pomoćna metoda koja ponovno stvara sve zatražene inačice dijagrama
+	 * ankete <b>pollID</b> i sprema ih u priručnu memoriju. Slike formata
+	 * "png" iscrtavaju se na bazenu dretvi za iscrtavanje, a ukoliko je njegov
+	 * red pun, slika se iscrtava tek na zahtjev klijenta.
 	 *
 	 * @param pollID
-	 *            predstavlja identifikator jedne ankete modlirane razredom
-	 *            {@link Poll}, a čiji se odgovori i brojevi glasova za te
-	 *            odgovore prikazuju unutar kružnog dijagrama
-	 * 
-	 * @return primjerak razreda koje implementira sučelje {@link PieDataset}, a
-	 *         koji modelira podatke korištene u izradi kružnog dijagrama
+	 *            identifikator ankete
 	 */
-	private PieDataset loadDataSet(long pollID) {
-		List<PollOption> pollOptions = DAOProvider.getDao().getPollOptions(pollID);
+	private void refresh(long pollID) {
+		pendingRefresh.remove(pollID);
+		Map<String, Variant> pollVariants = variants.get(pollID);
+		if (pollVariants == null) {
+			return;
+		}
 
+		List<PollOption> pollOptions = new ArrayList<>();
+		long dataVersion = loadPollOptions(pollID, pollOptions);
 		if (pollOptions.isEmpty()) {
-			return null;
+			variants.remove(pollID);
+			return;
+		}
+
+		for (Variant variant : pollVariants.values()) {
+			if (variant.format != ChartFormat.PNG) {
+				chartCache.put(variant.key, dataVersion, createText(variant, pollOptions));
+				PRERENDERED.increment();
+				continue;
+			}
+
+			try {
+				render(variant, dataVersion, pollOptions);
+				PRERENDERED.increment();
+			} catch (RejectedExecutionException ignorable) {
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja u listu <b>pollOptions</b> dohvaća odgovore ankete
+	 * <b>pollID</b> te izračunava inačicu njihovih glasova.
+	 *
+	 * @param pollID
+	 *            identifikator ankete
+	 * @param pollOptions
+	 *            lista u koju se dodaju odgovori
+	 * @return inačica glasova dohvaćenih odgovora
+	 */
+	private static long loadPollOptions(long pollID, List<PollOption> pollOptions) {
+		long[] version = { ServletUtil.INITIAL_VOTES_VERSION };
+		DAOProvider.getDao().forEachPollOption(pollID, pollOption -> {
+			pollOptions.add(pollOption);
+			version[0] = ServletUtil.updateVotesVersion(version[0], pollOption);
+		});
+		return version[0];
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara dijagram inačice <b>variant</b> u tekstualnom
+	 * formatu (SVG ili JSON).
+	 *
+	 * @param variant
+	 *            inačica dijagrama
+	 * @param pollOptions
+	 *            odgovori ankete
+	 * @return polje okteta koje predstavlja dijagram
+	 */
+	private static byte[] createText(Variant variant, List<PollOption> pollOptions) {
+		String text = variant.format == ChartFormat.SVG
+				? SVGUtil.createPieChart(CHART_TITLE, pollOptions, variant.size.width, variant.size.height)
+				: ServletUtil.createPieChartJSON(CHART_TITLE, pollOptions);
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Pomoćna metoda koja sliku formata "png" inačice <b>variant</b> iscrtava
+	 * na bazenu dretvi za iscrtavanje te je sprema u priručnu memoriju.
+	 *
+	 * @param variant
+	 *            inačica dijagrama
+	 * @param dataVersion
+	 *            inačica glasova odgovora
+	 * @param pollOptions
+	 *            odgovori ankete
+	 * @return rezultat iscrtavanja
+	 * @throws RejectedExecutionException
+	 *             ukoliko je red slika koje čekaju na iscrtavanje pun
+	 */
+	private CompletableFuture<byte[]> render(Variant variant, long dataVersion, List<PollOption> pollOptions) {
+		return chartRenderer.render(variant.key, dataVersion, () -> {
+			DefaultPieDataset dataset = new DefaultPieDataset();
+			for (PollOption pollOption : pollOptions) {
+				dataset.setValue(pollOption.getOptionTitle(), pollOption.getVotesCount());
+			}
+			byte[] created = ServletUtil.createPieChart(CHART_TITLE, dataset, variant.size.width,
+					variant.size.height);
+			if (created != null) {
+				chartCache.put(variant.key, dataVersion, created);
+			}
+			return created;
+		});
+	}
+
+	/**
+	 * Pomoćna metoda koja traženu veličinu dijagrama zaokružuje na najmanju
+	 * dozvoljenu veličinu u koju ona stane, odnosno na najveću dozvoljenu
+	 * veličinu. Nezadana širina ili visina zamjenjuju se sa
+	 * {@link ServletUtil#DEFAULT_CHART_WIDTH} i
+	 * {@link ServletUtil#DEFAULT_CHART_HEIGHT}.
+	 *
+	 * @param width
+	 *            tražena širina ili <code>null</code>
+	 * @param height
+	 *            tražena visina ili <code>null</code>
+	 * @return dozvoljena veličina dijagrama
+	 */
+	private ChartSize clamp(Integer width, Integer height) {
+		int w = width == null ? ServletUtil.DEFAULT_CHART_WIDTH : width;
+		int h = height == null ? ServletUtil.DEFAULT_CHART_HEIGHT : height;
+		for (ChartSize size : sizes) {
+			if (size.width >= w && size.height >= h) {
+				return size;
+			}
 		}
+		return sizes.get(sizes.size() - 1);
+	}
+
+	/**
+	 * Pomoćna metoda koja sliku <b>image</b> zapisuje u odgovor
+	 *
+	 * @param response
+	 *            odgovor
+	 * @param format
+	 *            format slike
+	 * @param image
+	 *            polje okteta koje predstavlja sliku
+	 * @throws IOException
+	 *             ukoliko pisanje odgovora ne uspije
+	 */
+	private static void writeImage(HttpServletResponse response, ChartFormat format, byte[] image)
+			throws IOException {
+		response.setContentType(format.contentType);
+		response.setContentLength(image.length);
+		response.getOutputStream().write(image);
+	}
+
+	/**
+	 * Pomoćna enumeracija koja modelira formate u kojima se dijagram može
+	 * poslati klijentu.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private enum ChartFormat {
+
+		/** Slika formata "png" iscrtana biblioteka JFreeChart */
+		PNG("png", "image/png", "image/png"),
+
+		/** Dijagram u SVG formatu koji iscrtava klijent */
+		SVG("svg", "image/svg+xml", "image/svg+xml; charset=UTF-8"),
+
+		/** Odgovori zapisani kao JSON objekt koje iscrtava klijent */
+		JSON("json", "application/json", "application/json; charset=UTF-8");
+
+		/** Članska varijabla koja predstavlja vrijednost parametra "format" */
+		private final String parameter;
+
+		/** Članska varijabla koja predstavlja vrstu medija formata */
+		private final String mediaType;
+
+		/** Članska varijabla koja predstavlja vrstu sadržaja odgovora */
+		private final String contentType;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ove enumeracije.
+		 *
+		 * @param parameter
+		 *            vrijednost parametra "format"
+		 * @param mediaType
+		 *            vrsta medija formata
+		 * @param contentType
+		 *            vrsta sadržaja odgovora
+		 */
+		private ChartFormat(String parameter, String mediaType, String contentType) {
+			this.parameter = parameter;
+			this.mediaType = mediaType;
+			this.contentType = contentType;
+		}
+
+		/**
+		 * Metoda koja određuje format odgovora. Ukoliko je predan parametar
+		 * "format", format se određuje njime. Inače se koristi prva vrsta
+		 * sadržaja iz zaglavlja "Accept" koja odgovara nekom od formata, a
+		 * ukoliko takve nema, format "png".
+		 *
+		 * @param request
+		 *            zahtjev
+		 * @return format odgovora ili <code>null</code> ukoliko parametar
+		 *         "format" nije podržan
+		 */
+		public static ChartFormat negotiate(HttpServletRequest request) {
+			String parameter = request.getParameter("format");
+			if (parameter != null) {
+				for (ChartFormat format : values()) {
+					if (format.parameter.equalsIgnoreCase(parameter.trim())) {
+						return format;
+					}
+				}
+				return null;
+			}
+
+			String accept = request.getHeader("Accept");
+			if (accept != null) {
+				for (String mediaRange : accept.split(",")) {
+					String mediaType = mediaRange.split(";")[0].trim();
+					for (ChartFormat format : values()) {
+						if (format.mediaType.equalsIgnoreCase(mediaType)) {
+							return format;
+						}
+					}
+				}
+			}
+			return PNG;
+		}
+	}
+
+	/**
+	 * Pomoćni statički razred koji modelira jednu od dozvoljenih veličina
+	 * dijagrama.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private static class ChartSize {
+
+		/** Članska varijabla koja predstavlja širinu u pikselima */
+		private final int width;
 
-		DefaultPieDataset dataset = new DefaultPieDataset();
-		for (PollOption pollOption : pollOptions) {
-			dataset.setValue(pollOption.getOptionTitle(), pollOption.getVotesCount());
+		/** Članska varijabla koja predstavlja visinu u pikselima */
+		private final int height;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param width
+		 *            širina u pikselima
+		 * @param height
+		 *            visina u pikselima
+		 */
+		public ChartSize(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * Metoda koja iz niza oblika "200x200,400x400" stvara listu veličina
+		 * poredanu uzlazno po površini.
+		 *
+		 * @param value
+		 *            niz veličina odvojenih zarezom
+		 * @return lista veličina poredana uzlazno po površini
+		 * @throws NumberFormatException
+		 *             ukoliko neka od veličina nije ispravno zadana
+		 */
+		public static List<ChartSize> parseAll(String value) {
+			List<ChartSize> sizes = new ArrayList<>();
+			for (String size : value.split(",")) {
+				if (size.trim().isEmpty()) {
+					continue;
+				}
+				String[] parts = size.trim().split("x");
+				if (parts.length != 2) {
+					throw new NumberFormatException("Neispravna veličina dijagrama: " + size);
+				}
+				int width = Integer.parseInt(parts[0].trim());
+				int height = Integer.parseInt(parts[1].trim());
+				if (width <= 0 || height <= 0) {
+					throw new NumberFormatException("Neispravna veličina dijagrama: " + size);
+				}
+				sizes.add(new ChartSize(width, height));
+			}
+			sizes.sort((s1, s2) -> Long.compare((long) s1.width * s1.height, (long) s2.width * s2.height));
+			return sizes;
 		}
 
-		return dataset;
+		@Override
+		public String toString() {
+			return width + "x" + height;
+		}
+	}
+
+	/**
+	 * Pomoćni statički razred koji modelira jednu inačicu dijagrama ankete,
+	 * odnosno format i veličinu u kojoj je dijagram zatražen.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private static class Variant {
+
+		/** Članska varijabla koja predstavlja format dijagrama */
+		private final ChartFormat format;
+
+		/** Članska varijabla koja predstavlja veličinu dijagrama */
+		private final ChartSize size;
+
+		/**
+		 * Članska varijabla koja predstavlja oznaku inačice unutar ankete,
+		 * koja se koristi i u zaglavlju "ETag"
+		 */
+		private final String suffix;
+
+		/** Članska varijabla koja predstavlja ključ u priručnoj memoriji */
+		private final String key;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda. Format "json"
+		 * ne ovisi o veličini, pa se za njega veličina ne pamti u ključu.
+		 *
+		 * @param pollID
+		 *            identifikator ankete
+		 * @param format
+		 *            format dijagrama
+		 * @param size
+		 *            veličina dijagrama
+		 */
+		public Variant(long pollID, ChartFormat format, ChartSize size) {
+			this.format = format;
+			this.size = size;
+			this.suffix = format == ChartFormat.JSON ? format.parameter : format.parameter + "-" + size;
+			this.key = pollID + ":" + suffix;
+		}
 	}
 }
@@ -0,0 +1,144 @@
+package hr.fer.zemris.java.hw14.app.servlets.voting;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.app.live.LiveResults;
+import hr.fer.zemris.java.hw14.app.util.ServletUtil;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji nasljeđuje razred {@link HttpServlet}. Primjerci ovog razreda
+ * pozivom metode {@link #doGet(HttpServletRequest, HttpServletResponse)}
+ * klijenta pretplaćuju na rezultate anketnog pitanja čiji je identifikator
+ * predan kao parametar "pollID". Odgovor je tok događaja formata
+ * "text/event-stream" (engl. Server-Sent Events) koji se obrađuje asinkrono,
+ * pa pretplatnik ne zauzima niti dretvu poslužitelja niti vezu sa bazom
+ * podataka. Prvi događaj ("snapshot") sadrži broj glasova svih odgovora, a
+ * svaki sljedeći ("votes") broj glasova odgovora izmijenjenih od prethodnog
+ * događaja. Podaci svakog događaja su JSON objekt čiji su ključevi
+ * identifikatori odgovora, a vrijednosti brojevi glasova.
+ * <p>
+ * Izmjene se šalju najviše jednom u vremenu zadanom parametrom konteksta
+ * {@value #INTERVAL_MILLIS_PARAM}, a pretplata traje najdulje koliko je zadano
+ * parametrom konteksta {@value #TIMEOUT_SECONDS_PARAM}, nakon čega se klijent
+ * sam ponovno spaja.
+ * </p>
+ * <p>
+ * Broj glasova dohvaća se izravno preko {@link DAOProvider#getDao()}, a ne
+ * iz rangiranih rezultata koje ažuriraju događaji glasanja, kako bi periodički
+ * ponovni dohvat zaista ispravio odstupanja.
+ * </p>
+ *
+ * @see LiveResults
+ *
+ * @author Davor Češljaš
+ */
+@WebServlet(name = "voting-live", urlPatterns = { "/servleti/glasanje-uzivo",
+		"/servlets/voting-live" }, asyncSupported = true)
+public class VotingLiveServlet extends HttpServlet {
+
+	/**
+	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * vrijeme između dva slanja izmjena (u milisekundama)
+	 */
+	public static final String INTERVAL_MILLIS_PARAM = "live.intervalMillis";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * najdulje trajanje jedne pretplate (u sekundama)
+	 */
+	public static final String TIMEOUT_SECONDS_PARAM = "live.timeoutSeconds";
+
+	/**
+	 * Konstanta koja predstavlja vrijeme između dva slanja izmjena (u
+	 * milisekundama) ukoliko ono nije zadano parametrom konteksta
+	 */
+	private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * Konstanta koja predstavlja najdulje trajanje jedne pretplate (u
+	 * sekundama) ukoliko ono nije zadano parametrom konteksta
+	 */
+	private static final long DEFAULT_TIMEOUT_SECONDS = 300;
+
+	/** Konstanta koja predstavlja ime mjerača broja pretplatnika */
+	private static final String SUBSCRIBERS_GAUGE = "live.subscribers";
+
+	/** Konstanta koja predstavlja ime mjerača broja praćenih anketnih pitanja */
+	private static final String POLLS_GAUGE = "live.polls";
+
+	/**
+	 * Članska varijabla koja predstavlja praćenje rezultata anketnih pitanja
+	 * uživo
+	 */
+	private LiveResults liveResults;
+
+	/**
+	 * Članska varijabla koja predstavlja najdulje trajanje jedne pretplate (u
+	 * milisekundama)
+	 */
+	private long timeoutMillis;
+
+	@Override
+	public void init() throws ServletException {
+		String interval = getServletContext().getInitParameter(INTERVAL_MILLIS_PARAM);
+		String timeout = getServletContext().getInitParameter(TIMEOUT_SECONDS_PARAM);
+
+		timeoutMillis = TimeUnit.SECONDS.toMillis(timeout == null ? DEFAULT_TIMEOUT_SECONDS : Long.parseLong(timeout));
+		liveResults = new LiveResults(interval == null ? DEFAULT_INTERVAL_MILLIS : Long.parseLong(interval),
+				() -> (DataSource) getServletContext().getAttribute("hr.fer.zemris.dbpool"));
+
+		MetricsRegistry.registerGauge(SUBSCRIBERS_GAUGE, liveResults::getSubscriberCount);
+		MetricsRegistry.registerGauge(POLLS_GAUGE, liveResults::getPollCount);
+	}
+
+	@Override
+	public void destroy() {
+		MetricsRegistry.removeGauge(SUBSCRIBERS_GAUGE);
+		MetricsRegistry.removeGauge(POLLS_GAUGE);
+		try {
+			liveResults.close();
+		} catch (IOException ignorable) {
+		}
+	}
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		Integer pollID = ServletUtil.checkAndGetValue(request, "pollID");
+		if (pollID == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+			return;
+		}
+
+		if (DAOProvider.getDao().getPoll(pollID) == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		response.setContentType("text/event-stream");
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader("Cache-Control", "no-cache");
+		response.flushBuffer();
+
+		AsyncContext asyncContext = request.startAsync();
+		asyncContext.setTimeout(timeoutMillis);
+		liveResults.subscribe(pollID, asyncContext, () -> DAOProvider.getDao().getPollOptions(pollID));
+	}
+}
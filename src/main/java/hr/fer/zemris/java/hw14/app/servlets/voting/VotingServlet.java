@@ -5,7 +5,6 @@ import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
-import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -16,8 +15,9 @@ import hr.fer.zemris.java.hw14.dao.DAO;
 import hr.fer.zemris.java.hw14.dao.DAOProvider;
 
 /**
- * Razred koji nasljeđuje razred {@link HttpServlet}. Primjerci ovog razreda
- * pozivom metode {@link #doGet(HttpServletRequest, HttpServletResponse)} preko
+ * Razred koji nasljeđuje razred {@link AsyncVotingServlet}. Primjerci ovog
+ * razreda pozivom metode
+ * {@link #processGet(HttpServletRequest, HttpServletResponse)} preko
  * veze s bazom podataka koju pruža {@link DAOProvider#getDao()} dohvaćaju
  * anketu s određenim identifikatorom koji je predan kao argument zahtjeva, te
  * {@link List} svih mogućih odgovora za to anketno pitanje, a koji su
@@ -26,15 +26,16 @@ import hr.fer.zemris.java.hw14.dao.DAOProvider;
  * Nakon toga generiranje HTML dokumenta deliegiraju JSP datoteci
  * "/WEB-INF/pages/votingIndex.jsp".
  * 
- * @see HttpServlet
+ * @see AsyncVotingServlet
  * @see PollOption
  * @see DAO
  * @see DAOProvider
  * 
  * @author Davor Češljaš
  */
-@WebServlet(name = "voting", urlPatterns = { "/servleti/glasanje", "/servlets/voting" })
-public class VotingServlet extends HttpServlet {
+@WebServlet(name = "voting", urlPatterns = { "/servleti/glasanje",
+		"/servlets/voting" }, asyncSupported = true)
+public class VotingServlet extends AsyncVotingServlet {
 
 	/**
 	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
@@ -42,7 +43,7 @@ public class VotingServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 
 	@Override
-	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+	protected void processGet(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
 		Integer pollID = ServletUtil.checkAndGetValue(request, "pollID");
 
@@ -67,6 +68,6 @@ public class VotingServlet extends HttpServlet {
 
 		request.setAttribute("pollOptions", pollOptions);
 		request.setAttribute("poll", poll);
-		request.getRequestDispatcher("/WEB-INF/pages/votingIndex.jsp").forward(request, response);
+		ServletUtil.forward(request, response, "/WEB-INF/pages/votingIndex.jsp");
 	}
 }
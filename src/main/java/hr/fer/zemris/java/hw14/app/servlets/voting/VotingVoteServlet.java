@@ -1,54 +1,205 @@
 package hr.fer.zemris.java.hw14.app.servlets.voting;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
-import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import hr.fer.zemris.java.hw14.app.dedupe.VoteDeduplicator;
+import hr.fer.zemris.java.hw14.app.dedupe.VoteDeduplicator.Reservation;
+import hr.fer.zemris.java.hw14.app.events.VoteEvents;
 import hr.fer.zemris.java.hw14.app.util.ServletUtil;
 import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
 
 /**
- * Razred koji nasljeđuje razred {@link HttpServlet}. Primjerci ovog razreda
- * pozivom metode {@link #doGet(HttpServletRequest, HttpServletResponse)}
+ * Razred koji nasljeđuje razred {@link AsyncVotingServlet}. Primjerci ovog
+ * razreda pozivom metode
+ * {@link #processGet(HttpServletRequest, HttpServletResponse)}
  * ažuriraj broj glasova odgovoru na anketno pitanje čiji je identifikator
  * predan kao klijentov parametar "id". Uz "id" ovom servletu potrebno je
  * predati i parametar "pollID" kako bi se mogli prikazati rezultati tražene
  * ankete.  Ažuriranje se neće dogoditi ukoliko vrijednost uz ključ "id" nije
  * cijeli broj ili ukoliko taj cijeli broj nije jedan od poznatih identifikatora
- * odgovra  za to pitanje.
+ * odgovra  za to pitanje. Nakon uspješnog ažuriranja glas se objavljuje preko
+ * {@link VoteEvents}, kako bi se poretci odgovora mogli inkrementalno ažurirati.
+ * <p>
+ * Prije ažuriranja provjerava se je li klijent već glasao u toj anketi
+ * ({@link VoteDeduplicator}). Glas se prije ažuriranja atomično rezervira,
+ * pa se ponovljeni glasovi, uključujući i istovremene, odbijaju bez pristupa
+ * bazi podataka. Rezervacija se potvrđuje tek nakon uspješnog ažuriranja, a
+ * inače otpušta, pa se glasovi koje baza odbije ne pamte. Veličina
+ * filtra, vjerojatnost lažno pozitivnog odgovora i vremena kroz koja se glas
+ * pamti zadaju se parametrima konteksta, a provjera se može isključiti
+ * parametrom {@value #DEDUPE_ENABLED_PARAM}. Klijent se prepoznaje po adresi,
+ * pa klijenti iza iste adrese dijele jedan glas po anketi, osim ukoliko je
+ * parametrom {@value #DEDUPE_CLIENT_COOKIE_PARAM} zadan kolačić koji ih
+ * razlikuje.
+ * </p>
  * 
- * @see HttpServlet
+ * @see VoteDeduplicator
+ * @see AsyncVotingServlet
  * 
  * @author Davor Češljaš
  */
-@WebServlet(name = "voting-vote", urlPatterns = { "/servlets/voting-vote", "/servleti/glasanje-glasaj" })
-public class VotingVoteServlet extends HttpServlet {
+@WebServlet(name = "voting-vote", urlPatterns = { "/servlets/voting-vote",
+		"/servleti/glasanje-glasaj" }, asyncSupported = true)
+public class VotingVoteServlet extends AsyncVotingServlet {
 
 	/**
 	 * Konstanta koja se koristi prilikom serijalizacije objekata ovog razreda
 	 */
 	private static final long serialVersionUID = 1L;
 
-	protected void doGet(HttpServletRequest request, HttpServletResponse response)
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * odbijaju li se ponovljeni glasovi
+	 */
+	public static final String DEDUPE_ENABLED_PARAM = "vote.dedupe.enabled";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * najveća veličina filtra ponovljenih glasova (u oktetima)
+	 */
+	public static final String DEDUPE_MAX_BYTES_PARAM = "vote.dedupe.maxBytes";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * najveća vjerojatnost lažno pozitivnog odgovora filtra ponovljenih glasova
+	 */
+	public static final String DEDUPE_FALSE_POSITIVE_RATE_PARAM = "vote.dedupe.falsePositiveRate";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * broj minuta kroz koje se glas pamti
+	 */
+	public static final String DEDUPE_WINDOW_MINUTES_PARAM = "vote.dedupe.windowMinutes";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * broj minuta kroz koje se glas pamti i kada se filtar popuni
+	 */
+	public static final String DEDUPE_MIN_ROTATION_MINUTES_PARAM = "vote.dedupe.minRotationMinutes";
+
+	/**
+	 * Konstanta koja predstavlja naziv parametra konteksta kojim se određuje
+	 * naziv kolačića čija je vrijednost dio otiska klijenta
+	 */
+	public static final String DEDUPE_CLIENT_COOKIE_PARAM = "vote.dedupe.clientCookie";
+
+	/**
+	 * Konstanta koja predstavlja najveću veličinu filtra ukoliko ona nije
+	 * zadana parametrom konteksta
+	 */
+	private static final long DEFAULT_DEDUPE_MAX_BYTES = 1024 * 1024;
+
+	/**
+	 * Konstanta koja predstavlja najveću vjerojatnost lažno pozitivnog
+	 * odgovora ukoliko ona nije zadana parametrom konteksta
+	 */
+	private static final double DEFAULT_DEDUPE_FALSE_POSITIVE_RATE = 0.001;
+
+	/**
+	 * Konstanta koja predstavlja broj minuta kroz koje se glas pamti ukoliko
+	 * on nije zadan parametrom konteksta
+	 */
+	private static final long DEFAULT_DEDUPE_WINDOW_MINUTES = 60;
+
+	/**
+	 * Konstanta koja predstavlja broj minuta kroz koje se glas pamti i kada se
+	 * filtar popuni, ukoliko on nije zadan parametrom konteksta
+	 */
+	private static final long DEFAULT_DEDUPE_MIN_ROTATION_MINUTES = 15;
+
+	/** Konstanta koja predstavlja ime mjerača broja zapamćenih glasova */
+	private static final String REMEMBERED_GAUGE = "vote.dedupe.remembered";
+
+	/**
+	 * Članska varijabla koja predstavlja provjeru ponovljenih glasova ili
+	 * <code>null</code> ukoliko je provjera isključena
+	 */
+	private VoteDeduplicator deduplicator;
+
+	@Override
+	public void init() throws ServletException {
+		super.init();
+		String enabled = getServletContext().getInitParameter(DEDUPE_ENABLED_PARAM);
+		if (enabled != null && !Boolean.parseBoolean(enabled)) {
+			return;
+		}
+
+		String maxBytes = getServletContext().getInitParameter(DEDUPE_MAX_BYTES_PARAM);
+		String falsePositiveRate = getServletContext().getInitParameter(DEDUPE_FALSE_POSITIVE_RATE_PARAM);
+		String windowMinutes = getServletContext().getInitParameter(DEDUPE_WINDOW_MINUTES_PARAM);
+		String minRotationMinutes = getServletContext().getInitParameter(DEDUPE_MIN_ROTATION_MINUTES_PARAM);
+		String clientCookie = getServletContext().getInitParameter(DEDUPE_CLIENT_COOKIE_PARAM);
+		try {
+			deduplicator = new VoteDeduplicator(
+					maxBytes == null ? DEFAULT_DEDUPE_MAX_BYTES : Long.parseLong(maxBytes),
+					falsePositiveRate == null ? DEFAULT_DEDUPE_FALSE_POSITIVE_RATE
+							: Double.parseDouble(falsePositiveRate),
+					TimeUnit.MINUTES.toMillis(windowMinutes == null ? DEFAULT_DEDUPE_WINDOW_MINUTES
+							: Long.parseLong(windowMinutes)),
+					TimeUnit.MINUTES.toMillis(minRotationMinutes == null ? DEFAULT_DEDUPE_MIN_ROTATION_MINUTES
+							: Long.parseLong(minRotationMinutes)),
+					clientCookie == null || clientCookie.trim().isEmpty() ? null : clientCookie.trim());
+		} catch (IllegalArgumentException e) {
+			throw new ServletException("Neispravni parametri provjere ponovljenih glasova", e);
+		}
+		MetricsRegistry.registerGauge(REMEMBERED_GAUGE, deduplicator.getFilter()::getInsertions);
+	}
+
+	@Override
+	public void destroy() {
+		if (deduplicator != null) {
+			MetricsRegistry.removeGauge(REMEMBERED_GAUGE);
+		}
+	}
+
+	@Override
+	protected void processGet(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
 		Integer pollOptionID = ServletUtil.checkAndGetValue(request, "id");
 		Integer pollID = ServletUtil.checkAndGetValue(request, "pollID");
 
 		if (pollOptionID == null || pollID == null) {
 			response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+			return;
+		}
+
+		Reservation reservation = null;
+		if (deduplicator != null) {
+			reservation = deduplicator.reserve(request, pollID);
+			if (reservation == null) {
+				ServletUtil.sendVotingError(request, response, "Nažalost, u ovoj anketi ste već glasali.");
+				return;
+			}
+		}
+
+		boolean voted = false;
+		try {
+			voted = DAOProvider.getDao().updateVotesCount(pollOptionID, pollID);
+		} finally {
+			if (reservation != null) {
+				if (voted) {
+					reservation.commit();
+				} else {
+					reservation.release();
+				}
+			}
 		}
 
-		if (!DAOProvider.getDao().updateVotesCount(pollOptionID, pollID)) {
+		if (!voted) {
 			ServletUtil.sendVotingError(request, response,
 					String.format(
 							"Nažalost, nismo uspjeli zabilježiti Vaš glas jer u našoj bazi ne postoji odgovor sa pollID=%d i id=%d",
 							pollID, pollOptionID));
 			return;
 		}
+		VoteEvents.fireVote(pollID, pollOptionID);
 
 		response.sendRedirect(request.getContextPath() + "/servleti/glasanje-rezultati?pollID=" + pollID);
 	}
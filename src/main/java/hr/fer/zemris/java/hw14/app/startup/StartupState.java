@@ -0,0 +1,221 @@
+package hr.fer.zemris.java.hw14.app.startup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji modelira stanje pokretanja aplikacije. Pokretanje se sastoji od
+ * faza (npr. čitanje postavki, stvaranje bazena veza, migracije sheme) koje
+ * se izvode metodom {@link #phase(String, Phase)}, a trajanje svake faze
+ * pamti se i objavljuje unutar {@link MetricsRegistry} kao mjerač
+ * "startup.<i>imeFaze</i>Millis". Nakon uspješnog pokretanja aplikacija se
+ * proglašava spremnom metodom {@link #markReady()}, a nakon neuspješnog
+ * metodom {@link #markFailed(Throwable)}.
+ * <p>
+ * Primjerak ovog razreda pohranjuje se kao atribut konteksta sa imenom
+ * {@value #ATTRIBUTE}, a koriste ga filtar i servlet koji odgovaraju na
+ * pitanje je li aplikacija spremna za obradu zahtjeva.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class StartupState {
+
+	/**
+	 * Konstanta koja predstavlja ime atributa konteksta pod kojim je pohranjeno
+	 * stanje pokretanja
+	 */
+	public static final String ATTRIBUTE = "hr.fer.zemris.startupState";
+
+	/** Konstanta koja predstavlja prefiks imena mjerača */
+	private static final String GAUGE_PREFIX = "startup.";
+
+	/**
+	 * Enumeracija koja modelira moguća stanja pokretanja aplikacije.
+	 *
+	 * @author Davor Češljaš
+	 */
+	public enum Status {
+		/** Aplikacija se pokreće */
+		STARTING,
+		/** Aplikacija je spremna za obradu zahtjeva */
+		READY,
+		/** Pokretanje aplikacije nije uspjelo */
+		FAILED
+	}
+
+	/** Članska varijabla koja predstavlja trenutno stanje pokretanja */
+	private volatile Status status = Status.STARTING;
+
+	/**
+	 * Članska varijabla koja predstavlja razlog neuspjelog pokretanja ili
+	 * <code>null</code>
+	 */
+	private volatile Throwable failure;
+
+	/**
+	 * Članska varijabla koja predstavlja trenutak početka pokretanja dobiven
+	 * pozivom {@link System#nanoTime()}
+	 */
+	private final long startedAt = System.nanoTime();
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi imena faza, a
+	 * vrijednosti njihova trajanja u milisekundama, redom kojim su faze
+	 * završile
+	 */
+	private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	/** Članska varijabla koja predstavlja imena registriranih mjerača */
+	private final List<String> gauges = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Metoda koja izvodi fazu pokretanja <b>phase</b> te bilježi njeno
+	 * trajanje pod imenom <b>name</b>. Trajanje se bilježi i ukoliko faza
+	 * baci iznimku.
+	 *
+	 * @param <T>
+	 *            tip rezultata faze
+	 * @param <E>
+	 *            tip iznimke koju faza može baciti
+	 * @param name
+	 *            ime faze
+	 * @param phase
+	 *            faza pokretanja
+	 * @return rezultat faze
+	 * @throws E
+	 *             ukoliko faza baci iznimku
+	 */
+	public <T, E extends Exception> T phase(String name, Phase<T, E> phase) throws E {
+		long start = System.nanoTime();
+		try {
+			return phase.run();
+		} finally {
+			record(name + "Millis", (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	/**
+	 * Metoda koja aplikaciju proglašava spremnom za obradu zahtjeva te
+	 * bilježi ukupno trajanje pokretanja.
+	 */
+	public void markReady() {
+		record("totalMillis", (System.nanoTime() - startedAt) / 1_000_000);
+		status = Status.READY;
+	}
+
+	/**
+	 * Metoda koja bilježi da pokretanje aplikacije nije uspjelo.
+	 *
+	 * @param failure
+	 *            razlog neuspjelog pokretanja
+	 */
+	public void markFailed(Throwable failure) {
+		this.failure = failure;
+		status = Status.FAILED;
+	}
+
+	/**
+	 * Metoda koja dohvaća trenutno stanje pokretanja
+	 *
+	 * @return trenutno stanje pokretanja
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Metoda koja provjerava je li aplikacija spremna za obradu zahtjeva
+	 *
+	 * @return <code>true</code> ukoliko je aplikacija spremna,
+	 *         <code>false</code> inače
+	 */
+	public boolean isReady() {
+		return status == Status.READY;
+	}
+
+	/**
+	 * Metoda koja dohvaća razlog neuspjelog pokretanja
+	 *
+	 * @return razlog neuspjelog pokretanja ili <code>null</code>
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Metoda koja dohvaća trajanja završenih faza
+	 *
+	 * @return mapa čiji su ključevi imena faza, a vrijednosti trajanja u
+	 *         milisekundama
+	 */
+	public Map<String, Long> getPhaseMillis() {
+		synchronized (phaseMillis) {
+			return new LinkedHashMap<>(phaseMillis);
+		}
+	}
+
+	/**
+	 * Metoda koja iz {@link MetricsRegistry} uklanja sve mjerače koje je
+	 * registrirao ovaj primjerak.
+	 */
+	public void removeGauges() {
+		synchronized (gauges) {
+			gauges.forEach(MetricsRegistry::removeGauge);
+			gauges.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(status.name());
+		if (failure != null) {
+			sb.append(": ").append(failure);
+		}
+		sb.append('\n');
+		getPhaseMillis().forEach((name, millis) -> sb.append(name).append(' ').append(millis).append('\n'));
+		return sb.toString();
+	}
+
+	/**
+	 * Pomoćna metoda koja bilježi trajanje i objavljuje ga kao mjerač.
+	 *
+	 * @param name
+	 *            ime trajanja
+	 * @param millis
+	 *            trajanje u milisekundama
+	 */
+	private void record(String name, long millis) {
+		phaseMillis.put(name, millis);
+		MetricsRegistry.registerGauge(GAUGE_PREFIX + name, () -> millis);
+		gauges.add(GAUGE_PREFIX + name);
+	}
+
+	/**
+	 * Funkcijsko sučelje koje modelira jednu fazu pokretanja aplikacije.
+	 *
+	 * @author Davor Češljaš
+	 *
+	 * @param <T>
+	 *            tip rezultata faze
+	 * @param <E>
+	 *            tip iznimke koju faza može baciti
+	 */
+	@FunctionalInterface
+	public interface Phase<T, E extends Exception> {
+
+		/**
+		 * Metoda koja izvodi fazu
+		 *
+		 * @return rezultat faze
+		 * @throws E
+		 *             ukoliko faza ne uspije
+		 */
+		T run() throws E;
+	}
+}
@@ -0,0 +1,176 @@
+package hr.fer.zemris.java.hw14.app.util;
+
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji implementira sučelje {@link Executor}, a koji se koristi za
+ * asinkronu obradu zahtjeva. Broj zadataka koji se istovremeno izvode ili
+ * čekaju na izvođenje ograničen je na <b>threads</b> + <b>maxQueued</b>, a
+ * zadatak koji premaši tu granicu odbija se iznimkom
+ * {@link RejectedExecutionException} i broji brojačem "async.rejected" unutar
+ * {@link MetricsRegistry}.
+ * <p>
+ * Ukoliko se to zatraži, a platforma to podržava (Java 21 i novije), zadaci se
+ * izvode na virtualnim dretvama. Virtualne dretve se dohvaćaju refleksijom,
+ * kako bi se aplikacija i dalje mogla prevesti i pokrenuti na Javi 8. Na
+ * virtualnim dretvama svi prihvaćeni zadaci izvode se istovremeno, a broj
+ * istovremenih pristupa bazi podataka ograničava bazen veza. Inače se zadaci
+ * izvode na <b>threads</b> običnih dretvi, a ostali prihvaćeni zadaci čekaju u
+ * redu.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class AsyncExecutor implements Executor, Closeable {
+
+	/**
+	 * Konstanta koja predstavlja broj sekundi koliko se prilikom zatvaranja
+	 * čeka na završetak zadataka
+	 */
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+	/** Konstanta koja predstavlja brojač odbijenih zadataka */
+	private static final LongAdder REJECTED = MetricsRegistry.counter("async.rejected");
+
+	/** Članska varijabla koja predstavlja izvršitelja koji izvodi zadatke */
+	private final ExecutorService delegate;
+
+	/**
+	 * Članska varijabla koja predstavlja dozvole za zadatke koji se izvode ili
+	 * čekaju na izvođenje
+	 */
+	private final Semaphore permits;
+
+	/** Članska varijabla koja predstavlja najveći broj prihvaćenih zadataka */
+	private final int maxTasks;
+
+	/**
+	 * Članska varijabla koja predstavlja zastavicu koja određuje izvode li se
+	 * zadaci na virtualnim dretvama
+	 */
+	private final boolean virtual;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param threads
+	 *            broj dretvi koje izvode zadatke
+	 * @param maxQueued
+	 *            najveći broj zadataka koji čekaju na izvođenje
+	 * @param preferVirtual
+	 *            zastavica koja određuje koriste li se virtualne dretve, ukoliko
+	 *            ih platforma podržava
+	 */
+	public AsyncExecutor(int threads, int maxQueued, boolean preferVirtual) {
+		ExecutorService virtualExecutor = preferVirtual ? newVirtualThreadExecutor() : null;
+		this.virtual = virtualExecutor != null;
+		this.delegate = virtual ? virtualExecutor : newPlatformThreadExecutor(threads);
+		this.maxTasks = threads + maxQueued;
+		this.permits = new Semaphore(maxTasks);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (!permits.tryAcquire()) {
+			REJECTED.increment();
+			throw new RejectedExecutionException("Dosegnut je najveći broj zadataka: " + maxTasks);
+		}
+
+		try {
+			delegate.execute(() -> {
+				try {
+					command.run();
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			REJECTED.increment();
+			throw e;
+		}
+	}
+
+	/**
+	 * Metoda koja dohvaća broj zadataka koji se izvode ili čekaju na izvođenje
+	 *
+	 * @return broj zadataka koji se izvode ili čekaju na izvođenje
+	 */
+	public int getInFlight() {
+		return maxTasks - permits.availablePermits();
+	}
+
+	/**
+	 * Metoda koja provjerava izvode li se zadaci na virtualnim dretvama
+	 *
+	 * @return <code>true</code> ukoliko se zadaci izvode na virtualnim
+	 *         dretvama, <code>false</code> inače
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * {@inheritDoc} Novi zadaci se više ne prihvaćaju, a na završetak već
+	 * prihvaćenih čeka se najviše {@value #SHUTDOWN_TIMEOUT_SECONDS} sekundi.
+	 */
+	@Override
+	public void close() {
+		delegate.shutdown();
+		try {
+			if (!delegate.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				delegate.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			delegate.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara izvršitelja sa <b>threads</b> običnih dretvi
+	 * koje se gase nakon minute neaktivnosti
+	 *
+	 * @param threads
+	 *            broj dretvi
+	 * @return izvršitelj sa <b>threads</b> običnih dretvi
+	 */
+	private static ExecutorService newPlatformThreadExecutor(int threads) {
+		AtomicInteger counter = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), r -> {
+					Thread thread = new Thread(r, "async-request-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Pomoćna metoda koja refleksijom stvara izvršitelja koji svaki zadatak
+	 * izvodi na novoj virtualnoj dretvi
+	 *
+	 * @return izvršitelj koji zadatke izvodi na virtualnim dretvama ili
+	 *         <code>null</code> ukoliko platforma ne podržava virtualne dretve
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+}
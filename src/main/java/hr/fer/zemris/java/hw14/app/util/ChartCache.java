@@ -0,0 +1,174 @@
+package hr.fer.zemris.java.hw14.app.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Razred koji modelira priručnu memoriju već izgeneriranih slika kružnih
+ * dijagrama. Svaka slika sprema se pod ključem (npr. identifikatorom ankete)
+ * zajedno sa inačicom podataka iz kojih je izgenerirana. Inačica se najčešće
+ * izračunava iz trenutnog broja glasova pojedinih odgovora uzastopnim
+ * pozivima metode {@link ServletUtil#updateVotesVersion(long,
+ * hr.fer.zemris.java.hw14.app.models.PollOption)}, pa slika postaje nevažeća
+ * čim se broj glasova promijeni.
+ * <p>
+ * Ukupna veličina svih spremljenih slika (u oktetima) ograničena je. Ukoliko
+ * spremanje nove slike prekorači to ograničenje, izbacuju se one slike koje
+ * su najdulje vremena nekorištene. Sve metode ovog razreda su sinkronizirane
+ * te ga je moguće koristiti iz više dretvi.
+ * </p>
+ *
+ * @see ServletUtil
+ *
+ * @author Davor Češljaš
+ */
+public class ChartCache {
+
+	/**
+	 * Članska varijabla koja predstavlja mapu spremljenih slika, a koja je
+	 * poredana prema zadnjem pristupu
+	 */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Članska varijabla koja predstavlja najveću dozvoljenu ukupnu veličinu
+	 * spremljenih slika u oktetima
+	 */
+	private final long maxBytes;
+
+	/**
+	 * Članska varijabla koja predstavlja trenutnu ukupnu veličinu spremljenih
+	 * slika u oktetima
+	 */
+	private long currentBytes;
+
+	/** Članska varijabla koja predstavlja broj pronađenih slika */
+	private final LongAdder hits = new LongAdder();
+
+	/** Članska varijabla koja predstavlja broj nepronađenih slika */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param maxBytes
+	 *            najveća dozvoljena ukupna veličina spremljenih slika u
+	 *            oktetima
+	 */
+	public ChartCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Metoda koja dohvaća sliku spremljenu pod ključem <b>key</b>, ali samo
+	 * ukoliko je ona izgenerirana iz podataka inačice <b>version</b>. U
+	 * suprotnom metoda vraća <code>null</code>
+	 *
+	 * @param key
+	 *            ključ pod kojim je slika spremljena
+	 * @param version
+	 *            inačica podataka iz kojih je slika morala biti izgenerirana
+	 * @return polje okteta koje predstavlja sliku ili <code>null</code>
+	 */
+	public synchronized byte[] get(String key, long version) {
+		Entry entry = entries.get(key);
+		if (entry == null || entry.version != version) {
+			misses.increment();
+			return null;
+		}
+
+		hits.increment();
+		return entry.image;
+	}
+
+	/**
+	 * Metoda koja sprema sliku <b>image</b> pod ključem <b>key</b>. Prethodno
+	 * spremljena slika pod istim ključem se izbacuje. Slike veće od najveće
+	 * dozvoljene ukupne veličine se ne spremaju.
+	 *
+	 * @param key
+	 *            ključ pod kojim se slika sprema
+	 * @param version
+	 *            inačica podataka iz kojih je slika izgenerirana
+	 * @param image
+	 *            polje okteta koje predstavlja sliku
+	 */
+	public synchronized void put(String key, long version, byte[] image) {
+		Entry previous = entries.remove(key);
+		if (previous != null) {
+			currentBytes -= previous.image.length;
+		}
+
+		if (image.length > maxBytes) {
+			return;
+		}
+
+		entries.put(key, new Entry(version, image));
+		currentBytes += image.length;
+
+		for (Iterator<Entry> it = entries.values().iterator(); currentBytes > maxBytes && it.hasNext();) {
+			currentBytes -= it.next().image.length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Metoda koja dohvaća trenutnu ukupnu veličinu spremljenih slika u
+	 * oktetima
+	 *
+	 * @return trenutnu ukupnu veličinu spremljenih slika u oktetima
+	 */
+	public synchronized long getCurrentBytes() {
+		return currentBytes;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj poziva metode {@link #get(String, long)} u
+	 * kojima je slika pronađena
+	 *
+	 * @return broj pronađenih slika
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Metoda koja dohvaća broj poziva metode {@link #get(String, long)} u
+	 * kojima slika nije pronađena
+	 *
+	 * @return broj nepronađenih slika
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Pomoćni statički razred koji modelira jednu spremljenu sliku zajedno sa
+	 * inačicom podataka iz kojih je izgenerirana.
+	 */
+	private static class Entry {
+
+		/**
+		 * Članska varijabla koja predstavlja inačicu podataka iz kojih je
+		 * slika izgenerirana
+		 */
+		private final long version;
+
+		/** Članska varijabla koja predstavlja polje okteta slike */
+		private final byte[] image;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param version
+		 *            inačica podataka iz kojih je slika izgenerirana
+		 * @param image
+		 *            polje okteta slike
+		 */
+		public Entry(long version, byte[] image) {
+			this.version = version;
+			this.image = image;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package hr.fer.zemris.java.hw14.app.util;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import hr.fer.zemris.java.hw14.metrics.LatencyHistogram;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji se koristi za iscrtavanje slika kružnih dijagrama na zasebnom
+ * bazenu dretvi ograničene veličine, kako iscrtavanje ne bi zauzelo sve
+ * dretve poslužitelja. Bazen ima <b>threads</b> dretvi i red od najviše
+ * <b>maxQueued</b> slika koje čekaju na iscrtavanje. Ukoliko je red pun,
+ * metoda {@link #render(String, long, Supplier)} baca iznimku
+ * {@link RejectedExecutionException}.
+ * <p>
+ * Istovremeni zahtjevi za slikom istog ključa i inačice podataka se spajaju,
+ * odnosno svi dobivaju istu {@link CompletableFuture} i slika se iscrtava samo
+ * jednom. Unutar {@link MetricsRegistry} bilježe se trajanje iscrtavanja
+ * ("chart.render"), broj odbijenih ("chart.rejected") i spojenih
+ * ("chart.coalesced") zahtjeva, a metodama {@link #getQueueDepth()} i
+ * {@link #getActiveCount()} može se dohvatiti trenutno stanje bazena.
+ * </p>
+ *
+ * @see ServletUtil#createPieChart(String, org.jfree.data.general.PieDataset)
+ *
+ * @author Davor Češljaš
+ */
+public class ChartRenderer implements Closeable {
+
+	/** Konstanta koja predstavlja histogram trajanja iscrtavanja */
+	private static final LatencyHistogram RENDER_TIME = MetricsRegistry.histogram("chart.render");
+
+	/** Konstanta koja predstavlja brojač odbijenih zahtjeva */
+	private static final LongAdder REJECTED = MetricsRegistry.counter("chart.rejected");
+
+	/** Konstanta koja predstavlja brojač spojenih zahtjeva */
+	private static final LongAdder COALESCED = MetricsRegistry.counter("chart.coalesced");
+
+	/** Članska varijabla koja predstavlja bazen dretvi za iscrtavanje */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Članska varijabla koja predstavlja mapu čiji su ključevi ključevi i
+	 * inačice slika koje se trenutno iscrtavaju, a vrijednosti njihovi
+	 * rezultati
+	 */
+	private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param threads
+	 *            broj dretvi za iscrtavanje
+	 * @param maxQueued
+	 *            najveći broj slika koje čekaju na iscrtavanje
+	 */
+	public ChartRenderer(int threads, int maxQueued) {
+		AtomicInteger counter = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, maxQueued)), r -> {
+					Thread thread = new Thread(r, "chart-render-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Metoda koja iscrtava sliku pod ključem <b>key</b> iz podataka inačice
+	 * <b>version</b> pozivom funkcije <b>renderer</b>. Ukoliko se ista slika
+	 * već iscrtava, vraća se postojeći rezultat.
+	 *
+	 * @param key
+	 *            ključ slike (npr. identifikator ankete)
+	 * @param version
+	 *            inačica podataka iz kojih se slika iscrtava
+	 * @param renderer
+	 *            funkcija koja iscrtava sliku
+	 * @return rezultat iscrtavanja
+	 * @throws RejectedExecutionException
+	 *             ukoliko je red slika koje čekaju na iscrtavanje pun
+	 */
+	public CompletableFuture<byte[]> render(String key, long version, Supplier<byte[]> renderer) {
+		String id = key + ":" + version;
+		CompletableFuture<byte[]> created = new CompletableFuture<>();
+		CompletableFuture<byte[]> existing = inFlight.putIfAbsent(id, created);
+		if (existing != null) {
+			COALESCED.increment();
+			return existing;
+		}
+
+		try {
+			executor.execute(() -> {
+				long start = System.nanoTime();
+				try {
+					created.complete(renderer.get());
+				} catch (RuntimeException e) {
+					created.completeExceptionally(e);
+				} finally {
+					RENDER_TIME.recordSince(start);
+					inFlight.remove(id, created);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			REJECTED.increment();
+			inFlight.remove(id, created);
+			created.completeExceptionally(e);
+			throw e;
+		}
+
+		return created;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj slika koje čekaju na iscrtavanje
+	 *
+	 * @return broj slika koje čekaju na iscrtavanje
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * Metoda koja dohvaća broj slika koje se upravo iscrtavaju
+	 *
+	 * @return broj slika koje se upravo iscrtavaju
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
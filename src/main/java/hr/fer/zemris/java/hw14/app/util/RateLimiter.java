@@ -0,0 +1,251 @@
+package hr.fer.zemris.java.hw14.app.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Razred koji modelira ograničavanje broja zahtjeva po ključu (npr. adresi
+ * klijenta) algoritmom kante sa žetonima. Svaki ključ ima kantu sa najviše
+ * <b>capacity</b> žetona koja se puni brzinom od <b>refillPerSecond</b>
+ * žetona u sekundi, a svaki zahtjev troši jedan žeton.
+ * <p>
+ * Stanje kante pamti se kao jedan broj, teoretsko vrijeme u kojem bi kanta
+ * ponovno bila puna (algoritam GCRA), pa se zahtjev propušta jednom CAS
+ * operacijom, bez zaključavanja. Kante su raspodijeljene u {@value #STRIPES}
+ * zasebnih mapa prema sažetku ključa, a svaka mapa može sadržavati najviše
+ * <b>maxKeys</b> / {@value #STRIPES} kanti. Kada se mapa popuni, iz nje se
+ * izbacuju kante koje su ponovno pune, budući da se one ne razlikuju od novih
+ * kanti. Mapa se pritom pregledava najviše jednom u
+ * {@value #SWEEP_INTERVAL_NANOS} nanosekundi, pa se cijena pregleda
+ * raspodjeljuje na mnogo zahtjeva. Ukoliko u mapi nema mjesta, kanta novog
+ * ključa pamti se u zasebnoj, maloj mapi preljeva sa najviše
+ * <b>maxKeys</b> / {@value #OVERFLOW_DIVISOR} kanti, iz koje se izbacuje
+ * najdulje nekorištena kanta. Tako svaki ključ i tada ima vlastitu kantu, pa
+ * napadač koji mijenja ključeve (npr. adrese iz raspona IPv6 adresa) ne može
+ * potrošiti žetone ostalih novih klijenata, a zauzeće memorije ne raste.
+ * Izbačeni ključ prilikom sljedećeg zahtjeva dobiva punu kantu.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class RateLimiter {
+
+	/** Konstanta koja predstavlja broj zasebnih mapa kanti */
+	private static final int STRIPES = 32;
+
+	/**
+	 * Konstanta koja predstavlja najmanji razmak između dva pregleda iste
+	 * mape u nanosekundama
+	 */
+	private static final long SWEEP_INTERVAL_NANOS = 100_000_000L;
+
+	/**
+	 * Konstanta koja predstavlja omjer najvećeg ukupnog broja kanti i
+	 * najvećeg broja kanti u mapi preljeva
+	 */
+	private static final int OVERFLOW_DIVISOR = 8;
+
+	/**
+	 * Članska varijabla koja predstavlja vrijeme u nanosekundama potrebno za
+	 * jedan žeton
+	 */
+	private final long intervalNanos;
+
+	/**
+	 * Članska varijabla koja predstavlja vrijeme u nanosekundama za koje
+	 * teoretsko vrijeme pune kante smije biti u budućnosti
+	 */
+	private final long burstNanos;
+
+	/** Članska varijabla koja predstavlja najveći broj kanti jedne mape */
+	private final int maxKeysPerStripe;
+
+	/** Članska varijabla koja predstavlja mape kanti */
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	/**
+	 * Članska varijabla koja predstavlja mapu preljeva čiji su ključevi
+	 * ključevi za koje u mapi kanti nema mjesta, a vrijednosti njihove kante.
+	 * Mapa je poredana prema zadnjem pristupu.
+	 */
+	private final Map<String, AtomicLong> overflow;
+
+	/**
+	 * Članska varijabla koja predstavlja brojač zahtjeva koji su koristili
+	 * kantu preljeva
+	 */
+	private final LongAdder overflowRequests = new LongAdder();
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param capacity
+	 *            najveći broj žetona u kanti
+	 * @param refillPerSecond
+	 *            broj žetona kojima se kanta puni u sekundi
+	 * @param maxKeys
+	 *            najveći ukupni broj kanti izvan mape preljeva
+	 * @throws IllegalArgumentException
+	 *             ukoliko neki od parametara nije pozitivan
+	 */
+	public RateLimiter(int capacity, double refillPerSecond, int maxKeys) {
+		if (capacity <= 0 || !(refillPerSecond > 0) || maxKeys <= 0) {
+			throw new IllegalArgumentException("Neispravni parametri: capacity=" + capacity + ", refillPerSecond="
+					+ refillPerSecond + ", maxKeys=" + maxKeys);
+		}
+
+		this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+		this.burstNanos = intervalNanos * (capacity - 1);
+		this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+
+		int maxOverflowKeys = Math.max(STRIPES, maxKeys / OVERFLOW_DIVISOR);
+		this.overflow = new LinkedHashMap<String, AtomicLong>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, AtomicLong> eldest) {
+				return size() > maxOverflowKeys;
+			}
+		};
+	}
+
+	/**
+	 * Metoda koja pokušava potrošiti jedan žeton iz kante ključa <b>key</b>.
+	 *
+	 * @param key
+	 *            ključ
+	 * @return 0 ukoliko je žeton potrošen, odnosno broj nanosekundi nakon
+	 *         kojeg će žeton biti dostupan ukoliko je kanta prazna
+	 */
+	public long tryAcquire(String key) {
+		long now = System.nanoTime();
+		Stripe stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+		AtomicLong bucket = stripe.buckets.get(key);
+		if (bucket == null) {
+			bucket = stripe.create(key, now);
+			if (bucket == null) {
+				overflowRequests.increment();
+				synchronized (overflow) {
+					bucket = overflow.computeIfAbsent(key, k -> new AtomicLong(now));
+				}
+			}
+		}
+
+		while (true) {
+			long full = bucket.get();
+			long from = full - now < 0 ? now : full;
+			long wait = from - now - burstNanos;
+			if (wait > 0) {
+				return wait;
+			}
+			if (bucket.compareAndSet(full, from + intervalNanos)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Metoda koja dohvaća broj kanti koje se trenutno pamte
+	 *
+	 * @return broj kanti koje se trenutno pamte
+	 */
+	public int getKeyCount() {
+		int count = 0;
+		for (Stripe stripe : stripes) {
+			count += stripe.size.get();
+		}
+		return count;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj zahtjeva koji su, zbog nedostatka mjesta u
+	 * mapi, koristili kantu iz mape preljeva
+	 *
+	 * @return broj zahtjeva koji su koristili kantu iz mape preljeva
+	 */
+	public long getOverflowCount() {
+		return overflowRequests.sum();
+	}
+
+	/**
+	 * Pomoćni razred koji modelira jednu mapu kanti zajedno sa njenom
+	 * veličinom.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private class Stripe {
+
+		/**
+		 * Članska varijabla koja predstavlja mapu čiji su ključevi ključevi, a
+		 * vrijednosti teoretska vremena pune kante
+		 */
+		private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+		/** Članska varijabla koja predstavlja broj kanti u mapi */
+		private final AtomicInteger size = new AtomicInteger();
+
+		/**
+		 * Članska varijabla koja predstavlja trenutak (dobiven pozivom
+		 * {@link System#nanoTime()}) od kojeg je dozvoljen sljedeći pregled
+		 * mape
+		 */
+		private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+		/**
+		 * Metoda koja stvara kantu ključa <b>key</b>. Ukoliko je mapa puna, a
+		 * od prethodnog pregleda prošlo je dovoljno vremena, prvo se izbacuju
+		 * pune kante.
+		 *
+		 * @param key
+		 *            ključ
+		 * @param now
+		 *            trenutno vrijeme dobiveno pozivom {@link System#nanoTime()}
+		 * @return kanta ključa ili <code>null</code> ukoliko u mapi nema
+		 *         mjesta
+		 */
+		public AtomicLong create(String key, long now) {
+			if (size.get() >= maxKeysPerStripe) {
+				long sweep = nextSweep.get();
+				if (sweep - now > 0 || !nextSweep.compareAndSet(sweep, now + SWEEP_INTERVAL_NANOS)) {
+					return null;
+				}
+				evictIdle(now);
+				if (size.get() >= maxKeysPerStripe) {
+					return null;
+				}
+			}
+
+			AtomicLong created = new AtomicLong(now);
+			AtomicLong existing = buckets.putIfAbsent(key, created);
+			if (existing != null) {
+				return existing;
+			}
+			size.incrementAndGet();
+			return created;
+		}
+
+		/**
+		 * Pomoćna metoda koja iz mape izbacuje kante koje su ponovno pune.
+		 *
+		 * @param now
+		 *            trenutno vrijeme dobiveno pozivom {@link System#nanoTime()}
+		 */
+		private void evictIdle(long now) {
+			for (Iterator<AtomicLong> it = buckets.values().iterator(); it.hasNext();) {
+				if (it.next().get() - now <= 0) {
+					it.remove();
+					size.decrementAndGet();
+				}
+			}
+		}
+	}
+}
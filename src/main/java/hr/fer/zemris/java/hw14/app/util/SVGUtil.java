@@ -0,0 +1,232 @@
+package hr.fer.zemris.java.hw14.app.util;
+
+import java.util.List;
+import java.util.Locale;
+
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+
+/**
+ * Razred koji se koristi kao pomoćna biblioteka za stvaranje kružnih dijagrama
+ * u SVG formatu. Ovom razredu ne mogu se stvarati primjerci. Za razliku od
+ * metode {@link ServletUtil#createPieChart(String, org.jfree.data.general.PieDataset)}
+ * dijagram se ne iscrtava (niti koristi Java2D), nego se izravno iz odgovora
+ * na anketno pitanje zapisuje kao tekst, a iscrtava ga tek klijent u
+ * proizvoljnoj veličini.
+ * <p>
+ * Svaki odgovor prikazan je jednim isječkom čiji se naziv i broj glasova
+ * prikazuju prelaskom mišem preko isječka. Ispod dijagrama nalazi se legenda
+ * sa onoliko odgovora koliko stane u zadanu visinu.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class SVGUtil {
+
+	/** Konstanta koja predstavlja boje isječaka */
+	private static final String[] PALETTE = { "#ff5555", "#5555ff", "#55ff55", "#ffff55", "#ff55ff", "#55ffff",
+			"#ffafaf", "#808080", "#c00000", "#0000c0", "#00c000", "#c0c000", "#c000c0", "#00c0c0" };
+
+	/** Konstanta koja predstavlja visinu naslova u pikselima */
+	private static final int TITLE_HEIGHT = 30;
+
+	/** Konstanta koja predstavlja visinu jednog retka legende u pikselima */
+	private static final int LEGEND_ROW_HEIGHT = 16;
+
+	/**
+	 * Konstanta koja predstavlja udio visine dijagrama koji zauzima kružni
+	 * dijagram
+	 */
+	private static final double PIE_HEIGHT_RATIO = 0.65;
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private SVGUtil() {
+	}
+
+	/**
+	 * Metoda koja stvara kružni dijagram u SVG formatu iz odgovora
+	 * <b>pollOptions</b>.
+	 *
+	 * @param chartTitle
+	 *            naslov dijagrama
+	 * @param pollOptions
+	 *            odgovori na anketno pitanje
+	 * @param width
+	 *            širina dijagrama u pikselima
+	 * @param height
+	 *            visina dijagrama u pikselima
+	 * @return dijagram u SVG formatu
+	 */
+	public static String createPieChart(String chartTitle, List<PollOption> pollOptions, int width, int height) {
+		long total = 0;
+		for (PollOption pollOption : pollOptions) {
+			total += pollOption.getVotesCount();
+		}
+
+		double radius = Math.max(1, Math.min(width, height * PIE_HEIGHT_RATIO - TITLE_HEIGHT) / 2 - 10);
+		double cx = width / 2.0;
+		double cy = TITLE_HEIGHT + 5 + radius;
+
+		StringBuilder sb = new StringBuilder(256 + pollOptions.size() * 160);
+		sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"")
+				.append(height).append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+				.append("\" font-family=\"sans-serif\">\n");
+		sb.append("<rect width=\"100%\" height=\"100%\" fill=\"#ffffff\"/>\n");
+		sb.append("<text x=\"").append(format(cx)).append("\" y=\"22\" font-size=\"18\" text-anchor=\"middle\">")
+				.append(escape(chartTitle)).append("</text>\n");
+
+		if (total == 0) {
+			sb.append("<circle cx=\"").append(format(cx)).append("\" cy=\"").append(format(cy)).append("\" r=\"")
+					.append(format(radius)).append("\" fill=\"#e0e0e0\"/>\n");
+		} else {
+			double angle = -Math.PI / 2;
+			for (int i = 0; i < pollOptions.size(); i++) {
+				PollOption pollOption = pollOptions.get(i);
+				if (pollOption.getVotesCount() == 0) {
+					continue;
+				}
+				double sweep = 2 * Math.PI * pollOption.getVotesCount() / total;
+				appendSlice(sb, pollOption, color(i), cx, cy, radius, angle, sweep);
+				angle += sweep;
+			}
+		}
+
+		appendLegend(sb, pollOptions, cy + radius + 15, width, height);
+		return sb.append("</svg>\n").toString();
+	}
+
+	/**
+	 * Pomoćna metoda koja zapisuje jedan isječak kružnog dijagrama.
+	 *
+	 * @param sb
+	 *            spremnik u koji se zapisuje
+	 * @param pollOption
+	 *            odgovor koji isječak prikazuje
+	 * @param color
+	 *            boja isječka
+	 * @param cx
+	 *            x koordinata središta
+	 * @param cy
+	 *            y koordinata središta
+	 * @param radius
+	 *            polumjer
+	 * @param start
+	 *            početni kut u radijanima
+	 * @param sweep
+	 *            kut isječka u radijanima
+	 */
+	private static void appendSlice(StringBuilder sb, PollOption pollOption, String color, double cx, double cy,
+			double radius, double start, double sweep) {
+		if (sweep >= 2 * Math.PI - 1e-9) {
+			sb.append("<circle cx=\"").append(format(cx)).append("\" cy=\"").append(format(cy)).append("\" r=\"")
+					.append(format(radius)).append("\" fill=\"").append(color).append("\">");
+		} else {
+			double end = start + sweep;
+			sb.append("<path d=\"M").append(format(cx)).append(',').append(format(cy)).append(" L")
+					.append(format(cx + radius * Math.cos(start))).append(',')
+					.append(format(cy + radius * Math.sin(start))).append(" A").append(format(radius)).append(',')
+					.append(format(radius)).append(" 0 ").append(sweep > Math.PI ? 1 : 0).append(",1 ")
+					.append(format(cx + radius * Math.cos(end))).append(',')
+					.append(format(cy + radius * Math.sin(end))).append(" Z\" fill=\"").append(color)
+					.append("\" stroke=\"#ffffff\" stroke-width=\"0.5\">");
+		}
+		sb.append("<title>").append(escape(pollOption.getOptionTitle())).append(": ")
+				.append(pollOption.getVotesCount()).append("</title>");
+		sb.append(sweep >= 2 * Math.PI - 1e-9 ? "</circle>\n" : "</path>\n");
+	}
+
+	/**
+	 * Pomoćna metoda koja zapisuje legendu dijagrama. Ukoliko svi odgovori ne
+	 * stanu u zadanu visinu, zadnji redak legende sadrži broj izostavljenih
+	 * odgovora.
+	 *
+	 * @param sb
+	 *            spremnik u koji se zapisuje
+	 * @param pollOptions
+	 *            odgovori na anketno pitanje
+	 * @param top
+	 *            y koordinata početka legende
+	 * @param width
+	 *            širina dijagrama u pikselima
+	 * @param height
+	 *            visina dijagrama u pikselima
+	 */
+	private static void appendLegend(StringBuilder sb, List<PollOption> pollOptions, double top, int width,
+			int height) {
+		int rows = (int) Math.max(0, (height - top) / LEGEND_ROW_HEIGHT);
+		int shown = pollOptions.size() <= rows ? pollOptions.size() : Math.max(0, rows - 1);
+		double x = 10;
+
+		for (int i = 0; i < shown; i++) {
+			PollOption pollOption = pollOptions.get(i);
+			double y = top + i * LEGEND_ROW_HEIGHT;
+			sb.append("<rect x=\"").append(format(x)).append("\" y=\"").append(format(y))
+					.append("\" width=\"10\" height=\"10\" fill=\"").append(color(i)).append("\"/>");
+			sb.append("<text x=\"").append(format(x + 15)).append("\" y=\"").append(format(y + 10))
+					.append("\" font-size=\"12\">").append(escape(pollOption.getOptionTitle())).append(" (")
+					.append(pollOption.getVotesCount()).append(")</text>\n");
+		}
+
+		if (shown < pollOptions.size() && rows > 0) {
+			sb.append("<text x=\"").append(format(x)).append("\" y=\"")
+					.append(format(top + shown * LEGEND_ROW_HEIGHT + 10)).append("\" font-size=\"12\">… i još ")
+					.append(pollOptions.size() - shown).append("</text>\n");
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja dohvaća boju isječka sa indeksom <b>index</b>
+	 *
+	 * @param index
+	 *            indeks isječka
+	 * @return boja isječka
+	 */
+	private static String color(int index) {
+		return PALETTE[index % PALETTE.length];
+	}
+
+	/**
+	 * Pomoćna metoda koja broj zapisuje sa najviše dvije decimale
+	 *
+	 * @param value
+	 *            broj
+	 * @return zapis broja
+	 */
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.2f", value);
+	}
+
+	/**
+	 * Pomoćna metoda koja u nizu znakova <b>value</b> zamjenjuje znakove koji
+	 * imaju posebno značenje u XML-u
+	 *
+	 * @param value
+	 *            niz znakova
+	 * @return niz znakova prikladan za XML
+	 */
+	private static String escape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '"':
+				sb.append("&quot;");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -4,6 +4,7 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Comparator;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 import javax.servlet.ServletException;
@@ -24,8 +25,13 @@ import hr.fer.zemris.java.hw14.app.models.PollOption;
  * metode:
  * <ul>
  * <li>{@link #createPieChart(String, PieDataset)}</li>
+ * <li>{@link #createPieChart(String, PieDataset, int, int)}</li>
+ * <li>{@link #createPieChartJSON(String, List)}</li>
  * <li>{@link #checkAndGetValue(HttpServletRequest, String)}</li>
  * <li>{@link #sendVotingError(HttpServletRequest, HttpServletResponse, String)}</li>
+ * <li>{@link #forward(HttpServletRequest, HttpServletResponse, String)}</li>
+ * <li>{@link #updateVotesVersion(long, PollOption)}</li>
+ * <li>{@link #matchesETag(HttpServletRequest, String)}</li>
  * </ul>
  * 
  * @see PollOption
@@ -41,6 +47,32 @@ public class ServletUtil {
 	 */
 	private static final String IMAGE_EXTENSION = "png";
 
+	/**
+	 * Konstanta koja predstavlja početnu inačicu podataka koja se nadopunjuje
+	 * metodom {@link #updateVotesVersion(long, PollOption)}
+	 */
+	public static final long INITIAL_VOTES_VERSION = 0xcbf29ce484222325L;
+
+	/**
+	 * Konstanta koja predstavlja širinu slike kružnog dijagrama u pikselima
+	 * ukoliko ona nije zadana
+	 */
+	public static final int DEFAULT_CHART_WIDTH = 600;
+
+	/**
+	 * Konstanta koja predstavlja visinu slike kružnog dijagrama u pikselima
+	 * ukoliko ona nije zadana
+	 */
+	public static final int DEFAULT_CHART_HEIGHT = 500;
+
+	/**
+	 * Konstanta koja predstavlja ime atributa zahtjeva u koji metoda
+	 * {@link #forward(HttpServletRequest, HttpServletResponse, String)} u
+	 * asinkronom načinu rada sprema putanju resursa kojem se zahtjev
+	 * prosljeđuje
+	 */
+	public static final String DISPATCH_ATTRIBUTE = "hr.fer.zemris.asyncDispatch";
+
 	/**
 	 * Konstanta koja predstavlja primjerak razreda koji implementira sučelje
 	 * {@link Comparator}. Ovaj komparator primjerke razreda {@link PollOption}
@@ -62,7 +94,8 @@ public class ServletUtil {
 	 * naslov kružnog dijagrama metoda dobiva kroz parametre <b>dataset</b> i
 	 * <b>chartTitle</b>. Nakon što se uspješno stvori primjerak razreda
 	 * {@link JFreeChart}, on se pretvara u sliku formata
-	 * {@value #IMAGE_EXTENSION}.
+	 * {@value #IMAGE_EXTENSION} široku {@value #DEFAULT_CHART_WIDTH}, a visoku
+	 * {@value #DEFAULT_CHART_HEIGHT} piksela.
 	 *
 	 * @param chartTitle
 	 *            naslov koji će biti ispisan uz kružni dijagaram
@@ -72,6 +105,27 @@ public class ServletUtil {
 	 *         u formatu {@value #IMAGE_EXTENSION}
 	 */
 	public static byte[] createPieChart(String chartTitle, PieDataset dataset) {
+		return createPieChart(chartTitle, dataset, DEFAULT_CHART_WIDTH, DEFAULT_CHART_HEIGHT);
+	}
+
+	/**
+	 * Metoda koja se koristi za stvaranje primjerka razreda {@link JFreeChart}
+	 * koji predstavlja kružni dijagram te njegovo pretvaranje u sliku formata
+	 * {@value #IMAGE_EXTENSION} široku <b>width</b>, a visoku <b>height</b>
+	 * piksela.
+	 *
+	 * @param chartTitle
+	 *            naslov koji će biti ispisan uz kružni dijagaram
+	 * @param dataset
+	 *            podaci iz kojih se generira kružni dijagram
+	 * @param width
+	 *            širina slike u pikselima
+	 * @param height
+	 *            visina slike u pikselima
+	 * @return polje okteta koje predsatvlja sliku generiranog kružnog dijagrama
+	 *         u formatu {@value #IMAGE_EXTENSION}
+	 */
+	public static byte[] createPieChart(String chartTitle, PieDataset dataset, int width, int height) {
 		JFreeChart pieChart = ChartFactory.createPieChart3D(chartTitle, dataset, true, true, false);
 
 		PiePlot3D plot = (PiePlot3D) pieChart.getPlot();
@@ -79,24 +133,77 @@ public class ServletUtil {
 		plot.setDirection(Rotation.CLOCKWISE);
 		plot.setForegroundAlpha(1.0f);
 
-		return toImageBytes(pieChart);
+		return toImageBytes(pieChart, width, height);
+	}
+
+	/**
+	 * Metoda koja odgovore na anketno pitanje zapisuje kao JSON objekt, kako
+	 * bi ih klijent mogao sam iscrtati. Objekt sadrži naslov (ključ "title") te
+	 * polje odgovora (ključ "options"), a svaki odgovor sadrži identifikator,
+	 * naziv, link i broj glasova.
+	 *
+	 * @param chartTitle
+	 *            naslov dijagrama
+	 * @param pollOptions
+	 *            odgovori na anketno pitanje
+	 * @return odgovori zapisani kao JSON objekt
+	 */
+	public static String createPieChartJSON(String chartTitle, List<PollOption> pollOptions) {
+		StringBuilder sb = new StringBuilder(64 + pollOptions.size() * 96);
+		sb.append("{\"title\":").append(quote(chartTitle)).append(",\"options\":[");
+		for (int i = 0; i < pollOptions.size(); i++) {
+			PollOption pollOption = pollOptions.get(i);
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"id\":").append(pollOption.getId()).append(",\"title\":")
+					.append(quote(pollOption.getOptionTitle())).append(",\"link\":")
+					.append(quote(pollOption.getOptionLink())).append(",\"votes\":")
+					.append(pollOption.getVotesCount()).append('}');
+		}
+		return sb.append("]}").toString();
+	}
+
+	/**
+	 * Pomoćna metoda koja niz znakova <b>value</b> pretvara u JSON niz znakova
+	 *
+	 * @param value
+	 *            niz znakova
+	 * @return JSON niz znakova
+	 */
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
 	}
 
 	/**
 	 * Pomoćna metoda koja iz predanog parametra koji je primjerak razreda
 	 * {@link JFreeChart} stvara polje okteta koje predstavlja sliku kružnog
-	 * dijagrama formata {@value #IMAGE_EXTENSION}. Slika će biti široka 600, a
-	 * visoka 500 piksela i ovaj podatak nije moguće mijenjati
+	 * dijagrama formata {@value #IMAGE_EXTENSION} široku <b>width</b>, a visoku
+	 * <b>height</b> piksela.
 	 *
 	 * @param pieChart
 	 *            primjerak razreda {@link JFreeChart} koji modelira kružni
 	 *            dijagram koji se pretvara u sliku
+	 * @param width
+	 *            širina slike u pikselima
+	 * @param height
+	 *            visina slike u pikselima
 	 * @return polje okteta koje predstavlja sliku kružnog dijagrama formata
-	 *         {@value #IMAGE_EXTENSION}. Slika će biti široka 600, a visoka 500
-	 *         piksela i ovaj podatak nije moguće mijenjati
+	 *         {@value #IMAGE_EXTENSION}
 	 */
-	private static byte[] toImageBytes(JFreeChart pieChart) {
-		BufferedImage bim = pieChart.createBufferedImage(600, 500);
+	private static byte[] toImageBytes(JFreeChart pieChart, int width, int height) {
+		BufferedImage bim = pieChart.createBufferedImage(width, height);
 		ByteArrayOutputStream os = new ByteArrayOutputStream();
 
 		try {
@@ -162,6 +269,86 @@ public class ServletUtil {
 	public static void sendVotingError(HttpServletRequest request, HttpServletResponse response, String message)
 			throws ServletException, IOException {
 		request.setAttribute("message", message);
-		request.getRequestDispatcher("/WEB-INF/pages/voting-error.jsp").forward(request, response);
+		forward(request, response, "/WEB-INF/pages/voting-error.jsp");
+	}
+
+	/**
+	 * Metoda koja zahtjev prosljeđuje resursu sa putanjom <b>path</b>. Ukoliko
+	 * je zahtjev u asinkronom načinu rada, putanja se samo sprema u atribut
+	 * zahtjeva {@value #DISPATCH_ATTRIBUTE}, a zahtjev se prosljeđuje metodom
+	 * {@link javax.servlet.AsyncContext#dispatch(String)} nakon završetka
+	 * obrade. Inače se zahtjev odmah prosljeđuje preko
+	 * {@link javax.servlet.RequestDispatcher}.
+	 *
+	 * @param request
+	 *            primjerak razreda koji implementira sučelje
+	 *            {@link HttpServletRequest}, a koji modelira kontekst zahtjeva
+	 * @param response
+	 *            primjerak razreda koji implementira sučelje
+	 *            {@link HttpServletResponse}, a koji modelira kontekst odgovora
+	 * @param path
+	 *            putanja resursa kojem se zahtjev prosljeđuje
+	 * @throws ServletException
+	 *             ukoliko resurs kojemu delegiramo iscrtavanje baci ovu iznimku
+	 * @throws IOException
+	 *             ukoliko resurs kojemu delegiramo iscrtavanje baci ovu iznimku
+	 */
+	public static void forward(HttpServletRequest request, HttpServletResponse response, String path)
+			throws ServletException, IOException {
+		if (request.isAsyncStarted()) {
+			request.setAttribute(DISPATCH_ATTRIBUTE, path);
+			return;
+		}
+		request.getRequestDispatcher(path).forward(request, response);
+	}
+
+	/**
+	 * Metoda koja inačicu podataka <b>version</b> nadopunjuje identifikatorom
+	 * i brojem glasova odgovora <b>pollOption</b>. Uzastopnim pozivima ove
+	 * metode nad svim odgovorima, počevši od {@link #INITIAL_VOTES_VERSION},
+	 * dobiva se inačica podataka koja se mijenja čim se promijeni broj
+	 * glasova bilo kojeg odgovora, a koristi se kao ključ za priručnu memoriju
+	 * slika te za izradu HTTP zaglavlja "ETag". Odgovori pritom ne moraju
+	 * istovremeno biti u memoriji.
+	 *
+	 * @param version
+	 *            dosadašnja inačica podataka
+	 * @param pollOption
+	 *            odgovor na anketno pitanje kojim se inačica nadopunjuje
+	 * @return nadopunjenu inačicu podataka
+	 */
+	public static long updateVotesVersion(long version, PollOption pollOption) {
+		// 64-bitni FNV-1a sažetak nad identifikatorima i brojem glasova
+		version = (version ^ pollOption.getId()) * 0x100000001b3L;
+		return (version ^ pollOption.getVotesCount()) * 0x100000001b3L;
+	}
+
+	/**
+	 * Metoda koja provjerava sadrži li HTTP zaglavlje "If-None-Match" predanog
+	 * zahtjeva oznaku <b>eTag</b>. Ukoliko sadrži, klijent već ima važeću
+	 * inačicu resursa te mu je dovoljno vratiti status 304.
+	 *
+	 * @param request
+	 *            klijentov zahtjev modeliran sučeljem
+	 *            {@link HttpServletRequest}
+	 * @param eTag
+	 *            oznaka trenutne inačice resursa
+	 * @return <code>true</code> ukoliko klijent već ima važeću inačicu
+	 *         resursa, <code>false</code> inače
+	 */
+	public static boolean matchesETag(HttpServletRequest request, String eTag) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch == null) {
+			return false;
+		}
+
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.equals("*") || candidate.equals(eTag) || candidate.equals("W/" + eTag)) {
+				return true;
+			}
+		}
+
+		return false;
 	}
 }
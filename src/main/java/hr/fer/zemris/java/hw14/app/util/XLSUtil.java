@@ -0,0 +1,194 @@
+package hr.fer.zemris.java.hw14.app.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+
+import org.apache.poi.hpsf.SummaryInformation;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.DAO;
+
+/**
+ * Razred koji sadrži pomoćne metode za stvaranje .xls i .xlsx datoteka sa
+ * rezultatima glasanja. Ovom razredu ne mogu se stvarati primjerci.
+ * <p>
+ * Svaka stvorena datoteka imati će samo jednu stranicu na kojoj će biti četiri
+ * stupca. Prvi stupac će predstavljati identifikator, drugi stupac naziv,
+ * treći link na određeni resurs na internetu, a četvrti će predstavljati broj
+ * glasova za taj odgovor na anketno pitanje
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class XLSUtil {
+
+	/**
+	 * Konstanta koja predstavlja poziciju u redku na kojoj se nalazi
+	 * identifikator odgovora na anketno pitanje
+	 */
+	private static final int ID_INDEX = 0;
+
+	/**
+	 * Konstanta koja predstavlja poziciju u redku na kojoj se nalazi naziv
+	 * odgovora na anketno pitanje
+	 */
+	private static final int POLL_OPTION_INDEX = 1;
+
+	/**
+	 * Konstanta koja predstavlja poziciju u redku na kojoj se nalazi link na
+	 * neki resurs na internetu za odgovora na anketno pitanje
+	 */
+	private static final int POLL_OPTION_LINK_INDEX = 2;
+
+	/**
+	 * Konstanta koja predstavlja poziciju u redku na kojoj se nalazi broj
+	 * glasova za odgovora na anketno pitanje
+	 */
+	private static final int VOTES_INDEX = 3;
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private XLSUtil() {
+	}
+
+	/**
+	 * Metoda koja generira .xls datoteku sa rezultatima glasanja i zapisuje je
+	 * izravno u predani izlazni tok. Odgovori na anketno pitanje dohvaćaju se
+	 * jedan po jedan metodom
+	 * {@link DAO#forEachPollOption(long, java.util.function.Consumer)}, pa se
+	 * niti {@link java.util.List} odgovora niti serijalizirana datoteka ne
+	 * nalaze u memoriji. Sama stranica dokumenta ipak se gradi u memoriji,
+	 * budući da {@link HSSFWorkbook} ne podržava zapisivanje redaka jedan po
+	 * jedan, no veličina dokumenta ograničena je formatom .xls koji podržava
+	 * najviše 65536 redaka. Za veće ankete potrebno je koristiti metodu
+	 * {@link #writeVotingXLSX(DAO, Poll, OutputStream, int)}.
+	 *
+	 * @param dao
+	 *            primjerak sučelja {@link DAO} preko kojeg se dohvaćaju
+	 *            odgovori na anketno pitanje
+	 * @param poll
+	 *            primjerak razreda {@link Poll} koji modelira anketno pitanje
+	 * @param os
+	 *            izlazni tok u koji se zapisuje datoteka
+	 * @throws IOException
+	 *             ukoliko pisanje u izlazni tok ne uspije
+	 */
+	public static void writeVotingXLS(DAO dao, Poll poll, OutputStream os) throws IOException {
+		try (HSSFWorkbook workbook = new HSSFWorkbook()) {
+			setWorkbookInfo(workbook, poll);
+
+			HSSFSheet sheet = workbook.createSheet("Rezultati glasanja");
+			createFirstRow(sheet);
+			int[] row = { 1 };
+			dao.forEachPollOption(poll.getId(), pollOption -> createEntry(pollOption, sheet.createRow(row[0]++)));
+
+			workbook.write(os);
+		}
+	}
+
+	/**
+	 * Metoda koja generira .xlsx datoteku sa rezultatima glasanja i zapisuje
+	 * je izravno u predani izlazni tok. Odgovori na anketno pitanje dohvaćaju
+	 * se jedan po jedan metodom
+	 * {@link DAO#forEachPollOption(long, java.util.function.Consumer)}, a u
+	 * memoriji se istovremeno nalazi najviše <b>rowWindow</b> redaka, dok se
+	 * ostali redci zapisuju u privremenu datoteku. Zbog toga ova metoda nije
+	 * ograničena brojem redaka .xls formata niti veličina memorije raste sa
+	 * brojem odgovora.
+	 *
+	 * @param dao
+	 *            primjerak sučelja {@link DAO} preko kojeg se dohvaćaju
+	 *            odgovori na anketno pitanje
+	 * @param poll
+	 *            primjerak razreda {@link Poll} koji modelira anketno pitanje
+	 * @param os
+	 *            izlazni tok u koji se zapisuje datoteka
+	 * @param rowWindow
+	 *            najveći broj redaka koji se istovremeno nalaze u memoriji
+	 * @throws IOException
+	 *             ukoliko pisanje u izlazni tok ne uspije
+	 */
+	public static void writeVotingXLSX(DAO dao, Poll poll, OutputStream os, int rowWindow) throws IOException {
+		SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+		try {
+			workbook.getXSSFWorkbook().getProperties().getCoreProperties().setTitle(poll.getTitle());
+			workbook.getXSSFWorkbook().getProperties().getCoreProperties().setCreator("Davor Češljaš");
+
+			Sheet sheet = workbook.createSheet("Rezultati glasanja");
+			createFirstRow(sheet);
+			int[] row = { 1 };
+			dao.forEachPollOption(poll.getId(), pollOption -> createEntry(pollOption, sheet.createRow(row[0]++)));
+
+			workbook.write(os);
+		} finally {
+			workbook.dispose();
+			workbook.close();
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja postaljva naziv , autora te vrijeme nastajanja .xls
+	 * dokumenta koji je predstavljen razredom {@link HSSFWorkbook}.
+	 *
+	 * @param workbook
+	 *            primjerak razreda {@link HSSFWorkbook} koji modelira .xls
+	 *            datoteku, a čije se informacije namještaju
+	 * @param poll
+	 *            primjerak razreda {@link Poll} koji modelira anketno pitanje.
+	 *            Ovdje se koristi za dohvat naziva anketnog pitanja.
+	 */
+	private static void setWorkbookInfo(HSSFWorkbook workbook, Poll poll) {
+		workbook.createInformationProperties();
+		SummaryInformation info = workbook.getSummaryInformation();
+		info.setTitle(poll.getTitle());
+		info.setAuthor("Davor Češljaš");
+		info.setCreateDateTime(new Date());
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara jedan redak (koji predstavlja podatke za jedan
+	 * odgovr na anketno pitanje) dokumenta. Detaljniji opis svakog stupca
+	 * moguće je pronaći u dokumentaciji ovog razreda
+	 *
+	 * @param pollOption
+	 *            primjerak razreda {@link PollOption} iz kojeg se stvara redak
+	 * @param row
+	 *            primjerak razreda koji implementira sučelje {@link Row}, a
+	 *            koji modelira jedan redak stranice dokumenta
+	 */
+	private static void createEntry(PollOption pollOption, Row row) {
+		row.createCell(ID_INDEX).setCellValue(String.valueOf(pollOption.getId()));
+		row.createCell(POLL_OPTION_INDEX).setCellValue(pollOption.getOptionTitle());
+		row.createCell(POLL_OPTION_LINK_INDEX).setCellValue(pollOption.getOptionLink());
+		row.createCell(VOTES_INDEX).setCellValue(String.valueOf(pollOption.getVotesCount()));
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara prvi redak datoteke. U prvom redku navedeni su
+	 * opisi pojedinih stupaca. Tako će u prvom stupcu biti zapisan "ID", u
+	 * drugom "Odgovor" u trećem "Link odgovora", a u četvrtom "Broj glasova".
+	 * Za detaljnija značenja pojedinih stupaca korisnika se navodi na
+	 * dokumentaciju ovog razreda.
+	 *
+	 * @param sheet
+	 *            primjerak razreda koji implementira sučelje {@link Sheet}, a
+	 *            koji modelira jednu stranicu dokumenta
+	 */
+	private static void createFirstRow(Sheet sheet) {
+		Row row = sheet.createRow(0);
+
+		row.createCell(ID_INDEX).setCellValue("ID");
+		row.createCell(POLL_OPTION_INDEX).setCellValue("Odgovor");
+		row.createCell(POLL_OPTION_LINK_INDEX).setCellValue("Link odgovora");
+		row.createCell(VOTES_INDEX).setCellValue("Broj glasova");
+	}
+}
@@ -1,6 +1,9 @@
 package hr.fer.zemris.java.hw14.dao;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import hr.fer.zemris.java.hw14.app.models.Poll;
 import hr.fer.zemris.java.hw14.app.models.PollOption;
@@ -12,11 +15,18 @@ import hr.fer.zemris.java.hw14.app.models.PollOption;
  * sljedeće metode:
  * <ul>
  * <li>{@link #getPollOptions(long)}</li>
+ * <li>{@link #forEachPollOption(long, Consumer)}</li>
  * <li>{@link #updateVotesCount(long, long)}</li>
+ * <li>{@link #updateVotesCounts(Collection)}</li>
  * <li>{@link #getPolls()}</li>
  * <li>{@link #getPoll(long)}</li>
  * </ul>
  * <p>
+ * Odgovori na anketno pitanje vraćaju se poredani prema
+ * {@link #RESULTS_ORDER}, i to uključujući sve izmjene broja glasova koje su
+ * implementacije (npr. priručna memorija) uračunale nakon čitanja.
+ * </p>
+ * <p>
  * Za više informacija o ovom konceptu korisnika se navodi na sljedeću
  * <a href="https://en.wikipedia.org/wiki/Data_access_object">poveznicu</a>
  * </p>
@@ -28,10 +38,18 @@ import hr.fer.zemris.java.hw14.app.models.PollOption;
  */
 public interface DAO {
 
+	/**
+	 * Konstanta koja predstavlja poredak odgovora na anketno pitanje: silazno
+	 * po broju glasova, a zatim uzlazno po identifikatoru
+	 */
+	public static final Comparator<PollOption> RESULTS_ORDER = Comparator
+			.comparingLong(PollOption::getVotesCount).reversed().thenComparingLong(PollOption::getId);
+
 	/**
 	 * Metoda koja dohvaća {@link List} svih mogućih odgovora na anketno pitanje
 	 * sa identifikatorom <b>pollID</b> sa sloja za perzistenciju. Svaki od
-	 * odgovora modeliran je primjerkom razreda {@link PollOption}
+	 * odgovora modeliran je primjerkom razreda {@link PollOption}, a odgovori
+	 * su poredani prema {@link #RESULTS_ORDER}
 	 *
 	 * @param pollID
 	 *            identifikator anketnog pitanja za koje se dohvaćaju odgovori
@@ -42,6 +60,27 @@ public interface DAO {
 	 */
 	public List<PollOption> getPollOptions(long pollID) throws DAOException;
 
+	/**
+	 * Metoda koja redom dohvaća sve moguće odgovore na anketno pitanje sa
+	 * identifikatorom <b>pollID</b> sa sloja za perzistenciju te svaki od njih
+	 * predaje akciji <b>action</b>. Za razliku od metode
+	 * {@link #getPollOptions(long)} odgovori se ne moraju svi odjednom nalaziti
+	 * u memoriji, pa je ova metoda prikladna za ankete sa vrlo velikim brojem
+	 * odgovora. Odgovori se predaju redom prema {@link #RESULTS_ORDER}.
+	 * Pretpostavljena implementacija oslanja se na metodu
+	 * {@link #getPollOptions(long)}.
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja za koje se dohvaćaju odgovori
+	 * @param action
+	 *            akcija kojoj se predaje svaki od dohvaćenih odgovora
+	 * @throws DAOException
+	 *             prilikom greške unutar sustava na sloju perzistenciju
+	 */
+	public default void forEachPollOption(long pollID, Consumer<PollOption> action) throws DAOException {
+		getPollOptions(pollID).forEach(action);
+	}
+
 	/**
 	 * Metoda koja se koristi za podizanje broja glasova koje sadrži odgovor na
 	 * anketno pitanje sa identifikatorom <b>id</b> za jedan. Uz predani
@@ -63,6 +102,24 @@ public interface DAO {
 	 */
 	public boolean updateVotesCount(long id, long pollID) throws DAOException;
 
+	/**
+	 * Metoda koja se koristi za grupno podizanje broja glasova većem broju
+	 * odgovora na anketna pitanja. Svaki od primjeraka razreda
+	 * {@link VotesDelta} unutar parametra <b>deltas</b> određuje odgovor (i
+	 * anketno pitanje kojem on pripada) te broj glasova za koji je potrebno
+	 * podići broj glasova tog odgovora. Sve izmjene trebale bi se provesti
+	 * atomarno, odnosno ili se provode sve ili niti jedna
+	 *
+	 * @param deltas
+	 *            {@link Collection} primjeraka razreda {@link VotesDelta} koji
+	 *            opisuju izmjene broja glasova
+	 * @return broj odgovora na anketna pitanja kojima je broj glasova uspješno
+	 *         podignut
+	 * @throws DAOException
+	 *             prilikom greške unutar sustava na sloju perzistenciju
+	 */
+	public int updateVotesCounts(Collection<VotesDelta> deltas) throws DAOException;
+
 	/**
 	 * Metoda koja dohvaća {@link List} svih mogućih anketnih pitanja
 	 * modeliranih razredom {@link Poll} , a koji postoje na sloju za
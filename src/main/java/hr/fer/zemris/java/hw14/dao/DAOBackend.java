@@ -0,0 +1,55 @@
+package hr.fer.zemris.java.hw14.dao;
+
+import java.util.Properties;
+import java.util.ServiceLoader;
+
+import javax.sql.DataSource;
+
+/**
+ * Sučelje koje modelira jednu izvedbu sloja za perzistenciju podataka, odnosno
+ * tvornicu primjeraka sučelja {@link DAO}. Izvedbe se pronalaze preko
+ * {@link ServiceLoader} mehanizma, pa je svaku izvedbu potrebno navesti unutar
+ * datoteke "META-INF/services/hr.fer.zemris.java.hw14.dao.DAOBackend". Izvedba
+ * koju aplikacija koristi bira se postavkom {@value DAOProvider#BACKEND}
+ * prema imenu ({@link #getName()}).
+ *
+ * @see DAOProvider
+ *
+ * @author Davor Češljaš
+ */
+public interface DAOBackend {
+
+	/**
+	 * Metoda koja dohvaća ime izvedbe pod kojim se ona bira postavkom
+	 * {@value DAOProvider#BACKEND}
+	 *
+	 * @return ime izvedbe
+	 */
+	public String getName();
+
+	/**
+	 * Metoda koja provjerava treba li izvedba bazu podataka. Ukoliko ne treba,
+	 * prilikom pokretanja aplikacije ne stvara se bazen veza niti se
+	 * primjenjuju migracije sheme.
+	 *
+	 * @return <code>true</code> ukoliko izvedba treba bazu podataka,
+	 *         <code>false</code> inače
+	 */
+	public boolean requiresDataSource();
+
+	/**
+	 * Metoda koja prema predanim postavkama stvara primjerak sučelja
+	 * {@link DAO}. Primjerci koji odgođeno zapisuju podatke trebaju
+	 * implementirati sučelje {@link java.io.Closeable}.
+	 *
+	 * @param properties
+	 *            postavke prema kojima se stvara primjerak sučelja {@link DAO}
+	 * @param dataSource
+	 *            izvor veza prema bazi podataka ili <code>null</code> ukoliko
+	 *            izvedba ne treba bazu podataka
+	 * @return primjerak sučelja {@link DAO}
+	 * @throws DAOException
+	 *             ukoliko primjerak nije moguće stvoriti
+	 */
+	public DAO create(Properties properties, DataSource dataSource) throws DAOException;
+}
@@ -1,6 +1,17 @@
 package hr.fer.zemris.java.hw14.dao;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.ServiceLoader;
+
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.dao.cache.CachingDAO;
+import hr.fer.zemris.java.hw14.dao.metrics.TimedDAO;
 import hr.fer.zemris.java.hw14.dao.sql.SQLDAO;
+import hr.fer.zemris.java.hw14.dao.sql.SQLDAOBackend;
+import hr.fer.zemris.java.hw14.dao.sql.WriteBehindDAO;
 
 /**
  * Razred koji se koristi za dohvat Data Source Objecta za ovu aplikaciju, a
@@ -9,21 +20,97 @@ import hr.fer.zemris.java.hw14.dao.sql.SQLDAO;
  * <a href = "https://en.wikipedia.org/wiki/Singleton_pattern">jedinstveni
  * objekt</a> (engl. Singleton). Razred prilikom učitavanja u memoriju postavlja
  * primjerak razreda koji implementira sučelje {@link DAO} unutar svoje privatne
- * statičke varijable.
- * 
+ * statičke varijable. Pozivom metode
+ * {@link #initialize(Properties, DataSource)} taj se primjerak može zamijeniti
+ * primjerkom koji je sastavljen prema predanim postavkama.
+ * <p>
+ * Izvedba sloja za perzistenciju bira se postavkom {@value #BACKEND} između
+ * svih izvedbi sučelja {@link DAOBackend} koje pronađe {@link ServiceLoader}
+ * (npr. "sql" za bazu podataka ili "memory" za spremište u memoriji).
+ * </p>
+ *
  * @see DAO
- * 
+ *
  * @author Davor Češljaš
  */
 public class DAOProvider {
 
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje broj redaka koji
+	 * se prilikom čitanja odgovora na anketna pitanja dohvaćaju iz baze
+	 * podataka odjednom
+	 */
+	public static final String FETCH_SIZE = "dao.fetchSize";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje ime izvedbe
+	 * sloja za perzistenciju ({@link DAOBackend#getName()})
+	 */
+	public static final String BACKEND = "dao.backend";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke kojom se uključuje odgođeno
+	 * zapisivanje glasova preko {@link WriteBehindDAO}
+	 */
+	public static final String WRITE_BEHIND_ENABLED = "dao.writeBehind.enabled";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje broj milisekundi
+	 * između dva zapisivanja nakupljenih glasova
+	 */
+	public static final String WRITE_BEHIND_FLUSH_INTERVAL = "dao.writeBehind.flushIntervalMillis";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje broj nakupljenih
+	 * glasova nakon kojeg se oni odmah zapisuju
+	 */
+	public static final String WRITE_BEHIND_FLUSH_THRESHOLD = "dao.writeBehind.flushThreshold";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke kojom se uključuje priručna
+	 * memorija anketa i odgovora preko {@link CachingDAO}
+	 */
+	public static final String CACHE_ENABLED = "dao.cache.enabled";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje najveći broj
+	 * anketa koje se mogu nalaziti u priručnoj memoriji
+	 */
+	public static final String CACHE_MAX_ENTRIES = "dao.cache.maxEntries";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke koja određuje broj sekundi
+	 * nakon kojeg vrijednost u priručnoj memoriji postaje nevažeća
+	 */
+	public static final String CACHE_TTL_SECONDS = "dao.cache.ttlSeconds";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke kojom se uključuje mjerenje
+	 * trajanja svake metode preko {@link TimedDAO}
+	 */
+	public static final String METRICS_ENABLED = "dao.metrics.enabled";
+
 	/**
 	 * Konstanta koja predstavlja jedini primjerak razreda koji implementira
 	 * sučelje {@link DAO} unutar ove aplikacije, a u duhu oblikovnog obrasca
 	 * <a href = "https://en.wikipedia.org/wiki/Singleton_pattern">jedinstveni
 	 * objekt</a>
 	 */
-	private static DAO dao = new SQLDAO();
+	private static volatile DAO dao = new SQLDAO();
+
+	/**
+	 * Članska varijabla koja predstavlja priručnu memoriju unutar trenutnog
+	 * primjerka sučelja {@link DAO} ili <code>null</code> ukoliko priručna
+	 * memorija nije uključena
+	 */
+	private static volatile CachingDAO cache;
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private DAOProvider() {
+	}
 
 	/**
 	 * Metoda koja dohvaća jedini, statički primjerak razreda koji implementira
@@ -36,4 +123,100 @@ public class DAOProvider {
 		return dao;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Metoda koja dohvaća izvedbu sloja za perzistenciju odabranu postavkom
+	 * {@value #BACKEND}. Ukoliko postavka nije navedena, koristi se izvedba
+	 * {@value SQLDAOBackend#NAME}.
+	 *
+	 * @param properties
+	 *            postavke iz kojih se čita ime izvedbe
+	 * @return odabrana izvedba sloja za perzistenciju
+	 * @throws DAOException
+	 *             ukoliko izvedba sa zadanim imenom ne postoji
+	 */
+	public static DAOBackend getBackend(Properties properties) throws DAOException {
+		String name = properties.getProperty(BACKEND, SQLDAOBackend.NAME).trim();
+		for (DAOBackend backend : ServiceLoader.load(DAOBackend.class, DAOProvider.class.getClassLoader())) {
+			if (backend.getName().equals(name)) {
+				return backend;
+			}
+		}
+
+		throw new DAOException("Nepoznata izvedba sloja za perzistenciju: " + name);
+	}
+
+	/**
+	 * Metoda koja prema predanim postavkama sastavlja primjerak razreda koji
+	 * implementira sučelje {@link DAO} te ga postavlja kao jedini primjerak
+	 * unutar ove aplikacije. Osnovni primjerak stvara izvedba sloja za
+	 * perzistenciju odabrana postavkom {@value #BACKEND}
+	 * ({@link #getBackend(Properties)}). Za izvedbu
+	 * {@value SQLDAOBackend#NAME}, ukoliko je postavka
+	 * {@value #WRITE_BEHIND_ENABLED} postavljena na <code>true</code>, glasovi
+	 * se zapisuju odgođeno preko {@link WriteBehindDAO}. Ukoliko je postavka
+	 * {@value #CACHE_ENABLED} postavljena na <code>true</code>, ankete i
+	 * odgovori se čitaju preko priručne memorije {@link CachingDAO}. Ukoliko
+	 * je postavka {@value #METRICS_ENABLED} postavljena na <code>true</code>,
+	 * trajanje svakog poziva (uključujući i pozive poslužene iz priručne
+	 * memorije) bilježi se preko {@link TimedDAO}.
+	 *
+	 * @param properties
+	 *            postavke prema kojima se sastavlja primjerak sučelja
+	 *            {@link DAO}
+	 * @param dataSource
+	 *            izvor veza prema bazi podataka ili <code>null</code> ukoliko
+	 *            odabrana izvedba ne treba bazu podataka
+	 * @throws DAOException
+	 *             ukoliko odabranu izvedbu nije moguće pronaći ili stvoriti
+	 */
+	public static void initialize(Properties properties, DataSource dataSource) throws DAOException {
+		DAO configured = getBackend(properties).create(properties, dataSource);
+
+		CachingDAO configuredCache = null;
+		if (Boolean.parseBoolean(properties.getProperty(CACHE_ENABLED))) {
+			configuredCache = new CachingDAO(configured,
+					Integer.parseInt(properties.getProperty(CACHE_MAX_ENTRIES, "256")),
+					Long.parseLong(properties.getProperty(CACHE_TTL_SECONDS, "60")) * 1000);
+			configured = configuredCache;
+		}
+
+		if (Boolean.parseBoolean(properties.getProperty(METRICS_ENABLED))) {
+			configured = new TimedDAO(configured);
+		}
+
+		cache = configuredCache;
+		dao = configured;
+	}
+
+	/**
+	 * Metoda koja izbacuje sve vrijednosti iz priručne memorije trenutnog
+	 * primjerka sučelja {@link DAO}. Metodu je potrebno pozvati nakon što se
+	 * podaci u bazi podataka izmijene mimo sučelja {@link DAO} (npr. grupnim
+	 * uvozom). Ukoliko priručna memorija nije uključena, metoda ne radi ništa.
+	 */
+	public static void invalidateCache() {
+		CachingDAO current = cache;
+		if (current != null) {
+			current.invalidateAll();
+		}
+	}
+
+	/**
+	 * Metoda koja oslobađa sve resurse koje zauzima trenutni primjerak sučelja
+	 * {@link DAO}. Ukoliko taj primjerak odgođeno zapisuje podatke, ovim se
+	 * pozivom svi nezapisani podaci sinkrono zapisuju.
+	 *
+	 * @throws DAOException
+	 *             ukoliko oslobađanje resursa ne uspije
+	 */
+	public static void shutdown() throws DAOException {
+		if (dao instanceof Closeable) {
+			try {
+				((Closeable) dao).close();
+			} catch (IOException e) {
+				throw new DAOException(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package hr.fer.zemris.java.hw14.dao;
+
+/**
+ * Razred koji modelira jednu grupnu izmjenu broja glasova odgovora na anketno
+ * pitanje. Primjerci ovog razreda predaju se metodi
+ * {@link DAO#updateVotesCounts(java.util.Collection)}, a sadrže identifikator
+ * odgovora, identifikator anketnog pitanja kojem taj odgovor pripada te broj
+ * glasova za koji je potrebno podići ukupan broj glasova tog odgovora.
+ * Primjerci ovog razreda su nepromijenjivi.
+ *
+ * @see DAO
+ *
+ * @author Davor Češljaš
+ */
+public class VotesDelta {
+
+	/**
+	 * Članska varijabla koja predstavlja identifikator odgovora na anketno
+	 * pitanje
+	 */
+	private final long id;
+
+	/**
+	 * Članska varijabla koja predstavlja identifikator ankete unutar koje se
+	 * odgovor nalazi
+	 */
+	private final long pollID;
+
+	/**
+	 * Članska varijabla koja predstavlja broj glasova koje je potrebno dodati
+	 * odgovoru
+	 */
+	private final long delta;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda. Ovaj konstruktor
+	 * predane parametre interno posprema unutar za to predviđenih članskih
+	 * varijabli
+	 *
+	 * @param id
+	 *            identifikator odgovora na anketno pitanje
+	 * @param pollID
+	 *            identifikator ankete unutar koje se odgovor nalazi
+	 * @param delta
+	 *            broj glasova koje je potrebno dodati odgovoru
+	 */
+	public VotesDelta(long id, long pollID, long delta) {
+		this.id = id;
+		this.pollID = pollID;
+		this.delta = delta;
+	}
+
+	/**
+	 * Metoda koja dohvaća identifikator odgovora na anketno pitanje
+	 *
+	 * @return identifikator odgovora na anketno pitanje
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Metoda koja dohvaća identifikator ankete unutar koje se odgovor nalazi
+	 *
+	 * @return identifikator ankete unutar koje se odgovor nalazi
+	 */
+	public long getPollID() {
+		return pollID;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj glasova koje je potrebno dodati odgovoru
+	 *
+	 * @return broj glasova koje je potrebno dodati odgovoru
+	 */
+	public long getDelta() {
+		return delta;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("VotesDelta: id=%d, pollID=%d, delta=%d", id, pollID, delta);
+	}
+
+}
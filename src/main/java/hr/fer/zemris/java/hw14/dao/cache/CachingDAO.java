@@ -0,0 +1,271 @@
+package hr.fer.zemris.java.hw14.dao.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.dao.VotesDelta;
+
+/**
+ * Razred koji implementira sučelje {@link DAO} u duhu oblikovnog obrasca
+ * <a href="https://en.wikipedia.org/wiki/Decorator_pattern">dekorator</a>.
+ * Primjerci ovog razreda rezultate metoda {@link #getPoll(long)},
+ * {@link #getPolls()} i {@link #getPollOptions(long)} spremaju u priručnu
+ * memoriju modeliranu razredom {@link LRUCache}, pa se omotani primjerak
+ * sučelja {@link DAO} poziva samo ukoliko tražena vrijednost nije spremljena
+ * ili je postala nevažeća.
+ * <p>
+ * Prilikom uspješnog poziva metode {@link #updateVotesCount(long, long)} broj
+ * glasova odgovora izmijenjuje se i unutar priručne memorije, a odgovor se
+ * pomiče unaprijed kako bi spremljeni odgovori ostali poredani prema
+ * {@link DAO#RESULTS_ORDER}, dok se nakon
+ * grupne izmjene odgovori izmijenjenih anketa izbacuju iz priručne memorije.
+ * Pozivatelji uvijek dobivaju kopije spremljenih vrijednosti, pa ih mogu
+ * slobodno mijenjati (npr. sortirati).
+ * </p>
+ * <p>
+ * Odgovori dohvaćeni nakon promašaja spremaju se samo ukoliko za vrijeme
+ * dohvata nije započela niti jedna izmjena broja glasova iste ankete, jer
+ * bi se inače glas koji je izmijenjen za vrijeme dohvata mogao izgubiti ili
+ * uračunati dvaput. Izmjene se prate brojačima započetih i završenih izmjena
+ * podijeljenima u {@value #WRITE_STRIPES} skupina prema anketi.
+ * </p>
+ *
+ * @see DAO
+ * @see DAOProvider
+ * @see LRUCache
+ *
+ * @author Davor Češljaš
+ */
+public class CachingDAO implements DAO, Closeable {
+
+	/**
+	 * Konstanta koja predstavlja ključ pod kojim se u priručnu memoriju
+	 * sprema {@link List} svih anketnih pitanja
+	 */
+	private static final String ALL_POLLS_KEY = "polls";
+
+	/**
+	 * Konstanta koja predstavlja broj skupina anketa čije se izmjene prate
+	 * zasebnim brojačima
+	 */
+	private static final int WRITE_STRIPES = 64;
+
+	/** Članska varijabla koja predstavlja omotani primjerak sučelja {@link DAO} */
+	private final DAO delegate;
+
+	/** Članska varijabla koja predstavlja priručnu memoriju anketnih pitanja */
+	private final LRUCache<Long, Poll> polls;
+
+	/**
+	 * Članska varijabla koja predstavlja priručnu memoriju {@link List}e svih
+	 * anketnih pitanja
+	 */
+	private final LRUCache<String, List<Poll>> allPolls;
+
+	/**
+	 * Članska varijabla koja predstavlja priručnu memoriju odgovora na anketna
+	 * pitanja
+	 */
+	private final LRUCache<Long, List<PollOption>> pollOptions;
+
+	/**
+	 * Članska varijabla koja predstavlja broj započetih izmjena broja glasova
+	 * po skupini anketa
+	 */
+	private final AtomicLongArray writesStarted = new AtomicLongArray(WRITE_STRIPES);
+
+	/**
+	 * Članska varijabla koja predstavlja broj završenih izmjena broja glasova
+	 * po skupini anketa
+	 */
+	private final AtomicLongArray writesFinished = new AtomicLongArray(WRITE_STRIPES);
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param delegate
+	 *            primjerak sučelja {@link DAO} kojem se prosljeđuju svi upiti
+	 *            čiji rezultat nije spremljen
+	 * @param maxEntries
+	 *            najveći broj anketa (odnosno skupova odgovora) koji se mogu
+	 *            nalaziti u priručnoj memoriji
+	 * @param ttlMillis
+	 *            broj milisekundi nakon kojeg spremljena vrijednost postaje
+	 *            nevažeća
+	 */
+	public CachingDAO(DAO delegate, int maxEntries, long ttlMillis) {
+		this.delegate = delegate;
+		this.polls = new LRUCache<>(maxEntries, ttlMillis);
+		this.allPolls = new LRUCache<>(1, ttlMillis);
+		this.pollOptions = new LRUCache<>(maxEntries, ttlMillis);
+	}
+
+	@Override
+	public List<PollOption> getPollOptions(long pollID) throws DAOException {
+		List<PollOption> copy = new ArrayList<>();
+		if (pollOptions.update(pollID, cached -> copyOptions(cached, copy))) {
+			return copy;
+		}
+
+		int stripe = stripe(pollID);
+		long started = writesStarted.get(stripe);
+		boolean quiet = writesFinished.get(stripe) == started;
+
+		List<PollOption> loaded = delegate.getPollOptions(pollID);
+		copyOptions(loaded, copy);
+		if (quiet) {
+			pollOptions.putIf(pollID, new ArrayList<>(loaded), () -> writesStarted.get(stripe) == started);
+		}
+
+		return copy;
+	}
+
+	/**
+	 * {@inheritDoc} Ukoliko odgovori ankete nisu spremljeni u priručnu
+	 * memoriju, dohvaćaju se redom preko omotanog primjerka sučelja
+	 * {@link DAO} te se ne spremaju, kako bi se izbjeglo spremanje vrlo velikih
+	 * anketa u memoriju.
+	 */
+	@Override
+	public void forEachPollOption(long pollID, Consumer<PollOption> action) throws DAOException {
+		List<PollOption> copy = new ArrayList<>();
+		if (pollOptions.update(pollID, cached -> copyOptions(cached, copy))) {
+			copy.forEach(action);
+			return;
+		}
+
+		delegate.forEachPollOption(pollID, action);
+	}
+
+	@Override
+	public boolean updateVotesCount(long id, long pollID) throws DAOException {
+		int stripe = stripe(pollID);
+		writesStarted.incrementAndGet(stripe);
+		try {
+			if (!delegate.updateVotesCount(id, pollID)) {
+				return false;
+			}
+
+			pollOptions.update(pollID, cached -> {
+				for (int i = 0, size = cached.size(); i < size; i++) {
+					if (cached.get(i).getId() == id) {
+						cached.get(i).incrementVotesCount();
+						for (; i > 0 && RESULTS_ORDER.compare(cached.get(i), cached.get(i - 1)) < 0; i--) {
+							Collections.swap(cached, i, i - 1);
+						}
+						return;
+					}
+				}
+			});
+
+			return true;
+		} finally {
+			writesFinished.incrementAndGet(stripe);
+		}
+	}
+
+	@Override
+	public int updateVotesCounts(Collection<VotesDelta> deltas) throws DAOException {
+		for (VotesDelta delta : deltas) {
+			writesStarted.incrementAndGet(stripe(delta.getPollID()));
+		}
+		try {
+			int updated = delegate.updateVotesCounts(deltas);
+			for (VotesDelta delta : deltas) {
+				pollOptions.remove(delta.getPollID());
+			}
+
+			return updated;
+		} finally {
+			for (VotesDelta delta : deltas) {
+				writesFinished.incrementAndGet(stripe(delta.getPollID()));
+			}
+		}
+	}
+
+	@Override
+	public List<Poll> getPolls() throws DAOException {
+		List<Poll> cached = allPolls.get(ALL_POLLS_KEY);
+		if (cached == null) {
+			cached = delegate.getPolls();
+			allPolls.put(ALL_POLLS_KEY, cached);
+		}
+
+		return new ArrayList<>(cached);
+	}
+
+	@Override
+	public Poll getPoll(long pollID) throws DAOException {
+		Poll poll = polls.get(pollID);
+		if (poll == null) {
+			poll = delegate.getPoll(pollID);
+
+			if (poll != null) {
+				polls.put(pollID, poll);
+			}
+		}
+
+		return poll;
+	}
+
+	/**
+	 * Metoda koja izbacuje sve spremljene vrijednosti iz priručne memorije.
+	 */
+	public void invalidateAll() {
+		for (int i = 0; i < WRITE_STRIPES; i++) {
+			writesStarted.incrementAndGet(i);
+			writesFinished.incrementAndGet(i);
+		}
+		polls.clear();
+		allPolls.clear();
+		pollOptions.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (delegate instanceof Closeable) {
+			((Closeable) delegate).close();
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja određuje skupinu anketa kojoj pripada anketa sa
+	 * identifikatorom <b>pollID</b>
+	 *
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return indeks skupine anketa
+	 */
+	private static int stripe(long pollID) {
+		return (int) (pollID ^ (pollID >>> 32)) & (WRITE_STRIPES - 1);
+	}
+
+	/**
+	 * Pomoćna metoda koja u {@link List}u <b>destination</b> dodaje kopije
+	 * svih odgovora iz {@link List}e <b>source</b>. Kopije se stvaraju kako
+	 * izmjene broja glasova unutar priručne memorije ne bi utjecale na
+	 * vrijednosti koje su već predane pozivateljima.
+	 *
+	 * @param source
+	 *            {@link List} odgovora koji se kopiraju
+	 * @param destination
+	 *            {@link List} u koju se dodaju kopije
+	 */
+	private static void copyOptions(List<PollOption> source, List<PollOption> destination) {
+		for (PollOption pollOption : source) {
+			destination.add(new PollOption(pollOption.getId(), pollOption.getOptionTitle(),
+					pollOption.getOptionLink(), pollOption.getPollID(), pollOption.getVotesCount()));
+		}
+	}
+}
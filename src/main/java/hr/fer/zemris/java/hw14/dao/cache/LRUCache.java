@@ -0,0 +1,226 @@
+package hr.fer.zemris.java.hw14.dao.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Razred koji modelira priručnu memoriju ograničene veličine. Vrijednosti
+ * spremljene u primjerke ovog razreda vrijede samo određeno vrijeme (engl.
+ * time to live), a nakon toga ih se smatra nevažećima. Ukoliko broj
+ * spremljenih vrijednosti prijeđe najveći dozvoljeni broj, izbacuje se ona
+ * vrijednost koja je najdulje vremena nekorištena (engl. least recently
+ * used). Sve metode ovog razreda su sinkronizirane te ga je moguće koristiti
+ * iz više dretvi.
+ *
+ * @param <K>
+ *            tip ključeva priručne memorije
+ * @param <V>
+ *            tip vrijednosti priručne memorije
+ *
+ * @see LinkedHashMap
+ *
+ * @author Davor Češljaš
+ */
+public class LRUCache<K, V> {
+
+	/**
+	 * Članska varijabla koja predstavlja mapu unutar koje su spremljene
+	 * vrijednosti, a koja je poredana prema zadnjem pristupu
+	 */
+	private final LinkedHashMap<K, Entry<V>> entries;
+
+	/**
+	 * Članska varijabla koja predstavlja broj nanosekundi nakon kojeg
+	 * spremljena vrijednost postaje nevažeća
+	 */
+	private final long ttlNanos;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param maxEntries
+	 *            najveći broj vrijednosti koje se mogu nalaziti u priručnoj
+	 *            memoriji
+	 * @param ttlMillis
+	 *            broj milisekundi nakon kojeg spremljena vrijednost postaje
+	 *            nevažeća
+	 * @throws IllegalArgumentException
+	 *             ukoliko je <b>maxEntries</b> ili <b>ttlMillis</b> manji od
+	 *             jedan
+	 */
+	public LRUCache(int maxEntries, long ttlMillis) {
+		if (maxEntries < 1 || ttlMillis < 1) {
+			throw new IllegalArgumentException("Veličina i trajanje priručne memorije moraju biti pozitivni");
+		}
+
+		this.ttlNanos = ttlMillis * 1_000_000;
+		this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Metoda koja dohvaća vrijednost spremljenu pod ključem <b>key</b>. Ukoliko
+	 * vrijednost ne postoji ili je nevažeća metoda vraća <code>null</code>
+	 *
+	 * @param key
+	 *            ključ pod kojim je vrijednost spremljena
+	 * @return vrijednost spremljenu pod ključem <b>key</b> ili
+	 *         <code>null</code>
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.isExpired(System.nanoTime())) {
+			entries.remove(key);
+			return null;
+		}
+
+		return entry.value;
+	}
+
+	/**
+	 * Metoda koja sprema vrijednost <b>value</b> pod ključem <b>key</b>.
+	 * Vrijednost vrijedi onoliko vremena koliko je zadano prilikom stvaranja
+	 * primjerka ovog razreda.
+	 *
+	 * @param key
+	 *            ključ pod kojim se vrijednost sprema
+	 * @param value
+	 *            vrijednost koja se sprema
+	 */
+	public synchronized void put(K key, V value) {
+		entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+	}
+
+	/**
+	 * Metoda koja vrijednost <b>value</b> sprema pod ključem <b>key</b>, ali
+	 * samo ukoliko je uvjet <b>condition</b> ispunjen. Uvjet se provjerava dok
+	 * je priručna memorija zaključana, pa se između provjere i spremanja ne
+	 * može izvesti niti jedna druga metoda ovog razreda.
+	 *
+	 * @param key
+	 *            ključ pod kojim se vrijednost sprema
+	 * @param value
+	 *            vrijednost koja se sprema
+	 * @param condition
+	 *            uvjet spremanja
+	 * @return <code>true</code> ukoliko je vrijednost spremljena,
+	 *         <code>false</code> inače
+	 */
+	public synchronized boolean putIf(K key, V value, BooleanSupplier condition) {
+		if (!condition.getAsBoolean()) {
+			return false;
+		}
+
+		put(key, value);
+		return true;
+	}
+
+	/**
+	 * Metoda koja nad vrijednošću spremljenom pod ključem <b>key</b> izvodi
+	 * akciju <b>action</b>. Akcija se izvodi dok je priručna memorija
+	 * zaključana, te se unutar nje vrijednost može sigurno mijenjati. Ukoliko
+	 * vrijednost ne postoji ili je nevažeća akcija se ne izvodi.
+	 *
+	 * @param key
+	 *            ključ pod kojim je vrijednost spremljena
+	 * @param action
+	 *            akcija koja se izvodi nad spremljenom vrijednošću
+	 * @return <code>true</code> ukoliko je akcija izvedena, <code>false</code>
+	 *         inače
+	 */
+	public synchronized boolean update(K key, Consumer<V> action) {
+		V value = get(key);
+		if (value == null) {
+			return false;
+		}
+
+		action.accept(value);
+		return true;
+	}
+
+	/**
+	 * Metoda koja uklanja vrijednost spremljenu pod ključem <b>key</b>
+	 *
+	 * @param key
+	 *            ključ pod kojim je vrijednost spremljena
+	 */
+	public synchronized void remove(K key) {
+		entries.remove(key);
+	}
+
+	/**
+	 * Metoda koja uklanja sve vrijednosti iz priručne memorije
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Metoda koja dohvaća broj vrijednosti u priručnoj memoriji, uključujući
+	 * i one koje su možda nevažeće
+	 *
+	 * @return broj vrijednosti u priručnoj memoriji
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Pomoćni statički razred koji modelira jednu vrijednost spremljenu u
+	 * priručnu memoriju zajedno sa trenutkom u kojem ona postaje nevažeća.
+	 *
+	 * @param <V>
+	 *            tip spremljene vrijednosti
+	 */
+	private static class Entry<V> {
+
+		/** Članska varijabla koja predstavlja spremljenu vrijednost */
+		private final V value;
+
+		/**
+		 * Članska varijabla koja predstavlja trenutak (u nanosekundama) u
+		 * kojem vrijednost postaje nevažeća
+		 */
+		private final long expiresAt;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param value
+		 *            spremljena vrijednost
+		 * @param expiresAt
+		 *            trenutak (u nanosekundama) u kojem vrijednost postaje
+		 *            nevažeća
+		 */
+		public Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		/**
+		 * Metoda koja provjerava je li vrijednost nevažeća u trenutku
+		 * <b>now</b>
+		 *
+		 * @param now
+		 *            trenutak (u nanosekundama) za koji se provjerava
+		 * @return <code>true</code> ukoliko je vrijednost nevažeća,
+		 *         <code>false</code> inače
+		 */
+		public boolean isExpired(long now) {
+			return now - expiresAt >= 0;
+		}
+	}
+}
@@ -0,0 +1,337 @@
+package hr.fer.zemris.java.hw14.dao.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.VotesDelta;
+import hr.fer.zemris.java.hw14.db.seed.SeedUtil;
+
+/**
+ * Razred koji implementira sučelje {@link DAO}. Ovaj razred koristi se kao Data
+ * Source Object koji sve podatke čuva isključivo u memoriji, pa se oni gube
+ * gašenjem aplikacije. Koristi se za ankete koje ne treba trajno pamtiti te
+ * kao osnovica prilikom ispitivanja opterećenja, budući da ne ovisi o bazi
+ * podataka.
+ * <p>
+ * Identifikatori anketnih pitanja i odgovora dodjeljuju se redom od 1, pa se
+ * zapisi čuvaju unutar polja {@link AtomicReferenceArray} pod indeksom
+ * jednakim identifikatoru umanjenom za jedan, bez omatanja ključeva u
+ * {@link Long}. Svako anketno pitanje svoje odgovore pamti poljem
+ * identifikatora tipa <code>long</code>, a broj glasova svakog odgovora čuva
+ * se u brojaču {@link AtomicLong}. Čitanje i glasanje time ne koriste
+ * zaključavanje, dok se unos novih anketnih pitanja i odgovora, koji je
+ * rijedak, međusobno sinkronizira.
+ * </p>
+ * <p>
+ * Odgovori na anketna pitanja dohvaćaju se poredani silazno po broju glasova,
+ * a zatim uzlazno po identifikatoru, jednako kao i preko
+ * {@link hr.fer.zemris.java.hw14.dao.sql.SQLDAO}.
+ * </p>
+ *
+ * @see MemoryDAOBackend
+ *
+ * @author Davor Češljaš
+ */
+public class MemoryDAO implements DAO, SeedUtil.SeedSink {
+
+	/** Konstanta koja predstavlja početnu veličinu polja zapisa */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Članska varijabla koja predstavlja zadnji dodijeljeni identifikator
+	 * anketnog pitanja
+	 */
+	private final AtomicLong pollSequence = new AtomicLong();
+
+	/**
+	 * Članska varijabla koja predstavlja zadnji dodijeljeni identifikator
+	 * odgovora
+	 */
+	private final AtomicLong optionSequence = new AtomicLong();
+
+	/**
+	 * Članska varijabla koja predstavlja zapise anketnih pitanja pod indeksom
+	 * jednakim identifikatoru umanjenom za jedan
+	 */
+	private volatile AtomicReferenceArray<PollEntry> polls = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+	/**
+	 * Članska varijabla koja predstavlja zapise odgovora pod indeksom jednakim
+	 * identifikatoru umanjenom za jedan
+	 */
+	private volatile AtomicReferenceArray<OptionEntry> options = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+	/**
+	 * Članska varijabla koja predstavlja objekt preko kojeg se sinkronizira
+	 * unos novih anketnih pitanja i odgovora
+	 */
+	private final Object writeLock = new Object();
+
+	@Override
+	public List<PollOption> getPollOptions(long pollID) throws DAOException {
+		PollEntry poll = get(polls, pollID);
+		if (poll == null) {
+			return new ArrayList<>();
+		}
+
+		int count = poll.optionCount;
+		long[] ids = poll.optionIDs;
+		List<PollOption> pollOptions = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			OptionEntry option = get(options, ids[i]);
+			pollOptions.add(new PollOption(option.id, option.optionTitle, option.optionLink, option.pollID,
+					option.votesCount.get()));
+		}
+		pollOptions.sort(RESULTS_ORDER);
+
+		return pollOptions;
+	}
+
+	@Override
+	public boolean updateVotesCount(long id, long pollID) throws DAOException {
+		OptionEntry option = get(options, id);
+		if (option == null || option.pollID != pollID) {
+			return false;
+		}
+
+		option.votesCount.incrementAndGet();
+		return true;
+	}
+
+	@Override
+	public int updateVotesCounts(Collection<VotesDelta> deltas) throws DAOException {
+		int updated = 0;
+		for (VotesDelta delta : deltas) {
+			OptionEntry option = get(options, delta.getId());
+			if (option != null && option.pollID == delta.getPollID()) {
+				option.votesCount.addAndGet(delta.getDelta());
+				updated++;
+			}
+		}
+
+		return updated;
+	}
+
+	@Override
+	public List<Poll> getPolls() throws DAOException {
+		AtomicReferenceArray<PollEntry> current = polls;
+		List<Poll> result = new ArrayList<>();
+		for (int i = 0, len = current.length(); i < len; i++) {
+			PollEntry poll = current.get(i);
+			if (poll != null) {
+				result.add(poll.poll);
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public Poll getPoll(long pollID) throws DAOException {
+		PollEntry poll = get(polls, pollID);
+		return poll == null ? null : poll.poll;
+	}
+
+	/**
+	 * Metoda koja unosi novo anketno pitanje.
+	 *
+	 * @param title
+	 *            naslov anketnog pitanja
+	 * @param message
+	 *            poruka anketnog pitanja
+	 * @return identifikator unesenog anketnog pitanja
+	 */
+	@Override
+	public long addPoll(String title, String message) {
+		synchronized (writeLock) {
+			long id = pollSequence.incrementAndGet();
+			polls = set(polls, id, new PollEntry(new Poll(id, title, message)));
+			return id;
+		}
+	}
+
+	/**
+	 * Metoda koja unosi novi odgovor na anketno pitanje sa identifikatorom
+	 * <b>pollID</b>.
+	 *
+	 * @param optionTitle
+	 *            naslov odgovora
+	 * @param optionLink
+	 *            poveznica odgovora
+	 * @param pollID
+	 *            identifikator anketnog pitanja kojem odgovor pripada
+	 * @param votesCount
+	 *            početni broj glasova
+	 * @return identifikator unesenog odgovora
+	 * @throws DAOException
+	 *             ukoliko anketno pitanje sa identifikatorom <b>pollID</b> ne
+	 *             postoji
+	 */
+	@Override
+	public long addPollOption(String optionTitle, String optionLink, long pollID, long votesCount)
+			throws DAOException {
+		synchronized (writeLock) {
+			PollEntry poll = get(polls, pollID);
+			if (poll == null) {
+				throw new DAOException("Anketa sa pollID=" + pollID + " ne postoji");
+			}
+
+			long id = optionSequence.incrementAndGet();
+			options = set(options, id, new OptionEntry(id, optionTitle, optionLink, pollID, votesCount));
+			poll.add(id);
+			return id;
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja dohvaća zapis sa identifikatorom <b>id</b>.
+	 *
+	 * @param <T>
+	 *            tip zapisa
+	 * @param entries
+	 *            polje zapisa
+	 * @param id
+	 *            identifikator zapisa
+	 * @return zapis ili <code>null</code> ukoliko ne postoji
+	 */
+	private static <T> T get(AtomicReferenceArray<T> entries, long id) {
+		return id < 1 || id > entries.length() ? null : entries.get((int) (id - 1));
+	}
+
+	/**
+	 * Pomoćna metoda koja zapis <b>entry</b> postavlja pod identifikator
+	 * <b>id</b>. Ukoliko polje nije dovoljno veliko, stvara se dvostruko veće
+	 * polje u koje se kopiraju postojeći zapisi. Metoda se poziva isključivo
+	 * unutar sinkronizacije nad {@link #writeLock}.
+	 *
+	 * @param <T>
+	 *            tip zapisa
+	 * @param entries
+	 *            trenutno polje zapisa
+	 * @param id
+	 *            identifikator zapisa
+	 * @param entry
+	 *            zapis
+	 * @return polje koje sadrži zapis
+	 */
+	private static <T> AtomicReferenceArray<T> set(AtomicReferenceArray<T> entries, long id, T entry) {
+		if (id > Integer.MAX_VALUE) {
+			throw new DAOException("Nije moguće unijeti više od " + Integer.MAX_VALUE + " zapisa");
+		}
+
+		int index = (int) (id - 1);
+		if (index >= entries.length()) {
+			AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(
+					(int) Math.min(Integer.MAX_VALUE, Math.max(2L * entries.length(), index + 1L)));
+			for (int i = 0, len = entries.length(); i < len; i++) {
+				grown.set(i, entries.get(i));
+			}
+			entries = grown;
+		}
+
+		entries.set(index, entry);
+		return entries;
+	}
+
+	/**
+	 * Pomoćni razred koji modelira zapis jednog anketnog pitanja zajedno sa
+	 * identifikatorima njegovih odgovora.
+	 */
+	private static class PollEntry {
+
+		/** Članska varijabla koja predstavlja anketno pitanje */
+		private final Poll poll;
+
+		/**
+		 * Članska varijabla koja predstavlja identifikatore odgovora, od kojih
+		 * je valjano prvih {@link #optionCount}
+		 */
+		private volatile long[] optionIDs = new long[INITIAL_CAPACITY];
+
+		/**
+		 * Članska varijabla koja predstavlja broj odgovora. Povećava se tek
+		 * nakon što je identifikator odgovora zapisan, pa čitatelj koji prvo
+		 * pročita ovu vrijednost vidi sve identifikatore do nje.
+		 */
+		private volatile int optionCount;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param poll
+		 *            anketno pitanje
+		 */
+		public PollEntry(Poll poll) {
+			this.poll = poll;
+		}
+
+		/**
+		 * Metoda koja dodaje identifikator odgovora. Metoda se poziva
+		 * isključivo unutar sinkronizacije nad {@link MemoryDAO#writeLock}.
+		 *
+		 * @param id
+		 *            identifikator odgovora
+		 */
+		public void add(long id) {
+			long[] ids = optionIDs;
+			if (optionCount == ids.length) {
+				long[] grown = new long[ids.length * 2];
+				System.arraycopy(ids, 0, grown, 0, ids.length);
+				ids = grown;
+			}
+			ids[optionCount] = id;
+			optionIDs = ids;
+			optionCount++;
+		}
+	}
+
+	/**
+	 * Pomoćni razred koji modelira zapis jednog odgovora na anketno pitanje.
+	 */
+	private static class OptionEntry {
+
+		/** Članska varijabla koja predstavlja identifikator odgovora */
+		private final long id;
+
+		/** Članska varijabla koja predstavlja naslov odgovora */
+		private final String optionTitle;
+
+		/** Članska varijabla koja predstavlja poveznicu odgovora */
+		private final String optionLink;
+
+		/** Članska varijabla koja predstavlja identifikator anketnog pitanja */
+		private final long pollID;
+
+		/** Članska varijabla koja predstavlja broj glasova */
+		private final AtomicLong votesCount;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param id
+		 *            identifikator odgovora
+		 * @param optionTitle
+		 *            naslov odgovora
+		 * @param optionLink
+		 *            poveznica odgovora
+		 * @param pollID
+		 *            identifikator anketnog pitanja
+		 * @param votesCount
+		 *            početni broj glasova
+		 */
+		public OptionEntry(long id, String optionTitle, String optionLink, long pollID, long votesCount) {
+			this.id = id;
+			this.optionTitle = optionTitle;
+			this.optionLink = optionLink;
+			this.pollID = pollID;
+			this.votesCount = new AtomicLong(votesCount);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package hr.fer.zemris.java.hw14.dao.memory;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.DAOBackend;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.db.seed.SeedUtil;
+
+/**
+ * Razred koji implementira sučelje {@link DAOBackend}. Ova izvedba sloja za
+ * perzistenciju podataka sa imenom {@value #NAME} sve podatke čuva u memoriji
+ * preko razreda {@link MemoryDAO} i ne treba bazu podataka. Ukoliko postavka
+ * {@value #SEED} nije postavljena na <code>false</code>, spremište se puni
+ * inicijalnim anketnim pitanjima i odgovorima iz istih seed datoteka kao i
+ * baza podataka ({@link SeedUtil#seed(SeedUtil.SeedSink)}).
+ *
+ * @see MemoryDAO
+ *
+ * @author Davor Češljaš
+ */
+public class MemoryDAOBackend implements DAOBackend {
+
+	/** Konstanta koja predstavlja ime ove izvedbe */
+	public static final String NAME = "memory";
+
+	/**
+	 * Konstanta koja predstavlja ključ postavke kojom se uključuje punjenje
+	 * spremišta inicijalnim vrijednostima
+	 */
+	public static final String SEED = "dao.memory.seed";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean requiresDataSource() {
+		return false;
+	}
+
+	@Override
+	public DAO create(Properties properties, DataSource dataSource) throws DAOException {
+		MemoryDAO dao = new MemoryDAO();
+		if (Boolean.parseBoolean(properties.getProperty(SEED, "true"))) {
+			try {
+				SeedUtil.seed(dao);
+			} catch (IOException e) {
+				throw new DAOException("Nije moguće napuniti spremište u memoriji", e);
+			}
+		}
+
+		return dao;
+	}
+}
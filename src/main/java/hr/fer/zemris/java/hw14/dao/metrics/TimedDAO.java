@@ -0,0 +1,183 @@
+package hr.fer.zemris.java.hw14.dao.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.dao.VotesDelta;
+import hr.fer.zemris.java.hw14.metrics.LatencyHistogram;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
+
+/**
+ * Razred koji implementira sučelje {@link DAO} u duhu oblikovnog obrasca
+ * <a href="https://en.wikipedia.org/wiki/Decorator_pattern">dekorator</a>.
+ * Primjerci ovog razreda sve pozive prosljeđuju omotanom primjerku sučelja
+ * {@link DAO}, a trajanje svakog poziva bilježe unutar {@link MetricsRegistry}
+ * u histogram sa imenom "dao.<i>imeMetode</i>". Pozivi koji završe iznimkom
+ * {@link DAOException} dodatno se broje brojačem sa imenom
+ * "dao.<i>imeMetode</i>.errors".
+ * <p>
+ * Trajanje metode {@link #forEachPollOption(long, Consumer)} uključuje i
+ * trajanje obrade svakog odgovora, budući da se odgovori obrađuju tijekom
+ * čitanja.
+ * </p>
+ *
+ * @see DAO
+ * @see DAOProvider
+ * @see MetricsRegistry
+ *
+ * @author Davor Češljaš
+ */
+public class TimedDAO implements DAO, Closeable {
+
+	/** Članska varijabla koja predstavlja omotani primjerak sučelja {@link DAO} */
+	private final DAO delegate;
+
+	/** Članska varijabla koja predstavlja mjerenje metode getPollOptions */
+	private final MethodMetrics getPollOptions = new MethodMetrics("getPollOptions");
+
+	/** Članska varijabla koja predstavlja mjerenje metode forEachPollOption */
+	private final MethodMetrics forEachPollOption = new MethodMetrics("forEachPollOption");
+
+	/** Članska varijabla koja predstavlja mjerenje metode updateVotesCount */
+	private final MethodMetrics updateVotesCount = new MethodMetrics("updateVotesCount");
+
+	/** Članska varijabla koja predstavlja mjerenje metode updateVotesCounts */
+	private final MethodMetrics updateVotesCounts = new MethodMetrics("updateVotesCounts");
+
+	/** Članska varijabla koja predstavlja mjerenje metode getPolls */
+	private final MethodMetrics getPolls = new MethodMetrics("getPolls");
+
+	/** Članska varijabla koja predstavlja mjerenje metode getPoll */
+	private final MethodMetrics getPoll = new MethodMetrics("getPoll");
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param delegate
+	 *            primjerak sučelja {@link DAO} kojem se prosljeđuju svi pozivi
+	 */
+	public TimedDAO(DAO delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public List<PollOption> getPollOptions(long pollID) throws DAOException {
+		long start = System.nanoTime();
+		try {
+			return delegate.getPollOptions(pollID);
+		} catch (DAOException e) {
+			getPollOptions.errors.increment();
+			throw e;
+		} finally {
+			getPollOptions.latency.recordSince(start);
+		}
+	}
+
+	@Override
+	public void forEachPollOption(long pollID, Consumer<PollOption> action) throws DAOException {
+		long start = System.nanoTime();
+		try {
+			delegate.forEachPollOption(pollID, action);
+		} catch (DAOException e) {
+			forEachPollOption.errors.increment();
+			throw e;
+		} finally {
+			forEachPollOption.latency.recordSince(start);
+		}
+	}
+
+	@Override
+	public boolean updateVotesCount(long id, long pollID) throws DAOException {
+		long start = System.nanoTime();
+		try {
+			return delegate.updateVotesCount(id, pollID);
+		} catch (DAOException e) {
+			updateVotesCount.errors.increment();
+			throw e;
+		} finally {
+			updateVotesCount.latency.recordSince(start);
+		}
+	}
+
+	@Override
+	public int updateVotesCounts(Collection<VotesDelta> deltas) throws DAOException {
+		long start = System.nanoTime();
+		try {
+			return delegate.updateVotesCounts(deltas);
+		} catch (DAOException e) {
+			updateVotesCounts.errors.increment();
+			throw e;
+		} finally {
+			updateVotesCounts.latency.recordSince(start);
+		}
+	}
+
+	@Override
+	public List<Poll> getPolls() throws DAOException {
+		long start = System.nanoTime();
+		try {
+			return delegate.getPolls();
+		} catch (DAOException e) {
+			getPolls.errors.increment();
+			throw e;
+		} finally {
+			getPolls.latency.recordSince(start);
+		}
+	}
+
+	@Override
+	public Poll getPoll(long pollID) throws DAOException {
+		long start = System.nanoTime();
+		try {
+			return delegate.getPoll(pollID);
+		} catch (DAOException e) {
+			getPoll.errors.increment();
+			throw e;
+		} finally {
+			getPoll.latency.recordSince(start);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (delegate instanceof Closeable) {
+			((Closeable) delegate).close();
+		}
+	}
+
+	/**
+	 * Pomoćni razred koji objedinjuje histogram trajanja i brojač pogrešaka
+	 * jedne metode. Oba se dohvaćaju iz {@link MetricsRegistry} samo jednom,
+	 * prilikom stvaranja dekoratora.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private static class MethodMetrics {
+
+		/** Članska varijabla koja predstavlja histogram trajanja metode */
+		private final LatencyHistogram latency;
+
+		/** Članska varijabla koja predstavlja brojač pogrešaka metode */
+		private final LongAdder errors;
+
+		/**
+		 * Konstruktor koji dohvaća mjerenja metode sa imenom <b>method</b>.
+		 *
+		 * @param method
+		 *            ime metode
+		 */
+		public MethodMetrics(String method) {
+			this.latency = MetricsRegistry.histogram("dao." + method);
+			this.errors = MetricsRegistry.counter("dao." + method + ".errors");
+		}
+	}
+}
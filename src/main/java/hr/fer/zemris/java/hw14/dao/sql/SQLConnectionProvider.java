@@ -1,28 +1,59 @@
 package hr.fer.zemris.java.hw14.dao.sql;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.metrics.LatencyHistogram;
+import hr.fer.zemris.java.hw14.metrics.MetricsRegistry;
 
 /**
  * Razred koji se koristi za pohranu veza prema bazi podataka unutar primjerka
  * razreda {@link ThreadLocal}. ThreadLocal je zapravo mapa čiji su ključevi
  * identifikator dretve koji radi operaciju nad mapom.
- * 
+ * <p>
+ * Veza se trenutnoj dretvi može postaviti izravno metodom
+ * {@link #setConnection(Connection)} ili lijeno metodom
+ * {@link #setDataSource(DataSource)}. U drugom slučaju veza se iz predanog
+ * izvora veza dohvaća tek prilikom prvog poziva metode
+ * {@link #getConnection()}, pa dretve koje ne pristupaju bazi podataka ne
+ * zauzimaju vezu iz bazena veza. Lijeno dohvaćena veza vraća se u bazen veza
+ * pozivom metode {@link #releaseConnection()}. Trajanje svakog lijenog
+ * dohvata veze bilježi se u histogram "pool.checkoutWait".
+ * </p>
+ * <p>
+ * Budući da je veza vezana uz dretvu, zadatak koji se izvodi na drugoj dretvi
+ * (npr. prilikom asinkrone obrade zahtjeva) potrebno je omotati metodom
+ * {@link #wrap(Runnable)}, kako bi na dretvi na kojoj se izvodi imao isti izvor
+ * veza kao dretva koja ga je stvorila.
+ * </p>
+ *
  * @see ThreadLocal
- * 
+ *
  * @author Davor Češljaš
  *
  */
 public class SQLConnectionProvider {
 
-	private static ThreadLocal<Connection> connections = new ThreadLocal<>();
+	/**
+	 * Konstanta koja predstavlja histogram trajanja dohvata veze iz izvora
+	 * veza, a koji je zabilježen pod imenom "pool.checkoutWait" unutar
+	 * {@link MetricsRegistry}
+	 */
+	private static final LatencyHistogram CHECKOUT_WAIT = MetricsRegistry.histogram("pool.checkoutWait");
+
+	private static ThreadLocal<ConnectionBinding> connections = new ThreadLocal<>();
 
 	/**
 	 * Metoda koja se koristi za postavljanje veze za trenutnu dretvu. Kao
 	 * parametar ove metode predaje se primjerak razreda koji implementira
 	 * sučelje {@link Connection} te modelira vezu prema bazi podataka. Ukoliko
 	 * se kao parametar preda <code>null</code> metoda uklanja unos u mapi
-	 * konekcija za trenutnu dretvu.
-	 * 
+	 * konekcija za trenutnu dretvu. Za zatvaranje ovako postavljene veze
+	 * odgovoran je pozivatelj.
+	 *
 	 * @param con
 	 *            primjerak razreda koji implementira sučelje {@link Connection}
 	 *            te modelira vezu prema bazi podataka
@@ -31,19 +62,161 @@ public class SQLConnectionProvider {
 		if (con == null) {
 			connections.remove();
 		} else {
-			connections.set(con);
+			connections.set(new ConnectionBinding(null, con));
+		}
+	}
+
+	/**
+	 * Metoda koja se koristi za lijeno postavljanje veze za trenutnu dretvu.
+	 * Veza se iz predanog izvora veza dohvaća tek prilikom prvog poziva metode
+	 * {@link #getConnection()} na trenutnoj dretvi. Ukoliko se kao parametar
+	 * preda <code>null</code> metoda uklanja unos u mapi konekcija za trenutnu
+	 * dretvu, bez zatvaranja već dohvaćene veze.
+	 *
+	 * @param dataSource
+	 *            izvor veza prema bazi podataka iz kojeg se veza dohvaća po
+	 *            potrebi
+	 */
+	public static void setDataSource(DataSource dataSource) {
+		if (dataSource == null) {
+			connections.remove();
+		} else {
+			connections.set(new ConnectionBinding(dataSource, null));
 		}
 	}
 
 	/**
 	 * Metoda koja se koristi za dohvat konekcije prema bazi podataka modelirane
-	 * sučelje {@link Connection} za trenutnu dretvu
-	 * 
+	 * sučelje {@link Connection} za trenutnu dretvu. Ukoliko je trenutnoj
+	 * dretvi postavljen izvor veza, a veza još nije dohvaćena, ona se dohvaća
+	 * prilikom ovog poziva.
+	 *
 	 * @return konekcija prema bazi podataka modelirane sučelje
-	 *         {@link Connection} za trenutnu dretvu
+	 *         {@link Connection} za trenutnu dretvu ili <code>null</code>
+	 *         ukoliko trenutnoj dretvi nije postavljena niti veza niti izvor
+	 *         veza
+	 * @throws DAOException
+	 *             ukoliko vezu nije moguće dohvatiti iz izvora veza
+	 */
+	public static Connection getConnection() throws DAOException {
+		ConnectionBinding binding = connections.get();
+		if (binding == null) {
+			return null;
+		}
+
+		if (binding.connection == null) {
+			long start = System.nanoTime();
+			try {
+				binding.connection = binding.dataSource.getConnection();
+			} catch (SQLException e) {
+				throw new DAOException("Baza podataka nije dostupna.", e);
+			} finally {
+				CHECKOUT_WAIT.recordSince(start);
+			}
+		}
+
+		return binding.connection;
+	}
+
+	/**
+	 * Metoda koja provjerava je li trenutnoj dretvi dohvaćena veza prema bazi
+	 * podataka.
+	 *
+	 * @return <code>true</code> ukoliko trenutna dretva ima dohvaćenu vezu,
+	 *         <code>false</code> inače
 	 */
-	public static Connection getConnection() {
-		return connections.get();
+	public static boolean hasConnection() {
+		ConnectionBinding binding = connections.get();
+		return binding != null && binding.connection != null;
+	}
+
+	/**
+	 * Metoda koja uklanja unos u mapi konekcija za trenutnu dretvu. Ukoliko je
+	 * veza dohvaćena lijeno iz izvora veza, ona se zatvara, odnosno vraća u
+	 * bazen veza. Veze postavljene metodom {@link #setConnection(Connection)}
+	 * se ne zatvaraju.
+	 *
+	 * @throws DAOException
+	 *             ukoliko lijeno dohvaćenu vezu nije moguće zatvoriti
+	 */
+	public static void releaseConnection() throws DAOException {
+		ConnectionBinding binding = connections.get();
+		connections.remove();
+
+		if (binding == null || binding.dataSource == null || binding.connection == null) {
+			return;
+		}
+
+		try {
+			binding.connection.close();
+		} catch (SQLException e) {
+			throw new DAOException("Nije moguće zatvoriti vezu prema bazi podataka.", e);
+		}
+	}
+
+	/**
+	 * Metoda koja omata zadatak <b>task</b> tako da se, na kojoj god se
+	 * dretvi izvodio, izvodi sa istim postavkama kao trenutna dretva. Ukoliko
+	 * je trenutnoj dretvi postavljen izvor veza, dretva koja izvodi zadatak iz
+	 * njega lijeno dohvaća vlastitu vezu, koja se vraća u bazen veza nakon
+	 * završetka zadatka. Ukoliko je trenutnoj dretvi veza postavljena izravno,
+	 * zadatak koristi istu vezu, pa trenutna dretva tu vezu ne smije
+	 * istovremeno koristiti. Ukoliko trenutnoj dretvi nije postavljeno ništa,
+	 * zadatak se vraća neizmijenjen.
+	 *
+	 * @param task
+	 *            zadatak koji se omata
+	 * @return omotani zadatak
+	 */
+	public static Runnable wrap(Runnable task) {
+		ConnectionBinding binding = connections.get();
+		if (binding == null) {
+			return task;
+		}
+
+		DataSource dataSource = binding.dataSource;
+		Connection connection = dataSource == null ? binding.connection : null;
+		return () -> {
+			connections.set(new ConnectionBinding(dataSource, connection));
+			try {
+				task.run();
+			} finally {
+				releaseConnection();
+			}
+		};
+	}
+
+	/**
+	 * Pomoćni statički razred koji modelira vezu postavljenu jednoj dretvi.
+	 * Ukoliko je postavljen izvor veza, veza se iz njega dohvaća po potrebi.
+	 */
+	private static class ConnectionBinding {
+
+		/**
+		 * Članska varijabla koja predstavlja izvor veza iz kojeg se veza
+		 * dohvaća po potrebi ili <code>null</code> ukoliko je veza postavljena
+		 * izravno
+		 */
+		private final DataSource dataSource;
+
+		/**
+		 * Članska varijabla koja predstavlja vezu prema bazi podataka ili
+		 * <code>null</code> ukoliko veza još nije dohvaćena
+		 */
+		private Connection connection;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param dataSource
+		 *            izvor veza iz kojeg se veza dohvaća po potrebi
+		 * @param connection
+		 *            već dohvaćena veza prema bazi podataka
+		 */
+		public ConnectionBinding(DataSource dataSource, Connection connection) {
+			this.dataSource = dataSource;
+			this.connection = connection;
+		}
 	}
 
-}
\ No newline at end of file
+}
@@ -4,19 +4,31 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import hr.fer.zemris.java.hw14.app.models.Poll;
 import hr.fer.zemris.java.hw14.app.models.PollOption;
 import hr.fer.zemris.java.hw14.dao.DAO;
 import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.VotesDelta;
+import hr.fer.zemris.java.hw14.db.util.SQLUtil;
 
 /**
  * Razred koji implementira sučelje {@link DAO}. Ovaj razred koristi se kao Data
  * Source Object koji za izvor podataka ima bazu podataka. Drugim riječima svi
  * podaci koje metode ovog razreda (odnosno sučelja {@link DAO}) dolaze iz baze
  * podataka.
+ * <p>
+ * Odgovori na anketna pitanja dohvaćaju se poredani silazno po broju glasova,
+ * a zatim uzlazno po identifikatoru. Poredak određuje baza podataka čitanjem
+ * indeksa {@value SQLUtil#POLL_OPTIONS_VOTES_INDEX}, bez naknadnog
+ * sortiranja, a izmjene broja glasova pronalaze redak preko indeksa
+ * {@value SQLUtil#POLL_OPTIONS_ID_INDEX}.
+ * </p>
  * 
  * @see DAO
  * 
@@ -24,25 +36,80 @@ import hr.fer.zemris.java.hw14.dao.DAOException;
  */
 public class SQLDAO implements DAO {
 
+	/**
+	 * Konstanta koja predstavlja stupce tablice 'PollOptions' koji se čitaju
+	 * prilikom dohvata odgovora na anketna pitanja, i to redom kojim ih
+	 * očekuje konstruktor razreda {@link PollOption}
+	 */
+	private static final String POLL_OPTIONS_COLUMNS = "id, optionTitle, optionLink, pollID, votesCount";
+
+	/**
+	 * Konstanta koja predstavlja stupce tablice 'Polls' koji se čitaju
+	 * prilikom dohvata anketnih pitanja, i to redom kojim ih očekuje
+	 * konstruktor razreda {@link Poll}
+	 */
+	private static final String POLLS_COLUMNS = "id, title, message";
+
+	/**
+	 * Članska varijabla koja predstavlja broj redaka koje upravljački program
+	 * dohvaća iz baze podataka odjednom prilikom čitanja odgovora na anketna
+	 * pitanja. Vrijednost 0 prepušta odluku upravljačkom programu.
+	 */
+	private final int fetchSize;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda. Broj redaka koji
+	 * se dohvaćaju odjednom prepušta se upravljačkom programu.
+	 */
+	public SQLDAO() {
+		this(0);
+	}
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param fetchSize
+	 *            broj redaka koje upravljački program dohvaća iz baze podataka
+	 *            odjednom prilikom čitanja odgovora na anketna pitanja.
+	 *            Vrijednost 0 prepušta odluku upravljačkom programu.
+	 * @throws IllegalArgumentException
+	 *             ukoliko je <b>fetchSize</b> negativan
+	 */
+	public SQLDAO(int fetchSize) {
+		if (fetchSize < 0) {
+			throw new IllegalArgumentException("Broj redaka koji se dohvaćaju odjednom ne smije biti negativan");
+		}
+
+		this.fetchSize = fetchSize;
+	}
+
 	@Override
 	public List<PollOption> getPollOptions(long pollID) throws DAOException {
-		Connection con = SQLConnectionProvider.getConnection();
 		List<PollOption> pollOptions = new ArrayList<>();
+		forEachPollOption(pollID, pollOptions::add);
 
-		try (PreparedStatement pst = con.prepareStatement("select * from PollOptions where pollID=?")) {
+		return pollOptions;
+	}
+
+	@Override
+	public void forEachPollOption(long pollID, Consumer<PollOption> action) throws DAOException {
+		Connection con = SQLConnectionProvider.getConnection();
+
+		try (PreparedStatement pst = con
+				.prepareStatement("select " + POLL_OPTIONS_COLUMNS
+						+ " from PollOptions where pollID=? order by votesCount desc, id")) {
+			pst.setFetchSize(fetchSize);
 			pst.setLong(1, pollID);
 
 			try (ResultSet rset = pst.executeQuery()) {
 				while (rset != null && rset.next()) {
-					pollOptions.add(new PollOption(rset.getLong(1), rset.getString(2), rset.getString(3),
+					action.accept(new PollOption(rset.getLong(1), rset.getString(2), rset.getString(3),
 							rset.getLong(4), rset.getLong(5)));
 				}
 			}
 		} catch (SQLException e) {
 			throw new DAOException("Pogreška prilikom dohvata svih opcija ankete za pollID=" + pollID, e);
 		}
-
-		return pollOptions;
 	}
 
 	@Override
@@ -59,12 +126,34 @@ public class SQLDAO implements DAO {
 		}
 	}
 
+	@Override
+	public int updateVotesCounts(Collection<VotesDelta> deltas) throws DAOException {
+		if (deltas.isEmpty()) {
+			return 0;
+		}
+
+		Connection con = SQLConnectionProvider.getConnection();
+		try (PreparedStatement pst = con
+				.prepareStatement("update PollOptions set votesCount=votesCount + ? where id=? and pollID=?")) {
+			for (VotesDelta delta : deltas) {
+				pst.setLong(1, delta.getDelta());
+				pst.setLong(2, delta.getId());
+				pst.setLong(3, delta.getPollID());
+				pst.addBatch();
+			}
+
+			return executeInTransaction(con, pst);
+		} catch (SQLException e) {
+			throw new DAOException("Pogreška prilikom grupne izmjene broja glasova", e);
+		}
+	}
+
 	@Override
 	public List<Poll> getPolls() throws DAOException {
 		Connection con = SQLConnectionProvider.getConnection();
 		List<Poll> polls = new ArrayList<>();
 
-		try (PreparedStatement pst = con.prepareStatement("select * from Polls")) {
+		try (PreparedStatement pst = con.prepareStatement("select " + POLLS_COLUMNS + " from Polls")) {
 			try (ResultSet rset = pst.executeQuery()) {
 				while (rset != null && rset.next()) {
 					polls.add(new Poll(rset.getLong(1), rset.getString(2), rset.getString(3)));
@@ -81,7 +170,7 @@ public class SQLDAO implements DAO {
 	public Poll getPoll(long pollID) throws DAOException {
 		Connection con = SQLConnectionProvider.getConnection();
 
-		try (PreparedStatement pst = con.prepareStatement("select * from Polls where id = ?")) {
+		try (PreparedStatement pst = con.prepareStatement("select " + POLLS_COLUMNS + " from Polls where id = ?")) {
 			pst.setLong(1, pollID);
 
 			try (ResultSet rset = pst.executeQuery()) {
@@ -95,4 +184,41 @@ public class SQLDAO implements DAO {
 
 		return null;
 	}
+
+	/**
+	 * Pomoćna metoda koja unutar jedne transakcije izvršava sve naredbe koje su
+	 * dodane u grupu naredbi predanog parametra <b>pst</b>. Ukoliko izvršavanje
+	 * ne uspije, sve izmjene se poništavaju. Nakon izvršavanja vezi se vraća
+	 * način potvrđivanja transakcija koji je imala prije poziva ove metode
+	 *
+	 * @param con
+	 *            veza sa bazom podataka predstavljena sučeljem
+	 *            {@link Connection}
+	 * @param pst
+	 *            pripremljena naredba sa grupom naredbi koje se izvršavaju
+	 * @return broj redaka koji su izmijenjeni izvršavanjem grupe naredbi
+	 * @throws SQLException
+	 *             ukoliko izvršavanje grupe naredbi ne uspije
+	 */
+	private int executeInTransaction(Connection con, PreparedStatement pst) throws SQLException {
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(false);
+
+		try {
+			int updated = 0;
+			for (int status : pst.executeBatch()) {
+				if (status > 0 || status == Statement.SUCCESS_NO_INFO) {
+					updated++;
+				}
+			}
+
+			con.commit();
+			return updated;
+		} catch (SQLException e) {
+			con.rollback();
+			throw e;
+		} finally {
+			con.setAutoCommit(autoCommit);
+		}
+	}
 }
\ No newline at end of file
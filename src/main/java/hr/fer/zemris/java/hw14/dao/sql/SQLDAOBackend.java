@@ -0,0 +1,52 @@
+package hr.fer.zemris.java.hw14.dao.sql;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.DAOBackend;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+
+/**
+ * Razred koji implementira sučelje {@link DAOBackend}. Ovo je pretpostavljena
+ * izvedba sloja za perzistenciju podataka sa imenom {@value #NAME}, a podatke
+ * čuva u bazi podataka preko razreda {@link SQLDAO}. Ukoliko je postavka
+ * {@value DAOProvider#WRITE_BEHIND_ENABLED} postavljena na
+ * <code>true</code>, glasovi se zapisuju odgođeno preko
+ * {@link WriteBehindDAO}.
+ *
+ * @see SQLDAO
+ * @see WriteBehindDAO
+ *
+ * @author Davor Češljaš
+ */
+public class SQLDAOBackend implements DAOBackend {
+
+	/** Konstanta koja predstavlja ime ove izvedbe */
+	public static final String NAME = "sql";
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+	@Override
+	public boolean requiresDataSource() {
+		return true;
+	}
+
+	@Override
+	public DAO create(Properties properties, DataSource dataSource) throws DAOException {
+		DAO dao = new SQLDAO(Integer.parseInt(properties.getProperty(DAOProvider.FETCH_SIZE, "0")));
+
+		if (Boolean.parseBoolean(properties.getProperty(DAOProvider.WRITE_BEHIND_ENABLED))) {
+			dao = new WriteBehindDAO(dao, dataSource,
+					Long.parseLong(properties.getProperty(DAOProvider.WRITE_BEHIND_FLUSH_INTERVAL, "500")),
+					Long.parseLong(properties.getProperty(DAOProvider.WRITE_BEHIND_FLUSH_THRESHOLD, "1000")));
+		}
+
+		return dao;
+	}
+}
@@ -0,0 +1,580 @@
+package hr.fer.zemris.java.hw14.dao.sql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import hr.fer.zemris.java.hw14.app.models.Poll;
+import hr.fer.zemris.java.hw14.app.models.PollOption;
+import hr.fer.zemris.java.hw14.dao.DAO;
+import hr.fer.zemris.java.hw14.dao.DAOException;
+import hr.fer.zemris.java.hw14.dao.DAOProvider;
+import hr.fer.zemris.java.hw14.dao.VotesDelta;
+import hr.fer.zemris.java.hw14.dao.cache.LRUCache;
+
+/**
+ * Razred koji implementira sučelje {@link DAO} u duhu oblikovnog obrasca
+ * <a href="https://en.wikipedia.org/wiki/Decorator_pattern">dekorator</a>.
+ * Primjerci ovog razreda glasove ne zapisuju odmah u bazu podataka, već ih
+ * nakupljaju u memoriji po paru (pollID, id) unutar brojača
+ * {@link LongAdder}. Nakupljeni glasovi se potom grupno zapisuju pozivom
+ * metode {@link DAO#updateVotesCounts(Collection)} omotanog primjerka sučelja
+ * {@link DAO} i to svakih nekoliko milisekundi ili ukoliko broj nakupljenih
+ * glasova prijeđe zadanu granicu.
+ * <p>
+ * Budući da se zapisivanje odvija na zasebnoj dretvi, ovaj razred za vrijeme
+ * zapisivanja sam postavlja predani {@link DataSource} preko
+ * {@link SQLConnectionProvider}. Metode za čitanje vraćaju broj glasova
+ * koji uključuje i još nezapisane glasove, a odgovori se nakon uračunavanja
+ * nezapisanih glasova ponovno poredaju prema {@link DAO#RESULTS_ORDER}.
+ * Prilikom gašenja aplikacije
+ * potrebno je pozvati {@link #close()} kako se nezapisani glasovi ne bi
+ * izgubili. Glasovi pristigli nakon poziva metode {@link #close()} izravno
+ * se prosljeđuju omotanom primjerku sučelja {@link DAO}.
+ * </p>
+ * <p>
+ * Glas se prihvaća samo za odgovor za koji je poznato da pripada anketi.
+ * Ukoliko odgovor nije poznat, odgovori ankete ponovno se dohvaćaju najviše
+ * jednom u {@value #MISS_RELOAD_MILLIS} milisekundi, a nepostojeće ankete
+ * pamte se jednako dugo, kako glasovi za nepostojeće odgovore ne bi svaki put
+ * čitali odgovore iz baze podataka.
+ * </p>
+ * <p>
+ * Ukoliko zapisivanje ne uspije (npr. jer baza podataka nije dostupna),
+ * greška se zapisuje u zapisnik, a sljedeći pokušaj odgađa se za dvostruko
+ * dulje vrijeme od prethodnog, najviše {@value #MAX_BACKOFF_MILLIS}
+ * milisekundi. Za vrijeme odgode ne pokreće se ni zapisivanje zbog
+ * prekoračenja granice nakupljenih glasova.
+ * </p>
+ *
+ * @see DAO
+ * @see DAOProvider
+ *
+ * @author Davor Češljaš
+ */
+public class WriteBehindDAO implements DAO, Closeable {
+
+	/**
+	 * Konstanta koja predstavlja najmanji broj milisekundi između dva
+	 * dohvata odgovora iste ankete zbog glasa za nepoznati odgovor
+	 */
+	private static final long MISS_RELOAD_MILLIS = 1000;
+
+	/**
+	 * Konstanta koja predstavlja najveći broj nepostojećih anketa koje se
+	 * pamte
+	 */
+	private static final int MAX_MISSING_POLLS = 1024;
+
+	/**
+	 * Konstanta koja predstavlja najveći broj milisekundi za koji se odgađa
+	 * ponovno zapisivanje nakon neuspjelog zapisivanja
+	 */
+	private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+	/**
+	 * Konstanta koja predstavlja najveći broj milisekundi koliko se prilikom
+	 * zatvaranja čeka na glasove koji se upravo bilježe, odnosno na završetak
+	 * periodičnog zapisivanja
+	 */
+	private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+	/** Konstanta koja predstavlja zapisnik ovog razreda */
+	private static final Logger LOG = Logger.getLogger(WriteBehindDAO.class.getName());
+
+	/** Članska varijabla koja predstavlja omotani primjerak sučelja {@link DAO} */
+	private final DAO delegate;
+
+	/**
+	 * Članska varijabla koja predstavlja izvor veza prema bazi podataka koji
+	 * se koristi prilikom zapisivanja glasova
+	 */
+	private final DataSource dataSource;
+
+	/**
+	 * Članska varijabla koja predstavlja broj nakupljenih glasova nakon kojeg
+	 * se pokreće zapisivanje neovisno o proteklom vremenu
+	 */
+	private final long flushThreshold;
+
+	/**
+	 * Članska varijabla koja predstavlja broj milisekundi između dva
+	 * zapisivanja nakupljenih glasova
+	 */
+	private final long flushIntervalMillis;
+
+	/** Članska varijabla koja predstavlja brojače nezapisanih glasova */
+	private final Map<VoteKey, LongAdder> pending = new ConcurrentHashMap<>();
+
+	/** Članska varijabla koja predstavlja ukupan broj nezapisanih glasova */
+	private final LongAdder pendingTotal = new LongAdder();
+
+	/**
+	 * Članska varijabla koja predstavlja identifikatore odgovora za koje je
+	 * poznato da pripadaju pojedinoj anketi
+	 */
+	private final Map<Long, KnownOptions> knownOptions = new ConcurrentHashMap<>();
+
+	/**
+	 * Članska varijabla koja predstavlja identifikatore anketa za koje je
+	 * nedavno utvrđeno da nemaju niti jedan odgovor
+	 */
+	private final LRUCache<Long, Boolean> missingPolls = new LRUCache<>(MAX_MISSING_POLLS, MISS_RELOAD_MILLIS);
+
+	/**
+	 * Članska varijabla koja predstavlja broj glasova koji se upravo
+	 * bilježe, a na čiji se završetak čeka prilikom zatvaranja
+	 */
+	private final LongAdder inFlight = new LongAdder();
+
+	/** Članska varijabla koja označava je li pozvana metoda {@link #close()} */
+	private volatile boolean closed;
+
+	/**
+	 * Članska varijabla koja označava je li zapisivanje zbog prekoračenja
+	 * granice već zatraženo
+	 */
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	/**
+	 * Članska varijabla koja predstavlja broj milisekundi za koji je odgođeno
+	 * sljedeće zapisivanje ili 0 ukoliko je prethodno zapisivanje uspjelo
+	 */
+	private long backoffMillis;
+
+	/**
+	 * Članska varijabla koja predstavlja trenutak (dobiven pozivom
+	 * {@link System#nanoTime()}) prije kojeg se zapisivanje ne pokušava
+	 */
+	private volatile long retryAt = System.nanoTime();
+
+	/** Članska varijabla koja predstavlja dretvu koja zapisuje glasove */
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda i pokreće
+	 * periodično zapisivanje nakupljenih glasova.
+	 *
+	 * @param delegate
+	 *            primjerak sučelja {@link DAO} kojem se prosljeđuju svi upiti
+	 * @param dataSource
+	 *            izvor veza prema bazi podataka koji se koristi prilikom
+	 *            zapisivanja glasova
+	 * @param flushIntervalMillis
+	 *            broj milisekundi između dva zapisivanja nakupljenih glasova
+	 * @param flushThreshold
+	 *            broj nakupljenih glasova nakon kojeg se zapisivanje pokreće
+	 *            odmah
+	 */
+	public WriteBehindDAO(DAO delegate, DataSource dataSource, long flushIntervalMillis, long flushThreshold) {
+		this.delegate = delegate;
+		this.dataSource = dataSource;
+		this.flushThreshold = flushThreshold;
+		this.flushIntervalMillis = flushIntervalMillis;
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "write-behind-votes");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public List<PollOption> getPollOptions(long pollID) throws DAOException {
+		List<PollOption> pollOptions = delegate.getPollOptions(pollID);
+		rememberOptions(pollID, pollOptions);
+
+		List<PollOption> patched = new ArrayList<>(pollOptions.size());
+		boolean changed = false;
+		for (PollOption pollOption : pollOptions) {
+			PollOption withPending = withPendingVotes(pollOption);
+			changed |= withPending != pollOption;
+			patched.add(withPending);
+		}
+		if (changed) {
+			patched.sort(RESULTS_ORDER);
+		}
+
+		return patched;
+	}
+
+	/**
+	 * {@inheritDoc} Ukoliko anketa nema nezapisanih glasova, odgovori se
+	 * redom prosljeđuju iz omotanog primjerka sučelja {@link DAO}. Inače se
+	 * dohvaćaju metodom {@link #getPollOptions(long)}, kako bi poredak
+	 * uključivao i nezapisane glasove.
+	 */
+	@Override
+	public void forEachPollOption(long pollID, Consumer<PollOption> action) throws DAOException {
+		if (hasPendingVotes(pollID)) {
+			getPollOptions(pollID).forEach(action);
+		} else {
+			delegate.forEachPollOption(pollID, action);
+		}
+	}
+
+	@Override
+	public boolean updateVotesCount(long id, long pollID) throws DAOException {
+		inFlight.increment();
+		try {
+			if (closed) {
+				return delegate.updateVotesCount(id, pollID);
+			}
+
+			if (!isKnownOption(id, pollID)) {
+				return false;
+			}
+
+			pending.computeIfAbsent(new VoteKey(id, pollID), key -> new LongAdder()).increment();
+			pendingTotal.increment();
+
+			if (pendingTotal.sum() >= flushThreshold && !isBackingOff() && flushRequested.compareAndSet(false, true)) {
+				scheduler.execute(this::flushQuietly);
+			}
+
+			return true;
+		} finally {
+			inFlight.decrement();
+		}
+	}
+
+	@Override
+	public int updateVotesCounts(Collection<VotesDelta> deltas) throws DAOException {
+		return delegate.updateVotesCounts(deltas);
+	}
+
+	@Override
+	public List<Poll> getPolls() throws DAOException {
+		return delegate.getPolls();
+	}
+
+	@Override
+	public Poll getPoll(long pollID) throws DAOException {
+		return delegate.getPoll(pollID);
+	}
+
+	/**
+	 * Metoda koja sinkrono zapisuje sve nakupljene glasove u bazu podataka.
+	 * Glasovi koji pristignu za vrijeme zapisivanja ostaju zabilježeni i bit
+	 * će zapisani prilikom sljedećeg poziva ove metode. Ukoliko zapisivanje ne
+	 * uspije nakupljeni glasovi se ne odbacuju.
+	 *
+	 * @return broj zapisanih glasova
+	 * @throws DAOException
+	 *             ukoliko zapisivanje glasova u bazu podataka ne uspije
+	 */
+	public synchronized long flush() throws DAOException {
+		Map<LongAdder, Long> taken = new HashMap<>();
+		List<VotesDelta> deltas = new ArrayList<>();
+		pending.forEach((key, counter) -> {
+			long delta = counter.sum();
+			if (delta > 0) {
+				taken.put(counter, delta);
+				deltas.add(new VotesDelta(key.id, key.pollID, delta));
+			}
+		});
+
+		if (deltas.isEmpty()) {
+			return 0;
+		}
+
+		SQLConnectionProvider.setDataSource(dataSource);
+		try {
+			delegate.updateVotesCounts(deltas);
+		} finally {
+			SQLConnectionProvider.releaseConnection();
+		}
+
+		long total = 0;
+		for (Map.Entry<LongAdder, Long> entry : taken.entrySet()) {
+			entry.getKey().add(-entry.getValue());
+			total += entry.getValue();
+		}
+		pendingTotal.add(-total);
+
+		return total;
+	}
+
+	/**
+	 * Metoda koja zaustavlja periodično zapisivanje te sinkrono zapisuje sve
+	 * preostale glasove u bazu podataka. Prije zapisivanja čeka se da se
+	 * zabilježe glasovi koji su upravo pristigli, a svi kasniji glasovi
+	 * prosljeđuju se izravno omotanom primjerku sučelja {@link DAO}. Na
+	 * glasove koji se upravo bilježe i na periodično zapisivanje ukupno se
+	 * čeka najviše {@value #CLOSE_TIMEOUT_MILLIS} milisekundi. Ukoliko je
+	 * omotani primjerak sučelja {@link DAO} moguće zatvoriti, zatvara se i on.
+	 *
+	 * @throws DAOException
+	 *             ukoliko zapisivanje preostalih glasova ne uspije
+	 */
+	@Override
+	public void close() throws DAOException {
+		closed = true;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+		while (inFlight.sum() != 0 && System.nanoTime() - deadline < 0) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		if (inFlight.sum() != 0) {
+			LOG.warning("Glasovi koji se bilježe nakon " + CLOSE_TIMEOUT_MILLIS
+					+ " ms čekanja prilikom zatvaranja mogli bi ostati nezapisani");
+		}
+
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+
+		if (delegate instanceof Closeable) {
+			try {
+				((Closeable) delegate).close();
+			} catch (IOException e) {
+				throw new DAOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja poziva {@link #flush()}, a koja se koristi sa dretve
+	 * koja periodično zapisuje glasove. Za vrijeme odgode nakon neuspjelog
+	 * zapisivanja metoda ne radi ništa. Greška prilikom zapisivanja zapisuje
+	 * se u zapisnik, a sljedeći pokušaj odgađa se za dvostruko dulje vrijeme
+	 * od prethodnog, najviše {@value #MAX_BACKOFF_MILLIS} milisekundi.
+	 */
+	private void flushQuietly() {
+		flushRequested.set(false);
+		if (isBackingOff()) {
+			return;
+		}
+
+		try {
+			flush();
+			backoffMillis = 0;
+		} catch (DAOException e) {
+			backoffMillis = backoffMillis == 0 ? flushIntervalMillis
+					: Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+			retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis);
+			LOG.log(Level.WARNING, "Nije moguće zapisati " + pendingTotal.sum()
+					+ " nakupljenih glasova, sljedeći pokušaj za " + backoffMillis + " ms", e);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja provjerava je li zapisivanje odgođeno zbog
+	 * prethodnog neuspjelog zapisivanja
+	 *
+	 * @return <code>true</code> ukoliko je zapisivanje odgođeno,
+	 *         <code>false</code> inače
+	 */
+	private boolean isBackingOff() {
+		return System.nanoTime() - retryAt < 0;
+	}
+
+	/**
+	 * Pomoćna metoda koja provjerava pripada li odgovor sa identifikatorom
+	 * <b>id</b> anketi sa identifikatorom <b>pollID</b>. Ukoliko odgovor nije
+	 * poznat, odgovori ankete se ponovno dohvaćaju preko omotanog primjerka
+	 * sučelja {@link DAO}, ali najviše jednom u
+	 * {@value #MISS_RELOAD_MILLIS} milisekundi po anketi.
+	 *
+	 * @param id
+	 *            identifikator odgovora na anketno pitanje
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return <code>true</code> ukoliko odgovor pripada anketi,
+	 *         <code>false</code> inače
+	 */
+	private boolean isKnownOption(long id, long pollID) {
+		KnownOptions known = knownOptions.get(pollID);
+		if (known != null) {
+			if (known.ids.contains(id)) {
+				return true;
+			}
+			if (!known.tryReload()) {
+				return false;
+			}
+		} else if (missingPolls.get(pollID) != null) {
+			return false;
+		}
+
+		return rememberOptions(pollID, delegate.getPollOptions(pollID)).contains(id);
+	}
+
+	/**
+	 * Pomoćna metoda koja pamti identifikatore svih predanih odgovora kao
+	 * odgovore ankete sa identifikatorom <b>pollID</b>. Ankete bez odgovora
+	 * pamte se kao nepostojeće.
+	 *
+	 * @param pollID
+	 *            identifikator ankete
+	 * @param pollOptions
+	 *            {@link List} svih odgovora ankete
+	 * @return {@link Set} identifikatora zapamćenih odgovora
+	 */
+	private Set<Long> rememberOptions(long pollID, List<PollOption> pollOptions) {
+		Set<Long> ids = new HashSet<>();
+		for (PollOption pollOption : pollOptions) {
+			ids.add(pollOption.getId());
+		}
+
+		if (ids.isEmpty()) {
+			knownOptions.remove(pollID);
+			missingPolls.put(pollID, Boolean.TRUE);
+		} else {
+			knownOptions.put(pollID, new KnownOptions(ids));
+		}
+		return ids;
+	}
+
+	/**
+	 * Pomoćna metoda koja provjerava ima li anketa sa identifikatorom
+	 * <b>pollID</b> nezapisanih glasova
+	 *
+	 * @param pollID
+	 *            identifikator ankete
+	 * @return <code>true</code> ukoliko anketa ima nezapisanih glasova,
+	 *         <code>false</code> inače
+	 */
+	private boolean hasPendingVotes(long pollID) {
+		for (Map.Entry<VoteKey, LongAdder> entry : pending.entrySet()) {
+			if (entry.getKey().pollID == pollID && entry.getValue().sum() > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara novi primjerak razreda {@link PollOption}
+	 * čiji broj glasova uključuje i glasove koji još nisu zapisani u bazu
+	 * podataka.
+	 *
+	 * @param pollOption
+	 *            odgovor na anketno pitanje pročitan iz baze podataka
+	 * @return odgovor na anketno pitanje sa uključenim nezapisanim glasovima
+	 */
+	private PollOption withPendingVotes(PollOption pollOption) {
+		LongAdder counter = pending.get(new VoteKey(pollOption.getId(), pollOption.getPollID()));
+		long delta = counter == null ? 0 : counter.sum();
+		if (delta <= 0) {
+			return pollOption;
+		}
+
+		return new PollOption(pollOption.getId(), pollOption.getOptionTitle(), pollOption.getOptionLink(),
+				pollOption.getPollID(), pollOption.getVotesCount() + delta);
+	}
+
+	/**
+	 * Pomoćni statički razred koji predstavlja poznate odgovore jedne ankete
+	 * zajedno sa trenutkom nakon kojeg ih je dozvoljeno ponovno dohvatiti.
+	 */
+	private static class KnownOptions {
+
+		/** Članska varijabla koja predstavlja identifikatore odgovora */
+		private final Set<Long> ids;
+
+		/**
+		 * Članska varijabla koja predstavlja trenutak (dobiven pozivom
+		 * {@link System#nanoTime()}) nakon kojeg je odgovore dozvoljeno
+		 * ponovno dohvatiti
+		 */
+		private final AtomicLong nextReload;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param ids
+		 *            identifikatori odgovora
+		 */
+		public KnownOptions(Set<Long> ids) {
+			this.ids = ids;
+			this.nextReload = new AtomicLong(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MISS_RELOAD_MILLIS));
+		}
+
+		/**
+		 * Metoda koja provjerava je li odgovore dozvoljeno ponovno dohvatiti.
+		 * Od istovremenih pozivatelja dozvolu dobiva samo jedan.
+		 *
+		 * @return <code>true</code> ukoliko pozivatelj treba ponovno dohvatiti
+		 *         odgovore, <code>false</code> inače
+		 */
+		public boolean tryReload() {
+			long next = nextReload.get();
+			long now = System.nanoTime();
+			return now - next >= 0
+					&& nextReload.compareAndSet(next, now + TimeUnit.MILLISECONDS.toNanos(MISS_RELOAD_MILLIS));
+		}
+	}
+
+	/**
+	 * Pomoćni statički razred koji predstavlja ključ brojača nezapisanih
+	 * glasova. Ključ se sastoji od identifikatora odgovora i identifikatora
+	 * ankete.
+	 */
+	private static class VoteKey {
+
+		/** Članska varijabla koja predstavlja identifikator odgovora */
+		private final long id;
+
+		/** Članska varijabla koja predstavlja identifikator ankete */
+		private final long pollID;
+
+		/**
+		 * Konstruktor koji inicijalizira primjerak ovog razreda.
+		 *
+		 * @param id
+		 *            identifikator odgovora
+		 * @param pollID
+		 *            identifikator ankete
+		 */
+		public VoteKey(long id, long pollID) {
+			this.id = id;
+			this.pollID = pollID;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (int) (id ^ (id >>> 32));
+			result = prime * result + (int) (pollID ^ (pollID >>> 32));
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			VoteKey other = (VoteKey) obj;
+			return id == other.id && pollID == other.pollID;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package hr.fer.zemris.java.hw14.db.bulk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import hr.fer.zemris.java.hw14.db.seed.SeedUtil;
+
+/**
+ * Razred koji predstavlja program za grupni uvoz odgovora na anketno pitanje
+ * iz TSV ili CSV datoteke. Program prima sljedeće argumente naredbenog retka:
+ * <ol>
+ * <li>URL baze podataka (npr.
+ * "jdbc:derby://localhost:1527/votingDB;user=ivica;password=ivo")</li>
+ * <li>putanja do datoteke</li>
+ * <li>identifikator postojećeg anketnog pitanja</li>
+ * <li>(opcionalno) format datoteke, "tsv" (pretpostavljeno) ili "csv"</li>
+ * <li>(opcionalno) broj redaka koji se šalju bazi podataka odjednom, a
+ * pretpostavljeno je {@value SeedUtil#DEFAULT_BATCH_SIZE}</li>
+ * <li>(opcionalno) najveći broj različitih redaka koji se pamte prilikom
+ * prepoznavanja ponovljenih redaka, a pretpostavljeno je
+ * {@value #DEFAULT_MAX_DISTINCT}</li>
+ * </ol>
+ * Tijekom uvoza program najviše jednom u sekundi ispisuje napredak, a na kraju
+ * ispisuje izvještaj o uvozu.
+ *
+ * @see BulkImporter
+ *
+ * @author Davor Češljaš
+ */
+public class BulkImportTool {
+
+	/**
+	 * Konstanta koja predstavlja pretpostavljeni najveći broj različitih
+	 * redaka koji se pamte prilikom prepoznavanja ponovljenih redaka
+	 */
+	public static final int DEFAULT_MAX_DISTINCT = 4_000_000;
+
+	/**
+	 * Konstanta koja predstavlja najmanji razmak između dva ispisa napretka u
+	 * nanosekundama
+	 */
+	private static final long PROGRESS_INTERVAL_NANOS = 1_000_000_000L;
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private BulkImportTool() {
+	}
+
+	/**
+	 * Metoda od koje započinje izvođenje programa.
+	 *
+	 * @param args
+	 *            argumenti naredbenog retka opisani u dokumentaciji razreda
+	 */
+	public static void main(String[] args) {
+		if (args.length < 3 || args.length > 6) {
+			System.err.println("Korištenje: BulkImportTool <jdbcURL> <datoteka> <pollID> [tsv|csv] "
+					+ "[veličinaGrupe] [najvišeRazličitih]");
+			System.exit(1);
+		}
+
+		Path file = Paths.get(args[1]);
+		long pollID;
+		DelimitedFormat format;
+		int batchSize;
+		int maxDistinct;
+		try {
+			pollID = Long.parseLong(args[2]);
+			format = args.length > 3 ? DelimitedFormat.forName(args[3]) : DelimitedFormat.TSV;
+			batchSize = args.length > 4 ? Integer.parseInt(args[4]) : SeedUtil.DEFAULT_BATCH_SIZE;
+			maxDistinct = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_MAX_DISTINCT;
+		} catch (IllegalArgumentException e) {
+			System.err.println("Neispravni argumenti: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+
+		long[] lastPrint = { System.nanoTime() };
+		try (Connection con = DriverManager.getConnection(args[0])) {
+			ImportReport report = new BulkImporter(con, batchSize, maxDistinct).importPollOptions(file, format,
+					pollID, progress -> {
+						long now = System.nanoTime();
+						if (now - lastPrint[0] >= PROGRESS_INTERVAL_NANOS) {
+							System.err.println(progress);
+							lastPrint[0] = now;
+						}
+					});
+			System.out.println(report);
+		} catch (SQLException | IOException e) {
+			System.err.println("Uvoz nije uspio: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
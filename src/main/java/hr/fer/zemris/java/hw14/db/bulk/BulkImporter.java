@@ -0,0 +1,265 @@
+package hr.fer.zemris.java.hw14.db.bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import hr.fer.zemris.java.hw14.db.util.PollOptionsBatch;
+
+/**
+ * Razred koji se koristi za grupni uvoz odgovora na anketno pitanje iz
+ * (proizvoljno velikih) TSV ili CSV datoteka. Svaki redak datoteke sadrži
+ * naziv odgovora i link odgovora, a opisan je enumeracijom
+ * {@link DelimitedFormat}. Datoteka se čita redak po redak kroz spremnik
+ * veličine {@value #BUFFER_SIZE} okteta, pa potrošnja memorije ne ovisi o
+ * veličini datoteke.
+ * <p>
+ * Ponovljeni redci (unutar datoteke ili u odnosu na odgovore koji već postoje
+ * u bazi podataka) prepoznaju se skupom otisaka {@link FingerprintSet}
+ * ograničene veličine, pa je ponovni uvoz iste datoteke bez učinka. Neispravni
+ * redci (krivi broj polja, prazna ili preduga polja) se preskaču. Ispravni
+ * redci unose se u grupama od najviše <b>batchSize</b> redaka, a svaka se
+ * grupa potvrđuje zasebnom transakcijom, nakon čega se poziva promatrač
+ * napretka.
+ * </p>
+ *
+ * @see BulkImportTool
+ *
+ * @author Davor Češljaš
+ */
+public class BulkImporter {
+
+	/** Konstanta koja predstavlja veličinu spremnika za čitanje u znakovima */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	/** Konstanta koja predstavlja najveću duljinu naziva odgovora */
+	private static final int MAX_TITLE_LENGTH = 100;
+
+	/** Konstanta koja predstavlja najveću duljinu linka odgovora */
+	private static final int MAX_LINK_LENGTH = 150;
+
+	/** Članska varijabla koja predstavlja vezu sa bazom podataka */
+	private final Connection con;
+
+	/**
+	 * Članska varijabla koja predstavlja najveći broj redaka koji se šalju
+	 * bazi podataka odjednom
+	 */
+	private final int batchSize;
+
+	/**
+	 * Članska varijabla koja predstavlja najveći broj otisaka koji se pamte
+	 * prilikom prepoznavanja ponovljenih redaka
+	 */
+	private final int maxDistinct;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param batchSize
+	 *            najveći broj redaka koji se šalju bazi podataka odjednom
+	 * @param maxDistinct
+	 *            najveći broj otisaka koji se pamte prilikom prepoznavanja
+	 *            ponovljenih redaka
+	 */
+	public BulkImporter(Connection con, int batchSize, int maxDistinct) {
+		this.con = con;
+		this.batchSize = batchSize;
+		this.maxDistinct = maxDistinct;
+	}
+
+	/**
+	 * Metoda koja uvozi odgovore iz datoteke <b>file</b> u anketno pitanje sa
+	 * identifikatorom <b>pollID</b>.
+	 *
+	 * @param file
+	 *            putanja do datoteke
+	 * @param format
+	 *            format datoteke
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param progress
+	 *            promatrač napretka koji se poziva nakon svake unesene grupe
+	 * @return izvještaj o uvozu
+	 * @throws IOException
+	 *             ukoliko čitanje datoteke ili unos ne uspije
+	 */
+	public ImportReport importPollOptions(Path file, DelimitedFormat format, long pollID,
+			Consumer<ImportReport> progress) throws IOException {
+		try (InputStream is = Files.newInputStream(file)) {
+			return importPollOptions(is, format, pollID, progress);
+		}
+	}
+
+	/**
+	 * Metoda koja uvozi odgovore iz ulaznog toka <b>is</b> (kodiranog UTF-8
+	 * kodnom stranicom) u anketno pitanje sa identifikatorom <b>pollID</b>.
+	 * Ulazni tok se ne zatvara.
+	 *
+	 * @param is
+	 *            ulazni tok
+	 * @param format
+	 *            format zapisa
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param progress
+	 *            promatrač napretka koji se poziva nakon svake unesene grupe
+	 * @return izvještaj o uvozu
+	 * @throws IOException
+	 *             ukoliko anketno pitanje ne postoji, ukoliko čitanje ne
+	 *             uspije ili ukoliko unos ne uspije
+	 */
+	public ImportReport importPollOptions(InputStream is, DelimitedFormat format, long pollID,
+			Consumer<ImportReport> progress) throws IOException {
+		long start = System.nanoTime();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8), BUFFER_SIZE);
+		FingerprintSet seen = new FingerprintSet(maxDistinct);
+		long rowsRead = 0;
+		long duplicates = 0;
+		long rejected = 0;
+
+		try {
+			checkPollExists(pollID);
+			loadExisting(pollID, seen);
+
+			boolean autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			try (PollOptionsBatch batch = new PollOptionsBatch(con, batchSize)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().isEmpty()) {
+						continue;
+					}
+					rowsRead++;
+
+					List<String> fields = format.parse(line);
+					if (!isValid(fields)) {
+						rejected++;
+						continue;
+					}
+
+					String title = fields.get(0);
+					String link = fields.get(1);
+					if (!seen.add(title, link)) {
+						duplicates++;
+						continue;
+					}
+
+					if (batch.add(title, link, pollID, 0)) {
+						con.commit();
+						progress.accept(new ImportReport(rowsRead, batch.getInserted(), duplicates, rejected,
+								System.nanoTime() - start, seen.isSaturated()));
+					}
+				}
+
+				batch.finish();
+				con.commit();
+				ImportReport report = new ImportReport(rowsRead, batch.getInserted(), duplicates, rejected,
+						System.nanoTime() - start, seen.isSaturated());
+				progress.accept(report);
+				return report;
+			} catch (SQLException | IOException e) {
+				con.rollback();
+				throw e;
+			} finally {
+				con.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			throw new IOException("Uvoz nije uspio nakon " + rowsRead + " pročitanih redaka.", e);
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja provjerava postoji li anketno pitanje sa
+	 * identifikatorom <b>pollID</b>
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @throws SQLException
+	 *             ukoliko upit ne uspije
+	 * @throws IOException
+	 *             ukoliko anketno pitanje ne postoji
+	 */
+	private void checkPollExists(long pollID) throws SQLException, IOException {
+		if (!pollExists(pollID)) {
+			throw new IOException("Anketno pitanje sa identifikatorom " + pollID + " ne postoji.");
+		}
+	}
+
+	/**
+	 * Metoda koja provjerava postoji li anketno pitanje sa identifikatorom
+	 * <b>pollID</b>. Upit se izvodi nad vezom ovog uvoznika, pa ne ovisi o
+	 * vezi postavljenoj trenutnoj dretvi.
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @return <code>true</code> ukoliko anketno pitanje postoji,
+	 *         <code>false</code> inače
+	 * @throws SQLException
+	 *             ukoliko upit ne uspije
+	 */
+	public boolean pollExists(long pollID) throws SQLException {
+		try (PreparedStatement pst = con.prepareStatement("select id from Polls where id=?")) {
+			pst.setLong(1, pollID);
+			try (ResultSet rset = pst.executeQuery()) {
+				return rset.next();
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja u skup otisaka dodaje sve odgovore anketnog pitanja
+	 * koji već postoje u bazi podataka
+	 *
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param seen
+	 *            skup otisaka
+	 * @throws SQLException
+	 *             ukoliko upit ne uspije
+	 */
+	private void loadExisting(long pollID, FingerprintSet seen) throws SQLException {
+		try (PreparedStatement pst = con
+				.prepareStatement("select optionTitle, optionLink from PollOptions where pollID=?")) {
+			pst.setLong(1, pollID);
+			pst.setFetchSize(batchSize);
+			try (ResultSet rset = pst.executeQuery()) {
+				while (rset.next()) {
+					seen.add(rset.getString(1), rset.getString(2));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja provjerava jesu li polja retka ispravna, odnosno
+	 * postoje li točno dva neprazna polja koja nisu dulja od stupaca tablice
+	 *
+	 * @param fields
+	 *            polja retka
+	 * @return <code>true</code> ukoliko su polja ispravna, <code>false</code>
+	 *         inače
+	 */
+	private static boolean isValid(List<String> fields) {
+		if (fields == null || fields.size() != 2) {
+			return false;
+		}
+
+		String title = fields.get(0);
+		String link = fields.get(1);
+		return !title.isEmpty() && !link.isEmpty() && title.length() <= MAX_TITLE_LENGTH
+				&& link.length() <= MAX_LINK_LENGTH;
+	}
+}
@@ -0,0 +1,105 @@
+package hr.fer.zemris.java.hw14.db.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enumeracija koja modelira podržane formate datoteka za grupni uvoz. Svaki
+ * redak datoteke predstavlja jedan zapis, a polja zapisa odvojena su
+ * znakom koji ovisi o formatu:
+ * <ul>
+ * <li>{@link #TSV} - polja su odvojena tabulatorom i ne mogu ga sadržavati</li>
+ * <li>{@link #CSV} - polja su odvojena zarezom, a polje koje sadrži zarez ili
+ * navodnik mora biti omeđeno navodnicima, pri čemu se navodnik unutar polja
+ * zapisuje kao dva navodnika (prema RFC 4180). Polja se ne mogu protezati
+ * kroz više redaka.</li>
+ * </ul>
+ *
+ * @author Davor Češljaš
+ */
+public enum DelimitedFormat {
+
+	/** Polja odvojena tabulatorom */
+	TSV('\t'),
+
+	/** Polja odvojena zarezom */
+	CSV(',');
+
+	/** Članska varijabla koja predstavlja znak koji odvaja polja */
+	private final char delimiter;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ove enumeracije.
+	 *
+	 * @param delimiter
+	 *            znak koji odvaja polja
+	 */
+	private DelimitedFormat(char delimiter) {
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Metoda koja redak <b>line</b> rastavlja na polja. Svako se polje
+	 * skraćuje za praznine na početku i kraju.
+	 *
+	 * @param line
+	 *            redak datoteke
+	 * @return {@link List} polja retka ili <code>null</code> ukoliko redak
+	 *         nije ispravno zapisan
+	 */
+	public List<String> parse(String line) {
+		List<String> fields = new ArrayList<>(2);
+		if (this == TSV) {
+			int start = 0;
+			for (int end; (end = line.indexOf(delimiter, start)) >= 0; start = end + 1) {
+				fields.add(line.substring(start, end).trim());
+			}
+			fields.add(line.substring(start).trim());
+			return fields;
+		}
+
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0, len = line.length(); i < len; i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < len && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"' && field.toString().trim().isEmpty()) {
+				field.setLength(0);
+				quoted = true;
+			} else if (c == delimiter) {
+				fields.add(field.toString().trim());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+
+		if (quoted) {
+			return null;
+		}
+		fields.add(field.toString().trim());
+		return fields;
+	}
+
+	/**
+	 * Metoda koja na temelju naziva (neovisno o velikim i malim slovima)
+	 * dohvaća format
+	 *
+	 * @param name
+	 *            naziv formata
+	 * @return format sa predanim nazivom
+	 * @throws IllegalArgumentException
+	 *             ukoliko format sa predanim nazivom ne postoji
+	 */
+	public static DelimitedFormat forName(String name) {
+		return valueOf(name.toUpperCase());
+	}
+}
@@ -0,0 +1,135 @@
+package hr.fer.zemris.java.hw14.db.bulk;
+
+/**
+ * Razred koji modelira skup 64-bitnih otisaka (engl. fingerprint) zapisa
+ * ograničene veličine. Umjesto samih zapisa pamte se samo njihovi otisci u
+ * polju sa otvorenim adresiranjem, pa skup sa <b>n</b> otisaka zauzima
+ * najviše 32 * <b>n</b> okteta, neovisno o duljini zapisa. Vjerojatnost da
+ * dva različita zapisa imaju jednak otisak zanemariva je i za desetke
+ * milijuna zapisa.
+ * <p>
+ * Nakon što se u skup doda najveći dopušteni broj otisaka, skup se smatra
+ * zasićenim: novi otisci se više ne pamte, pa se ponavljanja zapisa koji su
+ * se prvi put pojavili nakon zasićenja ne mogu prepoznati. Zasićenje je
+ * moguće provjeriti metodom {@link #isSaturated()}.
+ * </p>
+ *
+ * @author Davor Češljaš
+ */
+public class FingerprintSet {
+
+	/** Konstanta koja predstavlja oznaku praznog mjesta u polju */
+	private static final long EMPTY = 0;
+
+	/** Članska varijabla koja predstavlja polje otisaka */
+	private final long[] table;
+
+	/** Članska varijabla koja predstavlja masku indeksa polja */
+	private final int mask;
+
+	/** Članska varijabla koja predstavlja najveći broj otisaka */
+	private final int maxEntries;
+
+	/** Članska varijabla koja predstavlja trenutni broj otisaka */
+	private int size;
+
+	/** Članska varijabla koja predstavlja je li skup zasićen */
+	private boolean saturated;
+
+	/**
+	 * Konstruktor koji stvara prazan skup.
+	 *
+	 * @param maxEntries
+	 *            najveći broj otisaka koje skup pamti
+	 * @throws IllegalArgumentException
+	 *             ukoliko je <b>maxEntries</b> manji od 1 ili veći od 2^29
+	 */
+	public FingerprintSet(int maxEntries) {
+		if (maxEntries < 1 || maxEntries > 1 << 29) {
+			throw new IllegalArgumentException("Najveći broj otisaka mora biti između 1 i 2^29.");
+		}
+
+		int capacity = Integer.highestOneBit(maxEntries) << 1;
+		if (capacity < 2 * maxEntries) {
+			capacity <<= 1;
+		}
+		this.table = new long[capacity];
+		this.mask = capacity - 1;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Metoda koja dodaje otisak zapisa sastavljenog od predanih polja.
+	 *
+	 * @param fields
+	 *            polja zapisa
+	 * @return <code>true</code> ukoliko otisak zapisa nije bio u skupu,
+	 *         <code>false</code> ukoliko je zapis ponovljen
+	 */
+	public boolean add(String... fields) {
+		long fingerprint = fingerprint(fields);
+		int index = (int) fingerprint & mask;
+
+		while (table[index] != EMPTY) {
+			if (table[index] == fingerprint) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+
+		if (size == maxEntries) {
+			saturated = true;
+		} else {
+			table[index] = fingerprint;
+			size++;
+		}
+		return true;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj zapamćenih otisaka
+	 *
+	 * @return broj zapamćenih otisaka
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Metoda koja provjerava je li skup zasićen, odnosno je li barem jedan
+	 * otisak odbačen jer je skup bio pun
+	 *
+	 * @return <code>true</code> ukoliko je skup zasićen, <code>false</code>
+	 *         inače
+	 */
+	public boolean isSaturated() {
+		return saturated;
+	}
+
+	/**
+	 * Pomoćna metoda koja izračunava 64-bitni otisak predanih polja
+	 * algoritmom FNV-1a nakon kojeg se bitovi dodatno miješaju (po uzoru na
+	 * MurmurHash3), kako bi i niži bitovi otiska bili jednoliko raspodijeljeni.
+	 *
+	 * @param fields
+	 *            polja zapisa
+	 * @return otisak različit od {@value #EMPTY}
+	 */
+	private static long fingerprint(String... fields) {
+		long hash = 0xcbf29ce484222325L;
+		for (String field : fields) {
+			for (int i = 0, len = field.length(); i < len; i++) {
+				hash = (hash ^ field.charAt(i)) * 0x100000001b3L;
+			}
+			hash = (hash ^ 0xffff) * 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		return hash == EMPTY ? 1 : hash;
+	}
+}
@@ -0,0 +1,141 @@
+package hr.fer.zemris.java.hw14.db.bulk;
+
+import java.util.Locale;
+
+/**
+ * Razred koji modelira izvještaj o (trenutnom stanju) grupnog uvoza. Primjerci
+ * ovog razreda su nepromjenjivi, a stvaraju se nakon svake grupe unesenih
+ * redaka te na kraju uvoza.
+ *
+ * @see BulkImporter
+ *
+ * @author Davor Češljaš
+ */
+public class ImportReport {
+
+	/** Konstanta koja predstavlja broj nanosekundi u jednoj sekundi */
+	private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+	/** Članska varijabla koja predstavlja broj pročitanih redaka */
+	private final long rowsRead;
+
+	/** Članska varijabla koja predstavlja broj unesenih redaka */
+	private final long inserted;
+
+	/** Članska varijabla koja predstavlja broj ponovljenih redaka */
+	private final long duplicates;
+
+	/** Članska varijabla koja predstavlja broj neispravnih redaka */
+	private final long rejected;
+
+	/** Članska varijabla koja predstavlja trajanje uvoza u nanosekundama */
+	private final long nanos;
+
+	/**
+	 * Članska varijabla koja predstavlja je li skup otisaka za prepoznavanje
+	 * ponovljenih redaka zasićen
+	 */
+	private final boolean dedupeSaturated;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param rowsRead
+	 *            broj pročitanih redaka
+	 * @param inserted
+	 *            broj unesenih redaka
+	 * @param duplicates
+	 *            broj ponovljenih redaka
+	 * @param rejected
+	 *            broj neispravnih redaka
+	 * @param nanos
+	 *            trajanje uvoza u nanosekundama
+	 * @param dedupeSaturated
+	 *            je li skup otisaka za prepoznavanje ponovljenih redaka
+	 *            zasićen
+	 */
+	public ImportReport(long rowsRead, long inserted, long duplicates, long rejected, long nanos,
+			boolean dedupeSaturated) {
+		this.rowsRead = rowsRead;
+		this.inserted = inserted;
+		this.duplicates = duplicates;
+		this.rejected = rejected;
+		this.nanos = nanos;
+		this.dedupeSaturated = dedupeSaturated;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj pročitanih redaka
+	 *
+	 * @return broj pročitanih redaka
+	 */
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj unesenih redaka
+	 *
+	 * @return broj unesenih redaka
+	 */
+	public long getInserted() {
+		return inserted;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj ponovljenih redaka (uključujući i one koji već
+	 * postoje u bazi podataka)
+	 *
+	 * @return broj ponovljenih redaka
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj neispravnih redaka
+	 *
+	 * @return broj neispravnih redaka
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * Metoda koja dohvaća trajanje uvoza u nanosekundama
+	 *
+	 * @return trajanje uvoza u nanosekundama
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Metoda koja provjerava je li skup otisaka za prepoznavanje ponovljenih
+	 * redaka zasićen. Ukoliko jest, neki ponovljeni redci mogli su biti
+	 * uneseni.
+	 *
+	 * @return <code>true</code> ukoliko je skup zasićen, <code>false</code>
+	 *         inače
+	 */
+	public boolean isDedupeSaturated() {
+		return dedupeSaturated;
+	}
+
+	/**
+	 * Metoda koja izračunava brzinu čitanja u redcima po sekundi
+	 *
+	 * @return brzina čitanja u redcima po sekundi
+	 */
+	public double getRowsPerSecond() {
+		return nanos == 0 ? 0 : rowsRead * NANOS_PER_SECOND / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT,
+				"pročitano=%d uneseno=%d ponovljeno=%d neispravno=%d vrijeme=%.3fs brzina=%.0f redaka/s%s",
+				rowsRead, inserted, duplicates, rejected, nanos / NANOS_PER_SECOND, getRowsPerSecond(),
+				dedupeSaturated ? " (skup otisaka je zasićen)" : "");
+	}
+}
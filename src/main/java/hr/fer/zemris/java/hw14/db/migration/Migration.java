@@ -0,0 +1,104 @@
+package hr.fer.zemris.java.hw14.db.migration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Razred koji modelira jednu izmjenu sheme baze podataka (migraciju).
+ * Migracija ima inačicu na koju podiže shemu, opis te SQL naredbe koje se
+ * redom izvode. Iz naredbi se izračunava kontrolni zbroj (CRC32) koji se
+ * pamti uz primijenjenu migraciju, kako bi se mogle otkriti naknadne izmjene
+ * već primijenjenih migracija.
+ *
+ * @see SchemaMigrator
+ *
+ * @author Davor Češljaš
+ */
+public class Migration {
+
+	/** Članska varijabla koja predstavlja inačicu sheme nakon migracije */
+	private final int version;
+
+	/** Članska varijabla koja predstavlja opis migracije */
+	private final String description;
+
+	/** Članska varijabla koja predstavlja naredbe migracije */
+	private final List<String> statements;
+
+	/** Članska varijabla koja predstavlja kontrolni zbroj naredbi */
+	private final long checksum;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param version
+	 *            inačica sheme nakon migracije (pozitivan broj)
+	 * @param description
+	 *            opis migracije
+	 * @param statements
+	 *            naredbe migracije
+	 * @throws IllegalArgumentException
+	 *             ukoliko inačica nije pozitivna ili ukoliko nije predana
+	 *             niti jedna naredba
+	 */
+	public Migration(int version, String description, String... statements) {
+		if (version <= 0 || statements.length == 0) {
+			throw new IllegalArgumentException("Neispravna migracija V" + version);
+		}
+
+		this.version = version;
+		this.description = description;
+		this.statements = Collections.unmodifiableList(Arrays.asList(statements.clone()));
+
+		CRC32 crc = new CRC32();
+		for (String statement : statements) {
+			crc.update(statement.trim().getBytes(StandardCharsets.UTF_8));
+			crc.update('\n');
+		}
+		this.checksum = crc.getValue();
+	}
+
+	/**
+	 * Metoda koja dohvaća inačicu sheme nakon migracije
+	 *
+	 * @return inačica sheme nakon migracije
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Metoda koja dohvaća opis migracije
+	 *
+	 * @return opis migracije
+	 */
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Metoda koja dohvaća naredbe migracije
+	 *
+	 * @return nepromjenjiva lista naredbi migracije
+	 */
+	public List<String> getStatements() {
+		return statements;
+	}
+
+	/**
+	 * Metoda koja dohvaća kontrolni zbroj naredbi migracije
+	 *
+	 * @return kontrolni zbroj naredbi migracije
+	 */
+	public long getChecksum() {
+		return checksum;
+	}
+
+	@Override
+	public String toString() {
+		return "V" + version + " (" + description + ")";
+	}
+}
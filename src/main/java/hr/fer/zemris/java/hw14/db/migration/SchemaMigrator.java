@@ -0,0 +1,377 @@
+package hr.fer.zemris.java.hw14.db.migration;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Razred koji primjenjuje migracije ({@link Migration}) na bazu podataka.
+ * Primijenjene migracije pamte se u tablici {@value #SCHEMA_VERSION_TABLE}
+ * zajedno sa kontrolnim zbrojem, trenutkom i trajanjem primjene.
+ * <p>
+ * Metoda {@link #migrate(Connection)} redom:
+ * <ol>
+ * <li>stvara tablicu {@value #SCHEMA_VERSION_TABLE} ukoliko ona ne postoji
+ * (postojanje se provjerava preko kataloga baze podataka, bez čitanja
+ * tablice). Ukoliko tablica nije postojala, a baza podataka već sadrži shemu
+ * stvorenu prije uvođenja migracija, primjerak sučelja {@link Baseline}
+ * određuje njenu inačicu, a sve migracije do te inačice bilježe se kao
+ * primijenjene bez izvođenja</li>
+ * <li>provjerava da se kontrolni zbrojevi primijenjenih migracija podudaraju
+ * sa trenutnima te da baza nema noviju inačicu od poznatih migracija</li>
+ * <li>primjenjuje sve preostale migracije redom, svaku unutar zasebne
+ * transakcije zajedno sa zapisom u tablicu {@value #SCHEMA_VERSION_TABLE}.
+ * Tablica se za vrijeme migracije zaključava, pa više primjeraka aplikacije
+ * koji se istovremeno pokreću neće dvaput primijeniti istu migraciju</li>
+ * </ol>
+ *
+ * @see Migration
+ *
+ * @author Davor Češljaš
+ */
+public class SchemaMigrator {
+
+	/** Konstanta koja predstavlja naziv tablice primijenjenih migracija */
+	public static final String SCHEMA_VERSION_TABLE = "schema_version";
+
+	/**
+	 * Konstanta koja predstavlja SQL stanje kojim Derby javlja da objekt sheme
+	 * već postoji
+	 */
+	private static final String ALREADY_EXISTS_STATE = "X0Y32";
+
+	/** Članska varijabla koja predstavlja migracije poredane po inačici */
+	private final List<Migration> migrations;
+
+	/**
+	 * Članska varijabla koja predstavlja određivanje inačice sheme stvorene
+	 * prije uvođenja migracija
+	 */
+	private final Baseline baseline;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param migrations
+	 *            migracije poredane po inačici, počevši od inačice 1 i bez
+	 *            preskakanja
+	 * @param baseline
+	 *            određivanje inačice sheme stvorene prije uvođenja migracija
+	 * @throws IllegalArgumentException
+	 *             ukoliko inačice migracija nisu redom 1, 2, 3...
+	 */
+	public SchemaMigrator(List<Migration> migrations, Baseline baseline) {
+		for (int i = 0; i < migrations.size(); i++) {
+			if (migrations.get(i).getVersion() != i + 1) {
+				throw new IllegalArgumentException("Očekivana migracija V" + (i + 1) + ", a pronađena "
+						+ migrations.get(i));
+			}
+		}
+
+		this.migrations = new ArrayList<>(migrations);
+		this.baseline = baseline;
+	}
+
+	/**
+	 * Metoda koja podiže shemu baze podataka na najnoviju inačicu.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @return lista migracija koje su primijenjene ovim pozivom
+	 * @throws IOException
+	 *             ukoliko neku od migracija nije moguće primijeniti, ukoliko
+	 *             je neka od primijenjenih migracija naknadno izmijenjena ili
+	 *             ukoliko baza podataka ima nepoznatu noviju inačicu
+	 */
+	public List<Migration> migrate(Connection con) throws IOException {
+		try {
+			if (!tableExists(con, SCHEMA_VERSION_TABLE)) {
+				int baselineVersion = baseline.detect(con);
+				createSchemaVersion(con);
+				recordBaseline(con, baselineVersion);
+			}
+
+			validate(con);
+
+			List<Migration> applied = new ArrayList<>();
+			for (Migration migration : migrations) {
+				if (apply(con, migration)) {
+					applied.add(migration);
+				}
+			}
+			return applied;
+		} catch (SQLException e) {
+			throw new IOException("Ne mogu primijeniti migracije sheme baze podataka", e);
+		}
+	}
+
+	/**
+	 * Metoda koja dohvaća trenutnu inačicu sheme baze podataka
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @return trenutna inačica sheme ili 0 ukoliko niti jedna migracija nije
+	 *         primijenjena
+	 * @throws SQLException
+	 *             ukoliko dohvat ne uspije
+	 */
+	public int getCurrentVersion(Connection con) throws SQLException {
+		if (!tableExists(con, SCHEMA_VERSION_TABLE)) {
+			return 0;
+		}
+
+		try (Statement st = con.createStatement();
+				ResultSet rset = st.executeQuery("SELECT MAX(version) FROM " + SCHEMA_VERSION_TABLE)) {
+			return rset.next() ? rset.getInt(1) : 0;
+		}
+	}
+
+	/**
+	 * Metoda koja preko kataloga baze podataka provjerava postoji li tablica
+	 * <b>tableName</b> unutar trenutne sheme, bez čitanja same tablice.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param tableName
+	 *            naziv tablice (bez navodnika)
+	 * @return <code>true</code> ukoliko tablica postoji, <code>false</code>
+	 *         inače
+	 * @throws SQLException
+	 *             ukoliko dohvat iz kataloga ne uspije
+	 */
+	public static boolean tableExists(Connection con, String tableName) throws SQLException {
+		try (ResultSet rset = con.getMetaData().getTables(null, con.getSchema(),
+				tableName.toUpperCase(Locale.ROOT), new String[] { "TABLE" })) {
+			return rset.next();
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara tablicu {@value #SCHEMA_VERSION_TABLE}.
+	 * Ukoliko ju je u međuvremenu stvorio drugi primjerak aplikacije, metoda
+	 * ništa ne radi.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @throws SQLException
+	 *             ukoliko tablicu nije moguće stvoriti
+	 */
+	private void createSchemaVersion(Connection con) throws SQLException {
+		try (Statement st = con.createStatement()) {
+			st.executeUpdate("CREATE TABLE " + SCHEMA_VERSION_TABLE + " (version INT PRIMARY KEY,"
+					+ "description VARCHAR(200) NOT NULL," + "checksum BIGINT NOT NULL,"
+					+ "baseline BOOLEAN NOT NULL," + "appliedAt TIMESTAMP NOT NULL,"
+					+ "executionMillis BIGINT NOT NULL)");
+		} catch (SQLException e) {
+			if (!ALREADY_EXISTS_STATE.equals(e.getSQLState())) {
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja sve migracije do inačice <b>baselineVersion</b>
+	 * bilježi kao primijenjene, bez njihovog izvođenja.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param baselineVersion
+	 *            inačica postojeće sheme
+	 * @throws SQLException
+	 *             ukoliko zapis ne uspije
+	 */
+	private void recordBaseline(Connection con, int baselineVersion) throws SQLException {
+		if (baselineVersion <= 0) {
+			return;
+		}
+		if (baselineVersion > migrations.size()) {
+			throw new SQLException("Postojeća shema ima nepoznatu inačicu " + baselineVersion);
+		}
+
+		inTransaction(con, () -> {
+			if (getCurrentVersion(con) > 0) {
+				return;
+			}
+			for (Migration migration : migrations.subList(0, baselineVersion)) {
+				record(con, migration, true, 0);
+			}
+		});
+	}
+
+	/**
+	 * Pomoćna metoda koja provjerava primijenjene migracije.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @throws IOException
+	 *             ukoliko se kontrolni zbroj neke od primijenjenih migracija
+	 *             ne podudara sa trenutnim ili ukoliko je primijenjena
+	 *             nepoznata migracija
+	 * @throws SQLException
+	 *             ukoliko dohvat primijenjenih migracija ne uspije
+	 */
+	private void validate(Connection con) throws IOException, SQLException {
+		Map<Integer, Long> checksums = new HashMap<>();
+		try (Statement st = con.createStatement();
+				ResultSet rset = st.executeQuery("SELECT version, checksum FROM " + SCHEMA_VERSION_TABLE)) {
+			while (rset.next()) {
+				checksums.put(rset.getInt(1), rset.getLong(2));
+			}
+		}
+
+		for (Map.Entry<Integer, Long> entry : checksums.entrySet()) {
+			int version = entry.getKey();
+			if (version < 1 || version > migrations.size()) {
+				throw new IOException("Baza podataka ima nepoznatu migraciju V" + version
+						+ "; aplikacija poznaje migracije do V" + migrations.size());
+			}
+
+			Migration migration = migrations.get(version - 1);
+			if (migration.getChecksum() != entry.getValue()) {
+				throw new IOException("Migracija " + migration + " je izmijenjena nakon primjene (kontrolni zbroj "
+						+ entry.getValue() + ", a očekivan " + migration.getChecksum() + ")");
+			}
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja primjenjuje migraciju <b>migration</b> ukoliko ona
+	 * već nije primijenjena. Migracija se izvodi unutar transakcije, nakon
+	 * zaključavanja tablice {@value #SCHEMA_VERSION_TABLE}.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param migration
+	 *            migracija
+	 * @return <code>true</code> ukoliko je migracija primijenjena ovim
+	 *         pozivom, <code>false</code> ukoliko je već bila primijenjena
+	 * @throws SQLException
+	 *             ukoliko primjena ne uspije
+	 */
+	private boolean apply(Connection con, Migration migration) throws SQLException {
+		boolean[] applied = { false };
+		inTransaction(con, () -> {
+			if (getCurrentVersion(con) >= migration.getVersion()) {
+				return;
+			}
+
+			long start = System.nanoTime();
+			try (Statement st = con.createStatement()) {
+				for (String statement : migration.getStatements()) {
+					st.executeUpdate(statement);
+				}
+			} catch (SQLException e) {
+				throw new SQLException("Migracija " + migration + " nije uspjela: " + e.getMessage(),
+						e.getSQLState(), e);
+			}
+			record(con, migration, false, (System.nanoTime() - start) / 1_000_000);
+			applied[0] = true;
+		});
+		return applied[0];
+	}
+
+	/**
+	 * Pomoćna metoda koja bilježi migraciju <b>migration</b> u tablicu
+	 * {@value #SCHEMA_VERSION_TABLE}.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param migration
+	 *            migracija
+	 * @param isBaseline
+	 *            je li migracija zabilježena bez izvođenja
+	 * @param executionMillis
+	 *            trajanje izvođenja u milisekundama
+	 * @throws SQLException
+	 *             ukoliko zapis ne uspije
+	 */
+	private static void record(Connection con, Migration migration, boolean isBaseline, long executionMillis)
+			throws SQLException {
+		try (PreparedStatement pst = con.prepareStatement("INSERT INTO " + SCHEMA_VERSION_TABLE
+				+ " (version, description, checksum, baseline, appliedAt, executionMillis)"
+				+ " VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP, ?)")) {
+			pst.setInt(1, migration.getVersion());
+			pst.setString(2, migration.getDescription());
+			pst.setLong(3, migration.getChecksum());
+			pst.setBoolean(4, isBaseline);
+			pst.setLong(5, executionMillis);
+			pst.executeUpdate();
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja akciju <b>action</b> izvodi unutar transakcije u
+	 * kojoj je tablica {@value #SCHEMA_VERSION_TABLE} zaključana. Ukoliko
+	 * akcija baci iznimku, transakcija se poništava.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param action
+	 *            akcija
+	 * @throws SQLException
+	 *             ukoliko akcija ili transakcija ne uspiju
+	 */
+	private static void inTransaction(Connection con, SQLAction action) throws SQLException {
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(false);
+		try {
+			try (Statement st = con.createStatement()) {
+				st.execute("LOCK TABLE " + SCHEMA_VERSION_TABLE + " IN EXCLUSIVE MODE");
+			}
+			action.run();
+			con.commit();
+		} catch (SQLException e) {
+			con.rollback();
+			throw e;
+		} finally {
+			con.setAutoCommit(autoCommit);
+		}
+	}
+
+	/**
+	 * Funkcijsko sučelje koje modelira određivanje inačice sheme koja je
+	 * stvorena prije uvođenja migracija, odnosno prije nego što je postojala
+	 * tablica {@value SchemaMigrator#SCHEMA_VERSION_TABLE}.
+	 *
+	 * @author Davor Češljaš
+	 */
+	@FunctionalInterface
+	public interface Baseline {
+
+		/**
+		 * Metoda koja određuje inačicu postojeće sheme
+		 *
+		 * @param con
+		 *            veza sa bazom podataka
+		 * @return inačica postojeće sheme ili 0 ukoliko je baza podataka
+		 *         prazna
+		 * @throws SQLException
+		 *             ukoliko određivanje ne uspije
+		 */
+		int detect(Connection con) throws SQLException;
+	}
+
+	/**
+	 * Pomoćno funkcijsko sučelje koje modelira akciju nad bazom podataka
+	 * koja može baciti {@link SQLException}.
+	 */
+	@FunctionalInterface
+	private interface SQLAction {
+
+		/**
+		 * Metoda koja izvodi akciju
+		 *
+		 * @throws SQLException
+		 *             ukoliko akcija ne uspije
+		 */
+		void run() throws SQLException;
+	}
+}
@@ -0,0 +1,85 @@
+package hr.fer.zemris.java.hw14.db.seed;
+
+import java.util.Locale;
+
+/**
+ * Razred koji modelira izvještaj o unosu podataka u jednu tablicu baze
+ * podataka. Izvještaj sadrži naziv tablice, broj unesenih redaka i trajanje
+ * unosa, a iz njih se izračunava brzina unosa u redcima po sekundi.
+ *
+ * @see SeedUtil
+ *
+ * @author Davor Češljaš
+ */
+public class SeedReport {
+
+	/** Konstanta koja predstavlja broj nanosekundi u jednoj sekundi */
+	private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+	/** Članska varijabla koja predstavlja naziv tablice */
+	private final String table;
+
+	/** Članska varijabla koja predstavlja broj unesenih redaka */
+	private final long rows;
+
+	/** Članska varijabla koja predstavlja trajanje unosa u nanosekundama */
+	private final long nanos;
+
+	/**
+	 * Konstruktor koji inicijalizira primjerak ovog razreda.
+	 *
+	 * @param table
+	 *            naziv tablice
+	 * @param rows
+	 *            broj unesenih redaka
+	 * @param nanos
+	 *            trajanje unosa u nanosekundama
+	 */
+	public SeedReport(String table, long rows, long nanos) {
+		this.table = table;
+		this.rows = rows;
+		this.nanos = nanos;
+	}
+
+	/**
+	 * Metoda koja dohvaća naziv tablice
+	 *
+	 * @return naziv tablice
+	 */
+	public String getTable() {
+		return table;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj unesenih redaka
+	 *
+	 * @return broj unesenih redaka
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * Metoda koja dohvaća trajanje unosa u nanosekundama
+	 *
+	 * @return trajanje unosa u nanosekundama
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Metoda koja izračunava brzinu unosa u redcima po sekundi
+	 *
+	 * @return brzina unosa u redcima po sekundi
+	 */
+	public double getRowsPerSecond() {
+		return nanos == 0 ? 0 : rows * NANOS_PER_SECOND / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%s: uneseno %d redaka u %.3f s (%.0f redaka/s)", table, rows,
+				nanos / NANOS_PER_SECOND, getRowsPerSecond());
+	}
+}
@@ -1,7 +1,6 @@
 package hr.fer.zemris.java.hw14.db.seed;
 
 import java.io.BufferedReader;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -12,15 +11,27 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
+import hr.fer.zemris.java.hw14.db.util.PollOptionsBatch;
+
 /**
  * Razred koji se koristi kao bibliotka statičkih metoda preko kojih se iz
  * datotečnih sustava učitavaju tzv. seed datoteke ili datoteke koje se koriste
- * za postaljanje inicijalnih vrijednosti unutar baze podataka.
+ * za postaljanje inicijalnih vrijednosti unutar baze podataka. Seed datoteke
+ * čitaju se na jednom mjestu ({@link #seed(SeedSink)}), a pročitani zapisi
+ * predaju se spremištu ({@link SeedSink}), bilo da je riječ o bazi podataka
+ * ili o spremištu unutar memorije. U bazu podataka se svi zapisi unose
+ * jednom pripremljenom naredbom po tablici, u grupama (engl. batch) te
+ * unutar jedne transakcije po seed datoteci. Svaka unesena seed datoteka
+ * bilježi se u tablicu {@value #SEED_STATE_TABLE} unutar iste transakcije,
+ * pa se prekinuto punjenje prilikom sljedećeg pokretanja nastavlja od prve
+ * neunesene datoteke. Svaka metoda za unos vraća izvještaj
+ * {@link SeedReport} sa brojem unesenih redaka i brzinom unosa.
  * 
  * @author Davor Češljaš
  */
@@ -31,7 +42,7 @@ public class SeedUtil {
 	 * odgovori na anketna pitanja koji bi inicijalno trebali postojati u bazi
 	 * podataka
 	 */
-	private static final String POLL_OPTIONS_DIRECTORY = "/poll_options_seeds/";
+	private static final String POLL_OPTIONS_DIRECTORY = "poll_options_seeds/";
 
 	/**
 	 * Konstanta koja se koristi prilikom parsiranja datoteka sa odgovorima na
@@ -63,6 +74,25 @@ public class SeedUtil {
 	 */
 	private static final int RANDOM_BOUND = 150;
 
+	/**
+	 * Konstanta koja predstavlja pretpostavljeni broj redaka koji se prilikom
+	 * unosa šalju bazi podataka odjednom
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/**
+	 * Konstanta koja predstavlja naziv tablice unutar koje se bilježe
+	 * unesene seed datoteke
+	 */
+	public static final String SEED_STATE_TABLE = "seed_state";
+
+	/**
+	 * Konstanta koja predstavlja naziv zapisa tablice
+	 * {@value #SEED_STATE_TABLE} kojim se sve seed datoteke označavaju
+	 * unesenima (npr. za bazu podataka napunjenu prije uvođenja te tablice)
+	 */
+	public static final String ALL_FILES_SEEDED = "*";
+
 	/**
 	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
 	 * stvarati izvan samog razreda.
@@ -72,143 +102,168 @@ public class SeedUtil {
 
 	/**
 	 * Statička metoda koja se koristi za inicijalizaciju svih anketnih pitanja
-	 * unutar baze podataka. Konstanta kao parametar prima primjerak sučelja
-	 * {@link Connection} koji predstavlja vezu s bazom podataka koju treba
-	 * inicijalizirati. Metoda vraća {@link List} izgeneriranih identifikatora
-	 * anketnih pitanja predstavljenih razredom {@link Long}
+	 * i odgovora na njih unutar baze podataka. Metoda kao parametar prima
+	 * primjerak sučelja {@link Connection} koji predstavlja vezu s bazom
+	 * podataka koju treba inicijalizirati. Seed datoteke čitaju se metodom
+	 * {@link #seed(SeedSink)}, a zapisi svake seed datoteke unose se unutar
+	 * zasebne transakcije: anketna pitanja jednom pripremljenom naredbom, a
+	 * odgovori jednom pripremljenom naredbom u grupama (engl. batch) od
+	 * najviše <b>batchSize</b> redaka. Ukoliko unos neke datoteke ne uspije,
+	 * poništavaju se samo njeni zapisi. Datoteke zabilježene u tablici
+	 * {@value #SEED_STATE_TABLE} preskaču se, pa je metodu sigurno pozvati
+	 * prilikom svakog pokretanja.
 	 *
 	 * @param con
 	 *            primjerak sučelja {@link Connection} koji predstavlja vezu s
 	 *            bazom podataka koju treba inicijalizirati.
-	 * @return {@link List} izgeneriranih identifikatora anketnih pitanja
-	 *         predstavljenih razredom {@link Long}
+	 * @param batchSize
+	 *            najveći broj redaka koji se šalju bazi podataka odjednom
+	 * @return {@link List} izvještaja o unosu anketnih pitanja i odgovora
 	 * @throws IOException
 	 *             Ukoliko nije moguće inicijalizirati bazu podataka ili ukoliko
 	 *             nije moguće seed datoteku otvoriti za čitanje
 	 */
-	public static List<Long> seedPolls(Connection con) throws IOException {
-		Set<SeedEntry> seeds = parseSeedFiles(POLLS_FILE, POLLS_ENTRY_DELIMITER);
-
-		List<Long> generatedKeys = new ArrayList<>();
-		for (SeedEntry seed : seeds) {
-			Long insertStatus = insertToPolls(con, seed);
-
-			if (insertStatus != null) {
-				generatedKeys.add(insertStatus);
-			}
+	public static List<SeedReport> seed(Connection con, int batchSize) throws IOException {
+		try (SQLSeedSink sink = new SQLSeedSink(con, batchSize)) {
+			return seed(sink);
+		} catch (SQLException e) {
+			throw new IOException("Ne mogu unijeti seed datoteke", e);
 		}
-
-		return generatedKeys;
 	}
 
 	/**
-	 * Pomoćna metoda koja se koristi za umetanje jednog zapisa unutar tablice
-	 * 'Polls' u bazi podataka prema kojoj je veza modelirana parametrom
-	 * <b>con</b>.
+	 * Statička metoda koja u tablicu 'PollOptions' unosi <b>count</b>
+	 * izgeneriranih odgovora na anketno pitanje sa identifikatorom
+	 * <b>pollID</b>. Svaki odgovor dobiva slučajan broj glasova. Odgovori se
+	 * unose jednom pripremljenom naredbom u grupama od najviše
+	 * <b>batchSize</b> redaka unutar jedne transakcije. Metoda se koristi za
+	 * punjenje baze podataka velikim brojem odgovora prilikom ispitivanja
+	 * opterećenja.
 	 *
 	 * @param con
 	 *            primjerak sučelja {@link Connection} koji predstavlja vezu s
-	 *            bazom podataka koju treba inicijalizirati.
-	 * @param seed
-	 *            primjerak razeda {@link SeedEntry} koji modelira jedan unos
-	 *            koji je potrebno unijeti u tablicu 'Polls'
-	 * @return identifikator generiran prilikom unosa u tablicu 'Polls'
+	 *            bazom podataka
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param count
+	 *            broj odgovora koje je potrebno unijeti
+	 * @param batchSize
+	 *            najveći broj redaka koji se šalju bazi podataka odjednom
+	 * @return izvještaj o unosu
+	 * @throws IOException
+	 *             Ukoliko unos ne uspije
 	 */
-	private static Long insertToPolls(Connection con, SeedEntry seed) {
-		try (PreparedStatement pst = con.prepareStatement("INSERT INTO Polls (title, message) VALUES (?, ?)",
-				Statement.RETURN_GENERATED_KEYS)) {
-			pst.setString(1, seed.firstParam);
-			pst.setString(2, seed.secondParam);
-
-			if (pst.executeUpdate() == 0) {
-				return null;
-			}
-
-			try (ResultSet rset = pst.getGeneratedKeys()) {
-				if (rset != null && rset.next()) {
-					return rset.getLong(1);
+	public static SeedReport seedSyntheticPollOptions(Connection con, long pollID, long count, int batchSize)
+			throws IOException {
+		Random rand = new Random();
+		long start = System.nanoTime();
+		long[] inserted = new long[1];
+
+		inTransaction(con, "sintetički odgovori", () -> {
+			try (PollOptionsBatch batch = new PollOptionsBatch(con, batchSize)) {
+				for (long i = 1; i <= count; i++) {
+					batch.add("Odgovor " + i, "https://www.example.com/" + pollID + "/" + i, pollID,
+							rand.nextInt(RANDOM_BOUND));
 				}
+				inserted[0] = batch.finish();
 			}
-		} catch (SQLException ignorable) {
-		}
+		});
 
-		return null;
+		return new SeedReport("PollOptions", inserted[0], System.nanoTime() - start);
 	}
 
 	/**
-	 * Statička metoda koja se koristi za inicijalizaciju svih odgovora na
-	 * anketna pitanja unutar baze podataka. Konstanta kao parametar prima
-	 * primjerak sučelja {@link Connection} koji predstavlja vezu s bazom
-	 * podataka koju treba inicijalizirati. Metoda vraća broj unesenih podataka
-	 * u tablicu 'PollOptions'.
+	 * Statička metoda koja čita inicijalna anketna pitanja i odgovore na njih
+	 * iz seed datoteka te ih predaje primjerku sučelja {@link SeedSink}.
+	 * Seed datoteke odgovora nazvane su rednim brojem anketnog pitanja
+	 * (1.seed, 2.seed, ...), a čitaju se sve dok postoje i dok postoje
+	 * identifikatori anketnih pitanja. Svaki odgovor dobiva nasumičan broj
+	 * glasova. Prije zapisa jedne seed datoteke poziva se metoda
+	 * {@link SeedSink#beginFile(String)}, a datoteke koje je spremište već
+	 * unijelo se preskaču. Nakon svih zapisa jedne seed datoteke poziva se
+	 * metoda {@link SeedSink#endFile(String)}.
 	 *
-	 * @param con
-	 *            primjerak sučelja {@link Connection} koji predstavlja vezu s
-	 *            bazom podataka koju treba inicijalizirati.
-	 * @param foreignKeys
-	 *            strani ključevi koji se unutar 'PollOptions' tablice unose pod
-	 *            atribut 'pollID', a ovisno o tome iz koje se po redu datoteke
-	 *            čita
-	 * @return broj unesenih podataka u tablicu 'PollOptions'.
+	 * @param sink
+	 *            spremište u koje se unose anketna pitanja i odgovori
+	 * @return {@link List} izvještaja o unosu anketnih pitanja i odgovora
 	 * @throws IOException
-	 *             Ukoliko nije moguće inicijalizirati bazu podataka ili ukoliko
-	 *             nije moguće seed datoteku otvoriti za čitanje
+	 *             Ukoliko nije moguće seed datoteku otvoriti za čitanje ili
+	 *             ukoliko unos u spremište ne uspije
 	 */
-	public static long seedPollOptions(Connection con, List<Long> foreignKeys) throws IOException {
-		String poll_options_dir = SeedUtil.class.getClassLoader().getResource(POLL_OPTIONS_DIRECTORY).getPath();
-		int seed_files_count = new File(poll_options_dir).list().length;
-
+	public static List<SeedReport> seed(SeedSink sink) throws IOException {
 		Random rand = new Random();
+		List<SeedReport> reports = new ArrayList<>();
+		long start = System.nanoTime();
+		List<Long> pollIDs;
+		if (sink.beginFile(POLLS_FILE)) {
+			pollIDs = new ArrayList<>();
+			for (SeedEntry seed : parseSeedFiles(POLLS_FILE, POLLS_ENTRY_DELIMITER)) {
+				pollIDs.add(sink.addPoll(seed.firstParam, seed.secondParam));
+			}
+			sink.endFile(POLLS_FILE);
+			reports.add(new SeedReport("Polls", pollIDs.size(), System.nanoTime() - start));
+		} else {
+			pollIDs = sink.getSeededPolls();
+		}
+
+		start = System.nanoTime();
 		long insertedCount = 0;
-		for (int i = 1, len = Math.min(seed_files_count, foreignKeys.size()); i <= len; i++) {
-			Set<SeedEntry> seeds = parseSeedFiles(POLL_OPTIONS_DIRECTORY + i + SEED_FILE_EXTENSION,
-					POLL_OPTIONS_DELIMITER);
-			Long currentKey = foreignKeys.get(i - 1);
-
-			for (SeedEntry seed : seeds) {
-				if (insertToPollOptions(con, seed, currentKey, rand)) {
-					insertedCount++;
-				}
+		boolean seeded = false;
+		for (int i = 1, len = pollIDs.size(); i <= len; i++) {
+			String seedFileName = POLL_OPTIONS_DIRECTORY + i + SEED_FILE_EXTENSION;
+			if (SeedUtil.class.getClassLoader().getResource(seedFileName) == null) {
+				break;
 			}
+			if (!sink.beginFile(seedFileName)) {
+				continue;
+			}
+
+			for (SeedEntry seed : parseSeedFiles(seedFileName, POLL_OPTIONS_DELIMITER)) {
+				sink.addPollOption(seed.firstParam, seed.secondParam, pollIDs.get(i - 1),
+						rand.nextInt(RANDOM_BOUND));
+				insertedCount++;
+			}
+			sink.endFile(seedFileName);
+			seeded = true;
 		}
 
-		return insertedCount;
+		if (seeded) {
+			reports.add(new SeedReport("PollOptions", insertedCount, System.nanoTime() - start));
+		}
+		return reports;
 	}
 
 	/**
-	 * Pomoćna metoda koja se koristi za umetanje jednog zapisa unutar tablice
-	 * 'PollOptions' u bazi podataka prema kojoj je veza modelirana parametrom
-	 * <b>con</b>.
+	 * Pomoćna metoda koja predani posao izvodi unutar jedne transakcije. Ako
+	 * posao ne uspije, sve se izmjene poništavaju. Nakon izvođenja posla vezi
+	 * se vraća prethodni način potvrđivanja izmjena.
 	 *
 	 * @param con
 	 *            primjerak sučelja {@link Connection} koji predstavlja vezu s
-	 *            bazom podataka koju treba inicijalizirati.
-	 * @param seed
-	 *            primjerak razeda {@link SeedEntry} koji modelira jedan unos
-	 *            koji je potrebno unijeti u tablicu 'PollOptions'
-	 * @param currentKey
-	 *            identifikator koji se koristi kao atribut 'pollID' za predani
-	 *            <b>seed</b>
-	 * @param rand
-	 *            generator slučajnih brojeva koji se koristi za generiranje
-	 *            slučajnog broja glasova koje je neki odgovor na anketno
-	 *            pitanje skupio
-	 * @return <code>true</code> u slučaju uspješnog unosa u tablicu
-	 *         'PollOptions', <code>false</code> inače
+	 *            bazom podataka
+	 * @param name
+	 *            naziv posla koji se koristi u poruci pogreške
+	 * @param work
+	 *            posao koji se izvodi
+	 * @throws IOException
+	 *             Ukoliko posao ne uspije
 	 */
-	private static boolean insertToPollOptions(Connection con, SeedEntry seed, Long currentKey, Random rand) {
-		try (PreparedStatement pst = con.prepareStatement(
-				"INSERT INTO PollOptions (optionTitle, optionLink, pollID, votesCount) VALUES (?, ?, ?, ?)")) {
-			pst.setString(1, seed.firstParam);
-			pst.setString(2, seed.secondParam);
-			pst.setLong(3, currentKey);
-			pst.setLong(4, rand.nextInt(RANDOM_BOUND));
-
-			return pst.executeUpdate() != 0;
+	private static void inTransaction(Connection con, String name, SQLWork work) throws IOException {
+		try {
+			boolean autoCommit = con.getAutoCommit();
+			con.setAutoCommit(false);
+			try {
+				work.execute();
+				con.commit();
+			} catch (SQLException e) {
+				con.rollback();
+				throw e;
+			} finally {
+				con.setAutoCommit(autoCommit);
+			}
 		} catch (SQLException e) {
+			throw new IOException("Ne mogu unijeti podatke: " + name, e);
 		}
-
-		return false;
 	}
 
 	/**
@@ -230,22 +285,278 @@ public class SeedUtil {
 	 */
 	private static Set<SeedEntry> parseSeedFiles(String seedFileName, String paramDelimiter) throws IOException {
 		InputStream is = SeedUtil.class.getClassLoader().getResourceAsStream(seedFileName);
-		BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-		
+		if (is == null) {
+			throw new IOException("Ne mogu pronaći seed datoteku: " + seedFileName);
+		}
+
 		Set<SeedEntry> seeds = new LinkedHashSet<>();
-		while(reader.ready()) {
-			String[] splitted = reader.readLine().split(paramDelimiter);
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] splitted = line.split(paramDelimiter);
 
-			if (splitted.length != 2) {
-				continue;
-			}
+				if (splitted.length != 2) {
+					continue;
+				}
 
-			seeds.add(new SeedEntry(splitted[0].trim(), splitted[1].trim()));
+				seeds.add(new SeedEntry(splitted[0].trim(), splitted[1].trim()));
+			}
 		}
 
 		return seeds;
 	}
 
+	/**
+	 * Sučelje koje modelira spremište podataka u koje metoda
+	 * {@link SeedUtil#seed(SeedSink)} unosi inicijalna anketna pitanja i
+	 * odgovore na njih.
+	 *
+	 * @author Davor Češljaš
+	 */
+	public static interface SeedSink {
+
+		/**
+		 * Metoda koja unosi novo anketno pitanje
+		 *
+		 * @param title
+		 *            naslov anketnog pitanja
+		 * @param message
+		 *            poruka anketnog pitanja
+		 * @return identifikator unesenog anketnog pitanja
+		 * @throws IOException
+		 *             ukoliko unos ne uspije
+		 */
+		long addPoll(String title, String message) throws IOException;
+
+		/**
+		 * Metoda koja unosi novi odgovor na anketno pitanje
+		 *
+		 * @param optionTitle
+		 *            naslov odgovora
+		 * @param optionLink
+		 *            poveznica odgovora
+		 * @param pollID
+		 *            identifikator anketnog pitanja kojem odgovor pripada
+		 * @param votesCount
+		 *            početni broj glasova
+		 * @return identifikator unesenog odgovora ili -1 ukoliko spremište
+		 *         identifikator ne dodjeljuje odmah
+		 * @throws IOException
+		 *             ukoliko unos ne uspije
+		 */
+		long addPollOption(String optionTitle, String optionLink, long pollID, long votesCount) throws IOException;
+
+		/**
+		 * Metoda koja se poziva prije unosa zapisa seed datoteke
+		 * <b>fileName</b>. Zadana implementacija uvijek vraća
+		 * <code>true</code>.
+		 *
+		 * @param fileName
+		 *            naziv seed datoteke
+		 * @return <code>true</code> ukoliko zapise datoteke treba unijeti,
+		 *         <code>false</code> ukoliko je datoteka već unesena
+		 * @throws IOException
+		 *             ukoliko provjera ne uspije
+		 */
+		default boolean beginFile(String fileName) throws IOException {
+			return true;
+		}
+
+		/**
+		 * Metoda koja dohvaća identifikatore ranije unesenih anketnih pitanja,
+		 * redom kojim su unesena. Poziva se umjesto unosa anketnih pitanja
+		 * ukoliko je metoda {@link #beginFile(String)} za datoteku anketnih
+		 * pitanja vratila <code>false</code>. Zadana implementacija vraća
+		 * praznu listu.
+		 *
+		 * @return {@link List} identifikatora ranije unesenih anketnih pitanja
+		 * @throws IOException
+		 *             ukoliko dohvat ne uspije
+		 */
+		default List<Long> getSeededPolls() throws IOException {
+			return Collections.emptyList();
+		}
+
+		/**
+		 * Metoda koja se poziva nakon što su uneseni svi zapisi seed datoteke
+		 * <b>fileName</b>. Spremište koje podržava transakcije tada trajno
+		 * pohranjuje zapise te datoteke. Zadana implementacija ne radi ništa.
+		 *
+		 * @param fileName
+		 *            naziv seed datoteke
+		 * @throws IOException
+		 *             ukoliko pohrana ne uspije
+		 */
+		default void endFile(String fileName) throws IOException {
+		}
+	}
+
+	/**
+	 * Pomoćni razred koji implementira sučelje {@link SeedSink}, a koji
+	 * anketna pitanja unosi u bazu podataka jedno po jedno (kako bi se
+	 * dohvatili njihovi izgenerirani identifikatori), dok odgovore unosi u
+	 * grupama preko {@link PollOptionsBatch}. Zapisi se potvrđuju na kraju
+	 * svake seed datoteke, zajedno sa zapisom datoteke u tablicu
+	 * {@value SeedUtil#SEED_STATE_TABLE}, a prilikom zatvaranja se
+	 * nepotvrđeni zapisi poništavaju i vezi vraća prethodni način
+	 * potvrđivanja izmjena.
+	 *
+	 * @author Davor Češljaš
+	 */
+	private static class SQLSeedSink implements SeedSink, AutoCloseable {
+
+		/**
+		 * Članska varijabla koja predstavlja pripremljenu naredbu za unos
+		 * anketnih pitanja
+		 */
+		private final PreparedStatement pollsInsert;
+
+		/** Članska varijabla koja predstavlja grupni unos odgovora */
+		private final PollOptionsBatch batch;
+
+		/** Članska varijabla koja predstavlja vezu sa bazom podataka */
+		private final Connection con;
+
+		/**
+		 * Članska varijabla koja predstavlja način potvrđivanja izmjena veze
+		 * prije stvaranja primjerka ovog razreda
+		 */
+		private final boolean autoCommit;
+
+		/**
+		 * Članska varijabla koja predstavlja broj redaka unesenih iz trenutne
+		 * seed datoteke
+		 */
+		private long rows;
+
+		/**
+		 * Konstruktor koji priprema naredbe za unos.
+		 *
+		 * @param con
+		 *            veza sa bazom podataka
+		 * @param batchSize
+		 *            najveći broj redaka koji se šalju bazi podataka odjednom
+		 * @throws SQLException
+		 *             ukoliko pripremanje naredbi ne uspije
+		 */
+		public SQLSeedSink(Connection con, int batchSize) throws SQLException {
+			this.con = con;
+			this.autoCommit = con.getAutoCommit();
+			this.pollsInsert = con.prepareStatement("INSERT INTO Polls (title, message) VALUES (?, ?)",
+					Statement.RETURN_GENERATED_KEYS);
+			try {
+				this.batch = new PollOptionsBatch(con, batchSize);
+			} catch (SQLException e) {
+				pollsInsert.close();
+				throw e;
+			}
+			con.setAutoCommit(false);
+		}
+
+		@Override
+		public long addPoll(String title, String message) throws IOException {
+			try {
+				pollsInsert.setString(1, title);
+				pollsInsert.setString(2, message);
+				pollsInsert.executeUpdate();
+				rows++;
+				try (ResultSet rset = pollsInsert.getGeneratedKeys()) {
+					if (rset == null || !rset.next()) {
+						throw new IOException("Baza podataka nije vratila identifikator ankete: " + title);
+					}
+					return rset.getLong(1);
+				}
+			} catch (SQLException e) {
+				throw new IOException("Ne mogu unijeti anketu: " + title, e);
+			}
+		}
+
+		@Override
+		public long addPollOption(String optionTitle, String optionLink, long pollID, long votesCount)
+				throws IOException {
+			try {
+				batch.add(optionTitle, optionLink, pollID, votesCount);
+				rows++;
+				return -1;
+			} catch (SQLException e) {
+				throw new IOException("Ne mogu unijeti odgovor: " + optionTitle, e);
+			}
+		}
+
+		@Override
+		public boolean beginFile(String fileName) throws IOException {
+			rows = 0;
+			try (PreparedStatement pst = con.prepareStatement(
+					"SELECT fileName FROM " + SEED_STATE_TABLE + " WHERE fileName = ? OR fileName = ?")) {
+				pst.setString(1, fileName);
+				pst.setString(2, ALL_FILES_SEEDED);
+				try (ResultSet rset = pst.executeQuery()) {
+					return !rset.next();
+				}
+			} catch (SQLException e) {
+				throw new IOException("Ne mogu provjeriti je li seed datoteka unesena: " + fileName, e);
+			}
+		}
+
+		@Override
+		public List<Long> getSeededPolls() throws IOException {
+			List<Long> pollIDs = new ArrayList<>();
+			try (Statement st = con.createStatement();
+					ResultSet rset = st.executeQuery("SELECT id FROM Polls ORDER BY id")) {
+				while (rset.next()) {
+					pollIDs.add(rset.getLong(1));
+				}
+			} catch (SQLException e) {
+				throw new IOException("Ne mogu dohvatiti unesena anketna pitanja", e);
+			}
+			return pollIDs;
+		}
+
+		@Override
+		public void endFile(String fileName) throws IOException {
+			try (PreparedStatement pst = con.prepareStatement("INSERT INTO " + SEED_STATE_TABLE
+					+ " (fileName, rowsInserted, seededAt) VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+				batch.finish();
+				pst.setString(1, fileName);
+				pst.setLong(2, rows);
+				pst.executeUpdate();
+				con.commit();
+			} catch (SQLException e) {
+				throw new IOException("Ne mogu unijeti seed datoteku: " + fileName, e);
+			}
+		}
+
+		@Override
+		public void close() throws SQLException {
+			try {
+				con.rollback();
+				con.setAutoCommit(autoCommit);
+			} finally {
+				try {
+					batch.close();
+				} finally {
+					pollsInsert.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pomoćno funkcijsko sučelje koje modelira posao nad bazom podataka koji
+	 * može baciti {@link SQLException}
+	 */
+	@FunctionalInterface
+	private static interface SQLWork {
+
+		/**
+		 * Metoda koja izvodi posao
+		 *
+		 * @throws SQLException
+		 *             ukoliko posao ne uspije
+		 */
+		void execute() throws SQLException;
+	}
+
 	/**
 	 * Pomoćni statički razred koji modelira jedan unos u seed datoteci. Svaki
 	 * primjerak ovog razreda sastoji se od točno dva parametra.
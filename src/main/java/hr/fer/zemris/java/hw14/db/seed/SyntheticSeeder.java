@@ -0,0 +1,67 @@
+package hr.fer.zemris.java.hw14.db.seed;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Razred koji predstavlja program za punjenje baze podataka velikim brojem
+ * izgeneriranih odgovora na anketno pitanje, a koristi se prilikom ispitivanja
+ * opterećenja. Program prima sljedeće argumente naredbenog retka:
+ * <ol>
+ * <li>URL baze podataka (npr.
+ * "jdbc:derby://localhost:1527/votingDB;user=ivica;password=ivo")</li>
+ * <li>identifikator postojećeg anketnog pitanja</li>
+ * <li>broj odgovora koje je potrebno unijeti</li>
+ * <li>(opcionalno) broj redaka koji se šalju bazi podataka odjednom, a
+ * pretpostavljeno je {@value SeedUtil#DEFAULT_BATCH_SIZE}</li>
+ * </ol>
+ * Nakon unosa program ispisuje broj unesenih redaka te brzinu unosa.
+ *
+ * @see SeedUtil#seedSyntheticPollOptions(Connection, long, long, int)
+ *
+ * @author Davor Češljaš
+ */
+public class SyntheticSeeder {
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private SyntheticSeeder() {
+	}
+
+	/**
+	 * Metoda od koje započinje izvođenje programa.
+	 *
+	 * @param args
+	 *            argumenti naredbenog retka opisani u dokumentaciji razreda
+	 */
+	public static void main(String[] args) {
+		if (args.length != 3 && args.length != 4) {
+			System.err.println("Korištenje: SyntheticSeeder <jdbcURL> <pollID> <brojOdgovora> [veličinaGrupe]");
+			System.exit(1);
+		}
+
+		long pollID;
+		long count;
+		int batchSize;
+		try {
+			pollID = Long.parseLong(args[1]);
+			count = Long.parseLong(args[2]);
+			batchSize = args.length == 4 ? Integer.parseInt(args[3]) : SeedUtil.DEFAULT_BATCH_SIZE;
+		} catch (NumberFormatException e) {
+			System.err.println("Identifikator, broj odgovora i veličina grupe moraju biti cijeli brojevi.");
+			System.exit(1);
+			return;
+		}
+
+		try (Connection con = DriverManager.getConnection(args[0])) {
+			System.out.println(SeedUtil.seedSyntheticPollOptions(con, pollID, count, batchSize));
+		} catch (SQLException | IOException e) {
+			System.err.println("Unos nije uspio: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package hr.fer.zemris.java.hw14.db.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Razred koji modelira grupni (engl. batch) unos u tablicu
+ * {@value SQLUtil#POLL_OPTIONS_DB_NAME}. Svi se redci unose jednom
+ * pripremljenom naredbom, a bazi podataka šalju se svaki put kada se nakupi
+ * <b>batchSize</b> redaka. Potvrđivanje transakcije prepušteno je
+ * pozivatelju.
+ *
+ * @author Davor Češljaš
+ */
+public class PollOptionsBatch implements AutoCloseable {
+
+	/** Članska varijabla koja predstavlja pripremljenu naredbu */
+	private final PreparedStatement pst;
+
+	/**
+	 * Članska varijabla koja predstavlja najveći broj redaka koji se šalju
+	 * bazi podataka odjednom
+	 */
+	private final int batchSize;
+
+	/** Članska varijabla koja predstavlja broj redaka koji čekaju slanje */
+	private int pending;
+
+	/** Članska varijabla koja predstavlja broj unesenih redaka */
+	private long inserted;
+
+	/**
+	 * Konstruktor koji priprema naredbu za unos.
+	 *
+	 * @param con
+	 *            veza sa bazom podataka
+	 * @param batchSize
+	 *            najveći broj redaka koji se šalju bazi podataka odjednom
+	 * @throws SQLException
+	 *             ukoliko naredbu nije moguće pripremiti
+	 */
+	public PollOptionsBatch(Connection con, int batchSize) throws SQLException {
+		this.pst = con.prepareStatement(
+				"INSERT INTO PollOptions (optionTitle, optionLink, pollID, votesCount) VALUES (?, ?, ?, ?)");
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Metoda koja dodaje jedan redak u grupu te šalje grupu ukoliko je puna.
+	 *
+	 * @param optionTitle
+	 *            naziv odgovora
+	 * @param optionLink
+	 *            link odgovora
+	 * @param pollID
+	 *            identifikator anketnog pitanja
+	 * @param votesCount
+	 *            broj glasova
+	 * @return <code>true</code> ukoliko je grupa poslana bazi podataka,
+	 *         <code>false</code> inače
+	 * @throws SQLException
+	 *             ukoliko slanje grupe ne uspije
+	 */
+	public boolean add(String optionTitle, String optionLink, long pollID, long votesCount) throws SQLException {
+		pst.setString(1, optionTitle);
+		pst.setString(2, optionLink);
+		pst.setLong(3, pollID);
+		pst.setLong(4, votesCount);
+		pst.addBatch();
+
+		if (++pending == batchSize) {
+			flush();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Metoda koja šalje preostale retke te vraća ukupan broj unesenih redaka
+	 *
+	 * @return ukupan broj unesenih redaka
+	 * @throws SQLException
+	 *             ukoliko slanje grupe ne uspije
+	 */
+	public long finish() throws SQLException {
+		if (pending > 0) {
+			flush();
+		}
+		return inserted;
+	}
+
+	/**
+	 * Metoda koja dohvaća broj do sada unesenih redaka
+	 *
+	 * @return broj do sada unesenih redaka
+	 */
+	public long getInserted() {
+		return inserted;
+	}
+
+	/**
+	 * Pomoćna metoda koja šalje nakupljenu grupu redaka bazi podataka.
+	 *
+	 * @throws SQLException
+	 *             ukoliko slanje grupe ne uspije
+	 */
+	private void flush() throws SQLException {
+		for (int status : pst.executeBatch()) {
+			if (status > 0 || status == Statement.SUCCESS_NO_INFO) {
+				inserted++;
+			}
+		}
+		pending = 0;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		pst.close();
+	}
+}
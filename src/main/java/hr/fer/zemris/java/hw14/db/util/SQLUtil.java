@@ -2,24 +2,35 @@ package hr.fer.zemris.java.hw14.db.util;
 
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import hr.fer.zemris.java.hw14.db.migration.Migration;
+import hr.fer.zemris.java.hw14.db.migration.SchemaMigrator;
+import hr.fer.zemris.java.hw14.db.seed.SeedReport;
 import hr.fer.zemris.java.hw14.db.seed.SeedUtil;
 
 /**
  * Razred koji se koristi kao bibliotka statičkih metoda preko kojih se
  * inicijalizira baza podataka. Popis metoda prikazan je u nastavku:
  * <ul>
- * <li>{@link #isTableEmpty(Connection, String)}</li>
- * <li>{@link #tableAlreadyExists(SQLException)}</li>
+ * <li>{@link #tableExists(Connection, String)}</li>
  * <li>{@link #initializeDatabase(Connection)}</li>
- * <li>{@link #createPolls(Connection)}</li>
- * <li>{@link #createPollOptions(Connection)}</li>
+ * <li>{@link #initializeDatabase(Connection, int)}</li>
+ * <li>{@link #migrateSchema(Connection)}</li>
+ * <li>{@link #getSchemaVersion(Connection)}</li>
  * </ul>
- * 
+ * <p>
+ * Shema baze podataka zadana je migracijama ({@link #MIGRATIONS}) koje
+ * primjenjuje {@link SchemaMigrator}, a primijenjene migracije pamte se u
+ * tablici {@value SchemaMigrator#SCHEMA_VERSION_TABLE}. Nova izmjena sheme
+ * (npr. indeks ili stupac) dodaje se kao nova migracija na kraj liste, dok se
+ * već objavljene migracije ne smiju mijenjati.
+ * </p>
+ *
  * @author Davor Češljaš
  */
 public class SQLUtil {
@@ -32,6 +43,54 @@ public class SQLUtil {
 	 */
 	public static final String POLL_OPTIONS_DB_NAME = "PollOptions";
 
+	/**
+	 * Konstanta koja predstavlja naziv indeksa tablice
+	 * {@value #POLL_OPTIONS_DB_NAME} po anketi i broju glasova, a koji se
+	 * koristi za dohvat poredanih odgovora jedne ankete
+	 */
+	public static final String POLL_OPTIONS_VOTES_INDEX = "PollOptions_pollID_votes";
+
+	/**
+	 * Konstanta koja predstavlja naziv indeksa tablice
+	 * {@value #POLL_OPTIONS_DB_NAME} po anketi i identifikatoru, a koji se
+	 * koristi za izmjenu broja glasova
+	 */
+	public static final String POLL_OPTIONS_ID_INDEX = "PollOptions_pollID_id";
+
+	/**
+	 * Konstanta koja predstavlja sve migracije sheme baze podataka poredane
+	 * po inačici
+	 */
+	public static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+			new Migration(1, "Tablice Polls i PollOptions",
+					"CREATE TABLE Polls "
+							+ "(id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,"
+							+ "title VARCHAR(150) NOT NULL,"
+							+ "message CLOB(2048) NOT NULL)",
+					"CREATE TABLE PollOptions "
+							+ "(id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,"
+							+ "optionTitle VARCHAR(100) NOT NULL,"
+							+ "optionLink VARCHAR(150) NOT NULL,"
+							+ "pollID BIGINT," + "votesCount BIGINT,"
+							+ "FOREIGN KEY (pollID) REFERENCES Polls(id))"),
+			new Migration(2, "Indeksi tablice PollOptions po anketi",
+					"CREATE INDEX " + POLL_OPTIONS_VOTES_INDEX + " ON PollOptions (pollID, votesCount DESC, id)",
+					"CREATE INDEX " + POLL_OPTIONS_ID_INDEX + " ON PollOptions (pollID, id)"),
+			new Migration(3, "Tablica unesenih seed datoteka",
+					"CREATE TABLE " + SeedUtil.SEED_STATE_TABLE
+							+ " (fileName VARCHAR(200) PRIMARY KEY,"
+							+ "rowsInserted BIGINT NOT NULL,"
+							+ "seededAt TIMESTAMP NOT NULL)",
+					"INSERT INTO " + SeedUtil.SEED_STATE_TABLE + " (fileName, rowsInserted, seededAt) SELECT '"
+							+ SeedUtil.ALL_FILES_SEEDED + "', (SELECT COUNT(*) FROM Polls), CURRENT_TIMESTAMP"
+							+ " FROM SYSIBM.SYSDUMMY1 WHERE EXISTS (SELECT id FROM Polls)")));
+
+	/**
+	 * Konstanta koja predstavlja primjerak razreda {@link SchemaMigrator}
+	 * koji primjenjuje migracije {@link #MIGRATIONS}
+	 */
+	private static final SchemaMigrator MIGRATOR = new SchemaMigrator(MIGRATIONS, SQLUtil::detectBaseline);
+
 	/**
 	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
 	 * stvarati izvan samog razreda.
@@ -40,132 +99,137 @@ public class SQLUtil {
 	}
 
 	/**
-	 * Statička metoda koja na temelju predane veze sa bazom podataka
-	 * predstavljene sa sučeljem {@link Connection} provjerava postoji li
-	 * tablica sa imenom <b>tableName</b> te ima li u njoj zapisa
+	 * Statička metoda koja preko kataloga baze podataka provjerava postoji li
+	 * tablica sa imenom <b>tableName</b>. Sama tablica se pritom ne čita.
 	 *
 	 * @param con
 	 *            veze sa bazom podataka predstavljene sa sučeljem
 	 *            {@link Connection}
 	 * @param tableName
-	 *            naziv tablice unutar baze podataka čija se prisutnost, odnosno
-	 *            napunjenost provjerava
-	 * @return <code>true</code> ukoliko u tablici ne postoji niti jedan unos
-	 *         ili ukoliko tablica ne postoji u bazi podataka,
+	 *            naziv tablice unutar baze podataka čija se prisutnost
+	 *            provjerava
+	 * @return <code>true</code> ukoliko tablica postoji u bazi podataka,
 	 *         <code>false</code> inače
+	 * @throws SQLException
+	 *             ukoliko dohvat iz kataloga ne uspije
 	 */
-	public static boolean isTableEmpty(Connection con, String tableName) {
-		try (PreparedStatement pst = con.prepareStatement("select * from " + tableName);
-				ResultSet rset = pst.executeQuery()) {
-
-			if (rset != null && rset.next()) {
-				return false;
-			}
-
-		} catch (SQLException e) {
-		}
-
-		return true;
+	public static boolean tableExists(Connection con, String tableName) throws SQLException {
+		return SchemaMigrator.tableExists(con, tableName);
 	}
 
 	/**
-	 * Statička metoda koja provjerava status bačene iznimke, koja me modelirana
-	 * razredom {@link SQLException}. Ukoliko je njezin status jednak "X0Y32",
-	 * metoda zaključuje da tablica već postoji u bazi podataka
+	 * Statička metoda koja inicijalizira bazu podataka, pri čemu se odgovori
+	 * na anketna pitanja unose u grupama od
+	 * {@value SeedUtil#DEFAULT_BATCH_SIZE} redaka.
+	 *
+	 * @param con
+	 *            veze sa bazom podataka predstavljene sa sučeljem
+	 *            {@link Connection}
+	 * @return {@link List} izvještaja o unosu za svaku napunjenu tablicu
+	 * @throws IOException
+	 *             Ukoliko migracije ili metode za punjenje tablice bace ovu
+	 *             iznimku
 	 *
-	 * @param exception
-	 *            primjerak razreda {@link SQLException} koji je bačen
-	 * @return <code>true</code> ukoliko status ukazuje da tablica već postoji u
-	 *         bazi podataka, <code>false</code> inače
+	 * @see #initializeDatabase(Connection, int)
 	 */
-	public static boolean tableAlreadyExists(SQLException exception) {
-		return exception.getSQLState().equals("X0Y32");
+	public static List<SeedReport> initializeDatabase(Connection con) throws IOException {
+		return initializeDatabase(con, SeedUtil.DEFAULT_BATCH_SIZE);
 	}
 
 	/**
-	 * Statička metoda koja inicijalizira bazu podataka. Ukoliko tablica
-	 * {@value #POLLS_DB_NAME} već postoji u memoriji te ukoliko je ona
-	 * napunjena metoda samo kreira tablicu {@value #POLL_OPTIONS_DB_NAME}, ako
-	 * ona nije prisutna u bazi podataka. Ukoliko su obe tablice barem prazne
-	 * (dakle mogu postojati u bazi), one se pune inicijalnim vrijednostima
-	 * preko {@link SeedUtil} biblioteke.
+	 * Statička metoda koja inicijalizira bazu podataka. Shema se prvo podiže
+	 * na najnoviju inačicu metodom {@link #migrateSchema(Connection)}, a
+	 * tablice {@value #POLLS_DB_NAME} i {@value #POLL_OPTIONS_DB_NAME} se
+	 * zatim pune inicijalnim vrijednostima preko {@link SeedUtil} biblioteke.
+	 * Unesene seed datoteke bilježe se u tablici
+	 * {@value SeedUtil#SEED_STATE_TABLE}, pa se punjenje koje ne uspije
+	 * nastavlja prilikom sljedećeg pokretanja, dok se već unesene datoteke
+	 * preskaču. Baze podataka koje su sadržavale anketna pitanja prije
+	 * uvođenja te tablice migracija V3 označava potpuno napunjenima.
 	 *
 	 * @param con
 	 *            veze sa bazom podataka predstavljene sa sučeljem
 	 *            {@link Connection}
+	 * @param batchSize
+	 *            najveći broj redaka koji se prilikom punjenja tablica šalju
+	 *            bazi podataka odjednom
+	 * @return {@link List} izvještaja o unosu za svaku napunjenu tablicu
 	 * @throws IOException
-	 *             Ukoliko metode za stvaranje ili metode za punjenje tablice
-	 *             bace ovu iznimku
-	 * 
+	 *             Ukoliko migracije ili metode za punjenje tablice bace ovu
+	 *             iznimku
+	 *
 	 * @see SeedUtil
 	 */
-	public static void initializeDatabase(Connection con) throws IOException {
-		List<Long> foreignKeys = null;
-		if (isTableEmpty(con, POLLS_DB_NAME)) {
-			createPolls(con);
-			foreignKeys = SeedUtil.seedPolls(con);
-		}
-
-		if (isTableEmpty(con, POLL_OPTIONS_DB_NAME)) {
-			createPollOptions(con);
-
-			if (foreignKeys != null) {
-				SeedUtil.seedPollOptions(con, foreignKeys);
-			}
-		}
+	public static List<SeedReport> initializeDatabase(Connection con, int batchSize) throws IOException {
+		migrateSchema(con);
+		return SeedUtil.seed(con, batchSize);
 	}
 
 	/**
-	 * Statička metoda koja vrši izradu tablice {@value #POLLS_DB_NAME} unutar
-	 * baze podataka. Metoda ukoliko ne uspije kreirati tablicu baca
-	 * {@link IOException}
+	 * Statička metoda koja shemu baze podataka podiže na najnoviju inačicu
+	 * primjenom migracija {@link #MIGRATIONS}. Baze podataka stvorene prije
+	 * uvođenja migracija prepoznaju se po postojećim tablicama te se njihova
+	 * inačica samo zabilježi. Ukoliko postoji samo jedna od tablica
+	 * {@value #POLLS_DB_NAME} i {@value #POLL_OPTIONS_DB_NAME}, druga se
+	 * stvara naredbom migracije V1.
 	 *
 	 * @param con
 	 *            veze sa bazom podataka predstavljene sa sučeljem
 	 *            {@link Connection}
+	 * @return {@link List} migracija primijenjenih ovim pozivom
 	 * @throws IOException
-	 *             Ukoliko metoda nije uspjela kreirati tablicu
+	 *             Ukoliko neku od migracija nije moguće primijeniti ili
+	 *             ukoliko su primijenjene migracije naknadno izmijenjene
 	 */
-	public static void createPolls(Connection con) throws IOException {
-		try {
-			PreparedStatement pst = con
-					.prepareStatement("CREATE TABLE Polls " 
-							+ "(id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,"
-							+ "title VARCHAR(150) NOT NULL," 
-							+ "message CLOB(2048) NOT NULL)");
-			pst.executeUpdate();
-		} catch (SQLException e) {
-			if (!tableAlreadyExists(e)) {
-				throw new IOException("Ne mogu kreirati tablicu 'Polls'", e);
-			}
-		}
+	public static List<Migration> migrateSchema(Connection con) throws IOException {
+		return MIGRATOR.migrate(con);
 	}
 
 	/**
-	 * Statička metoda koja vrši izradu tablice {@value #POLL_OPTIONS_DB_NAME}
-	 * unutar baze podataka. Metoda ukoliko ne uspije kreirati tablicu baca
-	 * {@link IOException}
+	 * Statička metoda koja dohvaća trenutnu inačicu sheme baze podataka.
 	 *
 	 * @param con
 	 *            veze sa bazom podataka predstavljene sa sučeljem
 	 *            {@link Connection}
-	 * @throws IOException
-	 *             Ukoliko metoda nije uspjela kreirati tablicu
+	 * @return trenutna inačica sheme baze podataka ili 0 ukoliko niti jedna
+	 *         migracija nije primijenjena
+	 * @throws SQLException
+	 *             ukoliko dohvat ne uspije
 	 */
-	public static void createPollOptions(Connection con) throws IOException {
-		try {
-			PreparedStatement pst = con.prepareStatement(
-					"CREATE TABLE PollOptions " 
-							+ "(id BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,"
-							+ "optionTitle VARCHAR(100) NOT NULL," 
-							+ "optionLink VARCHAR(150) NOT NULL,"
-							+ "pollID BIGINT," + "votesCount BIGINT," 
-							+ "FOREIGN KEY (pollID) REFERENCES Polls(id))");
-			pst.executeUpdate();
+	public static int getSchemaVersion(Connection con) throws SQLException {
+		return MIGRATOR.getCurrentVersion(con);
+	}
+
+	/**
+	 * Pomoćna metoda koja određuje inačicu sheme stvorene prije uvođenja
+	 * migracija. Ukoliko postoje obje tablice, shema ima inačicu 1. Ukoliko
+	 * postoji samo jedna od njih (npr. zbog prekinutog stvaranja sheme),
+	 * nedostajuća tablica stvara se odgovarajućom naredbom migracije V1, pa
+	 * shema također ima inačicu 1, umjesto da migracija V1 pri svakom
+	 * pokretanju ne uspije zbog već postojeće tablice.
+	 *
+	 * @param con
+	 *            veze sa bazom podataka predstavljene sa sučeljem
+	 *            {@link Connection}
+	 * @return inačica postojeće sheme ili 0 ukoliko je baza podataka prazna
+	 * @throws SQLException
+	 *             ukoliko određivanje ne uspije
+	 */
+	private static int detectBaseline(Connection con) throws SQLException {
+		boolean polls = tableExists(con, POLLS_DB_NAME);
+		boolean pollOptions = tableExists(con, POLL_OPTIONS_DB_NAME);
+		if (polls == pollOptions) {
+			return polls ? 1 : 0;
+		}
+
+		List<String> statements = MIGRATIONS.get(0).getStatements();
+		try (Statement st = con.createStatement()) {
+			st.executeUpdate(polls ? statements.get(1) : statements.get(0));
 		} catch (SQLException e) {
-			if (!tableAlreadyExists(e)) {
-				throw new IOException("Ne mogu kreirati tablicu 'PollOptions'", e);
-			}
+			throw new SQLException("Baza podataka sadrži samo tablicu "
+					+ (polls ? POLLS_DB_NAME : POLL_OPTIONS_DB_NAME) + ", a nedostajuću tablicu nije moguće stvoriti: "
+					+ e.getMessage(), e.getSQLState(), e);
 		}
+		return 1;
 	}
 }
@@ -0,0 +1,184 @@
+package hr.fer.zemris.java.hw14.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Razred koji modelira histogram trajanja (u nanosekundama), napisan po uzoru
+ * na <a href="http://hdrhistogram.org/">HdrHistogram</a>. Vrijednosti se
+ * svrstavaju u razrede čija širina raste eksponencijalno, pri čemu je svaka
+ * potencija broja 2 podijeljena na {@value #SUB_BUCKETS} jednakih dijelova.
+ * Tako je relativna pogreška svakog izračunatog percentila manja od
+ * 1/{@value #SUB_BUCKETS}, a histogram zauzima stalnu količinu memorije
+ * neovisno o broju zabilježenih vrijednosti.
+ * <p>
+ * Bilježenje vrijednosti ne koristi zaključavanje (koriste se samo atomarne
+ * operacije), pa je histogram moguće koristiti iz velikog broja dretvi bez
+ * međusobnog blokiranja.
+ * </p>
+ *
+ * @see MetricsRegistry
+ *
+ * @author Davor Češljaš
+ */
+public class LatencyHistogram {
+
+	/** Konstanta koja predstavlja broj bitova preciznosti svakog razreda */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/**
+	 * Konstanta koja predstavlja broj razreda na koje je podijeljena svaka
+	 * potencija broja 2
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** Konstanta koja predstavlja ukupan broj razreda histograma */
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/** Članska varijabla koja predstavlja broj vrijednosti u svakom razredu */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/** Članska varijabla koja predstavlja broj zabilježenih vrijednosti */
+	private final LongAdder count = new LongAdder();
+
+	/** Članska varijabla koja predstavlja zbroj zabilježenih vrijednosti */
+	private final LongAdder sum = new LongAdder();
+
+	/** Članska varijabla koja predstavlja najveću zabilježenu vrijednost */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Metoda koja bilježi jedno trajanje u histogram. Negativne vrijednosti
+	 * bilježe se kao 0.
+	 *
+	 * @param nanos
+	 *            trajanje u nanosekundama
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+
+		counts.incrementAndGet(bucketIndex(nanos));
+		count.increment();
+		sum.add(nanos);
+
+		long currentMax;
+		while (nanos > (currentMax = max.get()) && !max.compareAndSet(currentMax, nanos)) {
+		}
+	}
+
+	/**
+	 * Metoda koja bilježi trajanje od trenutka <b>startNanos</b> (dobivenog
+	 * pozivom {@link System#nanoTime()}) do trenutka poziva ove metode.
+	 *
+	 * @param startNanos
+	 *            trenutak početka mjerenja dobiven pozivom
+	 *            {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Metoda koja dohvaća broj zabilježenih vrijednosti
+	 *
+	 * @return broj zabilježenih vrijednosti
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Metoda koja dohvaća prosječnu zabilježenu vrijednost u nanosekundama
+	 *
+	 * @return prosječnu zabilježenu vrijednost ili 0 ukoliko nije zabilježena
+	 *         niti jedna vrijednost
+	 */
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * Metoda koja dohvaća najveću zabilježenu vrijednost u nanosekundama
+	 *
+	 * @return najveću zabilježenu vrijednost
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Metoda koja izračunava vrijednost (u nanosekundama) ispod koje se nalazi
+	 * <b>percentile</b> posto svih zabilježenih vrijednosti. Vraćena vrijednost
+	 * predstavlja gornju granicu razreda u koji percentil pada, ali nikada nije
+	 * veća od najveće zabilježene vrijednosti.
+	 *
+	 * @param percentile
+	 *            percentil između 0 i 100
+	 * @return vrijednost percentila ili 0 ukoliko nije zabilježena niti jedna
+	 *         vrijednost
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+
+		if (total == 0) {
+			return 0;
+		}
+
+		long target = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= target) {
+				return Math.min(bucketUpperBound(i), getMax());
+			}
+		}
+
+		return getMax();
+	}
+
+	/**
+	 * Pomoćna metoda koja izračunava indeks razreda u koji pada vrijednost
+	 * <b>value</b>
+	 *
+	 * @param value
+	 *            nenegativna vrijednost
+	 * @return indeks razreda
+	 */
+	private static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+	}
+
+	/**
+	 * Pomoćna metoda koja izračunava najveću vrijednost koja pada u razred sa
+	 * indeksom <b>index</b>
+	 *
+	 * @param index
+	 *            indeks razreda
+	 * @return najveća vrijednost razreda
+	 */
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long mantissa = index % SUB_BUCKETS;
+		long lower = (1L << exponent) | (mantissa << (exponent - SUB_BUCKET_BITS));
+		return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+}
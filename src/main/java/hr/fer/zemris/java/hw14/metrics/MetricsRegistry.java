@@ -0,0 +1,213 @@
+package hr.fer.zemris.java.hw14.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Razred koji se koristi kao središnje mjesto za bilježenje mjerenja unutar
+ * ove aplikacije. Ovom razredu ne mogu se stvarati primjerci. Razred razlikuje
+ * tri vrste mjerenja:
+ * <ul>
+ * <li>brojače ({@link LongAdder}), koji se samo povećavaju</li>
+ * <li>histograme trajanja ({@link LatencyHistogram})</li>
+ * <li>mjerače (engl. gauge), odnosno vrijednosti koje se izračunavaju tek
+ * prilikom ispisa, a predstavljene su sučeljem {@link LongSupplier}</li>
+ * </ul>
+ * Svako mjerenje ima jedinstveno ime. Sva zabilježena mjerenja moguće je
+ * ispisati u obliku običnog teksta metodom {@link #toText()} ili u JSON obliku
+ * metodom {@link #toJson()}. Trajanja se ispisuju u milisekundama.
+ *
+ * @see LatencyHistogram
+ *
+ * @author Davor Češljaš
+ */
+public class MetricsRegistry {
+
+	/** Konstanta koja predstavlja broj nanosekundi u jednoj milisekundi */
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	/** Konstanta koja predstavlja percentile koji se ispisuju za histograme */
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	/** Konstanta koja predstavlja sve brojače */
+	private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+	/** Konstanta koja predstavlja sve histograme trajanja */
+	private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+	/** Konstanta koja predstavlja sve mjerače */
+	private static final Map<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+
+	/**
+	 * Privatni konstruktor koji služi tome da se primjerci ovog razreda ne mogu
+	 * stvarati izvan samog razreda.
+	 */
+	private MetricsRegistry() {
+	}
+
+	/**
+	 * Metoda koja dohvaća brojač sa imenom <b>name</b>. Ukoliko brojač ne
+	 * postoji, on se stvara.
+	 *
+	 * @param name
+	 *            ime brojača
+	 * @return brojač sa imenom <b>name</b>
+	 */
+	public static LongAdder counter(String name) {
+		return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+	}
+
+	/**
+	 * Metoda koja dohvaća histogram trajanja sa imenom <b>name</b>. Ukoliko
+	 * histogram ne postoji, on se stvara.
+	 *
+	 * @param name
+	 *            ime histograma
+	 * @return histogram trajanja sa imenom <b>name</b>
+	 */
+	public static LatencyHistogram histogram(String name) {
+		return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+	}
+
+	/**
+	 * Metoda koja registrira mjerač sa imenom <b>name</b>. Ukoliko mjerač sa
+	 * istim imenom već postoji, on se zamjenjuje novim.
+	 *
+	 * @param name
+	 *            ime mjerača
+	 * @param gauge
+	 *            funkcija koja izračunava vrijednost mjerača
+	 */
+	public static void registerGauge(String name, LongSupplier gauge) {
+		GAUGES.put(name, gauge);
+	}
+
+	/**
+	 * Metoda koja uklanja mjerač sa imenom <b>name</b>
+	 *
+	 * @param name
+	 *            ime mjerača
+	 */
+	public static void removeGauge(String name) {
+		GAUGES.remove(name);
+	}
+
+	/**
+	 * Metoda koja sva mjerenja ispisuje u obliku običnog teksta, jedno
+	 * mjerenje po retku, poredano po imenu.
+	 *
+	 * @return sva mjerenja u obliku običnog teksta
+	 */
+	public static String toText() {
+		StringBuilder sb = new StringBuilder();
+
+		new TreeMap<>(GAUGES).forEach((name, gauge) -> sb.append(name).append(' ').append(gauge.getAsLong())
+				.append('\n'));
+		new TreeMap<>(COUNTERS).forEach((name, counter) -> sb.append(name).append(' ').append(counter.sum())
+				.append('\n'));
+		new TreeMap<>(HISTOGRAMS).forEach((name, histogram) -> {
+			sb.append(name).append(" count=").append(histogram.getCount());
+			sb.append(" mean=").append(millis(histogram.getMean()));
+			for (double percentile : PERCENTILES) {
+				sb.append(" p").append(percentileName(percentile)).append('=')
+						.append(millis(histogram.getPercentile(percentile)));
+			}
+			sb.append(" max=").append(millis(histogram.getMax())).append('\n');
+		});
+
+		return sb.toString();
+	}
+
+	/**
+	 * Metoda koja sva mjerenja ispisuje u JSON obliku. Objekt sadrži ključeve
+	 * "gauges", "counters" i "histograms".
+	 *
+	 * @return sva mjerenja u JSON obliku
+	 */
+	public static String toJson() {
+		StringBuilder sb = new StringBuilder("{\"gauges\":{");
+
+		appendJsonValues(sb, new TreeMap<>(GAUGES), LongSupplier::getAsLong);
+		sb.append("},\"counters\":{");
+		appendJsonValues(sb, new TreeMap<>(COUNTERS), LongAdder::sum);
+		sb.append("},\"histograms\":{");
+
+		boolean first = true;
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(HISTOGRAMS).entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			sb.append(first ? "" : ",").append(quote(entry.getKey())).append(":{\"count\":")
+					.append(histogram.getCount()).append(",\"mean\":").append(millis(histogram.getMean()));
+			for (double percentile : PERCENTILES) {
+				sb.append(",\"p").append(percentileName(percentile)).append("\":")
+						.append(millis(histogram.getPercentile(percentile)));
+			}
+			sb.append(",\"max\":").append(millis(histogram.getMax())).append('}');
+			first = false;
+		}
+
+		return sb.append("}}").toString();
+	}
+
+	/**
+	 * Pomoćna metoda koja u JSON obliku ispisuje parove ime-vrijednost
+	 * predane mape.
+	 *
+	 * @param sb
+	 *            spremnik u koji se ispisuju parovi
+	 * @param values
+	 *            mapa čiji se parovi ispisuju
+	 * @param extractor
+	 *            funkcija koja iz vrijednosti mape izračunava broj
+	 * @param <T>
+	 *            tip vrijednosti mape
+	 */
+	private static <T> void appendJsonValues(StringBuilder sb, Map<String, T> values,
+			ToLongFunction<T> extractor) {
+		boolean first = true;
+		for (Map.Entry<String, T> entry : values.entrySet()) {
+			sb.append(first ? "" : ",").append(quote(entry.getKey())).append(':')
+					.append(extractor.applyAsLong(entry.getValue()));
+			first = false;
+		}
+	}
+
+	/**
+	 * Pomoćna metoda koja trajanje u nanosekundama pretvara u niz znakova koji
+	 * predstavlja trajanje u milisekundama
+	 *
+	 * @param nanos
+	 *            trajanje u nanosekundama
+	 * @return trajanje u milisekundama
+	 */
+	private static String millis(double nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+	}
+
+	/**
+	 * Pomoćna metoda koja stvara ime percentila (npr. "99" ili "99_9")
+	 *
+	 * @param percentile
+	 *            percentil
+	 * @return ime percentila
+	 */
+	private static String percentileName(double percentile) {
+		return percentile == Math.floor(percentile) ? String.valueOf((long) percentile)
+				: String.valueOf(percentile).replace('.', '_');
+	}
+
+	/**
+	 * Pomoćna metoda koja niz znakova <b>value</b> pretvara u JSON niz znakova
+	 *
+	 * @param value
+	 *            niz znakova
+	 * @return JSON niz znakova
+	 */
+	private static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
@@ -25,17 +25,37 @@
 			<c:forEach var="pollOption" items="${pollOptions}">
 				<tr>
 					<td>${pollOption.optionTitle}</td>
-					<td>${pollOption.votesCount}</td>
+					<td id="votes-${pollOption.id}">${pollOption.votesCount}</td>
 				</tr>
 			</c:forEach>
 		</tbody>
 	</table>
+	<script type="text/javascript">
+		// broj glasova osvježava se uživo dok je stranica otvorena
+		if (window.EventSource) {
+			var source = new EventSource("/voting-app/servleti/glasanje-uzivo?pollID=${poll.id}");
+			var update = function(event) {
+				var votes = JSON.parse(event.data);
+				for (var id in votes) {
+					var cell = document.getElementById("votes-" + id);
+					if (cell) {
+						cell.textContent = votes[id];
+					}
+				}
+			};
+			source.addEventListener("snapshot", update);
+			source.addEventListener("votes", update);
+		}
+	</script>
 	<h2>Grafički prikaz rezultata</h2>
-	<img class="centered-container" alt="Pie-chart" src="/voting-app/servleti/glasanje-grafika?pollID=${poll.id}" width="400" height="400" />
+	<img class="centered-container" alt="Pie-chart" src="/voting-app/servleti/glasanje-grafika?pollID=${poll.id}&format=svg&width=400&height=400" width="400" height="400" />
 	<h2>Results in XLS format</h2>
 	<p>
 		Results in XLS format are available <a href="/voting-app/servleti/glasanje-xls?pollID=${poll.id}">here</a>
 	</p>
+	<p>
+		Results in XLSX format (recommended for very large polls) are available <a href="/voting-app/servleti/glasanje-xls?pollID=${poll.id}&format=xlsx">here</a>
+	</p>
 	<h2>Razno</h2>
 	<p>Linkovi na reprezentaciju pobjedničkih odgovora:</p>
 	<ul>